@@ -2,7 +2,6 @@ package com.sortagreg.graphinglibrary.fragments;
 
 
 import android.graphics.Paint;
-import android.graphics.PointF;
 import android.os.Bundle;
 import androidx.fragment.app.Fragment;
 import android.view.LayoutInflater;
@@ -12,6 +11,7 @@ import android.view.ViewGroup;
 import com.sortagreg.graphinglibrary.R;
 import com.sortagreg.graphview.GraphView;
 import com.sortagreg.graphview.GraphViewDataModel;
+import com.sortagreg.graphview.StateGraphViewDataModel;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -82,12 +82,11 @@ public class GraphViewFragment extends Fragment {
         paint.setColor(0xFFFF00FF);
         paint.setStrokeWidth(5f);
         boolean state = false;
-        PointF[] stateLine = new PointF[DATA_SET_LENGTH];
-        for (int i = 0; i <= stateLine.length - 1; i++) {
-            stateLine[i] = new PointF(0f, state ? 1 : 0);
+        StateGraphViewDataModel stateLine = new StateGraphViewDataModel(paint);
+        for (int i = 0; i <= DATA_SET_LENGTH - 1; i++) {
+            stateLine.append(state ? 1 : 0);
             if (i % 3 == 0) state = !state;
         }
-        GraphViewDataModel graphViewDataModel = new GraphViewDataModel(stateLine, paint, GraphViewDataModel.STATE_LINE);
-        dataSetList.add(graphViewDataModel);
+        dataSetList.add(stateLine);
     }
 }
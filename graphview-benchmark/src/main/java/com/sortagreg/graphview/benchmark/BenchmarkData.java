@@ -0,0 +1,91 @@
+package com.sortagreg.graphview.benchmark;
+
+import com.sortagreg.graphview.core.Series;
+
+/**
+ * Generates the data sets the benchmarks run on.
+ *
+ * The values are deterministic so runs can be compared with each other.
+ */
+final class BenchmarkData {
+    private BenchmarkData() {
+    }
+
+    /**
+     * Maps the name used in a @Param to the graph type.
+     *
+     * @param name STANDARD, UNFOLDED, CONSTANT or STATE
+     * @return int graph type of Series
+     */
+    static int graphType(String name) {
+        switch (name) {
+            case "STANDARD":
+                return Series.STANDARD_LINE;
+            case "UNFOLDED":
+                return Series.UNFOLDED_LINE;
+            case "CONSTANT":
+                return Series.CONSTANT_LINE;
+            case "STATE":
+                return Series.STATE_LINE;
+            default:
+                throw new IllegalArgumentException("Unknown graph type " + name);
+        }
+    }
+
+    /**
+     * Maps the name used in a @Param to the decimation mode.
+     *
+     * @param name NONE, MIN_MAX or LTTB
+     * @return int decimation mode of Series
+     */
+    static int decimationMode(String name) {
+        switch (name) {
+            case "NONE":
+                return Series.DECIMATION_NONE;
+            case "MIN_MAX":
+                return Series.DECIMATION_MIN_MAX;
+            case "LTTB":
+                return Series.DECIMATION_LTTB;
+            default:
+                throw new IllegalArgumentException("Unknown decimation mode " + name);
+        }
+    }
+
+    /**
+     * @param count number of points
+     * @return float[] ascending X values, one per sample
+     */
+    static float[] xValues(int count) {
+        float[] x = new float[count];
+        for (int i = 0; i < count; i++) {
+            x[i] = i;
+        }
+        return x;
+    }
+
+    /**
+     * Y values shaped like the data a graph type is meant for.  State lines get runs of 0 and 1,
+     * everything else gets a noisy sine wave.
+     *
+     * @param graphType graph type of Series
+     * @param count number of points
+     * @param seed varies the data between series
+     * @return float[] Y values
+     */
+    static float[] yValues(int graphType, int count, int seed) {
+        float[] y = new float[count];
+        if (graphType == Series.STATE_LINE) {
+            for (int i = 0; i < count; i++) {
+                y[i] = ((i + seed * 37) / 1000) % 2;
+            }
+            return y;
+        }
+        // A small linear congruential generator, java.util.Random would dominate the setup time
+        int noise = 0x2545F491 + seed;
+        for (int i = 0; i < count; i++) {
+            noise = noise * 1103515245 + 12345;
+            y[i] = (float) Math.sin((i + seed * 100) / 500.0) * 100f + ((noise >>> 16) & 0xFF) / 25.6f;
+        }
+        return y;
+    }
+}
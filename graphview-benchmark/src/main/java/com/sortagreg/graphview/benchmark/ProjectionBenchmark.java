@@ -0,0 +1,133 @@
+package com.sortagreg.graphview.benchmark;
+
+import com.sortagreg.graphview.core.GraphFrame;
+import com.sortagreg.graphview.core.GraphPainter;
+import com.sortagreg.graphview.core.RecordingRenderer;
+import com.sortagreg.graphview.core.Series;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the work of a frame, split the way GraphView does it: projecting the data sets,
+ * submitting one drawLines() call per data set, and generating and drawing the labels.
+ *
+ * Drawing goes to a counting RecordingRenderer, so the numbers are the cost of the graph code
+ * without the cost of the Canvas.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ProjectionBenchmark {
+    private static final int HEIGHT = 720;
+
+    @Param({"STANDARD", "UNFOLDED", "CONSTANT", "STATE"})
+    public String graphType;
+
+    @Param({"1000", "100000", "10000000"})
+    public int pointCount;
+
+    @Param({"1", "8"})
+    public int seriesCount;
+
+    // Width of the plot in pixels, the view is wider by the margins
+    @Param({"720", "2560"})
+    public int plotWidth;
+
+    @Param({"MIN_MAX"})
+    public String decimation;
+
+    private final List<Series<RecordingRenderer.Style>> dataSets = new ArrayList<>();
+    private GraphFrame<RecordingRenderer.Style> frame;
+    private GraphPainter<RecordingRenderer.Style> painter;
+    private RecordingRenderer renderer;
+
+    @Setup
+    public void setUp() {
+        int type = BenchmarkData.graphType(graphType);
+        float[] xValues = BenchmarkData.xValues(pointCount);
+        int width = plotWidth + (int) (GraphPainter.DEFAULT_LEFT_MARGIN + GraphPainter.DEFAULT_RIGHT_MARGIN);
+        renderer = new RecordingRenderer(width, HEIGHT);
+        painter = new GraphPainter<>(renderer);
+        painter.setTopAxisMargin(GraphPainter.DEFAULT_TOP_MARGIN);
+        painter.setBottomAxisMargin(GraphPainter.DEFAULT_BOTTOM_MARGIN);
+        painter.setLeftAxisMargin(GraphPainter.DEFAULT_LEFT_MARGIN);
+        painter.setRightAxisMargin(GraphPainter.DEFAULT_RIGHT_MARGIN);
+        painter.setLeftSideLabels(true);
+        painter.setXAxisLabels(true);
+        painter.setRightSideLabels(true);
+        painter.setShouldDrawBox(true);
+        painter.setTitle("Benchmark");
+
+        dataSets.clear();
+        for (int i = 0; i < seriesCount; i++) {
+            // The data sets share the X values, like samples taken at the same times
+            Series<RecordingRenderer.Style> series = new Series<>(xValues, BenchmarkData.yValues(type, pointCount, i),
+                    renderer.createLinePaint(0xFF000000 | (i * 0x3F2F1F), 3f), type);
+            series.setDecimationMode(BenchmarkData.decimationMode(decimation));
+            dataSets.add(series);
+        }
+
+        frame = new GraphFrame<>();
+        frame.setSize(width, HEIGHT);
+        frame.setMargins(painter.getTopAxisMargin(), painter.getBottomAxisMargin(), painter.getLeftAxisMargin(), painter.getRightAxisMargin());
+        frame.setDataSets(dataSets, Collections.<Series<RecordingRenderer.Style>>emptyList());
+        if (!frame.project()) throw new IllegalStateException("Projection was cancelled");
+    }
+
+    /**
+     * Redrawing unchanged data, decimated data sets are served from their caches.
+     */
+    @Benchmark
+    public boolean project() {
+        return frame.project();
+    }
+
+    /**
+     * Redrawing after every data set changed, the bounds and the decimation are redone.
+     */
+    @Benchmark
+    public boolean projectChangedData() {
+        for (int i = 0; i < dataSets.size(); i++) {
+            dataSets.get(i).notifyDataChanged();
+        }
+        return frame.project();
+    }
+
+    /**
+     * Submitting the projected data sets, one drawLines() call each.
+     */
+    @Benchmark
+    public int drawFrame() {
+        renderer.reset();
+        painter.drawFrame(renderer, frame);
+        return renderer.getLineSegments();
+    }
+
+    /**
+     * Generating and drawing the labels, titles and axes.
+     */
+    @Benchmark
+    public int drawChrome() {
+        renderer.reset();
+        painter.drawChromeLayer(renderer, frame);
+        return renderer.getDrawCalls();
+    }
+}
@@ -0,0 +1,63 @@
+package com.sortagreg.graphview.benchmark;
+
+import com.sortagreg.graphview.core.Series;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building data sets from float[] pairs and rescanning their bounds.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SeriesBenchmark {
+    @Param({"STANDARD", "UNFOLDED", "CONSTANT", "STATE"})
+    public String graphType;
+
+    @Param({"1000", "100000", "10000000"})
+    public int pointCount;
+
+    private float[] xValues;
+    private float[] yValues;
+    private Series<Object> series;
+
+    @Setup
+    public void setUp() {
+        int type = BenchmarkData.graphType(graphType);
+        xValues = BenchmarkData.xValues(pointCount);
+        yValues = BenchmarkData.yValues(type, pointCount, 0);
+        series = new Series<>(xValues, yValues, null, type);
+    }
+
+    /**
+     * Adopting the arrays, including the scan for the bounds of the new data set.
+     */
+    @Benchmark
+    public Series<Object> buildSeries() {
+        return new Series<>(xValues, yValues, null, BenchmarkData.graphType(graphType));
+    }
+
+    /**
+     * Rescanning the bounds after the arrays were changed in place.
+     */
+    @Benchmark
+    public float recomputeBounds() {
+        series.notifyDataChanged();
+        return series.getMaxY();
+    }
+}
@@ -0,0 +1,75 @@
+package com.sortagreg.graphview.core;
+
+import java.util.Arrays;
+
+/**
+ * Reusable list of the values shown as labels along an axis.
+ *
+ * Generating the labels for a frame fills the same int[] every time, so drawing the labels
+ * does not allocate once the buffer is large enough.
+ */
+class AxisLabels {
+    private int[] values = new int[32];
+    private int count;
+
+    /**
+     * Picks rounded label values spread over a range.
+     *
+     * @param minValue lowest value on the axis
+     * @param rangeOfValues range of values on the axis
+     * @param numberOfLabels number of labels wanted, the result can be off by a couple
+     * @return int number of labels generated
+     */
+    int generate(int minValue, int rangeOfValues, int numberOfLabels) {
+        count = 0;
+        // Data sets that do not set this axis leave an empty or inverted range, there is nothing to label
+        if (rangeOfValues <= 0) return count;
+        int valuePerLabel = rangeOfValues / (numberOfLabels + 1);
+        int roundingFactor = (int) Math.pow(10, digitCount(valuePerLabel) / 2);
+        valuePerLabel = (valuePerLabel / roundingFactor) * roundingFactor;
+        // A range smaller than the number of labels would never get past the first label
+        if (valuePerLabel <= 0) valuePerLabel = 1;
+        int initialLabelValue = ((minValue / roundingFactor) * roundingFactor) + (roundingFactor);
+        if (initialLabelValue > minValue - (valuePerLabel / 2) && initialLabelValue < minValue + (valuePerLabel / 2) ) {
+            initialLabelValue = ((initialLabelValue + valuePerLabel) / roundingFactor) * roundingFactor;
+        }
+        int labelValue = initialLabelValue;
+        do {
+            add(labelValue);
+            labelValue = labelValue + valuePerLabel;
+        } while (labelValue < minValue + rangeOfValues);
+
+        return count;
+    }
+
+    int get(int index) {
+        return values[index];
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    private void add(int value) {
+        if (count == values.length) {
+            values = Arrays.copyOf(values, count * 2);
+        }
+        values[count++] = value;
+    }
+
+    /**
+     * Same as String.valueOf(value).length(), without building the String.
+     *
+     * @param value
+     * @return int number of characters, including the minus sign
+     */
+    static int digitCount(int value) {
+        int digits = value < 0 ? 2 : 1;
+        long remaining = Math.abs((long) value);
+        while (remaining >= 10) {
+            remaining /= 10;
+            digits++;
+        }
+        return digits;
+    }
+}
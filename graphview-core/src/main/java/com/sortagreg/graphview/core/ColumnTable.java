@@ -0,0 +1,237 @@
+package com.sortagreg.graphview.core;
+
+import java.util.Arrays;
+
+/**
+ * Several data sets that share one column of X values, such as channels recorded on one time base.
+ *
+ * The X column is kept once instead of once per data set, and a graph drawing more than one
+ * column of the table searches and projects the X values once per frame for all of them.  The
+ * bounds of the X column and of every Y column are kept up to date as rows are appended.
+ *
+ * Draw a column as a data set of its own, on Android with a ColumnGraphViewDataModel.
+ */
+public class ColumnTable {
+    private float[] xValues;
+    private float[][] yColumns = new float[0][];
+    private int size;
+    private float minX;
+    private float maxX;
+    private float[] minY = new float[0];
+    private float[] maxY = new float[0];
+    private boolean xAscending;
+    private int version;
+
+    /**
+     * Constructor for a table with no Y columns yet
+     *
+     * The array is adopted as the backing store, it is not copied.
+     *
+     * @param xValues float[] of X values, one for every row
+     */
+    public ColumnTable(float[] xValues) {
+        this.xValues = xValues;
+        this.size = xValues.length;
+        notifyDataChanged();
+    }
+
+    /**
+     * Adds a column of Y values.  The array is adopted, not copied.
+     *
+     * @param yValues float[] of Y values, one for every row
+     * @return int index of the column
+     */
+    public int addColumn(float[] yValues) {
+        if (yValues.length < size) {
+            throw new IllegalArgumentException("The table has " + size + " rows, the column has " + yValues.length);
+        }
+        int column = yColumns.length;
+        yColumns = Arrays.copyOf(yColumns, column + 1);
+        yColumns[column] = yValues;
+        minY = Arrays.copyOf(minY, column + 1);
+        maxY = Arrays.copyOf(maxY, column + 1);
+        minY[column] = Float.MAX_VALUE;
+        maxY[column] = -Float.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            includeInBounds(column, yValues[i]);
+        }
+        version++;
+        return column;
+    }
+
+    /**
+     * Adds a row to the end of the table.
+     *
+     * The backing arrays grow as needed, so appending is amortized O(1).
+     *
+     * @param x X value
+     * @param yValues Y value of every column, in the order they were added
+     */
+    public void appendRow(float x, float... yValues) {
+        if (yValues.length != yColumns.length) {
+            throw new IllegalArgumentException("The table has " + yColumns.length + " columns, the row has " + yValues.length);
+        }
+        if (size == xValues.length) {
+            int capacity = Math.max(16, size + (size >> 1));
+            xValues = Arrays.copyOf(xValues, capacity);
+        }
+        for (int column = 0; column < yColumns.length; column++) {
+            if (size == yColumns[column].length) {
+                yColumns[column] = Arrays.copyOf(yColumns[column], xValues.length);
+            }
+            yColumns[column][size] = yValues[column];
+            includeInBounds(column, yValues[column]);
+        }
+        if (size > 0 && x < xValues[size - 1]) xAscending = false;
+        xValues[size] = x;
+        if (x < minX) minX = x;
+        if (x > maxX) maxX = x;
+        size++;
+        version++;
+    }
+
+    /**
+     * Recomputes everything derived from the data.
+     *
+     * Only needs to be called after changing values in the arrays that were handed to the table.
+     */
+    public void notifyDataChanged() {
+        minX = Float.MAX_VALUE;
+        maxX = -Float.MAX_VALUE;
+        xAscending = true;
+        for (int i = 0; i < size; i++) {
+            float x = xValues[i];
+            if (x < minX) minX = x;
+            if (x > maxX) maxX = x;
+            if (i > 0 && x < xValues[i - 1]) xAscending = false;
+        }
+        for (int column = 0; column < yColumns.length; column++) {
+            minY[column] = Float.MAX_VALUE;
+            maxY[column] = -Float.MAX_VALUE;
+            for (int i = 0; i < size; i++) {
+                includeInBounds(column, yColumns[column][i]);
+            }
+        }
+        version++;
+    }
+
+    private void includeInBounds(int column, float y) {
+        if (y < minY[column]) minY[column] = y;
+        if (y > maxY[column]) maxY[column] = y;
+    }
+
+    /**
+     * @return int number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return int number of Y columns
+     */
+    public int getColumnCount() {
+        return yColumns.length;
+    }
+
+    public float getX(int index) {
+        return xValues[index];
+    }
+
+    public float getY(int column, int index) {
+        return yColumns[column][index];
+    }
+
+    /**
+     * Returns the backing array of X values.  Only the first size() values are part of the table.
+     *
+     * @return float[] X values
+     */
+    public float[] getXValues() {
+        return xValues;
+    }
+
+    /**
+     * Returns the backing array of a Y column.  Only the first size() values are part of the table.
+     *
+     * @param column index of the column
+     * @return float[] Y values
+     */
+    public float[] getYValues(int column) {
+        return yColumns[column];
+    }
+
+    /**
+     * Index of the first row with an X value of at least x.  Uses a binary search, so the
+     * X values must be ascending.
+     *
+     * @param x X value to search for
+     * @return int index, size() if every row is below x
+     */
+    public int ceilingIndex(float x) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (xValues[middle] < x) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Index of the last row with an X value of at most x.  Uses a binary search, so the
+     * X values must be ascending.
+     *
+     * @param x X value to search for
+     * @return int index, -1 if every row is above x
+     */
+    public int floorIndex(float x) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (xValues[middle] <= x) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low - 1;
+    }
+
+    /**
+     * @return boolean true if the X values never decrease from one row to the next
+     */
+    public boolean isXAscending() {
+        return xAscending;
+    }
+
+    public float getMinX() {
+        return minX;
+    }
+
+    public float getMaxX() {
+        return maxX;
+    }
+
+    public float getMinY(int column) {
+        return minY[column];
+    }
+
+    public float getMaxY(int column) {
+        return maxY[column];
+    }
+
+    /**
+     * Returns a number that changes every time the table changes.
+     *
+     * @return int version of the data
+     */
+    public int getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,506 @@
+package com.sortagreg.graphview.core;
+
+import java.util.Arrays;
+
+/**
+ * Append-only store of X, Y points compressed in the style of Gorilla, for long histories.
+ *
+ * Points are kept in blocks of BLOCK_SIZE.  Within a block the bits of every X value are stored
+ * as the delta of its delta from the X value before it, so evenly spaced X values take one bit,
+ * and every Y value is stored as the XOR of its bits with the Y value before it, so repeated and
+ * slowly changing values take one to a few bits.  Values are restored bit for bit.
+ *
+ * Every block has a header with its first, last, lowest and highest point, so those are read
+ * without decoding the block.  A block is decoded only when a point in between is read, and the
+ * last two decoded blocks are kept, so reading the points of a range decodes each block once.
+ *
+ * How much smaller the points get depends on the data.  Evenly spaced X values with quantized Y
+ * values, such as readings of an analog to digital converter, compress ten times or more.  Y
+ * values that use every bit of the float, even smooth ones, compress two to three times.
+ */
+public class CompressedPoints {
+    static final int BLOCK_SHIFT = 10;
+    /**
+     * Number of points in a block.
+     */
+    public static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+    // Bytes of header per block: eight floats and two ints
+    private static final int HEADER_BYTES = 40;
+
+    private long[][] blockBits = new long[0][];
+    private float[] firstX = new float[0];
+    private float[] firstY = new float[0];
+    private float[] lastX = new float[0];
+    private float[] lastY = new float[0];
+    private float[] blockMinY = new float[0];
+    private float[] blockMaxY = new float[0];
+    // X values of the lowest and highest points
+    private float[] blockMinX = new float[0];
+    private float[] blockMaxX = new float[0];
+    private int[] blockMinIndex = new int[0];
+    private int[] blockMaxIndex = new int[0];
+    private int blockCount;
+    private int size;
+
+    // Encoder state of the last block, the one being appended to
+    private int openBits;
+    private int previousXBits;
+    private int previousDelta;
+    private int previousYBits;
+    private int previousLeading;
+    private int previousTrailing;
+
+    private float minX;
+    private float maxX;
+    private float minY;
+    private float maxY;
+    private boolean xAscending;
+    private int version;
+
+    // The two most recently decoded blocks, replaced instead of written to
+    private volatile DecodedBlock recent;
+    private volatile DecodedBlock previous;
+
+    public CompressedPoints() {
+        clear();
+    }
+
+    /**
+     * Add a point to the end.
+     *
+     * @param x X value
+     * @param y Y value
+     */
+    public void append(float x, float y) {
+        if (size > 0 && x < getLastX()) xAscending = false;
+        int block = size >> BLOCK_SHIFT;
+        int xBits = Float.floatToRawIntBits(x);
+        int yBits = Float.floatToRawIntBits(y);
+        if ((size & BLOCK_MASK) == 0) {
+            startBlock(block, x, y);
+        } else {
+            writeX(block, xBits);
+            writeY(block, yBits);
+            if (y < blockMinY[block]) {
+                blockMinY[block] = y;
+                blockMinX[block] = x;
+                blockMinIndex[block] = size;
+            }
+            if (y > blockMaxY[block]) {
+                blockMaxY[block] = y;
+                blockMaxX[block] = x;
+                blockMaxIndex[block] = size;
+            }
+        }
+        previousXBits = xBits;
+        previousYBits = yBits;
+        lastX[block] = x;
+        lastY[block] = y;
+        if ((size & BLOCK_MASK) == BLOCK_MASK) {
+            // The block is full, trim it to the words it uses
+            blockBits[block] = Arrays.copyOf(blockBits[block], (openBits + 63) >>> 6);
+        }
+
+        if (x < minX) minX = x;
+        if (x > maxX) maxX = x;
+        if (y < minY) minY = y;
+        if (y > maxY) maxY = y;
+        size++;
+        version++;
+    }
+
+    private void startBlock(int block, float x, float y) {
+        if (block == blockBits.length) {
+            int capacity = Math.max(16, block * 2);
+            blockBits = Arrays.copyOf(blockBits, capacity);
+            firstX = Arrays.copyOf(firstX, capacity);
+            firstY = Arrays.copyOf(firstY, capacity);
+            lastX = Arrays.copyOf(lastX, capacity);
+            lastY = Arrays.copyOf(lastY, capacity);
+            blockMinY = Arrays.copyOf(blockMinY, capacity);
+            blockMaxY = Arrays.copyOf(blockMaxY, capacity);
+            blockMinX = Arrays.copyOf(blockMinX, capacity);
+            blockMaxX = Arrays.copyOf(blockMaxX, capacity);
+            blockMinIndex = Arrays.copyOf(blockMinIndex, capacity);
+            blockMaxIndex = Arrays.copyOf(blockMaxIndex, capacity);
+        }
+        blockBits[block] = new long[16];
+        firstX[block] = x;
+        firstY[block] = y;
+        blockMinY[block] = y;
+        blockMaxY[block] = y;
+        blockMinX[block] = x;
+        blockMaxX[block] = x;
+        blockMinIndex[block] = size;
+        blockMaxIndex[block] = size;
+        blockCount = block + 1;
+        openBits = 0;
+        previousDelta = 0;
+        previousLeading = -1;
+    }
+
+    private void writeX(int block, int xBits) {
+        int delta = xBits - previousXBits;
+        int deltaOfDelta = delta - previousDelta;
+        previousDelta = delta;
+        if (deltaOfDelta == 0) {
+            writeBits(block, 0, 1);
+        } else if (deltaOfDelta >= -63 && deltaOfDelta <= 64) {
+            writeBits(block, 0x2, 2);
+            writeBits(block, deltaOfDelta + 63, 7);
+        } else if (deltaOfDelta >= -255 && deltaOfDelta <= 256) {
+            writeBits(block, 0x6, 3);
+            writeBits(block, deltaOfDelta + 255, 9);
+        } else if (deltaOfDelta >= -2047 && deltaOfDelta <= 2048) {
+            writeBits(block, 0xE, 4);
+            writeBits(block, deltaOfDelta + 2047, 12);
+        } else {
+            writeBits(block, 0xF, 4);
+            writeBits(block, deltaOfDelta & 0xFFFFFFFFL, 32);
+        }
+    }
+
+    private void writeY(int block, int yBits) {
+        int xor = yBits ^ previousYBits;
+        if (xor == 0) {
+            writeBits(block, 0, 1);
+            return;
+        }
+        int leading = Integer.numberOfLeadingZeros(xor);
+        int trailing = Integer.numberOfTrailingZeros(xor);
+        if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+            // Fits in the window of meaningful bits of the value before
+            writeBits(block, 0x2, 2);
+            writeBits(block, (xor >>> previousTrailing) & 0xFFFFFFFFL, 32 - previousLeading - previousTrailing);
+        } else {
+            int meaningful = 32 - leading - trailing;
+            writeBits(block, 0x3, 2);
+            writeBits(block, leading, 5);
+            writeBits(block, meaningful - 1, 5);
+            writeBits(block, (xor >>> trailing) & 0xFFFFFFFFL, meaningful);
+            previousLeading = leading;
+            previousTrailing = trailing;
+        }
+    }
+
+    /**
+     * Writes the lowest count bits of value after the bits already in the block, highest bit first.
+     */
+    private void writeBits(int block, long value, int count) {
+        long[] words = blockBits[block];
+        int word = openBits >>> 6;
+        if (word + 1 >= words.length) {
+            words = Arrays.copyOf(words, words.length * 2);
+            blockBits[block] = words;
+        }
+        int free = 64 - (openBits & 63);
+        if (count <= free) {
+            words[word] |= value << (free - count);
+        } else {
+            words[word] |= value >>> (count - free);
+            words[word + 1] |= value << (64 - (count - free));
+        }
+        openBits += count;
+    }
+
+    /**
+     * Removes all points.
+     */
+    public void clear() {
+        blockBits = new long[0][];
+        firstX = new float[0];
+        firstY = new float[0];
+        lastX = new float[0];
+        lastY = new float[0];
+        blockMinY = new float[0];
+        blockMaxY = new float[0];
+        blockMinX = new float[0];
+        blockMaxX = new float[0];
+        blockMinIndex = new int[0];
+        blockMaxIndex = new int[0];
+        blockCount = 0;
+        size = 0;
+        minX = Float.MAX_VALUE;
+        maxX = -Float.MAX_VALUE;
+        minY = Float.MAX_VALUE;
+        maxY = -Float.MAX_VALUE;
+        xAscending = true;
+        recent = null;
+        previous = null;
+        version++;
+    }
+
+    /**
+     * @return int number of points
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return int number of blocks, the last one may not be full
+     */
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    public float getX(int index) {
+        int block = checkIndex(index);
+        int offset = index & BLOCK_MASK;
+        if (offset == 0) return firstX[block];
+        if (index == blockEnd(block) - 1) return lastX[block];
+        if (index == blockMinIndex[block]) return blockMinX[block];
+        if (index == blockMaxIndex[block]) return blockMaxX[block];
+        return decoded(block, offset).x[offset];
+    }
+
+    public float getY(int index) {
+        int block = checkIndex(index);
+        int offset = index & BLOCK_MASK;
+        if (offset == 0) return firstY[block];
+        if (index == blockEnd(block) - 1) return lastY[block];
+        if (index == blockMinIndex[block]) return blockMinY[block];
+        if (index == blockMaxIndex[block]) return blockMaxY[block];
+        return decoded(block, offset).y[offset];
+    }
+
+    private float getLastX() {
+        return lastX[(size - 1) >> BLOCK_SHIFT];
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        return index >> BLOCK_SHIFT;
+    }
+
+    private int blockEnd(int block) {
+        return Math.min(size, (block + 1) << BLOCK_SHIFT);
+    }
+
+    /**
+     * Index of the lowest point of a block.  Of equal points, the first one.
+     */
+    public int getBlockMinIndex(int block) {
+        return blockMinIndex[block];
+    }
+
+    /**
+     * Index of the highest point of a block.  Of equal points, the first one.
+     */
+    public int getBlockMaxIndex(int block) {
+        return blockMaxIndex[block];
+    }
+
+    /**
+     * Returns a block decoded at least up to a point, decoding it if it is not one of the last two.
+     */
+    private DecodedBlock decoded(int block, int offset) {
+        DecodedBlock decoded = recent;
+        if (decoded != null && decoded.block == block && offset < decoded.count) return decoded;
+        decoded = previous;
+        if (decoded != null && decoded.block == block && offset < decoded.count) return decoded;
+        decoded = decode(block);
+        previous = recent;
+        recent = decoded;
+        return decoded;
+    }
+
+    private DecodedBlock decode(int block) {
+        int count = blockEnd(block) - (block << BLOCK_SHIFT);
+        DecodedBlock decoded = new DecodedBlock(block, count);
+        long[] words = blockBits[block];
+        float[] x = decoded.x;
+        float[] y = decoded.y;
+        x[0] = firstX[block];
+        y[0] = firstY[block];
+        int xBits = Float.floatToRawIntBits(x[0]);
+        int yBits = Float.floatToRawIntBits(y[0]);
+        int delta = 0;
+        int leading = 0;
+        int trailing = 0;
+        int position = 0;
+        for (int i = 1; i < count; i++) {
+            int deltaOfDelta;
+            if (readBits(words, position, 1) == 0) {
+                deltaOfDelta = 0;
+                position += 1;
+            } else if (readBits(words, position + 1, 1) == 0) {
+                deltaOfDelta = (int) readBits(words, position + 2, 7) - 63;
+                position += 9;
+            } else if (readBits(words, position + 2, 1) == 0) {
+                deltaOfDelta = (int) readBits(words, position + 3, 9) - 255;
+                position += 12;
+            } else if (readBits(words, position + 3, 1) == 0) {
+                deltaOfDelta = (int) readBits(words, position + 4, 12) - 2047;
+                position += 16;
+            } else {
+                deltaOfDelta = (int) readBits(words, position + 4, 32);
+                position += 36;
+            }
+            delta += deltaOfDelta;
+            xBits += delta;
+            x[i] = Float.intBitsToFloat(xBits);
+
+            if (readBits(words, position, 1) == 0) {
+                position += 1;
+            } else {
+                if (readBits(words, position + 1, 1) == 0) {
+                    position += 2;
+                } else {
+                    leading = (int) readBits(words, position + 2, 5);
+                    int meaningful = (int) readBits(words, position + 7, 5) + 1;
+                    trailing = 32 - leading - meaningful;
+                    position += 12;
+                }
+                int meaningful = 32 - leading - trailing;
+                yBits ^= (int) (readBits(words, position, meaningful) << trailing);
+                position += meaningful;
+            }
+            y[i] = Float.intBitsToFloat(yBits);
+        }
+        return decoded;
+    }
+
+    /**
+     * Reads count bits starting at a bit position, highest bit first.
+     */
+    private static long readBits(long[] words, int position, int count) {
+        int word = position >>> 6;
+        int free = 64 - (position & 63);
+        long mask = count == 64 ? -1L : (1L << count) - 1;
+        if (count <= free) {
+            return (words[word] >>> (free - count)) & mask;
+        }
+        int rest = count - free;
+        return (((words[word] & ((1L << free) - 1)) << rest) | (words[word + 1] >>> (64 - rest))) & mask;
+    }
+
+    /**
+     * Index of the first point with an X value of at least x.  Searches the block headers first,
+     * so at most one block is decoded.  The X values must be ascending.
+     *
+     * @param x X value to search for
+     * @return int index, size() if every point is below x
+     */
+    public int ceilingIndex(float x) {
+        int low = 0;
+        int high = blockCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (lastX[middle] < x) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        if (low == blockCount) return size;
+        int from = low << BLOCK_SHIFT;
+        int to = blockEnd(low) - 1;
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (getX(middle) < x) {
+                from = middle + 1;
+            } else {
+                to = middle;
+            }
+        }
+        return from;
+    }
+
+    /**
+     * Index of the last point with an X value of at most x.  Searches the block headers first,
+     * so at most one block is decoded.  The X values must be ascending.
+     *
+     * @param x X value to search for
+     * @return int index, -1 if every point is above x
+     */
+    public int floorIndex(float x) {
+        int low = 0;
+        int high = blockCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (firstX[middle] <= x) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        if (low == 0) return -1;
+        int block = low - 1;
+        int from = block << BLOCK_SHIFT;
+        int to = blockEnd(block) - 1;
+        while (from < to) {
+            int middle = (from + to + 1) >>> 1;
+            if (getX(middle) <= x) {
+                from = middle;
+            } else {
+                to = middle - 1;
+            }
+        }
+        return from;
+    }
+
+    /**
+     * @return boolean true if the X values never decrease from one point to the next
+     */
+    public boolean isXAscending() {
+        return xAscending;
+    }
+
+    public float getMinX() {
+        return minX;
+    }
+
+    public float getMaxX() {
+        return maxX;
+    }
+
+    public float getMinY() {
+        return minY;
+    }
+
+    public float getMaxY() {
+        return maxY;
+    }
+
+    /**
+     * Returns a number that changes every time a point is added or the store is cleared.
+     *
+     * @return int version of the data
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Approximate memory taken by the compressed points and block headers, not counting the
+     * decoded blocks that are kept.
+     *
+     * @return long bytes
+     */
+    public long getEncodedBytes() {
+        long bytes = 0;
+        for (int block = 0; block < blockCount; block++) {
+            bytes += blockBits[block].length * 8L + HEADER_BYTES;
+        }
+        return bytes;
+    }
+
+    /**
+     * Points of one block, never changed once published.
+     */
+    private static final class DecodedBlock {
+        final int block;
+        final int count;
+        final float[] x;
+        final float[] y;
+
+        DecodedBlock(int block, int count) {
+            this.block = block;
+            this.count = count;
+            this.x = new float[count];
+            this.y = new float[count];
+        }
+    }
+}
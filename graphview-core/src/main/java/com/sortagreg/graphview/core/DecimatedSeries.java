@@ -0,0 +1,164 @@
+package com.sortagreg.graphview.core;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reduced copy of a data set, sized for the pixel width it was decimated for.
+ *
+ * A GraphFrame keeps one of these per data set it projects and only decimates again when the
+ * data set, its version, the decimation mode or the scale of the graph changes.  When it does
+ * and the data set is also reduced by other graphs, the result is first looked up in the
+ * DecimationCache shared by every graph in the process.
+ */
+class DecimatedSeries {
+    private static final AtomicInteger nextId = new AtomicInteger();
+
+    // Lets a data set tell the reductions of different graphs apart without holding on to them
+    private final int id = nextId.incrementAndGet();
+    private float[] xValues = new float[0];
+    private float[] yValues = new float[0];
+    private int count;
+
+    // What the current contents were computed for
+    private boolean valid;
+    private Series<?> source;
+    private int version;
+    private int mode;
+    private int from;
+    private int to;
+    private boolean indexAsX;
+    private float originX;
+    private float pixelsPerX;
+    private int plotWidth;
+    // Number of times the contents were computed, and how many source points the last time read
+    private int buildCount;
+    private int pointsRead;
+
+    /**
+     * Returns true if the contents were computed with exactly these parameters.
+     */
+    boolean isCurrent(Series<?> source, int version, int mode, int from, int to, boolean indexAsX, float originX, float pixelsPerX, int plotWidth) {
+        return valid
+                && this.source == source
+                && this.version == version
+                && this.mode == mode
+                && this.from == from
+                && this.to == to
+                && this.indexAsX == indexAsX
+                && this.originX == originX
+                && this.pixelsPerX == pixelsPerX
+                && this.plotWidth == plotWidth;
+    }
+
+    /**
+     * Clears the contents and records the parameters they are about to be computed with.
+     */
+    void reset(Series<?> source, int version, int mode, int from, int to, boolean indexAsX, float originX, float pixelsPerX, int plotWidth) {
+        this.valid = true;
+        this.source = source;
+        this.version = version;
+        this.mode = mode;
+        this.from = from;
+        this.to = to;
+        this.indexAsX = indexAsX;
+        this.originX = originX;
+        this.pixelsPerX = pixelsPerX;
+        this.plotWidth = plotWidth;
+        this.count = 0;
+        this.pointsRead = 0;
+        buildCount++;
+    }
+
+    /**
+     * Replaces the contents with points kept elsewhere, after reset().
+     */
+    void copyFrom(float[] xValues, float[] yValues, int count) {
+        if (this.xValues.length < count) {
+            this.xValues = new float[count];
+            this.yValues = new float[count];
+        }
+        System.arraycopy(xValues, 0, this.xValues, 0, count);
+        System.arraycopy(yValues, 0, this.yValues, 0, count);
+        this.count = count;
+    }
+
+    int getVersion() {
+        return version;
+    }
+
+    int getMode() {
+        return mode;
+    }
+
+    int getFrom() {
+        return from;
+    }
+
+    int getTo() {
+        return to;
+    }
+
+    boolean isIndexAsX() {
+        return indexAsX;
+    }
+
+    float getOriginX() {
+        return originX;
+    }
+
+    float getPixelsPerX() {
+        return pixelsPerX;
+    }
+
+    int getPlotWidth() {
+        return plotWidth;
+    }
+
+    int getId() {
+        return id;
+    }
+
+    int getBuildCount() {
+        return buildCount;
+    }
+
+    int getPointsRead() {
+        return pointsRead;
+    }
+
+    void setPointsRead(int pointsRead) {
+        this.pointsRead = pointsRead;
+    }
+
+    /**
+     * Forgets the contents and the data set they came from, the next isCurrent() check fails.
+     */
+    void invalidate() {
+        valid = false;
+        source = null;
+    }
+
+    void add(float x, float y) {
+        if (count == xValues.length) {
+            int capacity = Math.max(64, count * 2);
+            xValues = Arrays.copyOf(xValues, capacity);
+            yValues = Arrays.copyOf(yValues, capacity);
+        }
+        xValues[count] = x;
+        yValues[count] = y;
+        count++;
+    }
+
+    float[] getXValues() {
+        return xValues;
+    }
+
+    float[] getYValues() {
+        return yValues;
+    }
+
+    int getCount() {
+        return count;
+    }
+}
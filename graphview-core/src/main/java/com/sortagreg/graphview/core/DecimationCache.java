@@ -0,0 +1,269 @@
+package com.sortagreg.graphview.core;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.WeakHashMap;
+
+/**
+ * Decimated and level of detail versions of data sets, shared by every graph in the process.
+ *
+ * Every GraphFrame keeps the last version each of its data sets was reduced to, which is all a
+ * single graph needs.  When the same data set is drawn by several graphs of different sizes, or
+ * with different viewports, each of them would reduce the whole data set on its own.  Reductions
+ * are also kept here, the latest version of the data set for every pixel width and viewport, so
+ * a graph that finds its own copy stale gets the result computed by another graph instead of
+ * computing it again.
+ *
+ * Entries are evicted least recently used first once their total size goes over the byte
+ * budget.  Data sets are only referenced weakly, a data set that is no longer used can be
+ * collected and its entries are the first to be evicted.  Safe to use from any thread.
+ *
+ * The Decimator only goes to the cache for data sets that more than one graph reduced lately,
+ * a data set drawn by a single graph never takes the lock.
+ */
+public final class DecimationCache {
+    public static final long DEFAULT_BYTE_BUDGET = 4L * 1024 * 1024;
+    // Rough size of an entry without its points: the entry, its weak reference and the array headers
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    // Every entry, for the byte budget.  Entries of data sets that were collected stay here until
+    // they are evicted.
+    private static final ArrayList<Entry> entries = new ArrayList<>();
+    // The same entries by data set.  A data set only has an entry or two per graph size, they are
+    // searched one by one, so looking one up or storing one does not allocate.
+    private static final WeakHashMap<Series<?>, ArrayList<Entry>> entriesBySource = new WeakHashMap<>();
+    private static long byteBudget = DEFAULT_BYTE_BUDGET;
+    private static long bytes;
+    // Incremented on every use of an entry, the entry used the longest ago is evicted first
+    private static long useCount;
+    private static long hitCount;
+    private static long missCount;
+
+    private DecimationCache() {
+    }
+
+    /**
+     * Sets how much memory the cache may take, evicting entries if it already takes more.
+     *
+     * @param byteBudget bytes, 0 turns the cache off
+     */
+    public static synchronized void setByteBudget(long byteBudget) {
+        if (byteBudget < 0) throw new IllegalArgumentException("byteBudget must not be negative: " + byteBudget);
+        DecimationCache.byteBudget = byteBudget;
+        trimToBudget();
+    }
+
+    /**
+     * @return long bytes the cache may take, DEFAULT_BYTE_BUDGET by default
+     */
+    public static synchronized long getByteBudget() {
+        return byteBudget;
+    }
+
+    /**
+     * @return long approximate bytes taken by the cached entries
+     */
+    public static synchronized long getBytes() {
+        return bytes;
+    }
+
+    public static synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * @return long number of reductions taken from the cache instead of being computed
+     */
+    public static synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return long number of reductions that were not in the cache
+     */
+    public static synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Removes every entry and resets the counts.
+     */
+    public static synchronized void clear() {
+        entries.clear();
+        entriesBySource.clear();
+        bytes = 0;
+        hitCount = 0;
+        missCount = 0;
+    }
+
+    /**
+     * Fills a reduction with the points cached for the parameters it was reset() with.
+     *
+     * @param model data set the reduction is for
+     * @param out DecimatedSeries, reset() with the parameters to look up
+     * @return boolean true if the points were cached and copied into out
+     */
+    static synchronized boolean copyTo(Series<?> model, DecimatedSeries out) {
+        if (byteBudget == 0) return false;
+        ArrayList<Entry> sourceEntries = entriesBySource.get(model);
+        Entry entry = sourceEntries != null ? find(sourceEntries, out) : null;
+        if (entry == null || entry.version != out.getVersion()) {
+            missCount++;
+            return false;
+        }
+        hitCount++;
+        entry.lastUse = ++useCount;
+        out.copyFrom(entry.xValues, entry.yValues, entry.count);
+        return true;
+    }
+
+    /**
+     * Keeps a copy of a reduction that was just computed.
+     *
+     * An entry holds the latest version of the data set for one width and viewport.  Reductions
+     * of older versions are not asked for again, their entries are overwritten by newer ones or
+     * evicted, so live data that is stored every frame reuses the same entries and arrays and
+     * does not allocate.
+     *
+     * @param model data set the reduction is for
+     * @param decimated DecimatedSeries, filled for the parameters it was reset() with
+     */
+    static synchronized void put(Series<?> model, DecimatedSeries decimated) {
+        int count = decimated.getCount();
+        long entryBytes = ENTRY_OVERHEAD_BYTES + count * 8L;
+        if (entryBytes > byteBudget) return;
+        ArrayList<Entry> sourceEntries = entriesBySource.get(model);
+        if (sourceEntries == null) {
+            sourceEntries = new ArrayList<>(4);
+            entriesBySource.put(model, sourceEntries);
+        }
+        int version = decimated.getVersion();
+        Entry entry = find(sourceEntries, decimated);
+        if (entry == null) {
+            // A sliding viewport changes the parameters every frame, an entry of an older version
+            // is taken over for them, the smallest one the points fit in
+            for (int i = 0; i < sourceEntries.size(); i++) {
+                Entry stale = sourceEntries.get(i);
+                if (stale.version == version) continue;
+                if (entry == null || fitsBetter(stale, entry, count)) entry = stale;
+            }
+        }
+        if (entry == null) {
+            entry = new Entry();
+            entry.sourceReference = new WeakReference<Series<?>>(model);
+            sourceEntries.add(entry);
+            entries.add(entry);
+        } else {
+            bytes -= entry.bytes;
+        }
+        entry.set(decimated);
+        if (entry.xValues == null || entry.xValues.length < count) {
+            // With room to spare, the next version of live data often has a few more points
+            int capacity = (int) Math.min(count + (count >> 2), (byteBudget - ENTRY_OVERHEAD_BYTES) / 8);
+            entry.xValues = new float[capacity];
+            entry.yValues = new float[capacity];
+        }
+        entry.count = count;
+        System.arraycopy(decimated.getXValues(), 0, entry.xValues, 0, count);
+        System.arraycopy(decimated.getYValues(), 0, entry.yValues, 0, count);
+        entry.bytes = ENTRY_OVERHEAD_BYTES + entry.xValues.length * 8L;
+        entry.lastUse = ++useCount;
+        bytes += entry.bytes;
+        trimToBudget();
+    }
+
+    /**
+     * Returns the entry with the same parameters as a reduction, whatever its version.
+     */
+    private static Entry find(ArrayList<Entry> sourceEntries, DecimatedSeries decimated) {
+        for (int i = 0; i < sourceEntries.size(); i++) {
+            Entry entry = sourceEntries.get(i);
+            if (entry.matches(decimated)) return entry;
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if the points fit in the arrays of candidate, and they are smaller than those
+     * of entry or the points do not fit in those.
+     */
+    private static boolean fitsBetter(Entry candidate, Entry entry, int count) {
+        if (candidate.xValues.length < count) return false;
+        return entry.xValues.length < count || candidate.xValues.length < entry.xValues.length;
+    }
+
+    /**
+     * Evicts the entries used the longest ago.  Entries of data sets that were collected are
+     * never used again, so they are the first to go.
+     */
+    private static void trimToBudget() {
+        while (bytes > byteBudget && !entries.isEmpty()) {
+            Entry evicted = null;
+            for (int i = 0; i < entries.size(); i++) {
+                Entry entry = entries.get(i);
+                if (entry.sourceReference.get() == null) {
+                    evicted = entry;
+                    break;
+                }
+                if (evicted == null || entry.lastUse < evicted.lastUse) evicted = entry;
+            }
+            Series<?> source = evicted.sourceReference.get();
+            ArrayList<Entry> sourceEntries = source != null ? entriesBySource.get(source) : null;
+            if (sourceEntries != null) {
+                sourceEntries.remove(evicted);
+                if (sourceEntries.isEmpty()) entriesBySource.remove(source);
+            }
+            remove(evicted);
+        }
+    }
+
+    private static void remove(Entry entry) {
+        entries.remove(entry);
+        bytes -= entry.bytes;
+    }
+
+    /**
+     * Parameters and points of a cached reduction.  The data set is only referenced weakly.
+     * Entries are only equal to themselves.
+     */
+    private static final class Entry {
+        WeakReference<Series<?>> sourceReference;
+        int version;
+        int mode;
+        int from;
+        int to;
+        boolean indexAsX;
+        float originX;
+        float pixelsPerX;
+        int plotWidth;
+        float[] xValues;
+        float[] yValues;
+        int count;
+        long bytes;
+        long lastUse;
+
+        void set(DecimatedSeries decimated) {
+            version = decimated.getVersion();
+            mode = decimated.getMode();
+            from = decimated.getFrom();
+            to = decimated.getTo();
+            indexAsX = decimated.isIndexAsX();
+            originX = decimated.getOriginX();
+            pixelsPerX = decimated.getPixelsPerX();
+            plotWidth = decimated.getPlotWidth();
+        }
+
+        /**
+         * Returns true if the entry was computed with the same parameters, in any version.
+         */
+        boolean matches(DecimatedSeries decimated) {
+            return mode == decimated.getMode()
+                    && from == decimated.getFrom()
+                    && to == decimated.getTo()
+                    && indexAsX == decimated.isIndexAsX()
+                    && Float.floatToIntBits(originX) == Float.floatToIntBits(decimated.getOriginX())
+                    && Float.floatToIntBits(pixelsPerX) == Float.floatToIntBits(decimated.getPixelsPerX())
+                    && plotWidth == decimated.getPlotWidth();
+        }
+    }
+}
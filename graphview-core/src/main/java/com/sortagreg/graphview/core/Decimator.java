@@ -0,0 +1,241 @@
+package com.sortagreg.graphview.core;
+
+import static com.sortagreg.graphview.core.Series.*;
+
+/**
+ * Reduces a data set to the points that can actually be seen at a given pixel width.
+ */
+final class Decimator {
+    // Cache key used for points taken from level N of a LevelOfDetail index is this minus N
+    private static final int LEVEL_OF_DETAIL_MODE = -1;
+    // Reductions in a row by the same graph after which a data set is taken to be drawn by it alone
+    private static final int LONE_REDUCTION_RUN = 4;
+
+    private Decimator() {
+    }
+
+    /**
+     * Returns the decimated version of a data set, reusing the result already in out when nothing
+     * changed.
+     *
+     * @param model data set to decimate
+     * @param out DecimatedSeries the result is kept in, one per data set and graph
+     * @param from index of the first point to draw
+     * @param to index after the last point to draw
+     * @param indexAsX true if the position of a point is its index instead of its X value (UNFOLDED_LINE)
+     * @param originX value that sits on the left edge of the graph
+     * @param pixelsPerX pixels per unit of X (or per index)
+     * @param plotWidth width of the drawable area of the graph, in pixels
+     * @return DecimatedSeries, or null if the data set should be drawn as is
+     */
+    static DecimatedSeries decimate(Series<?> model, DecimatedSeries out, int from, int to, boolean indexAsX, float originX, float pixelsPerX, int plotWidth) {
+        return decimate(model, out, from, to, indexAsX, originX, pixelsPerX, plotWidth, null);
+    }
+
+    /**
+     * Returns the decimated version of a data set, splitting the X column of a ColumnTable into
+     * pixel columns once for every column of the table.
+     *
+     * @param sharedX work shared between the columns of a table, null if there is none
+     * @return DecimatedSeries, or null if the data set should be drawn as is
+     */
+    static DecimatedSeries decimate(Series<?> model, DecimatedSeries out, int from, int to, boolean indexAsX, float originX, float pixelsPerX, int plotWidth, SharedXProjection sharedX) {
+        int mode = model.getDecimationMode();
+        int size = to - from;
+        if (plotWidth <= 0 || mode == DECIMATION_NONE) return null;
+
+        // The level of detail index, when there is one, beats scanning the whole data set
+        LevelOfDetail levelOfDetail = model.getLevelOfDetail();
+        if (levelOfDetail != null && (indexAsX || model.isXAscending())) {
+            int level = levelOfDetail.chooseLevel(size, plotWidth);
+            if (level >= 0) {
+                int levelMode = LEVEL_OF_DETAIL_MODE - level;
+                int version = model.getVersion();
+                if (!out.isCurrent(model, version, levelMode, from, to, indexAsX, originX, pixelsPerX, plotWidth)) {
+                    out.reset(model, version, levelMode, from, to, indexAsX, originX, pixelsPerX, plotWidth);
+                    boolean shared = isShared(model, out);
+                    if (!shared || !DecimationCache.copyTo(model, out)) {
+                        levelOfDetail.fill(model, level, from, to, indexAsX, out);
+                        if (shared) DecimationCache.put(model, out);
+                    }
+                    out.setPointsRead(out.getCount());
+                }
+                return out;
+            }
+        }
+
+        // Not enough points per pixel column to be worth it
+        if (mode == DECIMATION_MIN_MAX && size <= plotWidth * 4) return null;
+        if (mode == DECIMATION_LTTB && size <= plotWidth) return null;
+
+        int version = model.getVersion();
+        if (out.isCurrent(model, version, mode, from, to, indexAsX, originX, pixelsPerX, plotWidth)) {
+            return out;
+        }
+        out.reset(model, version, mode, from, to, indexAsX, originX, pixelsPerX, plotWidth);
+        // Another graph drawing this data set at the same scale may have done the work already
+        boolean shared = isShared(model, out);
+        if (shared && DecimationCache.copyTo(model, out)) {
+            out.setPointsRead(out.getCount());
+            return out;
+        }
+        if (mode == DECIMATION_LTTB) {
+            largestTriangleThreeBuckets(model, from, to, indexAsX, plotWidth, out);
+        } else if (sharedX != null && !indexAsX && model.getColumnTable() != null) {
+            int runCount = sharedX.splitIntoColumns(model.getColumnTable(), from, to, originX, pixelsPerX);
+            minMaxPerRun(model, sharedX.getRunStarts(), runCount, to, out);
+        } else {
+            minMaxPerColumn(model, from, to, indexAsX, originX, pixelsPerX, out);
+        }
+        out.setPointsRead(size);
+        if (shared) DecimationCache.put(model, out);
+        return out;
+    }
+
+    /**
+     * Returns true if other graphs reduced the data set lately, so the DecimationCache may hold
+     * what this one needs and what this one computes may be of use to them.  A data set reduced
+     * by one graph alone, live data drawn by a single graph for example, skips the cache and
+     * neither takes its lock nor copies the points into it.
+     */
+    private static boolean isShared(Series<?> model, DecimatedSeries out) {
+        return model.noteReduction(out) < LONE_REDUCTION_RUN;
+    }
+
+    /**
+     * Collapses every run of consecutive points that fall in the same pixel column into its first,
+     * lowest, highest and last point, kept in their original order.
+     *
+     * The lines between those points cover exactly the pixels the full run would have, so the graph
+     * looks the same.  Works for X values in any order, a run simply ends whenever the line leaves
+     * the column.
+     */
+    static void minMaxPerColumn(Series<?> model, int from, int to, boolean indexAsX, float originX, float pixelsPerX, DecimatedSeries out) {
+        if (to <= from) return;
+
+        int first = from;
+        int lowest = from;
+        int highest = from;
+        int column = column(indexAsX ? from : model.getX(from), originX, pixelsPerX);
+        for (int i = from + 1; i < to; i++) {
+            int pointColumn = column(indexAsX ? i : model.getX(i), originX, pixelsPerX);
+            if (pointColumn != column) {
+                addRun(model, indexAsX, first, lowest, highest, i - 1, out);
+                column = pointColumn;
+                first = i;
+                lowest = i;
+                highest = i;
+            } else {
+                float y = model.getY(i);
+                if (y < model.getY(lowest)) lowest = i;
+                if (y > model.getY(highest)) highest = i;
+            }
+        }
+        addRun(model, indexAsX, first, lowest, highest, to - 1, out);
+    }
+
+    /**
+     * Same as minMaxPerColumn(), for points already split into runs that fall in the same column.
+     *
+     * @param runStarts index of the first point of every run
+     * @param to index after the last point of the last run
+     */
+    static void minMaxPerRun(Series<?> model, int[] runStarts, int runCount, int to, DecimatedSeries out) {
+        for (int run = 0; run < runCount; run++) {
+            int first = runStarts[run];
+            int last = run + 1 < runCount ? runStarts[run + 1] - 1 : to - 1;
+            int lowest = first;
+            int highest = first;
+            float lowestY = model.getY(first);
+            float highestY = lowestY;
+            for (int i = first + 1; i <= last; i++) {
+                float y = model.getY(i);
+                if (y < lowestY) {
+                    lowest = i;
+                    lowestY = y;
+                }
+                if (y > highestY) {
+                    highest = i;
+                    highestY = y;
+                }
+            }
+            addRun(model, false, first, lowest, highest, last, out);
+        }
+    }
+
+    static int column(float x, float originX, float pixelsPerX) {
+        return (int) Math.floor((x - originX) * pixelsPerX);
+    }
+
+    private static void addRun(Series<?> model, boolean indexAsX, int first, int lowest, int highest, int last, DecimatedSeries out) {
+        int middleFirst = Math.min(lowest, highest);
+        int middleLast = Math.max(lowest, highest);
+        addPoint(model, indexAsX, first, out);
+        if (middleFirst != first && middleFirst != last) addPoint(model, indexAsX, middleFirst, out);
+        if (middleLast != middleFirst && middleLast != first && middleLast != last) addPoint(model, indexAsX, middleLast, out);
+        if (last != first) addPoint(model, indexAsX, last, out);
+    }
+
+    private static void addPoint(Series<?> model, boolean indexAsX, int index, DecimatedSeries out) {
+        out.add(indexAsX ? index : model.getX(index), model.getY(index));
+    }
+
+    /**
+     * Largest-Triangle-Three-Buckets: splits the data set into buckets and keeps the point of each
+     * bucket that forms the largest triangle with the point kept before it and the average of the
+     * next bucket.
+     *
+     * @param threshold number of points to keep, including the first and last
+     */
+    static void largestTriangleThreeBuckets(Series<?> model, int from, int to, boolean indexAsX, int threshold, DecimatedSeries out) {
+        int size = to - from;
+        if (threshold >= size || threshold < 3) {
+            for (int i = from; i < to; i++) {
+                addPoint(model, indexAsX, i, out);
+            }
+            return;
+        }
+
+        double bucketSize = (double) (size - 2) / (threshold - 2);
+        int selected = from;
+        addPoint(model, indexAsX, selected, out);
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            // Average of the next bucket, the last point stands in for it at the end
+            int nextStart = from + (int) Math.floor((bucket + 1) * bucketSize) + 1;
+            int nextEnd = Math.min(from + (int) Math.floor((bucket + 2) * bucketSize) + 1, to);
+            double averageX = 0;
+            double averageY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                averageX += indexAsX ? i : model.getX(i);
+                averageY += model.getY(i);
+            }
+            int nextCount = nextEnd - nextStart;
+            if (nextCount > 0) {
+                averageX /= nextCount;
+                averageY /= nextCount;
+            } else {
+                averageX = indexAsX ? to - 1 : model.getX(to - 1);
+                averageY = model.getY(to - 1);
+            }
+
+            double selectedX = indexAsX ? selected : model.getX(selected);
+            double selectedY = model.getY(selected);
+            int start = from + (int) Math.floor(bucket * bucketSize) + 1;
+            int end = from + (int) Math.floor((bucket + 1) * bucketSize) + 1;
+            double largestArea = -1;
+            int largest = start;
+            for (int i = start; i < end; i++) {
+                double x = indexAsX ? i : model.getX(i);
+                double area = Math.abs((selectedX - averageX) * (model.getY(i) - selectedY)
+                        - (selectedX - x) * (averageY - selectedY));
+                if (area > largestArea) {
+                    largestArea = area;
+                    largest = i;
+                }
+            }
+            addPoint(model, indexAsX, largest, out);
+            selected = largest;
+        }
+        addPoint(model, indexAsX, to - 1, out);
+    }
+}
@@ -0,0 +1,276 @@
+package com.sortagreg.graphview.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the numbers out of a CSV or TSV stream, one row at a time.
+ *
+ * The bytes are parsed in place, without building a String for every line or field, so reading a
+ * file of millions of rows only allocates the read buffer.  Fields may be padded with spaces and
+ * quoted, a quoted field can hold delimiters, line breaks and doubled quotes.  A field that is not
+ * a number, a header for example, reads as NaN.  Empty lines are skipped.  Numbers are read with
+ * the precision of a float.
+ *
+ * Not thread safe.
+ */
+public class DelimitedReader {
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Used as the delimiter to split fields on both commas and tabs.
+     */
+    public static final int COMMA_OR_TAB = -1;
+
+    // Mantissa digits past this many are dropped, a float only keeps about 7 of them
+    private static final long MAX_MANTISSA = 100000000000000L;
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private long bytesRead;
+    private long rowCount;
+    private int delimiter = COMMA_OR_TAB;
+    private boolean started;
+
+    /**
+     * @param in stream to read, not closed by the reader
+     */
+    public DelimitedReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Sets the character fields are separated by.
+     *
+     * @param delimiter delimiting character, or COMMA_OR_TAB
+     */
+    public void setDelimiter(int delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    public int getDelimiter() {
+        return delimiter;
+    }
+
+    /**
+     * Reads the next row that is not empty.
+     *
+     * @param fields filled with the values of the fields, NaN for fields that are not numbers.
+     *               Fields past its length are counted but not kept.
+     * @return int number of fields in the row, -1 at the end of the stream
+     * @throws IOException if the stream can not be read
+     */
+    public int readRow(float[] fields) throws IOException {
+        if (!started) {
+            started = true;
+            skipByteOrderMark();
+        }
+        int c = peek();
+        while (c == '\n' || c == '\r') {
+            position++;
+            c = peek();
+        }
+        if (c < 0) return -1;
+
+        int count = 0;
+        while (true) {
+            float value = readField();
+            if (count < fields.length) fields[count] = value;
+            count++;
+            c = read();
+            if (c < 0 || c == '\n') break;
+            if (c == '\r') {
+                if (peek() == '\n') position++;
+                break;
+            }
+        }
+        rowCount++;
+        return count;
+    }
+
+    /**
+     * @return long bytes read from the stream so far
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * @return long rows returned by readRow() so far
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Parses one field, leaving the delimiter or line break after it unread.
+     */
+    private float readField() throws IOException {
+        skipPadding();
+        boolean quoted = peek() == '"';
+        if (quoted) {
+            position++;
+            skipPadding();
+        }
+        float value = readNumber();
+        skipPadding();
+        if (quoted) {
+            // A doubled quote is a quote inside the field, not the end of it
+            if (peek() == '"' && !(fill(2) && buffer[position + 1] == '"')) {
+                position++;
+            } else {
+                value = Float.NaN;
+                skipQuoted();
+            }
+            skipPadding();
+        }
+        if (!isEndOfField(peek())) {
+            value = Float.NaN;
+            while (!isEndOfField(peek())) {
+                position++;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Skips the rest of a quoted field up to and including its closing quote.
+     */
+    private void skipQuoted() throws IOException {
+        int c;
+        while ((c = read()) >= 0) {
+            if (c == '"') {
+                if (peek() != '"') return;
+                position++;
+            }
+        }
+    }
+
+    /**
+     * Parses a number, leaving whatever follows it unread.
+     *
+     * @return float the number, NaN if there are no digits
+     */
+    private float readNumber() throws IOException {
+        boolean negative = false;
+        int c = peek();
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            position++;
+        }
+        long mantissa = 0;
+        int exponent = 0;
+        boolean digits = false;
+        while (isDigit(c = peek())) {
+            position++;
+            digits = true;
+            if (mantissa < MAX_MANTISSA) {
+                mantissa = mantissa * 10 + (c - '0');
+            } else {
+                exponent++;
+            }
+        }
+        if (c == '.') {
+            position++;
+            while (isDigit(c = peek())) {
+                position++;
+                digits = true;
+                if (mantissa < MAX_MANTISSA) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    exponent--;
+                }
+            }
+        }
+        if (digits && (c == 'e' || c == 'E')) {
+            position++;
+            boolean negativeExponent = false;
+            c = peek();
+            if (c == '-' || c == '+') {
+                negativeExponent = c == '-';
+                position++;
+            }
+            int power = 0;
+            boolean powerDigits = false;
+            while (isDigit(c = peek())) {
+                position++;
+                powerDigits = true;
+                if (power < 10000) power = power * 10 + (c - '0');
+            }
+            digits = powerDigits;
+            exponent += negativeExponent ? -power : power;
+        }
+        if (!digits) return Float.NaN;
+        double value = mantissa;
+        if (mantissa != 0 && exponent != 0) {
+            if (exponent > 0) {
+                value *= exponent < POWERS_OF_TEN.length ? POWERS_OF_TEN[exponent] : Math.pow(10, exponent);
+            } else {
+                value /= -exponent < POWERS_OF_TEN.length ? POWERS_OF_TEN[-exponent] : Math.pow(10, -exponent);
+            }
+        }
+        return (float) (negative ? -value : value);
+    }
+
+    private void skipPadding() throws IOException {
+        int c = peek();
+        while (c == ' ' || (c == '\t' && delimiter != '\t' && delimiter != COMMA_OR_TAB)) {
+            position++;
+            c = peek();
+        }
+    }
+
+    private void skipByteOrderMark() throws IOException {
+        if (peek() == 0xEF && fill(3) && (buffer[position + 1] & 0xFF) == 0xBB && (buffer[position + 2] & 0xFF) == 0xBF) {
+            position += 3;
+        }
+    }
+
+    private boolean isEndOfField(int c) {
+        if (c < 0 || c == '\n' || c == '\r') return true;
+        return delimiter == COMMA_OR_TAB ? c == ',' || c == '\t' : c == delimiter;
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill(1)) return -1;
+        return buffer[position] & 0xFF;
+    }
+
+    private int read() throws IOException {
+        int c = peek();
+        if (c >= 0) position++;
+        return c;
+    }
+
+    /**
+     * Makes sure at least the given number of bytes are buffered.
+     *
+     * @return boolean false if the stream ended first
+     */
+    private boolean fill(int needed) throws IOException {
+        if (limit - position >= needed) return true;
+        System.arraycopy(buffer, position, buffer, 0, limit - position);
+        limit -= position;
+        position = 0;
+        while (limit < needed) {
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read < 0) return false;
+            limit += read;
+            bytesRead += read;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,102 @@
+package com.sortagreg.graphview.core;
+
+import java.util.Arrays;
+
+/**
+ * Percentiles of the most recent frame times.
+ *
+ * Keeps the last few hundred samples in a ring, recording a sample does not allocate.  The
+ * percentiles are computed when they are asked for, so ask once in a while rather than every frame.
+ * Not thread safe, record and read on the same thread.
+ */
+public class FrameTimeHistogram {
+    public static final int DEFAULT_CAPACITY = 300;
+
+    private final long[] samples;
+    private final long[] sorted;
+    private int next;
+    private int count;
+    private boolean sortedCurrent;
+
+    public FrameTimeHistogram() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity number of most recent samples the percentiles are taken over
+     */
+    public FrameTimeHistogram(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        samples = new long[capacity];
+        sorted = new long[capacity];
+    }
+
+    /**
+     * Adds a sample, dropping the oldest one once the histogram is full.
+     *
+     * @param nanos frame time in nanoseconds
+     */
+    public void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) count++;
+        sortedCurrent = false;
+    }
+
+    /**
+     * @return int number of samples the percentiles are taken over
+     */
+    public int getCount() {
+        return count;
+    }
+
+    public int getCapacity() {
+        return samples.length;
+    }
+
+    /**
+     * Returns the sample below which the given fraction of the samples fall, by nearest rank.
+     *
+     * @param fraction between 0 and 1, 0.95 for the 95th percentile
+     * @return long nanoseconds, 0 if nothing was recorded
+     */
+    public long getPercentileNanos(double fraction) {
+        if (fraction < 0 || fraction > 1) throw new IllegalArgumentException("Fraction must be between 0 and 1: " + fraction);
+        if (count == 0) return 0;
+        if (!sortedCurrent) {
+            System.arraycopy(samples, 0, sorted, 0, count);
+            Arrays.sort(sorted, 0, count);
+            sortedCurrent = true;
+        }
+        int rank = (int) Math.ceil(fraction * count);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+
+    public long getP50Nanos() {
+        return getPercentileNanos(0.50);
+    }
+
+    public long getP95Nanos() {
+        return getPercentileNanos(0.95);
+    }
+
+    public long getP99Nanos() {
+        return getPercentileNanos(0.99);
+    }
+
+    /**
+     * @return long the slowest recorded sample, in nanoseconds
+     */
+    public long getMaxNanos() {
+        return getPercentileNanos(1.0);
+    }
+
+    /**
+     * Forgets every sample.
+     */
+    public void reset() {
+        next = 0;
+        count = 0;
+        sortedCurrent = false;
+    }
+}
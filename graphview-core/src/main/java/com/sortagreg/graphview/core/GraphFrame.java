@@ -0,0 +1,807 @@
+package com.sortagreg.graphview.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.sortagreg.graphview.core.Series.*;
+
+/**
+ * Everything needed to draw one frame of a graph: the settings and data sets it was computed
+ * from, the ranges of values on each axis and the screen coordinates of every data set.
+ *
+ * Computing a frame does not touch the Renderer, so it can run on a background thread while the
+ * previous frame is being drawn.  The buffers are reused, projecting into the same frame again
+ * does not allocate once it has seen data of the same size.
+ *
+ * @param <P> paint type of the data sets
+ */
+public class GraphFrame<P> {
+    /**
+     * Used to specify which part of the data the graph shows, see GraphView.setViewport().
+     */
+    public static final int VIEWPORT_AUTO_FIT = 0;
+    public static final int VIEWPORT_FIXED = 1;
+    public static final int VIEWPORT_FIXED_X = 2;
+
+    /**
+     * Projections in a row that are thrown away because a data set changed while they ran.  The
+     * next one is kept even if the data changed again, so data that changes faster than it can
+     * be projected is still drawn.
+     */
+    public static final int MAX_DISCARDED_PROJECTIONS = 2;
+
+    // Inputs, copied from the view before the frame is projected
+    private int width;
+    private int height;
+    private float topAxisMargin;
+    private float bottomAxisMargin;
+    private float leftAxisMargin;
+    private float rightAxisMargin;
+    private float graphPaddingFactor;
+    private int viewportMode;
+    private float viewportMinX;
+    private float viewportMaxX;
+    private float viewportMinY;
+    private float viewportMaxY;
+    private int configVersion;
+    private final List<Series<P>> primaryDataSets = new ArrayList<>();
+    private final List<Series<P>> secondaryDataSets = new ArrayList<>();
+
+    // Outputs
+    private final Range primaryRange = new Range();
+    private final Range secondaryRange = new Range();
+    // X work shared by the columns of a ColumnTable, kept from one frame to the next
+    private final SharedXProjection sharedX = new SharedXProjection();
+    private LineBuffer[] lines = new LineBuffer[0];
+    // Decimated copy of the data set behind each line, so graphs sharing a data set keep their own
+    private DecimatedSeries[] reductions = new DecimatedSeries[0];
+    private Object[] paints = new Object[0];
+    private int[] dataVersions = new int[0];
+    private int primaryLineCount;
+    private int lineCount;
+    private boolean projected;
+    private int discardedCount;
+
+    // Set from another thread when the result is no longer wanted
+    private volatile boolean cancelled;
+    // Only kept while instrumentation is enabled
+    private RenderMetrics metrics;
+
+    /**
+     * Sets the size of the area the graph is drawn in.
+     *
+     * @param width in pixels
+     * @param height in pixels
+     */
+    public void setSize(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Sets the space between the edges of the graph and the axes.
+     *
+     * @param top
+     * @param bottom
+     * @param left
+     * @param right
+     */
+    public void setMargins(float top, float bottom, float left, float right) {
+        this.topAxisMargin = top;
+        this.bottomAxisMargin = bottom;
+        this.leftAxisMargin = left;
+        this.rightAxisMargin = right;
+    }
+
+    public float getTopAxisMargin() {
+        return topAxisMargin;
+    }
+
+    public float getBottomAxisMargin() {
+        return bottomAxisMargin;
+    }
+
+    public float getLeftAxisMargin() {
+        return leftAxisMargin;
+    }
+
+    public float getRightAxisMargin() {
+        return rightAxisMargin;
+    }
+
+    /**
+     * @param graphPaddingFactor float value from 0.0(no padding) or greater than.
+     */
+    public void setGraphPaddingFactor(float graphPaddingFactor) {
+        this.graphPaddingFactor = graphPaddingFactor;
+    }
+
+    /**
+     * Sets which part of the data is shown.
+     *
+     * @param viewportMode one of the VIEWPORT constants in this class
+     * @param minX X value on the left edge of the graph
+     * @param maxX X value on the right edge of the graph
+     * @param minY Y value on the bottom edge of the graph, VIEWPORT_FIXED only
+     * @param maxY Y value on the top edge of the graph, VIEWPORT_FIXED only
+     */
+    public void setViewport(int viewportMode, float minX, float maxX, float minY, float maxY) {
+        this.viewportMode = viewportMode;
+        this.viewportMinX = minX;
+        this.viewportMaxX = maxX;
+        this.viewportMinY = minY;
+        this.viewportMaxY = maxY;
+    }
+
+    /**
+     * Sets the version of the settings the frame is projected from, see isCurrent().
+     *
+     * @param configVersion
+     */
+    public void setConfigVersion(int configVersion) {
+        this.configVersion = configVersion;
+    }
+
+    public int getConfigVersion() {
+        return configVersion;
+    }
+
+    /**
+     * Sets the data sets to project.  The lists are copied, the data sets are not.
+     *
+     * @param primary data sets drawn against the left axis
+     * @param secondary data sets drawn against the right axis
+     */
+    public void setDataSets(List<? extends Series<P>> primary, List<? extends Series<P>> secondary) {
+        // Copied one by one, addAll() would allocate an array every frame
+        primaryDataSets.clear();
+        for (int i = 0; i < primary.size(); i++) {
+            primaryDataSets.add(primary.get(i));
+        }
+        secondaryDataSets.clear();
+        for (int i = 0; i < secondary.size(); i++) {
+            secondaryDataSets.add(secondary.get(i));
+        }
+    }
+
+    /**
+     * @return List of the primary data sets the frame was projected from
+     */
+    public List<Series<P>> getPrimaryDataSets() {
+        return primaryDataSets;
+    }
+
+    /**
+     * @return List of the secondary data sets the frame was projected from
+     */
+    public List<Series<P>> getSecondaryDataSets() {
+        return secondaryDataSets;
+    }
+
+    /**
+     * Stops a projection running on another thread, or lets the next one run.
+     *
+     * @param cancelled
+     */
+    public void setCancelled(boolean cancelled) {
+        this.cancelled = cancelled;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Records the time and the points scanned by every projection in getMetrics().  Off by default,
+     * an uninstrumented projection does not read the clock.
+     *
+     * @param instrumented
+     */
+    public void setInstrumented(boolean instrumented) {
+        if (!instrumented) {
+            metrics = null;
+        } else if (metrics == null) {
+            metrics = new RenderMetrics();
+        }
+    }
+
+    /**
+     * @return RenderMetrics of the last projection, null unless the frame is instrumented
+     */
+    public RenderMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Computes the ranges and the screen coordinates of every data set.
+     *
+     * @return boolean false if the frame was cancelled before it was finished, or a data set was
+     *         modified while it was being projected and fewer than MAX_DISCARDED_PROJECTIONS
+     *         projections were thrown away for that in a row
+     */
+    public boolean project() {
+        projected = false;
+        lineCount = 0;
+        if (metrics != null) metrics.reset();
+        int dataSetCount = primaryDataSets.size() + secondaryDataSets.size();
+        if (dataVersions.length < dataSetCount) {
+            dataVersions = new int[dataSetCount];
+        }
+        for (int i = 0; i < dataSetCount; i++) {
+            dataVersions[i] = getDataSet(i).getVersion();
+        }
+
+        if (!projectDataSets(primaryDataSets, primaryRange, true)) return false;
+        primaryLineCount = lineCount;
+        if (!projectDataSets(secondaryDataSets, secondaryRange, false)) return false;
+        // Reductions are kept by line, let go of the data sets of lines this frame no longer has
+        for (int i = lineCount; i < reductions.length; i++) {
+            if (reductions[i] != null) reductions[i].invalidate();
+        }
+        // Points read from a data set that changed halfway may come from before and after the change.
+        // Such a frame is only kept after the last few were thrown away, and it is not current, so
+        // the data is projected again right after it is drawn.
+        if (isDataChanged() && discardedCount < MAX_DISCARDED_PROJECTIONS) {
+            discardedCount++;
+            return false;
+        }
+        discardedCount = 0;
+        projected = true;
+        return true;
+    }
+
+    /**
+     * Returns true if one of the data sets was modified after the last projection started.
+     */
+    public boolean isDataChanged() {
+        int dataSetCount = primaryDataSets.size() + secondaryDataSets.size();
+        for (int i = 0; i < dataSetCount; i++) {
+            if (getDataSet(i).getVersion() != dataVersions[i]) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Sets the ranges on the axes without projecting the data sets, for drawing the chrome of a
+     * graph whose data is drawn some other way, such as a StripChart.  The frame holds no lines.
+     *
+     * @param primary Range of the primary data sets
+     * @param secondary Range of the secondary data sets
+     */
+    public void setRanges(Range primary, Range secondary) {
+        primaryRange.set(primary);
+        secondaryRange.set(secondary);
+        lineCount = 0;
+        primaryLineCount = 0;
+        projected = true;
+    }
+
+    /**
+     * Returns true if the frame was fully projected from these settings and the current
+     * contents of these data sets.
+     */
+    public boolean isCurrent(int configVersion, List<? extends Series<P>> primary, List<? extends Series<P>> secondary) {
+        if (!projected || this.configVersion != configVersion) return false;
+        if (primary.size() != primaryDataSets.size() || secondary.size() != secondaryDataSets.size()) return false;
+        for (int i = 0; i < primary.size(); i++) {
+            if (primary.get(i) != primaryDataSets.get(i) || primary.get(i).getVersion() != dataVersions[i]) return false;
+        }
+        for (int i = 0; i < secondary.size(); i++) {
+            int index = primaryDataSets.size() + i;
+            if (secondary.get(i) != secondaryDataSets.get(i) || secondary.get(i).getVersion() != dataVersions[index]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return boolean true if the frame holds a complete projection
+     */
+    public boolean isProjected() {
+        return projected;
+    }
+
+    /**
+     * @return boolean true if the data has to be clipped to the area between the axes
+     */
+    public boolean isClipped() {
+        return viewportMode != VIEWPORT_AUTO_FIT;
+    }
+
+    public int getPrimaryLineCount() {
+        return primaryLineCount;
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * @return int number of line segments in the projection
+     */
+    public int getSegmentCount() {
+        int segments = 0;
+        for (int i = 0; i < lineCount; i++) {
+            segments += lines[i].getCount() / 4;
+        }
+        return segments;
+    }
+
+    LineBuffer getLines(int index) {
+        return lines[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    P getPaint(int index) {
+        return (P) paints[index];
+    }
+
+    /**
+     * @return Range of values on the axes of the primary data sets
+     */
+    public Range getPrimaryRange() {
+        return primaryRange;
+    }
+
+    /**
+     * @return Range of values on the right axis, for the secondary data sets
+     */
+    public Range getSecondaryRange() {
+        return secondaryRange;
+    }
+
+    private Series<P> getDataSet(int index) {
+        return index < primaryDataSets.size() ? primaryDataSets.get(index) : secondaryDataSets.get(index - primaryDataSets.size());
+    }
+
+    private LineBuffer nextLines(P paint) {
+        if (lineCount == lines.length) {
+            lines = Arrays.copyOf(lines, lineCount + 4);
+            reductions = Arrays.copyOf(reductions, lineCount + 4);
+            paints = Arrays.copyOf(paints, lineCount + 4);
+        }
+        if (lines[lineCount] == null) {
+            lines[lineCount] = new LineBuffer();
+        }
+        paints[lineCount] = paint;
+        return lines[lineCount++];
+    }
+
+    /**
+     * @return DecimatedSeries kept for the data set of the line being projected
+     */
+    private DecimatedSeries currentReduction() {
+        int index = lineCount - 1;
+        if (reductions[index] == null) {
+            reductions[index] = new DecimatedSeries();
+        }
+        return reductions[index];
+    }
+
+    private boolean projectDataSets(List<Series<P>> dataSetList, Range range, boolean isPrimary) {
+        float dataSetMinX = Float.MAX_VALUE;
+        float dataSetMaxX = -Float.MAX_VALUE;
+        float dataSetMinY = Float.MAX_VALUE;
+        float dataSetMaxY = -Float.MAX_VALUE;
+        float adjustedDataSetMinX;
+        float adjustedDataSetMaxX;
+        float adjustedDataSetMinY;
+        float adjustedDataSetMaxY;
+
+        range.empty = dataSetList.isEmpty();
+        if (dataSetList.isEmpty()) return !cancelled;
+        long startNanos = metrics != null ? System.nanoTime() : 0;
+
+        // Merge the bounds each data set keeps for itself
+        for (int d = 0; d < dataSetList.size(); d++) {
+            Series<P> dataSet = dataSetList.get(d);
+            if (dataSet.size() == 0) continue;
+            if (dataSet.getGraphType() == STANDARD_LINE) {
+                dataSetMaxX = Math.max(dataSetMaxX, dataSet.getMaxX());
+                dataSetMinX = Math.min(dataSetMinX, dataSet.getMinX());
+            }
+            if (dataSet.getGraphType() != STATE_LINE) {
+                dataSetMaxY = Math.max(dataSetMaxY, dataSet.getMaxY());
+                dataSetMinY = Math.min(dataSetMinY, dataSet.getMinY());
+            }
+        }
+        // Use these values when calculating range of values and converting points.
+        // Otherwise, comment these variables out and replace with normal dataSetMax/Min.
+        adjustedDataSetMinX = dataSetMinX - Math.abs(dataSetMaxX * graphPaddingFactor);
+        adjustedDataSetMinY = dataSetMinY - Math.abs(dataSetMaxY * graphPaddingFactor);
+        adjustedDataSetMaxX = dataSetMaxX + Math.abs(dataSetMaxX * graphPaddingFactor);
+        adjustedDataSetMaxY = dataSetMaxY + Math.abs(dataSetMaxY * graphPaddingFactor);
+
+        if (viewportMode != VIEWPORT_AUTO_FIT) {
+            adjustedDataSetMinX = viewportMinX;
+            adjustedDataSetMaxX = viewportMaxX;
+            if (viewportMode == VIEWPORT_FIXED && isPrimary) {
+                adjustedDataSetMinY = viewportMinY;
+                adjustedDataSetMaxY = viewportMaxY;
+            } else {
+                float visibleMinY = Float.MAX_VALUE;
+                float visibleMaxY = -Float.MAX_VALUE;
+                for (int d = 0; d < dataSetList.size(); d++) {
+                    Series<P> dataSet = dataSetList.get(d);
+                    if (dataSet.size() == 0 || dataSet.getGraphType() == STATE_LINE) continue;
+                    if (dataSet.getGraphType() != STANDARD_LINE) {
+                        visibleMaxY = Math.max(visibleMaxY, dataSet.getMaxY());
+                        visibleMinY = Math.min(visibleMinY, dataSet.getMinY());
+                        continue;
+                    }
+                    boolean ascending = dataSet.isXAscending();
+                    int from = ascending ? dataSet.ceilingIndex(viewportMinX) : 0;
+                    int to = ascending ? dataSet.floorIndex(viewportMaxX) + 1 : dataSet.size();
+                    for (int i = from; i < to; i++) {
+                        float x = dataSet.getX(i);
+                        if (x < viewportMinX || x > viewportMaxX) continue;
+                        visibleMaxY = Math.max(visibleMaxY, dataSet.getY(i));
+                        visibleMinY = Math.min(visibleMinY, dataSet.getY(i));
+                    }
+                    countPointsScanned(to - from);
+                }
+                // Keep the Y range of all the data if nothing is inside the viewport
+                if (visibleMinY <= visibleMaxY) {
+                    adjustedDataSetMinY = visibleMinY - Math.abs(visibleMaxY * graphPaddingFactor);
+                    adjustedDataSetMaxY = visibleMaxY + Math.abs(visibleMaxY * graphPaddingFactor);
+                }
+            }
+        }
+
+        range.minX = adjustedDataSetMinX;
+        range.minY = adjustedDataSetMinY;
+        range.rangeX = adjustedDataSetMaxX - adjustedDataSetMinX;
+        range.rangeY = adjustedDataSetMaxY - adjustedDataSetMinY;
+        if (metrics != null) {
+            long boundsDoneNanos = System.nanoTime();
+            metrics.addBoundsNanos(boundsDoneNanos - startNanos);
+            startNanos = boundsDoneNanos;
+        }
+
+        // Project the data sets
+        for (int d = 0; d < dataSetList.size(); d++) {
+            Series<P> dataModel = dataSetList.get(d);
+            if (cancelled) return false;
+            switch (dataModel.getGraphType()) {
+                case STANDARD_LINE:
+                    projectStandardLine(nextLines(dataModel.getPaint()), dataModel, range.minX, range.minY, range.rangeX, range.rangeY);
+                    break;
+                case UNFOLDED_LINE:
+                    projectUnfoldedLine(nextLines(dataModel.getPaint()), dataModel, range.minY, range.rangeY);
+                    break;
+                case CONSTANT_LINE:
+                    projectConstantLine(nextLines(dataModel.getPaint()), dataModel, range.minY, range.rangeY);
+                    break;
+                case STATE_LINE:
+                    projectStateLine(nextLines(dataModel.getPaint()), dataModel);
+                    break;
+            }
+        }
+        if (metrics != null) metrics.addProjectionNanos(System.nanoTime() - startNanos);
+        return !cancelled;
+    }
+
+    /**
+     * Projects a line showing the state of something
+     *
+     * Data set for this should be an array with the y coordinate denoting a state of something,
+     * 0 or 1 for a binary state.  Each run of equal states is drawn as a constant line, with a
+     * vertical edge where the state changes.  State 0 (or the lowest, if it is negative) is drawn
+     * near the top of the graph, state 1 (or the highest, if it is larger) near the bottom, and
+     * the states in between in proportion.  Data sets that keep StateRuns are drawn without
+     * touching every point.
+     *
+     * @param lines
+     * @param dataModel
+     */
+    private void projectStateLine(LineBuffer lines, Series<P> dataModel) {
+        int size = dataModel.size();
+        StateRuns runs = dataModel.getStateRuns();
+        if (size < 2) {
+            lines.reset(0);
+            return;
+        }
+        int runCount;
+        if (runs != null) {
+            runCount = runs.getRunCount();
+            countPointsScanned(runCount);
+        } else {
+            runCount = 1;
+            for (int i = 1; i < size; i++) {
+                if (dataModel.getY(i) != dataModel.getY(i - 1)) runCount++;
+            }
+            countPointsScanned(size);
+        }
+        lines.reset(2 * runCount - 1);
+
+        float pixelsPerX = ((float) width - leftAxisMargin - rightAxisMargin) / (size - 1);
+        float graphHeight = (float) height - bottomAxisMargin - topAxisMargin;
+        float offY = graphHeight * .15f + topAxisMargin;
+        float onY = graphHeight * .85f + topAxisMargin;
+        float lowestState = Math.min(0f, dataModel.getMinY());
+        float pixelsPerState = (onY - offY) / (Math.max(1f, dataModel.getMaxY()) - lowestState);
+
+        float startX = leftAxisMargin;
+        float y;
+        if (runs != null) {
+            y = offY + (runs.getRunState(0) - lowestState) * pixelsPerState;
+            for (int run = 1; run < runCount; run++) {
+                float edgeX = leftAxisMargin + (float) runs.getRunStart(run) * pixelsPerX;
+                float nextY = offY + (runs.getRunState(run) - lowestState) * pixelsPerState;
+                lines.add(startX, y, edgeX, y);
+                lines.add(edgeX, y, edgeX, nextY);
+                startX = edgeX;
+                y = nextY;
+            }
+        } else {
+            y = offY + (dataModel.getY(0) - lowestState) * pixelsPerState;
+            for (int i = 1; i < size; i++) {
+                if (dataModel.getY(i) == dataModel.getY(i - 1)) continue;
+                float edgeX = leftAxisMargin + (float) i * pixelsPerX;
+                float nextY = offY + (dataModel.getY(i) - lowestState) * pixelsPerState;
+                lines.add(startX, y, edgeX, y);
+                lines.add(edgeX, y, edgeX, nextY);
+                startX = edgeX;
+                y = nextY;
+            }
+        }
+        lines.add(startX, y, leftAxisMargin + (float) (size - 1) * pixelsPerX, y);
+    }
+
+    /**
+     * Projects a graph incrementally, taking each point in sequence, and displays (sequence value, actual Y)
+     *
+     * @param lines
+     * @param dataModel
+     * @param adjustedDataSetMinY
+     * @param rangeOfYValues
+     */
+    private void projectUnfoldedLine(LineBuffer lines, Series<P> dataModel, float adjustedDataSetMinY, float rangeOfYValues) {
+        int size = dataModel.size();
+        lines.reset(size - 1);
+        if (size < 2) return;
+
+        float pixelsPerX = ((float) width - leftAxisMargin - rightAxisMargin) / (size - 1);
+        float pixelsPerY = ((float) height - topAxisMargin - bottomAxisMargin) / rangeOfYValues;
+        float originY = (float) height - bottomAxisMargin;
+
+        DecimatedSeries reduction = currentReduction();
+        int decimations = reduction.getBuildCount();
+        DecimatedSeries decimated = Decimator.decimate(dataModel, reduction, 0, size, true, 0f, pixelsPerX, getPlotWidth());
+        if (decimated != null) {
+            countPointsScanned(decimated, decimations);
+            projectDecimatedLine(lines, decimated, 0f, adjustedDataSetMinY, pixelsPerX, pixelsPerY);
+            return;
+        }
+
+        countPointsScanned(size);
+        float startX = leftAxisMargin;
+        float startY = originY - (dataModel.getY(0) - adjustedDataSetMinY) * pixelsPerY;
+        for (int i = 1; i < size; i++) {
+            float endX = leftAxisMargin + (float) i * pixelsPerX;
+            float endY = originY - (dataModel.getY(i) - adjustedDataSetMinY) * pixelsPerY;
+            lines.add(startX, startY, endX, endY);
+            startX = endX;
+            startY = endY;
+        }
+    }
+
+    /**
+     * Takes a single point in a Series and projects a constant based on the point's Y
+     *
+     * @param lines
+     * @param dataModel
+     * @param adjustedDataSetMinY
+     * @param rangeOfYValues
+     */
+    private void projectConstantLine(LineBuffer lines, Series<P> dataModel, float adjustedDataSetMinY, float rangeOfYValues) {
+        lines.reset(1);
+        if (dataModel.size() == 0) return;
+        countPointsScanned(1);
+        float pixelsPerY = ((float) height - topAxisMargin - bottomAxisMargin) / (rangeOfYValues);
+
+        float startX = leftAxisMargin;
+        float endX = (float) width - rightAxisMargin;
+        float y = (float) height - bottomAxisMargin - (dataModel.getY(0) - adjustedDataSetMinY) * pixelsPerY;
+
+        lines.add(startX, y, endX, y);
+    }
+
+    /**
+     * Projects a line from a data set, using (X,Y) pairs
+     *
+     * @param lines
+     * @param dataModel
+     * @param adjustedDataSetMinX
+     * @param adjustedDataSetMinY
+     * @param rangeOfXValues
+     * @param rangeOfYValues
+     */
+    private void projectStandardLine(LineBuffer lines, Series<P> dataModel, float adjustedDataSetMinX, float adjustedDataSetMinY, float rangeOfXValues, float rangeOfYValues) {
+        // The columns of a table share the work on their X values
+        ColumnTable table = dataModel.getColumnTable();
+        // With a viewport, sorted data only needs the visible slice plus one neighbour on each side
+        int from = 0;
+        int to = dataModel.size();
+        if (viewportMode != VIEWPORT_AUTO_FIT && dataModel.isXAscending()) {
+            if (table != null) {
+                sharedX.locate(table, viewportMinX, viewportMaxX);
+                from = sharedX.getVisibleFrom();
+                to = sharedX.getVisibleTo();
+            } else {
+                from = Math.max(0, dataModel.floorIndex(viewportMinX));
+                to = Math.min(to, dataModel.ceilingIndex(viewportMaxX) + 1);
+            }
+        }
+        lines.reset(to - from - 1);
+        if (to - from < 2) return;
+
+        float pixelsPerX = ((float) width - leftAxisMargin - rightAxisMargin) / rangeOfXValues;
+        float pixelsPerY = ((float) height - topAxisMargin - bottomAxisMargin) / rangeOfYValues;
+        float originY = (float) height - bottomAxisMargin;
+
+        DecimatedSeries reduction = currentReduction();
+        int decimations = reduction.getBuildCount();
+        DecimatedSeries decimated = Decimator.decimate(dataModel, reduction, from, to, false, adjustedDataSetMinX, pixelsPerX, getPlotWidth(), table != null ? sharedX : null);
+        if (decimated != null) {
+            countPointsScanned(decimated, decimations);
+            projectDecimatedLine(lines, decimated, adjustedDataSetMinX, adjustedDataSetMinY, pixelsPerX, pixelsPerY);
+            return;
+        }
+
+        countPointsScanned(to - from);
+        float[] pixelX = table != null ? sharedX.project(table, from, to, adjustedDataSetMinX, pixelsPerX, leftAxisMargin) : null;
+        float startX = pixelX != null ? pixelX[from] : (dataModel.getX(from) - adjustedDataSetMinX) * pixelsPerX + leftAxisMargin;
+        float startY = originY - (dataModel.getY(from) - adjustedDataSetMinY) * pixelsPerY;
+        for (int i = from + 1; i < to; i++) {
+            float endX = pixelX != null ? pixelX[i] : (dataModel.getX(i) - adjustedDataSetMinX) * pixelsPerX + leftAxisMargin;
+            float endY = originY - (dataModel.getY(i) - adjustedDataSetMinY) * pixelsPerY;
+            lines.add(startX, startY, endX, endY);
+            startX = endX;
+            startY = endY;
+        }
+    }
+
+    /**
+     * Projects the reduced version of a STANDARD_LINE or UNFOLDED_LINE data set
+     *
+     * @param lines
+     * @param decimated points to project, X is the index of the point for an UNFOLDED_LINE
+     * @param adjustedDataSetMinX
+     * @param adjustedDataSetMinY
+     * @param pixelsPerX
+     * @param pixelsPerY
+     */
+    private void projectDecimatedLine(LineBuffer lines, DecimatedSeries decimated, float adjustedDataSetMinX, float adjustedDataSetMinY, float pixelsPerX, float pixelsPerY) {
+        int count = decimated.getCount();
+        float[] xValues = decimated.getXValues();
+        float[] yValues = decimated.getYValues();
+        lines.reset(count - 1);
+        if (count < 2) return;
+
+        float originY = (float) height - bottomAxisMargin;
+        float startX = (xValues[0] - adjustedDataSetMinX) * pixelsPerX + leftAxisMargin;
+        float startY = originY - (yValues[0] - adjustedDataSetMinY) * pixelsPerY;
+        for (int i = 1; i < count; i++) {
+            float endX = (xValues[i] - adjustedDataSetMinX) * pixelsPerX + leftAxisMargin;
+            float endY = originY - (yValues[i] - adjustedDataSetMinY) * pixelsPerY;
+            lines.add(startX, startY, endX, endY);
+            startX = endX;
+            startY = endY;
+        }
+    }
+
+    private void countPointsScanned(int points) {
+        if (metrics != null) metrics.addPointsScanned(points);
+    }
+
+    /**
+     * Counts the points of a decimated data set, plus the points of the data set that were read
+     * if it had to be decimated again for this frame.
+     *
+     * @param decimated
+     * @param decimationsBefore build count of the decimated data set before this frame
+     */
+    private void countPointsScanned(DecimatedSeries decimated, int decimationsBefore) {
+        if (metrics == null) return;
+        metrics.addPointsScanned(decimated.getCount());
+        if (decimated.getBuildCount() != decimationsBefore) {
+            metrics.addPointsScanned(decimated.getPointsRead());
+        }
+    }
+
+    /**
+     * Width of the area between the left and right axis, in whole pixels
+     *
+     * @return int
+     */
+    private int getPlotWidth() {
+        return (int) ((float) width - leftAxisMargin - rightAxisMargin);
+    }
+
+    /**
+     * Range of values shown on the axes for one list of data sets.
+     */
+    public static class Range {
+        boolean empty = true;
+        float minX;
+        float minY;
+        float rangeX;
+        float rangeY;
+
+        /**
+         * @return boolean true if there were no data sets to take a range from
+         */
+        public boolean isEmpty() {
+            return empty;
+        }
+
+        public float getMinX() {
+            return minX;
+        }
+
+        public float getMinY() {
+            return minY;
+        }
+
+        public float getRangeX() {
+            return rangeX;
+        }
+
+        public float getRangeY() {
+            return rangeY;
+        }
+
+        /**
+         * @return boolean true if both ranges are empty or cover exactly the same values
+         */
+        public boolean isSameAs(Range other) {
+            if (empty || other.empty) return empty == other.empty;
+            return minX == other.minX && minY == other.minY && rangeX == other.rangeX && rangeY == other.rangeY;
+        }
+
+        /**
+         * Sets the values on the axes.
+         *
+         * @param minX X value on the left edge
+         * @param minY Y value on the bottom edge
+         * @param rangeX X values across the graph
+         * @param rangeY Y values from the bottom to the top of the graph
+         */
+        public void set(float minX, float minY, float rangeX, float rangeY) {
+            empty = false;
+            this.minX = minX;
+            this.minY = minY;
+            this.rangeX = rangeX;
+            this.rangeY = rangeY;
+        }
+
+        /**
+         * Marks the range as having no data sets.
+         */
+        public void clear() {
+            empty = true;
+        }
+
+        /**
+         * Copies another range into this one.
+         *
+         * @param other
+         */
+        public void set(Range other) {
+            empty = other.empty;
+            minX = other.minX;
+            minY = other.minY;
+            rangeX = other.rangeX;
+            rangeY = other.rangeY;
+        }
+    }
+}
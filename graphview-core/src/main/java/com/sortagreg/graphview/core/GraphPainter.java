@@ -0,0 +1,487 @@
+package com.sortagreg.graphview.core;
+
+import java.util.List;
+
+/**
+ * Draws projected frames, axes, labels and titles through a Renderer.
+ *
+ * Holds the settings that decide what the graph looks like, so every view of a graph draws the
+ * same graph from the same settings.  A painter is only used from one thread at a time, a view
+ * that draws on another thread copies the settings into a painter of its own.
+ *
+ * @param <P> paint type of the Renderer
+ * @author Marshall Ladd
+ */
+public class GraphPainter<P> {
+    public static final int STANDARD_LABELS = 0;
+    public static final int UNFOLDED_LABELS = 1;
+    public static final int CUSTOM_LABELS = 2;
+
+    public static final int DEFAULT_LABEL_TEXT_COLOR = 0xFF000000;
+    public static final float DEFAULT_LABEL_TEXT_SIZE = 30f;
+
+    public static final float DEFAULT_TOP_MARGIN = 75f;
+    public static final float DEFAULT_BOTTOM_MARGIN = 175f;
+    public static final float DEFAULT_LEFT_MARGIN = 175f;
+    public static final float DEFAULT_RIGHT_MARGIN = 175f;
+
+    private static final int DEFAULT_NUMBER_X_LABELS = 15;
+    private static final int DEFAULT_NUMBER_Y_LABELS = 10;
+
+    private String title = "";
+    private String rightSideText = "";
+    private String leftSideText = "";
+    private String bottomText = "";
+
+    // Everything is off until set, GraphView loads the defaults from its XML attributes
+    private float topAxisMargin;
+    private float bottomAxisMargin;
+    private float leftAxisMargin;
+    private float rightAxisMargin;
+
+    private int labelStyle;
+    private boolean leftSideLabels;
+    private boolean xAxisLabels;
+    private boolean rightSideLabels;
+    private boolean shouldDrawBox;
+
+    private int labelTextColor = DEFAULT_LABEL_TEXT_COLOR;
+    private float labelTextSize = DEFAULT_LABEL_TEXT_SIZE;
+
+    // Paints are created once by the renderer, drawing must not allocate
+    private final Renderer<P> paintFactory;
+    private final P axisPaint;
+    private final P markerPaint;
+    private P leftLabelPaint;
+    private P rightLabelPaint;
+    private P keyLabelPaint;
+    private final AxisLabels axisLabels = new AxisLabels();
+    private final LabelFormatter labelFormatter = new LabelFormatter();
+    // Only set while instrumentation is enabled
+    private RenderMetrics metrics;
+
+    /**
+     * @param paintFactory Renderer that creates the paints of the painter.  Any renderer of the
+     *                     same backend can draw with them.
+     */
+    public GraphPainter(Renderer<P> paintFactory) {
+        this.paintFactory = paintFactory;
+        // TODO Make all paints configurable
+        axisPaint = paintFactory.createLinePaint(0xff000000, 5.0f);
+        markerPaint = paintFactory.createLinePaint(0xAAd3d3d3, 2.0f);
+        setTextPaints();
+    }
+
+    /**
+     * Copies every setting from another painter.
+     *
+     * @param other GraphPainter to copy from
+     */
+    public void copySettingsFrom(GraphPainter<P> other) {
+        title = other.title;
+        rightSideText = other.rightSideText;
+        leftSideText = other.leftSideText;
+        bottomText = other.bottomText;
+        topAxisMargin = other.topAxisMargin;
+        bottomAxisMargin = other.bottomAxisMargin;
+        leftAxisMargin = other.leftAxisMargin;
+        rightAxisMargin = other.rightAxisMargin;
+        labelStyle = other.labelStyle;
+        leftSideLabels = other.leftSideLabels;
+        xAxisLabels = other.xAxisLabels;
+        rightSideLabels = other.rightSideLabels;
+        shouldDrawBox = other.shouldDrawBox;
+        if (labelTextColor != other.labelTextColor || labelTextSize != other.labelTextSize) {
+            labelTextColor = other.labelTextColor;
+            labelTextSize = other.labelTextSize;
+            setTextPaints();
+        }
+    }
+
+    /**
+     * Adds the time spent on labels to these metrics on every draw() and drawChromeLayer(), and
+     * the time spent on the axes and titles on every draw(), null to stop.
+     *
+     * @param metrics
+     */
+    public void setMetrics(RenderMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Creates the text paints from the label text color and size.
+     */
+    private void setTextPaints() {
+        leftLabelPaint = paintFactory.createTextPaint(labelTextColor, labelTextSize, Renderer.ALIGN_RIGHT);
+        rightLabelPaint = paintFactory.createTextPaint(labelTextColor, labelTextSize, Renderer.ALIGN_LEFT);
+        keyLabelPaint = paintFactory.createTextPaint(labelTextColor, labelTextSize, Renderer.ALIGN_CENTER);
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getRightSideText() {
+        return rightSideText;
+    }
+
+    public void setRightSideText(String rightSideText) {
+        this.rightSideText = rightSideText;
+    }
+
+    public String getLeftSideText() {
+        return leftSideText;
+    }
+
+    public void setLeftSideText(String leftSideText) {
+        this.leftSideText = leftSideText;
+    }
+
+    public String getBottomText() {
+        return bottomText;
+    }
+
+    public void setBottomText(String bottomText) {
+        this.bottomText = bottomText;
+    }
+
+    public float getTopAxisMargin() {
+        return topAxisMargin;
+    }
+
+    public void setTopAxisMargin(float topAxisMargin) {
+        this.topAxisMargin = topAxisMargin;
+    }
+
+    public float getBottomAxisMargin() {
+        return bottomAxisMargin;
+    }
+
+    public void setBottomAxisMargin(float bottomAxisMargin) {
+        this.bottomAxisMargin = bottomAxisMargin;
+    }
+
+    public float getLeftAxisMargin() {
+        return leftAxisMargin;
+    }
+
+    public void setLeftAxisMargin(float leftAxisMargin) {
+        this.leftAxisMargin = leftAxisMargin;
+    }
+
+    public float getRightAxisMargin() {
+        return rightAxisMargin;
+    }
+
+    public void setRightAxisMargin(float rightAxisMargin) {
+        this.rightAxisMargin = rightAxisMargin;
+    }
+
+    public int getLabelStyle() {
+        return labelStyle;
+    }
+
+    public void setLabelStyle(int labelStyle) {
+        this.labelStyle = labelStyle;
+    }
+
+    public boolean isLeftSideLabels() {
+        return leftSideLabels;
+    }
+
+    public void setLeftSideLabels(boolean leftSideLabels) {
+        this.leftSideLabels = leftSideLabels;
+    }
+
+    public boolean isXAxisLabels() {
+        return xAxisLabels;
+    }
+
+    public void setXAxisLabels(boolean xAxisLabels) {
+        this.xAxisLabels = xAxisLabels;
+    }
+
+    public boolean isRightSideLabels() {
+        return rightSideLabels;
+    }
+
+    public void setRightSideLabels(boolean rightSideLabels) {
+        this.rightSideLabels = rightSideLabels;
+    }
+
+    public boolean isShouldDrawBox() {
+        return shouldDrawBox;
+    }
+
+    public void setShouldDrawBox(boolean shouldDrawBox) {
+        this.shouldDrawBox = shouldDrawBox;
+    }
+
+    public int getLabelTextColor() {
+        return labelTextColor;
+    }
+
+    /**
+     * @param labelTextColor color of the labels, titles and axis text as an ARGB int
+     */
+    public void setLabelTextColor(int labelTextColor) {
+        this.labelTextColor = labelTextColor;
+        setTextPaints();
+    }
+
+    public float getLabelTextSize() {
+        return labelTextSize;
+    }
+
+    /**
+     * @param labelTextSize size of the labels, titles and axis text in pixels
+     */
+    public void setLabelTextSize(float labelTextSize) {
+        this.labelTextSize = labelTextSize;
+        setTextPaints();
+    }
+
+    /**
+     * Draws a projected frame in one pass.  The grid and labels of the primary data sets are
+     * drawn over them and under the secondary data sets, then come the labels of the secondary
+     * data sets, the axes and the titles.
+     *
+     * @param renderer Renderer to draw with
+     * @param frame GraphFrame to draw
+     */
+    public void draw(Renderer<P> renderer, GraphFrame<P> frame) {
+        if (frame.isProjected()) {
+            drawLines(renderer, frame, 0, frame.getPrimaryLineCount());
+            drawLabels(renderer, frame, true);
+            drawLines(renderer, frame, frame.getPrimaryLineCount(), frame.getLineCount());
+            drawLabels(renderer, frame, false);
+        }
+        long startNanos = metrics != null ? System.nanoTime() : 0;
+        drawAxes(renderer);
+        drawKeyLabels(renderer);
+        if (metrics != null) metrics.addChromeNanos(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Draws everything that is not a data set, to be drawn over drawFrame().  Unlike draw(), the
+     * grid of the primary data sets ends up over the secondary data sets too.
+     *
+     * @param renderer Renderer to draw with
+     * @param frame GraphFrame the labels are drawn for
+     */
+    public void drawChromeLayer(Renderer<P> renderer, GraphFrame<P> frame) {
+        if (frame.isProjected()) {
+            drawLabels(renderer, frame, true);
+            drawLabels(renderer, frame, false);
+        }
+        drawAxes(renderer);
+        drawKeyLabels(renderer);
+    }
+
+    /**
+     * Draws the labels and grid lines of the primary or the secondary data sets.
+     */
+    private void drawLabels(Renderer<P> renderer, GraphFrame<P> frame, boolean primary) {
+        long startNanos = metrics != null ? System.nanoTime() : 0;
+        if (primary) {
+            GraphFrame.Range primaryRange = frame.getPrimaryRange();
+            if (!primaryRange.isEmpty()) {
+                drawPrimaryLabels(renderer, primaryRange, frame.getPrimaryDataSets());
+            }
+        } else {
+            GraphFrame.Range secondaryRange = frame.getSecondaryRange();
+            if (!secondaryRange.isEmpty()) {
+                drawRightSideLabels(renderer, secondaryRange.getMinY(), secondaryRange.getRangeY());
+            }
+        }
+        if (metrics != null) metrics.addLabelsNanos(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Draws the border of the graph.
+     *
+     * @param renderer Renderer to draw with
+     */
+    private void drawAxes(Renderer<P> renderer) {
+        // vertical axis T->B
+        renderer.drawLine(leftAxisMargin, topAxisMargin, leftAxisMargin, renderer.getHeight() - bottomAxisMargin, axisPaint);
+        // horizontal axis L->R
+        renderer.drawLine(leftAxisMargin, renderer.getHeight() - bottomAxisMargin, renderer.getWidth() - rightAxisMargin, renderer.getHeight() - bottomAxisMargin, axisPaint);
+        if (shouldDrawBox) {
+            renderer.drawLine(leftAxisMargin, topAxisMargin, renderer.getWidth() - rightAxisMargin, topAxisMargin, axisPaint);
+            renderer.drawLine(renderer.getWidth() - rightAxisMargin, topAxisMargin, renderer.getWidth() - rightAxisMargin, renderer.getHeight() - bottomAxisMargin, axisPaint);
+        }
+    }
+
+    /**
+     * Draws the data sets of a projected frame, for drawing the rest with drawChromeLayer().
+     *
+     * @param renderer Renderer to draw with
+     * @param frame GraphFrame to draw
+     */
+    public void drawFrame(Renderer<P> renderer, GraphFrame<P> frame) {
+        if (!frame.isProjected()) return;
+        drawLines(renderer, frame, 0, frame.getLineCount());
+    }
+
+    /**
+     * Submits the projected data sets, one drawLines() call per data set.
+     *
+     * @param renderer Renderer to draw with
+     * @param frame GraphFrame holding the projected data sets
+     * @param from index of the first data set to draw
+     * @param to index after the last data set to draw
+     */
+    private void drawLines(Renderer<P> renderer, GraphFrame<P> frame, int from, int to) {
+        if (from == to) return;
+        // Anything outside of the viewport is clipped
+        int saveCount = renderer.save();
+        if (frame.isClipped()) {
+            renderer.clipRect(leftAxisMargin, topAxisMargin, (float) renderer.getWidth() - rightAxisMargin, (float) renderer.getHeight() - bottomAxisMargin);
+        }
+        for (int i = from; i < to; i++) {
+            LineBuffer lines = frame.getLines(i);
+            if (lines.getCount() > 0) {
+                renderer.drawLines(lines.getPoints(), 0, lines.getCount(), frame.getPaint(i));
+            }
+        }
+        renderer.restoreToCount(saveCount);
+    }
+
+    private void drawPrimaryLabels(Renderer<P> renderer, GraphFrame.Range range, List<Series<P>> dataSetList) {
+        switch (labelStyle) {
+            case STANDARD_LABELS:
+                drawStandardTextLabels(renderer, range.minX, range.minY, range.rangeX, range.rangeY);
+                break;
+            case UNFOLDED_LABELS:
+                drawUnfoldedTextLabels(renderer, dataSetList, range.minX, range.minY, range.rangeX, range.rangeY);
+                break;
+            case CUSTOM_LABELS:
+                // Custom label is not implemented yet. Using standard by default
+                // TODO add custom label ability
+                // break;
+            default:
+                drawStandardTextLabels(renderer, range.minX, range.minY, range.rangeX, range.rangeY);
+        }
+    }
+
+    /**
+     * Draws the X and Y labels base on the max and min of the data set and the title
+     *
+     * @param renderer
+     * @param adjustedDataSetMinX
+     * @param adjustedDataSetMinY
+     * @param rangeOfXValues
+     * @param rangeOfYValues
+     */
+    private void drawStandardTextLabels(Renderer<P> renderer, float adjustedDataSetMinX, float adjustedDataSetMinY, float rangeOfXValues, float rangeOfYValues) {
+        // TODO split method to drawX, drawY, drawTitle
+
+        P textPaint = leftLabelPaint;
+
+        // Y-Axis labels
+        if (leftSideLabels) {
+            int labelCount = axisLabels.generate((int) adjustedDataSetMinY, (int) rangeOfYValues, DEFAULT_NUMBER_Y_LABELS);
+            float pixelsPerValue = ((float) renderer.getHeight() - topAxisMargin - bottomAxisMargin) / rangeOfYValues;
+            float initialLabelOffset = adjustedDataSetMinY * pixelsPerValue;
+            for (int i = 0; i < labelCount; i++) {
+                int labelValue = axisLabels.get(i);
+                renderer.drawText(labelFormatter.format(labelValue), leftAxisMargin - 10f, ((float) renderer.getHeight() - bottomAxisMargin + initialLabelOffset) - ((float) labelValue * pixelsPerValue), textPaint);
+                renderer.drawLine((int) leftAxisMargin, ((float) renderer.getHeight() - bottomAxisMargin + initialLabelOffset) - ((float) labelValue * pixelsPerValue),
+                         renderer.getWidth() - rightAxisMargin, ((float) renderer.getHeight() - bottomAxisMargin + initialLabelOffset) - ((float) labelValue * pixelsPerValue), markerPaint);
+            }
+        }
+
+        // X-Axis labels
+        if (xAxisLabels) {
+            int labelCount = axisLabels.generate((int) adjustedDataSetMinX, (int) rangeOfXValues, DEFAULT_NUMBER_X_LABELS);
+            float pixelsPerValue = ((float) renderer.getWidth() - leftAxisMargin - rightAxisMargin) / rangeOfXValues;
+            float initialLabelOffset = adjustedDataSetMinX * pixelsPerValue;
+
+            for (int i = 0; i < labelCount; i++) {
+                int labelValue = axisLabels.get(i);
+                renderer.rotate(270, leftAxisMargin + ((float) labelValue * pixelsPerValue) - initialLabelOffset, (float) renderer.getHeight() - bottomAxisMargin + 10f);
+                renderer.drawText(labelFormatter.format(labelValue), leftAxisMargin + ((float) labelValue * pixelsPerValue) - initialLabelOffset, (float) renderer.getHeight() - bottomAxisMargin + 10f, textPaint);
+                renderer.rotate(-270, leftAxisMargin + ((float) labelValue * pixelsPerValue) - initialLabelOffset, (float) renderer.getHeight() - bottomAxisMargin + 10f);
+                renderer.drawLine(leftAxisMargin + ((float) labelValue * pixelsPerValue) - initialLabelOffset, renderer.getHeight() - (int) bottomAxisMargin,
+                        leftAxisMargin + ((float) labelValue * pixelsPerValue) - initialLabelOffset, (int) topAxisMargin,
+                        markerPaint);
+            }
+        }
+    }
+
+    /**
+     * Draws X labels based on the exact values in the first data set in the dataSetList.
+     * The Y labels are drawn by min and max values.
+     *
+     * @param renderer
+     * @param dataSetList
+     * @param adjustedDataSetMinY
+     * @param rangeOfYValues
+     */
+    private void drawUnfoldedTextLabels(Renderer<P> renderer, List<Series<P>> dataSetList, float adjustedDataSetMinX, float adjustedDataSetMinY, float rangeOfXValues, float rangeOfYValues) {
+        // TODO split method to drawX, drawY, drawTitle
+
+        P textPaint = leftLabelPaint;
+
+        // Y-Axis labels
+        if (leftSideLabels) {
+            int labelCount = axisLabels.generate((int) adjustedDataSetMinY, (int) rangeOfYValues, DEFAULT_NUMBER_Y_LABELS);
+            float pixelsPerValue = ((float) renderer.getHeight() - topAxisMargin - bottomAxisMargin) / rangeOfYValues;
+            float initialLabelOffset = adjustedDataSetMinY * pixelsPerValue;
+            for (int i = 0; i < labelCount; i++) {
+                int labelValue = axisLabels.get(i);
+                renderer.drawText(labelFormatter.format(labelValue), leftAxisMargin - 10f, ((float) renderer.getHeight() - bottomAxisMargin + initialLabelOffset) - ((float) labelValue * pixelsPerValue), textPaint);
+                renderer.drawLine((int) leftAxisMargin, ((float) renderer.getHeight() - bottomAxisMargin + initialLabelOffset) - ((float) labelValue * pixelsPerValue),
+                        renderer.getWidth() - rightAxisMargin, ((float) renderer.getHeight() - bottomAxisMargin + initialLabelOffset) - ((float) labelValue * pixelsPerValue), markerPaint);
+            }
+        }
+
+        // X-Axis labels
+        if (xAxisLabels) {
+            // TODO actually make the number of labels in an unfolded graph configurable again
+            float pixelsPerLabel = ((float) renderer.getWidth() - leftAxisMargin - rightAxisMargin) / (float) DEFAULT_NUMBER_X_LABELS; //(float) numberOfHorizontalLabels;
+            float valuePerStep = dataSetList.get(0).size() / (float) DEFAULT_NUMBER_X_LABELS; //numberOfHorizontalLabels;
+            for (int i = 1; i <= DEFAULT_NUMBER_X_LABELS; i++) {
+                int xLabelRoundingFactorPower = AxisLabels.digitCount((int) valuePerStep) / 2;
+                int xLabelRoundingFactor = (int) Math.pow(10, xLabelRoundingFactorPower);
+                int labelValue = (((int) (dataSetList.get(0).getX(i * (int) valuePerStep - 1) / xLabelRoundingFactor)) * xLabelRoundingFactor);
+                renderer.rotate(270, leftAxisMargin - 10f + (i * pixelsPerLabel), (float) renderer.getHeight() - bottomAxisMargin + 10f);
+                renderer.drawText(labelFormatter.format(labelValue), leftAxisMargin - 10f + (i * pixelsPerLabel), (float) renderer.getHeight() - bottomAxisMargin + 10f, textPaint);
+                renderer.rotate(-270, leftAxisMargin - 10f + (i * pixelsPerLabel), (float) renderer.getHeight() - bottomAxisMargin + 10f);
+                renderer.drawLine(leftAxisMargin - 10f + (i * pixelsPerLabel), renderer.getHeight() - (int) bottomAxisMargin,
+                        leftAxisMargin - 10f + (i * pixelsPerLabel), (int) topAxisMargin,
+                        markerPaint);
+            }
+        }
+    }
+
+    private void drawRightSideLabels(Renderer<P> renderer, float adjustedDataSetMinY, float rangeOfYValues) {
+        if (!rightSideLabels) return;
+        P textPaint = rightLabelPaint;
+
+        int labelCount = axisLabels.generate((int) adjustedDataSetMinY, (int) rangeOfYValues, DEFAULT_NUMBER_Y_LABELS);
+        float pixelsPerValue = ((float) renderer.getHeight() - topAxisMargin - bottomAxisMargin) / rangeOfYValues;
+        float initialLabelOffset = adjustedDataSetMinY * pixelsPerValue;
+        for (int i = 0; i < labelCount; i++) {
+            int labelValue = axisLabels.get(i);
+            renderer.drawText(labelFormatter.format(labelValue), renderer.getWidth() - rightAxisMargin + 10f, ((float) renderer.getHeight() - bottomAxisMargin + initialLabelOffset) - ((float) labelValue * pixelsPerValue), textPaint);
+        }
+    }
+
+    private void drawKeyLabels(Renderer<P> renderer) {
+        P textPaint = keyLabelPaint;
+        renderer.drawText(title, renderer.getWidth() / 2f, topAxisMargin / 2f, textPaint);
+        renderer.drawText(bottomText, renderer.getWidth() / 2f, renderer.getHeight() - 20f, textPaint);
+        renderer.rotate(270, 40f, renderer.getHeight() / 2f);
+        renderer.drawText(leftSideText, 40f, renderer.getHeight() / 2f, textPaint);
+        renderer.rotate(-270, 40f, renderer.getHeight() / 2f);
+        renderer.rotate(270, renderer.getWidth() - 20f, renderer.getHeight() / 2f);
+        renderer.drawText(rightSideText, renderer.getWidth() - 20f, renderer.getHeight() / 2f, textPaint);
+        renderer.rotate(-270, renderer.getWidth() - 20f, renderer.getHeight() / 2f);
+    }
+}
@@ -0,0 +1,260 @@
+package com.sortagreg.graphview.core;
+
+import java.util.List;
+
+import static com.sortagreg.graphview.core.Series.*;
+
+/**
+ * Finds the point nearest to a touch, in screen space, across all data sets of a projected frame.
+ *
+ * Data sets with ascending X values are searched with a binary search on X and a scan outward
+ * from it that stops once the points are further away in X alone than the best point found.
+ * UNFOLDED_LINE data sets are searched the same way by index.  Other STANDARD_LINE data sets are
+ * searched with a PointGrid kept by the data set, built the first time one of them is touched
+ * after it changed.  CONSTANT_LINE and STATE_LINE data sets have no points to snap to and are
+ * skipped.  Only points inside the plot area are found.
+ *
+ * Keeps no state between searches except what the data sets keep, so one HitTester can be used
+ * for any number of frames, from one thread at a time.
+ *
+ * @param <P> paint type of the Renderer the data sets are drawn with
+ */
+public class HitTester<P> {
+    private final Search<P> search = new Search<>();
+
+    /**
+     * Point found by findNearest().
+     */
+    public static final class Hit<P> {
+        Series<P> dataSet;
+        int index;
+        float x;
+        float y;
+        float pixelX;
+        float pixelY;
+        boolean primary;
+
+        /**
+         * @return Series the point belongs to
+         */
+        public Series<P> getDataSet() {
+            return dataSet;
+        }
+
+        /**
+         * @return int index of the point in its data set
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * @return float X value of the point, its index for an UNFOLDED_LINE
+         */
+        public float getX() {
+            return x;
+        }
+
+        public float getY() {
+            return y;
+        }
+
+        /**
+         * @return float position of the point on the screen
+         */
+        public float getPixelX() {
+            return pixelX;
+        }
+
+        public float getPixelY() {
+            return pixelY;
+        }
+
+        /**
+         * @return boolean true if the data set is drawn against the left axis
+         */
+        public boolean isPrimary() {
+            return primary;
+        }
+    }
+
+    /**
+     * Finds the point nearest to a position on the screen.
+     *
+     * @param frame projected frame holding the data sets, as last drawn
+     * @param touchX position on the screen, in pixels
+     * @param touchY position on the screen, in pixels
+     * @param maxDistance points further away than this, in pixels, are not found
+     * @param hit receives the point that was found
+     * @return boolean true if a point was found
+     */
+    public boolean findNearest(GraphFrame<P> frame, float touchX, float touchY, float maxDistance, Hit<P> hit) {
+        if (!frame.isProjected()) return false;
+        search.start(frame, touchX, touchY, maxDistance);
+        searchDataSets(frame.getPrimaryDataSets(), frame.getPrimaryRange(), true);
+        searchDataSets(frame.getSecondaryDataSets(), frame.getSecondaryRange(), false);
+        if (search.bestDataSet == null) return false;
+
+        Series<P> dataSet = search.bestDataSet;
+        hit.dataSet = dataSet;
+        hit.index = search.bestIndex;
+        hit.x = search.bestIndexAsX ? search.bestIndex : dataSet.getX(search.bestIndex);
+        hit.y = dataSet.getY(search.bestIndex);
+        hit.pixelX = search.bestPixelX;
+        hit.pixelY = search.bestPixelY;
+        hit.primary = search.bestPrimary;
+        search.bestDataSet = null;
+        search.model = null;
+        return true;
+    }
+
+    private void searchDataSets(List<Series<P>> dataSets, GraphFrame.Range range, boolean primary) {
+        if (range.isEmpty()) return;
+        for (int d = 0; d < dataSets.size(); d++) {
+            Series<P> dataSet = dataSets.get(d);
+            int size = dataSet.size();
+            if (size == 0) continue;
+            int graphType = dataSet.getGraphType();
+            if (graphType == STANDARD_LINE) {
+                search.select(dataSet, range, primary, false);
+                if (dataSet.isXAscending()) {
+                    scanOutward(dataSet.floorIndex(search.dataX()), size);
+                } else {
+                    dataSet.getPointGrid().search(search);
+                }
+            } else if (graphType == UNFOLDED_LINE && size > 1) {
+                search.select(dataSet, range, primary, true);
+                int index = (int) Math.floor(search.dataX());
+                scanOutward(Math.max(-1, Math.min(size - 1, index)), size);
+            }
+        }
+    }
+
+    /**
+     * Searches left from a point and right from the one after it, for points in order of X.
+     */
+    private void scanOutward(int index, int size) {
+        for (int i = index; i >= 0; i--) {
+            float dx = search.pixelX(i) - search.touchX;
+            if (dx * dx > search.bestDistanceSquared) break;
+            search.consider(i);
+        }
+        for (int i = index + 1; i < size; i++) {
+            float dx = search.pixelX(i) - search.touchX;
+            if (dx * dx > search.bestDistanceSquared) break;
+            search.consider(i);
+        }
+    }
+
+    /**
+     * A search in progress: the touch, how the data set being searched maps to the screen and the
+     * best point found so far.
+     */
+    static final class Search<P> {
+        float touchX;
+        float touchY;
+        float bestDistanceSquared;
+        float pixelsPerX;
+        float pixelsPerY;
+        private float originX;
+        private float minY;
+        private float plotLeft;
+        private float plotRight;
+        private float plotTop;
+        private float plotBottom;
+        private Series<P> model;
+        private boolean indexAsX;
+        private boolean primary;
+
+        private Series<P> bestDataSet;
+        private int bestIndex;
+        private float bestPixelX;
+        private float bestPixelY;
+        private boolean bestIndexAsX;
+        private boolean bestPrimary;
+
+        private int width;
+        private int height;
+        private float leftAxisMargin;
+        private float rightAxisMargin;
+        private float topAxisMargin;
+        private float bottomAxisMargin;
+
+        void start(GraphFrame<P> frame, float touchX, float touchY, float maxDistance) {
+            this.touchX = touchX;
+            this.touchY = touchY;
+            bestDistanceSquared = maxDistance * maxDistance;
+            bestDataSet = null;
+            width = frame.getWidth();
+            height = frame.getHeight();
+            leftAxisMargin = frame.getLeftAxisMargin();
+            rightAxisMargin = frame.getRightAxisMargin();
+            topAxisMargin = frame.getTopAxisMargin();
+            bottomAxisMargin = frame.getBottomAxisMargin();
+            // Half a pixel of slack so points drawn on the edges are found
+            plotLeft = leftAxisMargin - 0.5f;
+            plotRight = width - rightAxisMargin + 0.5f;
+            plotTop = topAxisMargin - 0.5f;
+            plotBottom = height - bottomAxisMargin + 0.5f;
+        }
+
+        /**
+         * Maps the points of a data set to the screen the same way GraphFrame projected them.
+         */
+        void select(Series<P> model, GraphFrame.Range range, boolean primary, boolean indexAsX) {
+            this.model = model;
+            this.primary = primary;
+            this.indexAsX = indexAsX;
+            float plotWidth = width - leftAxisMargin - rightAxisMargin;
+            if (indexAsX) {
+                originX = 0f;
+                pixelsPerX = plotWidth / (model.size() - 1);
+            } else {
+                originX = range.getMinX();
+                pixelsPerX = plotWidth / range.getRangeX();
+            }
+            minY = range.getMinY();
+            pixelsPerY = (height - topAxisMargin - bottomAxisMargin) / range.getRangeY();
+        }
+
+        /**
+         * @return float X value under the touch, an index for an UNFOLDED_LINE
+         */
+        float dataX() {
+            return originX + (touchX - leftAxisMargin) / pixelsPerX;
+        }
+
+        /**
+         * @return float Y value under the touch
+         */
+        float dataY() {
+            return minY + (height - bottomAxisMargin - touchY) / pixelsPerY;
+        }
+
+        float pixelX(int index) {
+            return ((indexAsX ? index : model.getX(index)) - originX) * pixelsPerX + leftAxisMargin;
+        }
+
+        /**
+         * Keeps a point if it is inside the plot area and closer than the best point so far.
+         */
+        void consider(int index) {
+            float pixelX = pixelX(index);
+            if (!(pixelX >= plotLeft && pixelX <= plotRight)) return;
+            float pixelY = height - bottomAxisMargin - (model.getY(index) - minY) * pixelsPerY;
+            if (!(pixelY >= plotTop && pixelY <= plotBottom)) return;
+            float dx = pixelX - touchX;
+            float dy = pixelY - touchY;
+            float distanceSquared = dx * dx + dy * dy;
+            if (distanceSquared <= bestDistanceSquared && (bestDataSet == null || distanceSquared < bestDistanceSquared)) {
+                bestDistanceSquared = distanceSquared;
+                bestDataSet = model;
+                bestIndex = index;
+                bestPixelX = pixelX;
+                bestPixelY = pixelY;
+                bestIndexAsX = indexAsX;
+                bestPrimary = primary;
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.sortagreg.graphview.core;
+
+/**
+ * Caches the text of integer labels.
+ *
+ * Labels mostly show the same values frame after frame, so each value is converted to a String
+ * once and looked up afterwards.  The cache is a fixed size table where every value can sit in
+ * one of two neighbouring slots, so the few dozen labels of a frame do not push each other out.
+ */
+class LabelFormatter {
+    private static final int CAPACITY = 256;
+
+    private final int[] keys = new int[CAPACITY];
+    private final String[] texts = new String[CAPACITY];
+
+    /**
+     * Returns the text of a label, String.valueOf(value).
+     *
+     * @param value
+     * @return String label text
+     */
+    String format(int value) {
+        int slot = (value * 0x9E3779B9) >>> 24;
+        if (texts[slot] != null && keys[slot] == value) return texts[slot];
+        int other = slot ^ 1;
+        if (texts[other] != null && keys[other] == value) return texts[other];
+        if (texts[slot] != null && texts[other] == null) {
+            slot = other;
+        } else if (texts[slot] != null) {
+            // Both are taken, the value in the first slot moves over and the older one is dropped
+            keys[other] = keys[slot];
+            texts[other] = texts[slot];
+        }
+        String text = String.valueOf(value);
+        keys[slot] = value;
+        texts[slot] = text;
+        return text;
+    }
+}
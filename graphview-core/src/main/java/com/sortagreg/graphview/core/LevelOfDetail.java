@@ -0,0 +1,268 @@
+package com.sortagreg.graphview.core;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Multi-resolution index of a data set, used to draw long data sets without touching every point.
+ *
+ * Level 0 splits the data set into buckets of FIRST_LEVEL_BUCKET_SIZE points, every level above
+ * it has buckets twice as large.  Each bucket remembers which of its points is the lowest and the
+ * highest, its first and last points follow from its position.  Drawing a level means drawing
+ * up to those four points per bucket, so picking the level that draws about two points per pixel
+ * column keeps the work proportional to the width of the graph instead of the length of the data
+ * set.
+ *
+ * The index takes half a word per point (a quarter of the raw X and Y columns) and is kept up to
+ * date as points are appended.  An index read from a SeriesFile only keeps the lowest and highest
+ * point of every bucket, straight from the mapped file, and can not be appended to.
+ *
+ * An index can leave out the levels below a first level, for data sets that can answer for the
+ * first, lowest, highest and last point of larger buckets without reading the points in between.
+ * Those levels are never chosen, the raw data is drawn instead.
+ */
+class LevelOfDetail {
+    static final int FIRST_LEVEL_SHIFT = 4;
+    static final int FIRST_LEVEL_BUCKET_SIZE = 1 << FIRST_LEVEL_SHIFT;
+    // A new level is added once the top level has more buckets than this
+    private static final int MAX_TOP_LEVEL_BUCKETS = 4;
+    // First, lowest, highest and last point
+    private static final int POINTS_PER_BUCKET = 4;
+    private static final int POINTS_PER_COLUMN = 2;
+
+    // Levels below the first level are null
+    private final int firstLevel;
+    private Level[] levels = new Level[0];
+    private int size;
+
+    LevelOfDetail() {
+        this(0);
+    }
+
+    /**
+     * @param firstLevel lowest level kept, buckets of that level hold getBucketSize(firstLevel) points
+     */
+    LevelOfDetail(int firstLevel) {
+        this.firstLevel = firstLevel;
+    }
+
+    /**
+     * @return int lowest level kept by the index
+     */
+    int getFirstLevel() {
+        return firstLevel;
+    }
+
+    /**
+     * Rebuilds the whole index from the data set.
+     *
+     * @param model data set to index
+     */
+    void rebuild(Series<?> model) {
+        levels = new Level[firstLevel];
+        size = 0;
+        Level first = addLevel();
+        int shift = FIRST_LEVEL_SHIFT + firstLevel;
+        for (int i = 0; i < model.size(); i++) {
+            first.include(i >> shift, i, model.getY(i), (i & ((1 << shift) - 1)) == 0);
+        }
+        size = model.size();
+        addTopLevels();
+    }
+
+    /**
+     * Adds the point that was just appended to the data set.
+     *
+     * @param index index of the point, must be the next one after the last indexed point
+     * @param y Y value of the point
+     */
+    void append(int index, float y) {
+        for (int level = firstLevel; level < levels.length; level++) {
+            int shift = FIRST_LEVEL_SHIFT + level;
+            levels[level].include(index >> shift, index, y, (index & ((1 << shift) - 1)) == 0);
+        }
+        size = index + 1;
+        addTopLevels();
+    }
+
+    /**
+     * Builds new levels out of the current top level until it is small enough.
+     */
+    private void addTopLevels() {
+        while (levels[levels.length - 1].count > MAX_TOP_LEVEL_BUCKETS) {
+            Level below = levels[levels.length - 1];
+            Level level = addLevel();
+            for (int bucket = 0; bucket < below.count; bucket++) {
+                level.include(bucket >> 1, below.minIndex[bucket], below.minY[bucket], (bucket & 1) == 0);
+                level.include(bucket >> 1, below.maxIndex[bucket], below.maxY[bucket], false);
+            }
+        }
+    }
+
+    /**
+     * Builds a read-only index on top of the levels stored in a SeriesFile.
+     *
+     * @param size number of points in the data set
+     * @param minIndex per level, the index of the lowest point of every bucket
+     * @param maxIndex per level, the index of the highest point of every bucket
+     * @return LevelOfDetail backed by the buffers
+     */
+    static LevelOfDetail mapped(int size, IntBuffer[] minIndex, IntBuffer[] maxIndex) {
+        LevelOfDetail levelOfDetail = new LevelOfDetail();
+        levelOfDetail.levels = new Level[minIndex.length];
+        for (int level = 0; level < minIndex.length; level++) {
+            Level mapped = new Level();
+            mapped.mappedMinIndex = minIndex[level];
+            mapped.mappedMaxIndex = maxIndex[level];
+            mapped.count = minIndex[level].limit();
+            levelOfDetail.levels[level] = mapped;
+        }
+        levelOfDetail.size = size;
+        return levelOfDetail;
+    }
+
+    private Level addLevel() {
+        levels = Arrays.copyOf(levels, levels.length + 1);
+        Level level = new Level();
+        levels[levels.length - 1] = level;
+        return level;
+    }
+
+    /**
+     * @return int number of levels in the index
+     */
+    int getLevelCount() {
+        return levels.length;
+    }
+
+    /**
+     * @return int number of buckets in a level
+     */
+    int getBucketCount(int level) {
+        return levels[level] != null ? levels[level].count : 0;
+    }
+
+    /**
+     * @return int index of the lowest point in a bucket
+     */
+    int getMinIndex(int level, int bucket) {
+        return levels[level].minIndex(bucket);
+    }
+
+    /**
+     * @return int index of the highest point in a bucket
+     */
+    int getMaxIndex(int level, int bucket) {
+        return levels[level].maxIndex(bucket);
+    }
+
+    /**
+     * @return int number of points in a bucket of the given level
+     */
+    static int getBucketSize(int level) {
+        return FIRST_LEVEL_BUCKET_SIZE << level;
+    }
+
+    /**
+     * Picks the coarsest level that still draws at least two points per pixel column, counting
+     * the four points drawn for every bucket.
+     *
+     * @param visiblePoints number of points that need to be drawn
+     * @param plotWidth width of the graph in pixels
+     * @return int level, or -1 if the points are sparse enough to be drawn from the raw data
+     */
+    int chooseLevel(int visiblePoints, int plotWidth) {
+        if (plotWidth <= 0) return -1;
+        int chosen = -1;
+        for (int level = 0; level < levels.length; level++) {
+            long points = (long) (visiblePoints / getBucketSize(level)) * POINTS_PER_BUCKET;
+            if (points < (long) plotWidth * POINTS_PER_COLUMN) break;
+            chosen = level;
+        }
+        return chosen >= firstLevel ? chosen : -1;
+    }
+
+    /**
+     * Writes the first, lowest, highest and last point of every bucket of a level that overlaps a
+     * range of points, in their original order.
+     *
+     * @param model data set the index was built from
+     * @param level level to draw
+     * @param from index of the first point in the range
+     * @param to index after the last point in the range
+     * @param indexAsX true to use the index of a point as its X value (UNFOLDED_LINE)
+     * @param out DecimatedSeries to add the points to
+     */
+    void fill(Series<?> model, int level, int from, int to, boolean indexAsX, DecimatedSeries out) {
+        Level source = levels[level];
+        int shift = FIRST_LEVEL_SHIFT + level;
+        int lastIndex = Math.min(to, size) - 1;
+        if (lastIndex < from) return;
+        int firstBucket = from >> shift;
+        int lastBucket = lastIndex >> shift;
+        for (int bucket = firstBucket; bucket <= lastBucket; bucket++) {
+            int first = Math.max(bucket << shift, from);
+            int last = Math.min(((bucket + 1) << shift) - 1, lastIndex);
+            int lowest = source.minIndex(bucket);
+            int highest = source.maxIndex(bucket);
+            int middleFirst = Math.min(lowest, highest);
+            int middleLast = Math.max(lowest, highest);
+            addPoint(model, first, indexAsX, out);
+            if (middleFirst > first && middleFirst < last) addPoint(model, middleFirst, indexAsX, out);
+            if (middleLast > middleFirst && middleLast > first && middleLast < last) addPoint(model, middleLast, indexAsX, out);
+            if (last > first) addPoint(model, last, indexAsX, out);
+        }
+    }
+
+    private static void addPoint(Series<?> model, int index, boolean indexAsX, DecimatedSeries out) {
+        out.add(indexAsX ? index : model.getX(index), model.getY(index));
+    }
+
+    /**
+     * Buckets of one level.
+     */
+    private static class Level {
+        int[] minIndex = new int[16];
+        int[] maxIndex = new int[16];
+        float[] minY = new float[16];
+        float[] maxY = new float[16];
+        int count;
+        // Used instead of the arrays when the level was read from a SeriesFile
+        IntBuffer mappedMinIndex;
+        IntBuffer mappedMaxIndex;
+
+        int minIndex(int bucket) {
+            return mappedMinIndex != null ? mappedMinIndex.get(bucket) : minIndex[bucket];
+        }
+
+        int maxIndex(int bucket) {
+            return mappedMaxIndex != null ? mappedMaxIndex.get(bucket) : maxIndex[bucket];
+        }
+
+        void include(int bucket, int index, float y, boolean startsBucket) {
+            if (startsBucket || bucket >= count) {
+                if (bucket >= minIndex.length) {
+                    int capacity = Math.max(bucket + 1, minIndex.length * 2);
+                    minIndex = Arrays.copyOf(minIndex, capacity);
+                    maxIndex = Arrays.copyOf(maxIndex, capacity);
+                    minY = Arrays.copyOf(minY, capacity);
+                    maxY = Arrays.copyOf(maxY, capacity);
+                }
+                minIndex[bucket] = index;
+                maxIndex[bucket] = index;
+                minY[bucket] = y;
+                maxY[bucket] = y;
+                count = bucket + 1;
+                return;
+            }
+            if (y < minY[bucket]) {
+                minY[bucket] = y;
+                minIndex[bucket] = index;
+            }
+            if (y > maxY[bucket]) {
+                maxY[bucket] = y;
+                maxIndex[bucket] = index;
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.sortagreg.graphview.core;
+
+/**
+ * Reusable buffer of line segment end points, laid out the way Canvas.drawLines() expects them:
+ * x0, y0, x1, y1 for every segment.
+ *
+ * The backing array only ever grows, so once a data set has been drawn, projecting it again
+ * does not allocate.
+ */
+class LineBuffer {
+    private float[] points = new float[0];
+    private int count;
+
+    /**
+     * Clears the buffer and makes sure it can hold the given number of segments.
+     *
+     * @param segments number of segments that will be added
+     */
+    void reset(int segments) {
+        int required = Math.max(0, segments) * 4;
+        if (points.length < required) {
+            points = new float[required];
+        }
+        count = 0;
+    }
+
+    /**
+     * Appends one segment.  The buffer must have been reset with enough room for it.
+     */
+    void add(float startX, float startY, float endX, float endY) {
+        points[count] = startX;
+        points[count + 1] = startY;
+        points[count + 2] = endX;
+        points[count + 3] = endY;
+        count += 4;
+    }
+
+    /**
+     * @return float[] backing array, only the first getCount() values are valid
+     */
+    float[] getPoints() {
+        return points;
+    }
+
+    /**
+     * @return int number of floats in the buffer, four per segment
+     */
+    int getCount() {
+        return count;
+    }
+}
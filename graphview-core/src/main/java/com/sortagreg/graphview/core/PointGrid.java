@@ -0,0 +1,127 @@
+package com.sortagreg.graphview.core;
+
+/**
+ * Uniform grid over the points of a data set, used to find the point nearest to a touch when the
+ * X values are not sorted and a binary search is not possible.
+ *
+ * The points are bucketed by cell with a counting sort, so the grid takes one int per point plus
+ * one per cell and is rebuilt in linear time whenever the data set changes.  A search looks at
+ * the cell of the touch and then at rings of cells around it, until no ring can hold a point
+ * closer than the best one found.
+ */
+final class PointGrid {
+    private static final int POINTS_PER_CELL = 4;
+    private static final int MAX_CELLS_PER_AXIS = 1024;
+
+    private Series<?> source;
+    private int version;
+    private int columns;
+    private int rows;
+    private float minX;
+    private float minY;
+    private float cellWidth;
+    private float cellHeight;
+    // Points of cell c are points[cellStart[c]] to points[cellStart[c + 1] - 1]
+    private int[] cellStart = new int[1];
+    private int[] points = new int[0];
+
+    /**
+     * Rebuilds the grid if the data set changed since it was built.
+     */
+    void update(Series<?> model) {
+        if (source == model && version == model.getVersion()) return;
+        source = model;
+        version = model.getVersion();
+        int size = model.size();
+        if (size == 0 || !(model.getMaxX() >= model.getMinX()) || !(model.getMaxY() >= model.getMinY())) {
+            columns = 0;
+            rows = 0;
+            return;
+        }
+        int cellsPerAxis = (int) Math.ceil(Math.sqrt(size / (double) POINTS_PER_CELL));
+        columns = Math.max(1, Math.min(MAX_CELLS_PER_AXIS, cellsPerAxis));
+        rows = columns;
+        minX = model.getMinX();
+        minY = model.getMinY();
+        cellWidth = (model.getMaxX() - minX) / columns;
+        cellHeight = (model.getMaxY() - minY) / rows;
+        if (!(cellWidth > 0)) cellWidth = 1f;
+        if (!(cellHeight > 0)) cellHeight = 1f;
+
+        int cellCount = columns * rows;
+        if (cellStart.length < cellCount + 1) cellStart = new int[cellCount + 1];
+        if (points.length < size) points = new int[size];
+        for (int c = 0; c <= cellCount; c++) {
+            cellStart[c] = 0;
+        }
+        for (int i = 0; i < size; i++) {
+            int cell = cellOf(model.getX(i), model.getY(i));
+            if (cell >= 0) cellStart[cell + 1]++;
+        }
+        for (int c = 0; c < cellCount; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        int placed = cellStart[cellCount];
+        // Fill every cell from its end, which leaves cellStart[c + 1] at the start of cell c
+        for (int i = size - 1; i >= 0; i--) {
+            int cell = cellOf(model.getX(i), model.getY(i));
+            if (cell >= 0) points[--cellStart[cell + 1]] = i;
+        }
+        for (int c = 0; c < cellCount; c++) {
+            cellStart[c] = cellStart[c + 1];
+        }
+        cellStart[cellCount] = placed;
+    }
+
+    private int cellOf(float x, float y) {
+        // NaN points are never drawn, so they are never found
+        if (x != x || y != y) return -1;
+        return row(y) * columns + column(x);
+    }
+
+    private int column(float x) {
+        int column = (int) ((x - minX) / cellWidth);
+        return Math.max(0, Math.min(columns - 1, column));
+    }
+
+    private int row(float y) {
+        int row = (int) ((y - minY) / cellHeight);
+        return Math.max(0, Math.min(rows - 1, row));
+    }
+
+    /**
+     * Offers the points near a touch to a search, nearest cells first.
+     *
+     * @param search search in progress, holds the touch and the best point so far
+     */
+    void search(HitTester.Search<?> search) {
+        if (columns == 0) return;
+        int touchColumn = column(search.dataX());
+        int touchRow = row(search.dataY());
+        float cellPixels = Math.min(cellWidth * Math.abs(search.pixelsPerX), cellHeight * Math.abs(search.pixelsPerY));
+        for (int ring = 0; ; ring++) {
+            if (ring > 0) {
+                // Every point in this ring is at least this far from the touch
+                float nearest = (ring - 1) * cellPixels;
+                if (nearest * nearest > search.bestDistanceSquared) return;
+            }
+            if (touchColumn - ring < 0 && touchRow - ring < 0 && touchColumn + ring >= columns && touchRow + ring >= rows) return;
+            for (int column = touchColumn - ring; column <= touchColumn + ring; column++) {
+                searchCell(search, column, touchRow - ring);
+                if (ring > 0) searchCell(search, column, touchRow + ring);
+            }
+            for (int row = touchRow - ring + 1; row <= touchRow + ring - 1; row++) {
+                searchCell(search, touchColumn - ring, row);
+                searchCell(search, touchColumn + ring, row);
+            }
+        }
+    }
+
+    private void searchCell(HitTester.Search<?> search, int column, int row) {
+        if (column < 0 || row < 0 || column >= columns || row >= rows) return;
+        int cell = row * columns + column;
+        for (int p = cellStart[cell]; p < cellStart[cell + 1]; p++) {
+            search.consider(points[p]);
+        }
+    }
+}
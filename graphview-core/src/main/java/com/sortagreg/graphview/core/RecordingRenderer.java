@@ -0,0 +1,250 @@
+package com.sortagreg.graphview.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Headless Renderer that counts, and optionally records, the draw calls made to it.
+ *
+ * Used to run the drawing code of a graph on a plain JVM, to test what is drawn and to measure
+ * how many draw calls and line segments a frame takes.  Counting alone does not allocate, keeping
+ * the operations copies every call.
+ */
+public class RecordingRenderer implements Renderer<RecordingRenderer.Style> {
+    /**
+     * Used to specify the type of a recorded Operation.
+     */
+    public static final int DRAW_LINES = 0;
+    public static final int DRAW_LINE = 1;
+    public static final int DRAW_TEXT = 2;
+
+    private int width;
+    private int height;
+    private final boolean keepOperations;
+    private final List<Operation> operations = new ArrayList<>();
+
+    private int drawLinesCalls;
+    private int lineSegments;
+    private int drawLineCalls;
+    private int drawTextCalls;
+    private int saveCount;
+
+    /**
+     * Constructor for a renderer that only counts draw calls.
+     *
+     * @param width width of the drawing surface in pixels
+     * @param height height of the drawing surface in pixels
+     */
+    public RecordingRenderer(int width, int height) {
+        this(width, height, false);
+    }
+
+    /**
+     * @param width width of the drawing surface in pixels
+     * @param height height of the drawing surface in pixels
+     * @param keepOperations true to keep a copy of every draw call, see getOperations()
+     */
+    public RecordingRenderer(int width, int height, boolean keepOperations) {
+        this.width = width;
+        this.height = height;
+        this.keepOperations = keepOperations;
+    }
+
+    public void setSize(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public Style createLinePaint(int color, float strokeWidth) {
+        return new Style(color, strokeWidth, 0f, ALIGN_LEFT);
+    }
+
+    @Override
+    public Style createTextPaint(int color, float textSize, int align) {
+        return new Style(color, 0f, textSize, align);
+    }
+
+    @Override
+    public void drawLines(float[] points, int offset, int count, Style paint) {
+        drawLinesCalls++;
+        lineSegments += count / 4;
+        if (keepOperations) {
+            operations.add(new Operation(DRAW_LINES, Arrays.copyOfRange(points, offset, offset + count), null, paint));
+        }
+    }
+
+    @Override
+    public void drawLine(float startX, float startY, float stopX, float stopY, Style paint) {
+        drawLineCalls++;
+        if (keepOperations) {
+            operations.add(new Operation(DRAW_LINE, new float[]{startX, startY, stopX, stopY}, null, paint));
+        }
+    }
+
+    @Override
+    public void drawText(String text, float x, float y, Style paint) {
+        drawTextCalls++;
+        if (keepOperations) {
+            operations.add(new Operation(DRAW_TEXT, new float[]{x, y}, text, paint));
+        }
+    }
+
+    @Override
+    public void rotate(float degrees, float px, float py) {
+    }
+
+    @Override
+    public int save() {
+        return saveCount++;
+    }
+
+    @Override
+    public void clipRect(float left, float top, float right, float bottom) {
+    }
+
+    @Override
+    public void restoreToCount(int saveCount) {
+        this.saveCount = saveCount;
+    }
+
+    /**
+     * Forgets every draw call made so far.
+     */
+    public void reset() {
+        operations.clear();
+        drawLinesCalls = 0;
+        lineSegments = 0;
+        drawLineCalls = 0;
+        drawTextCalls = 0;
+        saveCount = 0;
+    }
+
+    /**
+     * @return int number of drawLines() calls, one per drawn data set
+     */
+    public int getDrawLinesCalls() {
+        return drawLinesCalls;
+    }
+
+    /**
+     * @return int number of line segments drawn with drawLines()
+     */
+    public int getLineSegments() {
+        return lineSegments;
+    }
+
+    /**
+     * @return int number of drawLine() calls, axes and grid lines
+     */
+    public int getDrawLineCalls() {
+        return drawLineCalls;
+    }
+
+    /**
+     * @return int number of drawText() calls
+     */
+    public int getDrawTextCalls() {
+        return drawTextCalls;
+    }
+
+    /**
+     * @return int total number of draw calls
+     */
+    public int getDrawCalls() {
+        return drawLinesCalls + drawLineCalls + drawTextCalls;
+    }
+
+    /**
+     * @return List of the recorded draw calls in order, empty unless the renderer keeps them
+     */
+    public List<Operation> getOperations() {
+        return operations;
+    }
+
+    /**
+     * Paint of the recording renderer.
+     */
+    public static final class Style {
+        private final int color;
+        private final float strokeWidth;
+        private final float textSize;
+        private final int align;
+
+        public Style(int color, float strokeWidth, float textSize, int align) {
+            this.color = color;
+            this.strokeWidth = strokeWidth;
+            this.textSize = textSize;
+            this.align = align;
+        }
+
+        public int getColor() {
+            return color;
+        }
+
+        public float getStrokeWidth() {
+            return strokeWidth;
+        }
+
+        public float getTextSize() {
+            return textSize;
+        }
+
+        public int getAlign() {
+            return align;
+        }
+    }
+
+    /**
+     * A recorded draw call.
+     */
+    public static final class Operation {
+        private final int type;
+        private final float[] coordinates;
+        private final String text;
+        private final Style style;
+
+        Operation(int type, float[] coordinates, String text, Style style) {
+            this.type = type;
+            this.coordinates = coordinates;
+            this.text = text;
+            this.style = style;
+        }
+
+        /**
+         * @return int one of the DRAW constants in RecordingRenderer
+         */
+        public int getType() {
+            return type;
+        }
+
+        /**
+         * @return float[] points of a DRAW_LINES call, ends of a DRAW_LINE call or the position of a DRAW_TEXT call
+         */
+        public float[] getCoordinates() {
+            return coordinates;
+        }
+
+        /**
+         * @return String text of a DRAW_TEXT call, null otherwise
+         */
+        public String getText() {
+            return text;
+        }
+
+        public Style getStyle() {
+            return style;
+        }
+    }
+}
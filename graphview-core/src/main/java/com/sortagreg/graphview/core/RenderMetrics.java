@@ -0,0 +1,186 @@
+package com.sortagreg.graphview.core;
+
+/**
+ * What drawing one frame of a graph cost, broken down by phase.
+ *
+ * Only filled in while instrumentation is enabled.  Times are in nanoseconds.  The same instance
+ * is reused for every frame, copy the values out instead of keeping a reference to it.
+ */
+public class RenderMetrics {
+    private long boundsNanos;
+    private long projectionNanos;
+    private long dataNanos;
+    private long labelsNanos;
+    private long chromeNanos;
+    private long frameNanos;
+    private long pointsScanned;
+    private int segmentsEmitted;
+    private int drawCalls;
+    private boolean projected;
+
+    /**
+     * Clears every value, called at the start of a frame.
+     */
+    public void reset() {
+        boundsNanos = 0;
+        projectionNanos = 0;
+        dataNanos = 0;
+        labelsNanos = 0;
+        chromeNanos = 0;
+        frameNanos = 0;
+        pointsScanned = 0;
+        segmentsEmitted = 0;
+        drawCalls = 0;
+        projected = false;
+    }
+
+    /**
+     * Copies the numbers of a projection into this frame.
+     *
+     * @param projection metrics a GraphFrame recorded while it was projected
+     */
+    public void setProjection(RenderMetrics projection) {
+        boundsNanos = projection.boundsNanos;
+        projectionNanos = projection.projectionNanos;
+        pointsScanned = projection.pointsScanned;
+        projected = true;
+    }
+
+    /**
+     * Time spent merging the bounds of the data sets and fitting the viewport.
+     *
+     * @return long nanoseconds
+     */
+    public long getBoundsNanos() {
+        return boundsNanos;
+    }
+
+    public void addBoundsNanos(long nanos) {
+        boundsNanos += nanos;
+    }
+
+    /**
+     * Time spent turning the data sets into line segments, including decimation.
+     *
+     * @return long nanoseconds
+     */
+    public long getProjectionNanos() {
+        return projectionNanos;
+    }
+
+    public void addProjectionNanos(long nanos) {
+        projectionNanos += nanos;
+    }
+
+    /**
+     * Time spent submitting the line segments of the data sets.
+     *
+     * @return long nanoseconds
+     */
+    public long getDataNanos() {
+        return dataNanos;
+    }
+
+    public void addDataNanos(long nanos) {
+        dataNanos += nanos;
+    }
+
+    /**
+     * Time spent generating and drawing the axis labels and grid lines.
+     *
+     * @return long nanoseconds
+     */
+    public long getLabelsNanos() {
+        return labelsNanos;
+    }
+
+    public void addLabelsNanos(long nanos) {
+        labelsNanos += nanos;
+    }
+
+    /**
+     * Time spent on the axes and titles, or on copying them from a cache.
+     *
+     * @return long nanoseconds
+     */
+    public long getChromeNanos() {
+        return chromeNanos;
+    }
+
+    public void addChromeNanos(long nanos) {
+        chromeNanos += nanos;
+    }
+
+    /**
+     * Time spent drawing the whole frame, from start to finish.
+     *
+     * @return long nanoseconds
+     */
+    public long getFrameNanos() {
+        return frameNanos;
+    }
+
+    public void setFrameNanos(long frameNanos) {
+        this.frameNanos = frameNanos;
+    }
+
+    /**
+     * Points read from the data sets, by the bounds, the decimation and the projection.  Zero when
+     * the frame reused an earlier projection.
+     *
+     * @return long number of points
+     */
+    public long getPointsScanned() {
+        return pointsScanned;
+    }
+
+    public void addPointsScanned(long points) {
+        pointsScanned += points;
+    }
+
+    /**
+     * @return int line segments submitted for the data sets
+     */
+    public int getSegmentsEmitted() {
+        return segmentsEmitted;
+    }
+
+    public void addSegmentsEmitted(int segments) {
+        segmentsEmitted += segments;
+    }
+
+    /**
+     * @return int draw calls made on the canvas
+     */
+    public int getDrawCalls() {
+        return drawCalls;
+    }
+
+    public void addDrawCalls(int calls) {
+        drawCalls += calls;
+    }
+
+    /**
+     * @return boolean true if the data sets were projected for this frame, false if an earlier
+     *         projection was drawn again
+     */
+    public boolean isProjected() {
+        return projected;
+    }
+
+    @Override
+    public String toString() {
+        return "RenderMetrics{" +
+                "boundsNanos=" + boundsNanos +
+                ", projectionNanos=" + projectionNanos +
+                ", dataNanos=" + dataNanos +
+                ", labelsNanos=" + labelsNanos +
+                ", chromeNanos=" + chromeNanos +
+                ", frameNanos=" + frameNanos +
+                ", pointsScanned=" + pointsScanned +
+                ", segmentsEmitted=" + segmentsEmitted +
+                ", drawCalls=" + drawCalls +
+                ", projected=" + projected +
+                '}';
+    }
+}
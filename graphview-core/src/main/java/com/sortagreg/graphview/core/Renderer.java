@@ -0,0 +1,83 @@
+package com.sortagreg.graphview.core;
+
+/**
+ * Drawing backend of a graph.
+ *
+ * GraphPainter draws everything through these calls, so the same graph can be drawn to an
+ * android.graphics.Canvas on a device or recorded on a plain JVM.  The calls mirror the Canvas
+ * methods GraphView always used.  Paints are created by the renderer once and handed back to it
+ * when drawing, so drawing does not allocate.
+ *
+ * @param <P> paint type of the backend
+ */
+public interface Renderer<P> {
+    /**
+     * Used to specify which side of a text the position given to drawText() is on.
+     */
+    int ALIGN_LEFT = 0;
+    int ALIGN_CENTER = 1;
+    int ALIGN_RIGHT = 2;
+
+    /**
+     * @return int width of the drawing surface in pixels
+     */
+    int getWidth();
+
+    /**
+     * @return int height of the drawing surface in pixels
+     */
+    int getHeight();
+
+    /**
+     * Creates a paint for lines.
+     *
+     * @param color color as an ARGB int
+     * @param strokeWidth width of the lines in pixels
+     * @return P paint
+     */
+    P createLinePaint(int color, float strokeWidth);
+
+    /**
+     * Creates a paint for bold text.
+     *
+     * @param color color as an ARGB int
+     * @param textSize text size in pixels
+     * @param align one of the ALIGN constants in this interface
+     * @return P paint
+     */
+    P createTextPaint(int color, float textSize, int align);
+
+    /**
+     * Draws separate line segments, four values per segment.
+     *
+     * @param points x0, y0, x1, y1 of every segment
+     * @param offset index of the first value to use
+     * @param count number of values to use, four per segment
+     * @param paint
+     */
+    void drawLines(float[] points, int offset, int count, P paint);
+
+    void drawLine(float startX, float startY, float stopX, float stopY, P paint);
+
+    void drawText(String text, float x, float y, P paint);
+
+    /**
+     * Rotates everything drawn after this call around a point.
+     *
+     * @param degrees
+     * @param px
+     * @param py
+     */
+    void rotate(float degrees, float px, float py);
+
+    /**
+     * Saves the current rotation and clip.
+     *
+     * @return int value to pass to restoreToCount()
+     */
+    int save();
+
+    void clipRect(float left, float top, float right, float bottom);
+
+    void restoreToCount(int saveCount);
+}
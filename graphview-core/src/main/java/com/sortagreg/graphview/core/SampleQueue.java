@@ -0,0 +1,183 @@
+package com.sortagreg.graphview.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded queue of X, Y samples that any number of threads can offer to without taking a lock.
+ *
+ * Samples are kept as primitive floats in a ring, nothing is allocated per sample.  Every slot of
+ * the ring has a sequence number that says whether it is free or holds a sample, so producers and
+ * the thread draining the queue only ever compare-and-set the head or tail position.  A producer
+ * never waits for another producer or for the drain.
+ *
+ * When the ring is full, DROP_NEWEST drops the sample being offered and DROP_OLDEST drops the
+ * oldest sample in the ring to make room for it.  If the oldest slot is still being written by
+ * another producer, DROP_OLDEST drops the sample being offered instead of waiting for it.
+ * Dropped samples are counted.
+ */
+public class SampleQueue {
+    /**
+     * Used to specify what happens to a sample offered to a full queue.
+     */
+    public static final int DROP_NEWEST = 0;
+    public static final int DROP_OLDEST = 1;
+
+    private final int mask;
+    private final int dropPolicy;
+    private final float[] xRing;
+    private final float[] yRing;
+    // Slot i holds a sample when its sequence is position + 1, and is free when it is position
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param capacity most samples held at once, rounded up to a power of two
+     * @param dropPolicy DROP_NEWEST or DROP_OLDEST
+     */
+    public SampleQueue(int capacity, int dropPolicy) {
+        if (capacity < 1 || capacity > 1 << 30) throw new IllegalArgumentException("Capacity out of range: " + capacity);
+        if (dropPolicy != DROP_NEWEST && dropPolicy != DROP_OLDEST) {
+            throw new IllegalArgumentException("Unknown drop policy " + dropPolicy);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size <<= 1;
+        this.mask = size - 1;
+        this.dropPolicy = dropPolicy;
+        xRing = new float[size];
+        yRing = new float[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @return int most samples held at once
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    public int getDropPolicy() {
+        return dropPolicy;
+    }
+
+    /**
+     * Adds a sample.  Safe to call from any number of threads at once.
+     *
+     * @param x X value
+     * @param y Y value
+     * @return boolean false if the queue was full and the sample was dropped
+     */
+    public boolean offer(float x, float y) {
+        while (!tryOffer(x, y)) {
+            // Tries again after making room, never waits for a producer to finish writing the oldest slot
+            if (dropPolicy == DROP_NEWEST || !dropOldest()) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean tryOffer(float x, float y) {
+        long position = tail.get();
+        while (true) {
+            int slot = (int) position & mask;
+            long difference = sequences.get(slot) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) break;
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+        int slot = (int) position & mask;
+        xRing[slot] = x;
+        yRing[slot] = y;
+        // Publishes the sample, the drain reads the sequence before the values
+        sequences.lazySet(slot, position + 1);
+        return true;
+    }
+
+    /**
+     * Drops the oldest sample.
+     *
+     * @return boolean false if the oldest slot is empty or still being written
+     */
+    private boolean dropOldest() {
+        long position = head.get();
+        while (true) {
+            int slot = (int) position & mask;
+            long difference = sequences.get(slot) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    sequences.lazySet(slot, position + mask + 1);
+                    dropped.incrementAndGet();
+                    return true;
+                }
+                position = head.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    /**
+     * Moves samples out of the queue, oldest first.  Meant to be called from one thread, usually
+     * the one that draws the graph, though it is safe from any number.
+     *
+     * @param xSet float[] receiving X values
+     * @param ySet float[] receiving Y values
+     * @param offset index of xSet and ySet to start at
+     * @param max most samples to move
+     * @return int number of samples moved
+     */
+    public int drain(float[] xSet, float[] ySet, int offset, int max) {
+        int count = 0;
+        long position = head.get();
+        while (count < max) {
+            int slot = (int) position & mask;
+            long difference = sequences.get(slot) - (position + 1);
+            if (difference == 0) {
+                float x = xRing[slot];
+                float y = yRing[slot];
+                if (head.compareAndSet(position, position + 1)) {
+                    sequences.lazySet(slot, position + mask + 1);
+                    xSet[offset + count] = x;
+                    ySet[offset + count] = y;
+                    count++;
+                    position++;
+                } else {
+                    position = head.get();
+                }
+            } else if (difference < 0) {
+                break;
+            } else {
+                position = head.get();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return boolean true if no samples are waiting, may be out of date by the time it returns
+     */
+    public boolean isEmpty() {
+        return head.get() >= tail.get();
+    }
+
+    /**
+     * @return long number of samples dropped because the queue was full
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+}
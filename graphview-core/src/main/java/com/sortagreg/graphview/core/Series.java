@@ -0,0 +1,561 @@
+package com.sortagreg.graphview.core;
+
+import java.util.Arrays;
+
+/**
+ * Data set of a graph, kept as a pair of float columns.
+ *
+ * Does not depend on Android.  The paint type is whatever the Renderer drawing the graph uses,
+ * android.graphics.Paint on a device (see GraphViewDataModel).
+ *
+ * Data sets are mutable, so they are equal only to themselves.  Two data sets holding the same
+ * points are still two data sets, and removing one from a graph never removes the other.
+ *
+ * @param <P> paint type of the Renderer the data set is drawn with
+ * @author Marshall Ladd
+ */
+public class Series<P> {
+
+    /**
+     * Used to specify which type of graph a data set is.
+     */
+    public static final int STANDARD_LINE = 1;
+    public static final int UNFOLDED_LINE = 2;
+    public static final int CONSTANT_LINE = 3;
+    public static final int STATE_LINE = 4;
+
+    /**
+     * Used to specify how a STANDARD_LINE or UNFOLDED_LINE data set is reduced before it is drawn
+     * when it has more points than the graph has pixels to show them.
+     *
+     * DECIMATION_MIN_MAX keeps the first, lowest, highest and last point of every pixel column,
+     * which draws the same picture as the full data set.  DECIMATION_LTTB keeps one point per
+     * pixel column using Largest-Triangle-Three-Buckets, which is smoother but can drop spikes.
+     */
+    public static final int DECIMATION_NONE = 0;
+    public static final int DECIMATION_MIN_MAX = 1;
+    public static final int DECIMATION_LTTB = 2;
+
+    private float[] xValues;
+    private float[] yValues;
+    private int size;
+    // False while a subclass keeps the points in its own storage, see isArrayBacked()
+    private boolean arrayBacked;
+    // Bounds of the data set, kept up to date as the data changes so GraphView never has to rescan it
+    private float minX;
+    private float maxX;
+    private float minY;
+    private float maxY;
+    private boolean xAscending = true;
+    private P paint;
+    private Integer graphType;
+    private int decimationMode = DECIMATION_NONE;
+    // Incremented on every change to the data, lets caches know when they are stale.  Volatile so a
+    // projection on another thread can tell that the data changed while it was reading it.
+    private volatile int version;
+    // Id of the DecimatedSeries that last reduced the data set, and how many times in a row it did.
+    // Written by whichever thread projects the data set, a race only throws the count off by one.
+    private volatile int lastReductionId;
+    private volatile int reductionRun;
+    // Grid of the points for hit testing, only built for unsorted data sets that are touched
+    private PointGrid pointGrid;
+    // Optional min/max pyramid, only kept when level of detail is enabled
+    private LevelOfDetail levelOfDetail;
+
+    /**
+     * Constructor for a data set, used in GraphView
+     *
+     * The arrays are adopted as the backing store, they are not copied.  Changes made to
+     * them afterwards are only drawn after notifyDataChanged() is called, which also updates
+     * the bounds.
+     *
+     * @param xSet float[] of X values
+     * @param ySet float[] of Y values, one for every point
+     * @param paint paint to specify the properties of how the data should be drawn
+     * @param graphType Type of graph to draw this data set as
+     */
+    public Series(float[] xSet, float[] ySet, P paint, Integer graphType) {
+        setData(xSet, ySet);
+        this.paint = paint;
+        this.graphType = graphType;
+    }
+
+    /**
+     * Constructor for subclasses that keep their points in their own storage.
+     * Starts out with an empty data set.
+     *
+     * Subclasses that do not override setData() and append() must draw from the arrays once
+     * isArrayBacked() returns true, by leaving the calls to Series.
+     *
+     * @param paint paint to specify the properties of how the data should be drawn
+     * @param graphType Type of graph to draw this data set as
+     */
+    protected Series(P paint, Integer graphType) {
+        this.xValues = new float[0];
+        this.yValues = new float[0];
+        this.paint = paint;
+        this.graphType = graphType;
+        resetBounds();
+    }
+
+    /**
+     * Returns the number of points in the data set
+     *
+     * @return int number of points
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the X value of a point
+     *
+     * @param index index of the point, from 0 to size() - 1
+     * @return float X value
+     */
+    public float getX(int index) {
+        return xValues[index];
+    }
+
+    /**
+     * Returns the Y value of a point
+     *
+     * @param index index of the point, from 0 to size() - 1
+     * @return float Y value
+     */
+    public float getY(int index) {
+        return yValues[index];
+    }
+
+    /**
+     * Returns the backing array of X values.  Only the first size() values are part of the data set.
+     * A data set that keeps its points in its own storage returns a copy of them instead.
+     *
+     * @return float[] X values
+     */
+    public float[] getXValues() {
+        return arrayBacked ? xValues : copyXValues();
+    }
+
+    /**
+     * Returns the backing array of Y values.  Only the first size() values are part of the data set.
+     * A data set that keeps its points in its own storage returns a copy of them instead.
+     *
+     * @return float[] Y values
+     */
+    public float[] getYValues() {
+        return arrayBacked ? yValues : copyYValues();
+    }
+
+    private float[] copyXValues() {
+        float[] values = new float[size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = getX(i);
+        }
+        return values;
+    }
+
+    private float[] copyYValues() {
+        float[] values = new float[size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = getY(i);
+        }
+        return values;
+    }
+
+    /**
+     * Returns true if the points are kept in the arrays of this class.  Always true for data sets
+     * created from arrays.  A subclass that keeps its points in its own storage and does not
+     * override setData() and append() becomes array backed the first time either is called, its
+     * points are copied into the arrays and size(), getX() and getY() have to read them from there.
+     *
+     * @return boolean
+     */
+    protected final boolean isArrayBacked() {
+        return arrayBacked;
+    }
+
+    /**
+     * Replace the data set with a pair of columns.  The arrays are adopted, not copied.
+     *
+     * @param xSet float[] of X values
+     * @param ySet float[] of Y values, one for every point
+     */
+    public void setData(float[] xSet, float[] ySet) {
+        if (xSet.length < ySet.length) {
+            throw new IllegalArgumentException("xSet has " + xSet.length + " values, ySet has " + ySet.length);
+        }
+        this.xValues = xSet;
+        this.yValues = ySet;
+        this.size = ySet.length;
+        this.arrayBacked = true;
+        notifyDataChanged();
+    }
+
+    /**
+     * Add a point to the end of the data set.
+     *
+     * The backing arrays grow as needed, so appending is amortized O(1).  The bounds are
+     * updated with the new point instead of being recomputed.  Call invalidate() on the
+     * GraphView showing this data set to redraw it.
+     *
+     * @param x X value
+     * @param y Y value
+     */
+    public void append(float x, float y) {
+        // Copied rather than taken from getXValues(), a subclass may return storage it shares
+        if (!arrayBacked) setData(copyXValues(), copyYValues());
+        if (size == xValues.length || size == yValues.length) {
+            int capacity = Math.max(16, size + (size >> 1));
+            xValues = Arrays.copyOf(xValues, capacity);
+            yValues = Arrays.copyOf(yValues, capacity);
+        }
+        if (size > 0 && x < xValues[size - 1]) xAscending = false;
+        xValues[size] = x;
+        yValues[size] = y;
+        size++;
+        includeInBounds(x, y);
+        if (levelOfDetail != null) levelOfDetail.append(size - 1, y);
+        incrementVersion();
+    }
+
+    /**
+     * Recomputes everything derived from the data.
+     *
+     * Only needs to be called after changing values in the arrays that were handed to the
+     * constructor or setData().
+     */
+    public void notifyDataChanged() {
+        incrementVersion();
+        resetBounds();
+        xAscending = true;
+        for (int i = 0; i < size(); i++) {
+            includeInBounds(getX(i), getY(i));
+            if (i > 0 && getX(i) < getX(i - 1)) xAscending = false;
+        }
+        if (levelOfDetail != null) levelOfDetail.rebuild(this);
+    }
+
+    /**
+     * Returns true if the X values never decrease from one point to the next.
+     *
+     * @return boolean
+     */
+    public boolean isXAscending() {
+        return xAscending;
+    }
+
+    /**
+     * Index of the first point with an X value of at least x.  Uses a binary search, so the
+     * X values must be ascending.
+     *
+     * @param x X value to search for
+     * @return int index, size() if every point is below x
+     */
+    public int ceilingIndex(float x) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getX(middle) < x) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Index of the last point with an X value of at most x.  Uses a binary search, so the
+     * X values must be ascending.
+     *
+     * @param x X value to search for
+     * @return int index, -1 if every point is above x
+     */
+    public int floorIndex(float x) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getX(middle) <= x) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low - 1;
+    }
+
+    /**
+     * Enables a multi-resolution min/max index of the data set.
+     *
+     * The index lets GraphView draw long data sets by touching about two points per pixel
+     * column, no matter how many points there are.  It costs a quarter of the memory of the
+     * data set and is kept up to date by append().  Used for UNFOLDED_LINE data sets, and for
+     * STANDARD_LINE data sets whose X values are ascending, unless the decimation mode is
+     * DECIMATION_NONE.
+     *
+     * @param enabled
+     * @throws IllegalStateException if enabled is true and isLevelOfDetailSupported() is false
+     */
+    public void setLevelOfDetailEnabled(boolean enabled) {
+        if (!enabled) {
+            levelOfDetail = null;
+        } else if (!isLevelOfDetailSupported()) {
+            throw new IllegalStateException(getClass().getSimpleName() + " can not keep a level of detail index, see isLevelOfDetailSupported()");
+        } else if (levelOfDetail == null) {
+            int firstLevel = Integer.numberOfTrailingZeros(getLevelOfDetailBucketSize()) - LevelOfDetail.FIRST_LEVEL_SHIFT;
+            levelOfDetail = new LevelOfDetail(Math.max(0, firstLevel));
+            levelOfDetail.rebuild(this);
+        }
+    }
+
+    /**
+     * Returns true if the data set can keep a level of detail index.  Subclasses whose storage
+     * changes without appending through append() or indexAppendedPoint() return false.
+     *
+     * @return boolean
+     */
+    public boolean isLevelOfDetailSupported() {
+        return true;
+    }
+
+    /**
+     * Smallest bucket the level of detail index keeps, for subclasses whose storage can answer
+     * for the first, lowest, highest and last point of larger buckets cheaply.  Smaller buckets
+     * take more memory.
+     *
+     * @return int points per bucket, a power of two
+     */
+    protected int getLevelOfDetailBucketSize() {
+        return LevelOfDetail.FIRST_LEVEL_BUCKET_SIZE;
+    }
+
+    /**
+     * Adds a point to the level of detail index, if it is enabled.  Subclasses that keep their own
+     * storage and support level of detail must call this for every point they append.
+     *
+     * @param index index of the point, the next one after the last point added
+     * @param y Y value of the point
+     */
+    protected final void indexAppendedPoint(int index, float y) {
+        if (levelOfDetail != null) levelOfDetail.append(index, y);
+    }
+
+    /**
+     * @return boolean true if the data set keeps a level of detail index
+     */
+    public boolean isLevelOfDetailEnabled() {
+        return levelOfDetail != null;
+    }
+
+    /**
+     * Level of detail index of the data set.
+     *
+     * @return LevelOfDetail, null if it is not enabled
+     */
+    LevelOfDetail getLevelOfDetail() {
+        return levelOfDetail;
+    }
+
+    /**
+     * Adopts the level of detail index stored in a series file instead of building one, for
+     * subclasses that read their points straight from the file.  Does nothing if the file was
+     * written without an index.
+     *
+     * @param file mapped file holding the points of this data set
+     */
+    protected void setLevelOfDetail(SeriesFile file) {
+        if (file.hasLevelOfDetail()) levelOfDetail = file.getLevelOfDetail();
+    }
+
+    /**
+     * Run-length encoded states of a STATE_LINE data set.  A data set that returns them is drawn
+     * from its runs, otherwise every point is compared with the one before it.
+     *
+     * @return StateRuns, null if the data set does not keep them
+     */
+    protected StateRuns getStateRuns() {
+        return null;
+    }
+
+    /**
+     * Table this data set is a column of.  The columns of one table that are drawn on the same
+     * graph share the work done on their X values.
+     *
+     * @return ColumnTable, null if the data set keeps its own X values
+     */
+    protected ColumnTable getColumnTable() {
+        return null;
+    }
+
+    /**
+     * Returns a number that changes every time the data set changes.
+     *
+     * @return int version of the data
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Notes that a graph reduced the data set again, so the Decimator can tell a data set drawn by
+     * one graph from one drawn by several.
+     *
+     * @param reduction DecimatedSeries of the graph
+     * @return int number of times in a row the same graph reduced the data set before this one
+     */
+    int noteReduction(DecimatedSeries reduction) {
+        int id = reduction.getId();
+        if (lastReductionId != id) {
+            lastReductionId = id;
+            reductionRun = 0;
+            return 0;
+        }
+        int run = reductionRun;
+        if (run < Integer.MAX_VALUE) reductionRun = run + 1;
+        return run + 1;
+    }
+
+    /**
+     * Marks the data as changed.  Subclasses that keep their own storage must call this
+     * whenever they modify it.
+     */
+    protected void incrementVersion() {
+        version++;
+    }
+
+    private void resetBounds() {
+        minX = Float.MAX_VALUE;
+        maxX = -Float.MAX_VALUE;
+        minY = Float.MAX_VALUE;
+        maxY = -Float.MAX_VALUE;
+    }
+
+    private void includeInBounds(float x, float y) {
+        if (x < minX) minX = x;
+        if (x > maxX) maxX = x;
+        if (y < minY) minY = y;
+        if (y > maxY) maxY = y;
+    }
+
+    /**
+     * Smallest X value in the data set, Float.MAX_VALUE if it is empty.
+     *
+     * @return float
+     */
+    public float getMinX() {
+        return minX;
+    }
+
+    /**
+     * Largest X value in the data set, -Float.MAX_VALUE if it is empty.
+     *
+     * @return float
+     */
+    public float getMaxX() {
+        return maxX;
+    }
+
+    /**
+     * Smallest Y value in the data set, Float.MAX_VALUE if it is empty.
+     *
+     * @return float
+     */
+    public float getMinY() {
+        return minY;
+    }
+
+    /**
+     * Largest Y value in the data set, -Float.MAX_VALUE if it is empty.
+     *
+     * @return float
+     */
+    public float getMaxY() {
+        return maxY;
+    }
+
+    /**
+     * Grid of the points used to find the point nearest to a touch, built the first time it is
+     * needed.
+     *
+     * @return PointGrid, up to date with the data set
+     */
+    PointGrid getPointGrid() {
+        if (pointGrid == null) pointGrid = new PointGrid();
+        pointGrid.update(this);
+        return pointGrid;
+    }
+
+    /**
+     * Get the decimation mode of the data set
+     *
+     * @return int one of the DECIMATION constants in this class
+     */
+    public int getDecimationMode() {
+        return decimationMode;
+    }
+
+    /**
+     * Sets how the data set is reduced before it is drawn when it has more points than the graph
+     * can show.  Only used for STANDARD_LINE and UNFOLDED_LINE data sets.
+     * Use the DECIMATION constants in this class.
+     *
+     * @param decimationMode
+     */
+    public void setDecimationMode(int decimationMode) {
+        this.decimationMode = decimationMode;
+    }
+
+    /**
+     * Get the paint assigned to the data set
+     *
+     * @return P paint
+     */
+    public P getPaint() {
+        return paint;
+    }
+
+    /**
+     *
+     * @param paint
+     */
+    public void setPaint(P paint) {
+        this.paint = paint;
+    }
+
+    /**
+     * Get the Integer flag that specifies which typ of graph to draw this data set as
+     *
+     * @return
+     */
+    public Integer getGraphType() {
+        return graphType;
+    }
+
+    /**
+     * Sets which type of graph to draw the data as.
+     * Use the constant values in this class.
+     *
+     * @param graphType
+     */
+    public void setGraphType(Integer graphType) {
+        this.graphType = graphType;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder points = new StringBuilder("[");
+        for (int i = 0; i < size(); i++) {
+            if (i > 0) points.append(", ");
+            points.append('(').append(getX(i)).append(", ").append(getY(i)).append(')');
+        }
+        points.append(']');
+        return getClass().getSimpleName() + "{" +
+                "dataSet=" + points +
+                ", paint=" + paint +
+                ", graphType=" + graphType +
+                '}';
+    }
+}
@@ -0,0 +1,265 @@
+package com.sortagreg.graphview.core;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Binary file holding one data set, read through a memory mapping instead of being loaded.
+ *
+ * Mapping a file only reads its header, the points are paged in by the operating system as they
+ * are drawn and never take up room on the Java heap.  Together with the level of detail index
+ * stored in the file, a data set of hundreds of millions of points opens instantly and draws
+ * about two points per pixel column.
+ *
+ * Everything is little endian.  The file starts with a HEADER_SIZE byte header:
+ * magic "GVSF", short version, short flags (FLAG_LEVEL_OF_DETAIL, FLAG_X_ASCENDING), int number of
+ * points, int graph type, float minX, maxX, minY, maxY, int number of index levels and four
+ * reserved bytes.  It is followed by the float X column and the float Y column.  Each level of the
+ * index follows after that, as an int number of buckets, the int index of the lowest point of every
+ * bucket and the int index of the highest point of every bucket.
+ */
+public class SeriesFile {
+    public static final int MAGIC = 'G' | 'V' << 8 | 'S' << 16 | 'F' << 24;
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 40;
+
+    /**
+     * Bits of the flags in the header.
+     */
+    public static final int FLAG_LEVEL_OF_DETAIL = 1;
+    public static final int FLAG_X_ASCENDING = 2;
+
+    // Every column is mapped on its own, a single mapping can not be larger than 2GB
+    private static final int MAX_POINTS = Integer.MAX_VALUE / 4;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final int size;
+    private final int flags;
+    private final int graphType;
+    private final float minX;
+    private final float maxX;
+    private final float minY;
+    private final float maxY;
+    private final FloatBuffer xColumn;
+    private final FloatBuffer yColumn;
+    private final LevelOfDetail levelOfDetail;
+
+    private SeriesFile(ByteBuffer header, FloatBuffer xColumn, FloatBuffer yColumn, LevelOfDetail levelOfDetail) {
+        this.flags = header.getShort(6);
+        this.size = header.getInt(8);
+        this.graphType = header.getInt(12);
+        this.minX = header.getFloat(16);
+        this.maxX = header.getFloat(20);
+        this.minY = header.getFloat(24);
+        this.maxY = header.getFloat(28);
+        this.xColumn = xColumn;
+        this.yColumn = yColumn;
+        this.levelOfDetail = levelOfDetail;
+    }
+
+    /**
+     * Maps a file written by write().  The file can be closed and the mapping stays valid.
+     *
+     * @param file file to map
+     * @return SeriesFile reading its points from the file
+     * @throws IOException if the file can not be read or is not a series file
+     */
+    public static SeriesFile map(File file) throws IOException {
+        RandomAccessFile access = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = access.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header, 0);
+            if (header.getInt(0) != MAGIC) throw new IOException("Not a series file: " + file);
+            if (header.getShort(4) != VERSION) throw new IOException("Unsupported series file version " + header.getShort(4) + ": " + file);
+            int size = header.getInt(8);
+            int levelCount = header.getInt(32);
+            if (size < 0 || size > MAX_POINTS || levelCount < 0) throw new IOException("Corrupt series file header: " + file);
+            long columnBytes = 4L * size;
+            if (channel.size() < HEADER_SIZE + 2 * columnBytes) throw new IOException("Truncated series file: " + file);
+
+            FloatBuffer xColumn = mapRegion(channel, HEADER_SIZE, columnBytes).asFloatBuffer();
+            FloatBuffer yColumn = mapRegion(channel, HEADER_SIZE + columnBytes, columnBytes).asFloatBuffer();
+            LevelOfDetail levelOfDetail = null;
+            if ((header.getShort(6) & FLAG_LEVEL_OF_DETAIL) != 0) {
+                IntBuffer[] minIndex = new IntBuffer[levelCount];
+                IntBuffer[] maxIndex = new IntBuffer[levelCount];
+                long offset = HEADER_SIZE + 2 * columnBytes;
+                ByteBuffer count = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+                for (int level = 0; level < levelCount; level++) {
+                    count.clear();
+                    readFully(channel, count, offset);
+                    int buckets = count.getInt(0);
+                    long bucketBytes = 4L * buckets;
+                    if (buckets < 0 || channel.size() < offset + 4 + 2 * bucketBytes) throw new IOException("Truncated series file: " + file);
+                    minIndex[level] = mapRegion(channel, offset + 4, bucketBytes).asIntBuffer();
+                    maxIndex[level] = mapRegion(channel, offset + 4 + bucketBytes, bucketBytes).asIntBuffer();
+                    offset += 4 + 2 * bucketBytes;
+                }
+                levelOfDetail = LevelOfDetail.mapped(size, minIndex, maxIndex);
+            }
+            return new SeriesFile(header, xColumn, yColumn, levelOfDetail);
+        } finally {
+            access.close();
+        }
+    }
+
+    /**
+     * Writes a data set to a file that can be mapped with map().
+     *
+     * @param series data set to write
+     * @param includeLevelOfDetail true to store a level of detail index with the points, built from
+     *                             the data set if it does not keep one itself
+     * @param file file to write, replaced if it exists
+     * @throws IOException if the file can not be written
+     */
+    public static void write(Series<?> series, boolean includeLevelOfDetail, File file) throws IOException {
+        int size = series.size();
+        if (size > MAX_POINTS) throw new IllegalArgumentException("A series file holds at most " + MAX_POINTS + " points, the data set has " + size);
+        LevelOfDetail levelOfDetail = null;
+        if (includeLevelOfDetail) {
+            levelOfDetail = series.getLevelOfDetail();
+            // The file always stores every level
+            if (levelOfDetail == null || levelOfDetail.getFirstLevel() != 0) {
+                levelOfDetail = new LevelOfDetail();
+                levelOfDetail.rebuild(series);
+            }
+        }
+
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            FileChannel channel = out.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            int flags = (levelOfDetail != null ? FLAG_LEVEL_OF_DETAIL : 0) | (series.isXAscending() ? FLAG_X_ASCENDING : 0);
+            buffer.putInt(MAGIC)
+                    .putShort((short) VERSION)
+                    .putShort((short) flags)
+                    .putInt(size)
+                    .putInt(series.getGraphType() == null ? 0 : series.getGraphType())
+                    .putFloat(series.getMinX())
+                    .putFloat(series.getMaxX())
+                    .putFloat(series.getMinY())
+                    .putFloat(series.getMaxY())
+                    .putInt(levelOfDetail != null ? levelOfDetail.getLevelCount() : 0)
+                    .putInt(0);
+            for (int i = 0; i < size; i++) {
+                if (!buffer.hasRemaining()) flush(channel, buffer);
+                buffer.putFloat(series.getX(i));
+            }
+            for (int i = 0; i < size; i++) {
+                if (!buffer.hasRemaining()) flush(channel, buffer);
+                buffer.putFloat(series.getY(i));
+            }
+            if (levelOfDetail != null) {
+                for (int level = 0; level < levelOfDetail.getLevelCount(); level++) {
+                    int buckets = levelOfDetail.getBucketCount(level);
+                    if (!buffer.hasRemaining()) flush(channel, buffer);
+                    buffer.putInt(buckets);
+                    for (int bucket = 0; bucket < buckets; bucket++) {
+                        if (!buffer.hasRemaining()) flush(channel, buffer);
+                        buffer.putInt(levelOfDetail.getMinIndex(level, bucket));
+                    }
+                    for (int bucket = 0; bucket < buckets; bucket++) {
+                        if (!buffer.hasRemaining()) flush(channel, buffer);
+                        buffer.putInt(levelOfDetail.getMaxIndex(level, bucket));
+                    }
+                }
+            }
+            flush(channel, buffer);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static ByteBuffer mapRegion(FileChannel channel, long offset, long length) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, offset + buffer.position());
+            if (read < 0) throw new IOException("Unexpected end of series file");
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * @return int number of points
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return int graph type the data set was written with
+     */
+    public int getGraphType() {
+        return graphType;
+    }
+
+    public float getMinX() {
+        return minX;
+    }
+
+    public float getMaxX() {
+        return maxX;
+    }
+
+    public float getMinY() {
+        return minY;
+    }
+
+    public float getMaxY() {
+        return maxY;
+    }
+
+    /**
+     * @return boolean true if the X values never decrease from one point to the next
+     */
+    public boolean isXAscending() {
+        return (flags & FLAG_X_ASCENDING) != 0;
+    }
+
+    /**
+     * @return boolean true if the file stores a level of detail index
+     */
+    public boolean hasLevelOfDetail() {
+        return levelOfDetail != null;
+    }
+
+    /**
+     * Mapped X values.  Read them with the absolute get(int), which is safe from any thread.
+     *
+     * @return FloatBuffer X values, size() of them
+     */
+    public FloatBuffer getXColumn() {
+        return xColumn;
+    }
+
+    /**
+     * Mapped Y values.  Read them with the absolute get(int), which is safe from any thread.
+     *
+     * @return FloatBuffer Y values, size() of them
+     */
+    public FloatBuffer getYColumn() {
+        return yColumn;
+    }
+
+    LevelOfDetail getLevelOfDetail() {
+        return levelOfDetail;
+    }
+}
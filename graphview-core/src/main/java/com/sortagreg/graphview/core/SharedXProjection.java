@@ -0,0 +1,138 @@
+package com.sortagreg.graphview.core;
+
+/**
+ * Work on the X column of a ColumnTable that is done once per frame and reused for every column
+ * of the table that is drawn: the rows inside the viewport, the pixel position of every row and
+ * the runs of rows that fall in the same pixel column.
+ *
+ * Owned by a GraphFrame, so it is only used by the thread projecting that frame.  Everything is
+ * kept until the table changes or the frame is laid out differently.
+ */
+final class SharedXProjection {
+    private ColumnTable table;
+    private int version;
+
+    private boolean located;
+    private float viewportMinX;
+    private float viewportMaxX;
+    private int visibleFrom;
+    private int visibleTo;
+
+    private boolean projected;
+    private int projectedFrom;
+    private int projectedTo;
+    private float projectedOriginX;
+    private float projectedPixelsPerX;
+    private float projectedLeft;
+    private float[] pixelX = new float[0];
+
+    private boolean split;
+    private int splitFrom;
+    private int splitTo;
+    private float splitOriginX;
+    private float splitPixelsPerX;
+    private int[] runStarts = new int[0];
+    private int runCount;
+
+    private void select(ColumnTable table) {
+        if (this.table != table || version != table.getVersion()) {
+            this.table = table;
+            version = table.getVersion();
+            located = false;
+            projected = false;
+            split = false;
+        }
+    }
+
+    /**
+     * Finds the rows inside the viewport, plus one neighbour on each side.  The X values of the
+     * table must be ascending.
+     */
+    void locate(ColumnTable table, float minX, float maxX) {
+        select(table);
+        if (located && viewportMinX == minX && viewportMaxX == maxX) return;
+        visibleFrom = Math.max(0, table.floorIndex(minX));
+        visibleTo = Math.min(table.size(), table.ceilingIndex(maxX) + 1);
+        viewportMinX = minX;
+        viewportMaxX = maxX;
+        located = true;
+    }
+
+    /**
+     * @return int first row found by locate()
+     */
+    int getVisibleFrom() {
+        return visibleFrom;
+    }
+
+    /**
+     * @return int row after the last row found by locate()
+     */
+    int getVisibleTo() {
+        return visibleTo;
+    }
+
+    /**
+     * Returns the pixel position of every row from from to to.
+     *
+     * @return float[] indexed by row, only the requested rows are filled in
+     */
+    float[] project(ColumnTable table, int from, int to, float originX, float pixelsPerX, float left) {
+        select(table);
+        if (projected && projectedFrom == from && projectedTo == to && projectedOriginX == originX
+                && projectedPixelsPerX == pixelsPerX && projectedLeft == left) {
+            return pixelX;
+        }
+        if (pixelX.length < to) pixelX = new float[table.size()];
+        for (int i = from; i < to; i++) {
+            pixelX[i] = (table.getX(i) - originX) * pixelsPerX + left;
+        }
+        projected = true;
+        projectedFrom = from;
+        projectedTo = to;
+        projectedOriginX = originX;
+        projectedPixelsPerX = pixelsPerX;
+        projectedLeft = left;
+        return pixelX;
+    }
+
+    /**
+     * Splits the rows from from to to into runs of consecutive rows that fall in the same pixel
+     * column.  Read the runs with getRunStarts().
+     *
+     * @return int number of runs
+     */
+    int splitIntoColumns(ColumnTable table, int from, int to, float originX, float pixelsPerX) {
+        select(table);
+        if (split && splitFrom == from && splitTo == to && splitOriginX == originX && splitPixelsPerX == pixelsPerX) {
+            return runCount;
+        }
+        runCount = 0;
+        int column = Integer.MIN_VALUE;
+        for (int i = from; i < to; i++) {
+            int pointColumn = Decimator.column(table.getX(i), originX, pixelsPerX);
+            if (pointColumn != column || i == from) {
+                if (runCount == runStarts.length) {
+                    int[] grown = new int[Math.max(16, runCount * 2)];
+                    System.arraycopy(runStarts, 0, grown, 0, runCount);
+                    runStarts = grown;
+                }
+                runStarts[runCount++] = i;
+                column = pointColumn;
+            }
+        }
+        split = true;
+        splitFrom = from;
+        splitTo = to;
+        splitOriginX = originX;
+        splitPixelsPerX = pixelsPerX;
+        return runCount;
+    }
+
+    /**
+     * @return int[] first row of every run found by splitIntoColumns()
+     */
+    int[] getRunStarts() {
+        return runStarts;
+    }
+}
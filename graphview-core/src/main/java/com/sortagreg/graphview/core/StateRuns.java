@@ -0,0 +1,130 @@
+package com.sortagreg.graphview.core;
+
+import java.util.Arrays;
+
+/**
+ * Run-length encoded states of a STATE_LINE data set.
+ *
+ * Keeps the index of the first sample and the state of every run of equal samples, so a signal
+ * that is flat most of the time takes memory, and draws, in proportion to how often it changes
+ * rather than how many samples it has.  States are any float, not just 0 and 1.
+ */
+public class StateRuns {
+    private int[] runStarts = new int[16];
+    private float[] runStates = new float[16];
+    private int runCount;
+    private int size;
+    private float minState = Float.MAX_VALUE;
+    private float maxState = -Float.MAX_VALUE;
+
+    /**
+     * Adds one sample.
+     *
+     * @param state state of the sample
+     */
+    public void append(float state) {
+        appendRun(state, 1);
+    }
+
+    /**
+     * Adds a number of samples that all have the same state.
+     *
+     * @param state state of the samples
+     * @param length number of samples
+     */
+    public void appendRun(float state, int length) {
+        if (length < 0) throw new IllegalArgumentException("length must not be negative, was " + length);
+        if (length == 0) return;
+        if (runCount == 0 || Float.floatToIntBits(runStates[runCount - 1]) != Float.floatToIntBits(state)) {
+            if (runCount == runStarts.length) {
+                int capacity = runCount + (runCount >> 1);
+                runStarts = Arrays.copyOf(runStarts, capacity);
+                runStates = Arrays.copyOf(runStates, capacity);
+            }
+            runStarts[runCount] = size;
+            runStates[runCount] = state;
+            runCount++;
+            minState = Math.min(minState, state);
+            maxState = Math.max(maxState, state);
+        }
+        size += length;
+    }
+
+    /**
+     * Replaces every sample with the given states.
+     *
+     * @param states state of every sample
+     */
+    public void setStates(float[] states) {
+        clear();
+        for (float state : states) {
+            append(state);
+        }
+    }
+
+    /**
+     * Removes every sample.
+     */
+    public void clear() {
+        runCount = 0;
+        size = 0;
+        minState = Float.MAX_VALUE;
+        maxState = -Float.MAX_VALUE;
+    }
+
+    /**
+     * @return int number of samples
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return int number of runs of equal samples
+     */
+    public int getRunCount() {
+        return runCount;
+    }
+
+    /**
+     * @param run index of the run, from 0 to getRunCount() - 1
+     * @return int index of the first sample of the run
+     */
+    public int getRunStart(int run) {
+        return runStarts[run];
+    }
+
+    /**
+     * @param run index of the run, from 0 to getRunCount() - 1
+     * @return float state of every sample in the run
+     */
+    public float getRunState(int run) {
+        return runStates[run];
+    }
+
+    /**
+     * Looks up the state of one sample.  Takes a binary search over the runs.
+     *
+     * @param index index of the sample, from 0 to size() - 1
+     * @return float state of the sample
+     */
+    public float getState(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        int run = Arrays.binarySearch(runStarts, 0, runCount, index);
+        return runStates[run >= 0 ? run : -run - 2];
+    }
+
+    /**
+     * @return float lowest state, Float.MAX_VALUE if there are no samples
+     */
+    public float getMinState() {
+        return minState;
+    }
+
+    /**
+     * @return float highest state, -Float.MAX_VALUE if there are no samples
+     */
+    public float getMaxState() {
+        return maxState;
+    }
+}
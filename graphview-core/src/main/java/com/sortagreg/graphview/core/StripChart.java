@@ -0,0 +1,243 @@
+package com.sortagreg.graphview.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.sortagreg.graphview.core.Series.*;
+
+/**
+ * Draws live data as a strip chart: a fixed window of X values that scrolls to the left as new
+ * points arrive, with the newest point on the right edge.
+ *
+ * The plot area is meant to be kept in an offscreen bitmap.  Every frame advance() works out how
+ * many pixel columns the window moved, the caller shifts the bitmap left by that many columns and
+ * drawNewSegments() draws only into the columns that came in on the right.  The cost of a frame
+ * follows the number of new points instead of the number of points in the window.  Everything is
+ * drawn again only when the size of the plot area, the data sets or the Y range change.
+ *
+ * The Y range of each axis grows to fit the data and does not shrink.  STANDARD_LINE data sets
+ * with ascending X values are drawn, points are expected to be appended in order of X.
+ * CONSTANT_LINE data sets are drawn across the plot area.  Other graph types are not drawn.
+ */
+public class StripChart<P> {
+    /**
+     * Returned by advance() when the whole plot area has to be cleared and drawn again.
+     */
+    public static final int FULL_REDRAW = -1;
+
+    private float window;
+    private boolean valid;
+    private int plotWidth;
+    private int plotHeight;
+    // X value on the right edge, moves in whole pixel columns so the bitmap can be shifted exactly
+    private double rightEdgeX;
+    private final GraphFrame.Range primaryRange = new GraphFrame.Range();
+    private final GraphFrame.Range secondaryRange = new GraphFrame.Range();
+    private final List<Series<P>> drawnDataSets = new ArrayList<>();
+    private float[] points = new float[64];
+    private int segmentsDrawn;
+
+    /**
+     * @param window range of X values shown at once
+     */
+    public StripChart(float window) {
+        setWindow(window);
+    }
+
+    /**
+     * Sets the range of X values shown at once.
+     *
+     * @param window range of X values, must be positive
+     */
+    public void setWindow(float window) {
+        if (!(window > 0)) throw new IllegalArgumentException("Window must be positive: " + window);
+        this.window = window;
+        valid = false;
+    }
+
+    public float getWindow() {
+        return window;
+    }
+
+    /**
+     * Makes the next advance() ask for a full redraw, for when the data was replaced instead of
+     * appended to, or anything else about the graph changed.
+     */
+    public void invalidate() {
+        valid = false;
+    }
+
+    /**
+     * @return float X value on the right edge of the plot area
+     */
+    public float getRightEdgeX() {
+        return (float) rightEdgeX;
+    }
+
+    /**
+     * @return int line segments submitted by the last drawNewSegments()
+     */
+    public int getSegmentsDrawn() {
+        return segmentsDrawn;
+    }
+
+    /**
+     * Moves the window to the newest point and sets the ranges of the frame to match, so the
+     * painter can draw the chrome for it.
+     *
+     * @param frame GraphFrame holding the data sets, its ranges are set
+     * @param plotWidth width of the plot area in pixels
+     * @param plotHeight height of the plot area in pixels
+     * @return int pixel columns to shift the plot area left by, or FULL_REDRAW
+     */
+    public int advance(GraphFrame<P> frame, int plotWidth, int plotHeight) {
+        List<Series<P>> primary = frame.getPrimaryDataSets();
+        List<Series<P>> secondary = frame.getSecondaryDataSets();
+        boolean full = !valid || plotWidth != this.plotWidth || plotHeight != this.plotHeight || !isDrawn(primary, secondary);
+        if (full) {
+            primaryRange.clear();
+            secondaryRange.clear();
+        }
+        // The Y ranges only grow, so a full redraw for a new Y range is rare
+        full |= growRange(primaryRange, primary);
+        full |= growRange(secondaryRange, secondary);
+
+        double latestX = valid ? rightEdgeX : 0;
+        boolean found = false;
+        for (int i = 0; i < primary.size() + secondary.size(); i++) {
+            Series<P> dataSet = i < primary.size() ? primary.get(i) : secondary.get(i - primary.size());
+            if (dataSet.getGraphType() != STANDARD_LINE || dataSet.size() == 0) continue;
+            latestX = found ? Math.max(latestX, dataSet.getMaxX()) : dataSet.getMaxX();
+            found = true;
+        }
+
+        double pixelsPerX = plotWidth / (double) window;
+        int shift = 0;
+        if (!full) {
+            double columns = Math.floor((latestX - rightEdgeX) * pixelsPerX);
+            if (columns < 0 || columns >= plotWidth) {
+                full = true;
+            } else {
+                shift = (int) columns;
+                rightEdgeX += shift / pixelsPerX;
+            }
+        }
+        if (full) {
+            rightEdgeX = latestX;
+            drawnDataSets.clear();
+            drawnDataSets.addAll(primary);
+            drawnDataSets.addAll(secondary);
+        }
+        valid = true;
+        this.plotWidth = plotWidth;
+        this.plotHeight = plotHeight;
+
+        float leftEdgeX = (float) (rightEdgeX - window);
+        if (!primaryRange.isEmpty()) primaryRange.set(leftEdgeX, primaryRange.minY, window, primaryRange.rangeY);
+        if (!secondaryRange.isEmpty()) secondaryRange.set(leftEdgeX, secondaryRange.minY, window, secondaryRange.rangeY);
+        frame.setRanges(primaryRange, secondaryRange);
+        return full ? FULL_REDRAW : shift;
+    }
+
+    /**
+     * Draws the data sets into the pixel columns that came in on the right.  The renderer draws in
+     * the coordinates of the plot area, with 0, 0 at its top left corner.
+     *
+     * @param renderer Renderer drawing into the plot area
+     * @param frame GraphFrame passed to advance()
+     * @param shift value returned by advance()
+     */
+    public void drawNewSegments(Renderer<P> renderer, GraphFrame<P> frame, int shift) {
+        segmentsDrawn = 0;
+        int clipLeft = shift == FULL_REDRAW ? 0 : plotWidth - shift;
+        if (clipLeft >= plotWidth) return;
+        double pixelsPerX = plotWidth / (double) window;
+        double leftEdgeX = rightEdgeX - window;
+        // Points left of the clip were drawn by an earlier frame and shifted along with the bitmap
+        float clipX = (float) (leftEdgeX + clipLeft / pixelsPerX);
+
+        int saveCount = renderer.save();
+        renderer.clipRect(clipLeft, 0, plotWidth, plotHeight);
+        List<Series<P>> primary = frame.getPrimaryDataSets();
+        List<Series<P>> secondary = frame.getSecondaryDataSets();
+        for (int i = 0; i < primary.size() + secondary.size(); i++) {
+            boolean isPrimary = i < primary.size();
+            Series<P> dataSet = isPrimary ? primary.get(i) : secondary.get(i - primary.size());
+            GraphFrame.Range range = isPrimary ? primaryRange : secondaryRange;
+            float pixelsPerY = plotHeight / range.rangeY;
+            if (dataSet.getGraphType() == CONSTANT_LINE && dataSet.size() > 0) {
+                float y = plotHeight - (dataSet.getY(0) - range.minY) * pixelsPerY;
+                renderer.drawLine(clipLeft, y, plotWidth, y, dataSet.getPaint());
+                segmentsDrawn++;
+            } else if (dataSet.getGraphType() == STANDARD_LINE && dataSet.isXAscending()) {
+                drawSegments(renderer, dataSet, clipX, leftEdgeX, pixelsPerX, range.minY, pixelsPerY);
+            }
+        }
+        renderer.restoreToCount(saveCount);
+    }
+
+    private void drawSegments(Renderer<P> renderer, Series<P> dataSet, float clipX, double leftEdgeX, double pixelsPerX, float minY, float pixelsPerY) {
+        // One point on each side of the new columns, so the lines reach across their edges
+        int from = Math.max(0, dataSet.floorIndex(clipX));
+        int to = Math.min(dataSet.size(), dataSet.floorIndex((float) rightEdgeX) + 2);
+        if (to - from < 2) return;
+        int count = (to - from - 1) * 4;
+        if (points.length < count) points = new float[Math.max(count, points.length * 2)];
+
+        float startX = (float) ((dataSet.getX(from) - leftEdgeX) * pixelsPerX);
+        float startY = plotHeight - (dataSet.getY(from) - minY) * pixelsPerY;
+        int point = 0;
+        for (int i = from + 1; i < to; i++) {
+            float endX = (float) ((dataSet.getX(i) - leftEdgeX) * pixelsPerX);
+            float endY = plotHeight - (dataSet.getY(i) - minY) * pixelsPerY;
+            points[point] = startX;
+            points[point + 1] = startY;
+            points[point + 2] = endX;
+            points[point + 3] = endY;
+            point += 4;
+            startX = endX;
+            startY = endY;
+        }
+        renderer.drawLines(points, 0, count, dataSet.getPaint());
+        segmentsDrawn += count / 4;
+    }
+
+    private boolean isDrawn(List<Series<P>> primary, List<Series<P>> secondary) {
+        if (drawnDataSets.size() != primary.size() + secondary.size()) return false;
+        for (int i = 0; i < primary.size(); i++) {
+            if (drawnDataSets.get(i) != primary.get(i)) return false;
+        }
+        for (int i = 0; i < secondary.size(); i++) {
+            if (drawnDataSets.get(primary.size() + i) != secondary.get(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Widens a Y range to fit the data sets drawn against it.
+     *
+     * @return boolean true if the range changed
+     */
+    private static <P> boolean growRange(GraphFrame.Range range, List<Series<P>> dataSets) {
+        float minY = range.isEmpty() ? Float.MAX_VALUE : range.minY;
+        float maxY = range.isEmpty() ? -Float.MAX_VALUE : range.minY + range.rangeY;
+        boolean found = false;
+        for (int i = 0; i < dataSets.size(); i++) {
+            Series<P> dataSet = dataSets.get(i);
+            int graphType = dataSet.getGraphType();
+            if (dataSet.size() == 0 || (graphType != STANDARD_LINE && graphType != CONSTANT_LINE)) continue;
+            minY = Math.min(minY, dataSet.getMinY());
+            maxY = Math.max(maxY, dataSet.getMaxY());
+            found = true;
+        }
+        if (!found) return false;
+        if (!range.isEmpty() && minY >= range.minY && maxY <= range.minY + range.rangeY) return false;
+        // A flat line still needs a range to be drawn in
+        if (!(maxY > minY)) {
+            minY -= 0.5f;
+            maxY += 0.5f;
+        }
+        range.set(range.minX, minY, range.rangeX, maxY - minY);
+        return true;
+    }
+}
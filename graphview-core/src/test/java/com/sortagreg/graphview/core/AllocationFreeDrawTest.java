@@ -0,0 +1,152 @@
+package com.sortagreg.graphview.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static com.sortagreg.graphview.core.Series.*;
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Checks that the work done every frame does not allocate once it is warmed up.
+ *
+ * Allocations are counted with the per-thread allocation counter of the JVM.  The painter draws
+ * into a counting RecordingRenderer, so everything but the Canvas calls themselves is covered.
+ */
+public class AllocationFreeDrawTest {
+    private static final int WARM_UP_FRAMES = 2000;
+    private static final int MEASURED_FRAMES = 200;
+    private static final int MEASURED_RUNS = 5;
+
+    private com.sun.management.ThreadMXBean threads;
+    private GraphFrame<RecordingRenderer.Style> frame;
+
+    @Before
+    public void setUp() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        int size = 200000;
+        float[] x = new float[size];
+        float[] y = new float[size];
+        for (int i = 0; i < size; i++) {
+            x[i] = i;
+            y[i] = (float) Math.sin(i / 500.0) * 100f;
+        }
+        Series<RecordingRenderer.Style> decimated = new Series<>(x, y, null, STANDARD_LINE);
+        decimated.setDecimationMode(DECIMATION_MIN_MAX);
+        Series<RecordingRenderer.Style> indexed = new Series<>(x.clone(), y.clone(), null, UNFOLDED_LINE);
+        indexed.setDecimationMode(DECIMATION_MIN_MAX);
+        indexed.setLevelOfDetailEnabled(true);
+        Series<RecordingRenderer.Style> constant = new Series<>(new float[]{0f}, new float[]{50f}, null, CONSTANT_LINE);
+        Series<RecordingRenderer.Style> state = new Series<>(new float[]{0f, 10f, 20f}, new float[]{0f, 1f, 0f}, null, STATE_LINE);
+        Series<RecordingRenderer.Style> secondary = new Series<>(new float[]{0f, 100f, 200f}, new float[]{5f, -5f, 5f}, null, STANDARD_LINE);
+
+        frame = new GraphFrame<>();
+        frame.setSize(1080, 720);
+        frame.setMargins(75f, 75f, 75f, 75f);
+        frame.setDataSets(Arrays.asList(decimated, indexed, constant, state), Collections.singletonList(secondary));
+    }
+
+    @Test
+    public void projectingAFrameDoesNotAllocate() {
+        for (int i = 0; i < WARM_UP_FRAMES; i++) {
+            assertTrue(frame.project());
+        }
+        assertNoAllocations(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < MEASURED_FRAMES; i++) {
+                    frame.project();
+                }
+            }
+        });
+    }
+
+    @Test
+    public void drawingAFrameDoesNotAllocate() {
+        final RecordingRenderer renderer = new RecordingRenderer(1080, 720);
+        final GraphPainter<RecordingRenderer.Style> painter = new GraphPainter<>(renderer);
+        painter.setTitle("Title");
+        painter.setBottomText("Time");
+        painter.setShouldDrawBox(true);
+        painter.setTopAxisMargin(75f);
+        painter.setBottomAxisMargin(75f);
+        painter.setLeftAxisMargin(75f);
+        painter.setRightAxisMargin(75f);
+        painter.setLeftSideLabels(true);
+        painter.setXAxisLabels(true);
+        painter.setRightSideLabels(true);
+        assertTrue(frame.project());
+        Runnable draw = new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < MEASURED_FRAMES; i++) {
+                    painter.drawFrame(renderer, frame);
+                    painter.drawChromeLayer(renderer, frame);
+                }
+            }
+        };
+        for (int i = 0; i < WARM_UP_FRAMES / MEASURED_FRAMES; i++) {
+            draw.run();
+        }
+        assertNoAllocations(draw);
+        assertTrue(renderer.getDrawCalls() > 0);
+    }
+
+    @Test
+    public void generatingLabelsDoesNotAllocate() {
+        final AxisLabels labels = new AxisLabels();
+        final LabelFormatter formatter = new LabelFormatter();
+        final int[] length = new int[1];
+        Runnable drawLabels = new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < MEASURED_FRAMES; i++) {
+                    int count = labels.generate(-250, 1200, 10);
+                    for (int label = 0; label < count; label++) {
+                        length[0] += formatter.format(labels.get(label)).length();
+                    }
+                }
+            }
+        };
+        for (int i = 0; i < WARM_UP_FRAMES / MEASURED_FRAMES; i++) {
+            drawLabels.run();
+        }
+        assertNoAllocations(drawLabels);
+        assertTrue(length[0] > 0);
+    }
+
+    @Test
+    public void labelsMatchStringValueOf() {
+        LabelFormatter formatter = new LabelFormatter();
+        int[] values = {0, 7, -7, 10, 99, -100, 12345, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        for (int value : values) {
+            assertEquals(String.valueOf(value), formatter.format(value));
+            assertEquals(String.valueOf(value).length(), AxisLabels.digitCount(value));
+        }
+    }
+
+    /**
+     * Runs warmed up work MEASURED_RUNS times and checks that no run allocated.
+     */
+    private void assertNoAllocations(Runnable work) {
+        long thread = Thread.currentThread().getId();
+        for (int run = 0; run < MEASURED_RUNS; run++) {
+            // Reading the counter can allocate by itself, measure that first and take it off
+            long before = threads.getThreadAllocatedBytes(thread);
+            long overhead = threads.getThreadAllocatedBytes(thread) - before;
+            before = threads.getThreadAllocatedBytes(thread);
+            work.run();
+            long allocated = threads.getThreadAllocatedBytes(thread) - before - overhead;
+            assertEquals("run " + run, 0L, allocated);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.sortagreg.graphview.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.sortagreg.graphview.core.Series.*;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the columns of a table draw exactly like data sets with their own X values.
+ */
+public class ColumnTableTest {
+    private static final int ROWS = 20000;
+    private static final int COLUMNS = 3;
+
+    private static Series<Object> column(final ColumnTable table, final int column, int decimationMode) {
+        Series<Object> series = new Series<Object>(null, STANDARD_LINE) {
+            @Override
+            protected ColumnTable getColumnTable() {
+                return table;
+            }
+
+            @Override
+            public int size() {
+                return table.size();
+            }
+
+            @Override
+            public float getX(int index) {
+                return table.getX(index);
+            }
+
+            @Override
+            public float getY(int index) {
+                return table.getY(column, index);
+            }
+
+            @Override
+            public int getVersion() {
+                return table.getVersion();
+            }
+
+            @Override
+            public boolean isXAscending() {
+                return table.isXAscending();
+            }
+
+            @Override
+            public float getMinX() {
+                return table.getMinX();
+            }
+
+            @Override
+            public float getMaxX() {
+                return table.getMaxX();
+            }
+
+            @Override
+            public float getMinY() {
+                return table.getMinY(column);
+            }
+
+            @Override
+            public float getMaxY() {
+                return table.getMaxY(column);
+            }
+        };
+        series.setDecimationMode(decimationMode);
+        return series;
+    }
+
+    private static void assertSameLines(int decimationMode, boolean viewport) {
+        float[] x = new float[ROWS];
+        float[][] y = new float[COLUMNS][ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            x[i] = i * 0.01f;
+            for (int c = 0; c < COLUMNS; c++) {
+                y[c][i] = (float) Math.sin(i / (100.0 + 40 * c)) * (c + 1);
+            }
+        }
+        ColumnTable table = new ColumnTable(x.clone());
+        List<Series<Object>> columns = new ArrayList<>();
+        List<Series<Object>> separate = new ArrayList<>();
+        for (int c = 0; c < COLUMNS; c++) {
+            columns.add(column(table, table.addColumn(y[c].clone()), decimationMode));
+            Series<Object> series = new Series<>(x.clone(), y[c].clone(), null, STANDARD_LINE);
+            series.setDecimationMode(decimationMode);
+            separate.add(series);
+        }
+
+        GraphFrame<Object> tableFrame = new GraphFrame<>();
+        GraphFrame<Object> separateFrame = new GraphFrame<>();
+        for (GraphFrame<Object> frame : Arrays.asList(tableFrame, separateFrame)) {
+            frame.setSize(1080, 720);
+            frame.setMargins(75f, 175f, 175f, 175f);
+            if (viewport) frame.setViewport(GraphFrame.VIEWPORT_FIXED_X, 20.5f, 120.25f, 0f, 0f);
+        }
+        tableFrame.setDataSets(columns, Collections.<Series<Object>>emptyList());
+        separateFrame.setDataSets(separate, Collections.<Series<Object>>emptyList());
+        assertTrue(tableFrame.project());
+        assertTrue(separateFrame.project());
+
+        assertEquals(separateFrame.getLineCount(), tableFrame.getLineCount());
+        for (int line = 0; line < tableFrame.getLineCount(); line++) {
+            LineBuffer expected = separateFrame.getLines(line);
+            LineBuffer actual = tableFrame.getLines(line);
+            assertEquals(expected.getCount(), actual.getCount());
+            for (int i = 0; i < expected.getCount(); i++) {
+                assertEquals(expected.getPoints()[i], actual.getPoints()[i], 0f);
+            }
+        }
+    }
+
+    @Test
+    public void columnsDrawLikeSeparateDataSets() {
+        assertSameLines(DECIMATION_NONE, false);
+    }
+
+    @Test
+    public void decimatedColumnsDrawLikeSeparateDataSets() {
+        assertSameLines(DECIMATION_MIN_MAX, false);
+    }
+
+    @Test
+    public void columnsInAViewportDrawLikeSeparateDataSets() {
+        assertSameLines(DECIMATION_NONE, true);
+        assertSameLines(DECIMATION_MIN_MAX, true);
+    }
+
+    @Test
+    public void appendedRowsUpdateTheBounds() {
+        ColumnTable table = new ColumnTable(new float[0]);
+        int first = table.addColumn(new float[0]);
+        int second = table.addColumn(new float[0]);
+        int version = table.getVersion();
+        table.appendRow(1f, 5f, -2f);
+        table.appendRow(0.5f, 7f, -3f);
+
+        assertEquals(2, table.size());
+        assertFalse(table.isXAscending());
+        assertEquals(0.5f, table.getMinX(), 0f);
+        assertEquals(1f, table.getMaxX(), 0f);
+        assertEquals(7f, table.getMaxY(first), 0f);
+        assertEquals(-3f, table.getMinY(second), 0f);
+        assertTrue(table.getVersion() != version);
+    }
+}
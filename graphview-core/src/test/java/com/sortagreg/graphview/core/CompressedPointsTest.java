@@ -0,0 +1,119 @@
+package com.sortagreg.graphview.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that compressed points come back bit for bit, and how much smaller they get.
+ */
+public class CompressedPointsTest {
+
+    @Test
+    public void pointsComeBackExactly() {
+        Random random = new Random(7);
+        int count = CompressedPoints.BLOCK_SIZE * 3 + 17;
+        float[] x = new float[count];
+        float[] y = new float[count];
+        CompressedPoints points = new CompressedPoints();
+        for (int i = 0; i < count; i++) {
+            x[i] = i % 500 == 0 ? -random.nextFloat() * 1e6f : i * 0.37f + random.nextInt(3);
+            y[i] = i % 97 == 0 ? Float.NaN : (random.nextBoolean() ? random.nextFloat() * 1e9f : -(i % 13));
+            points.append(x[i], y[i]);
+        }
+
+        assertEquals(count, points.size());
+        assertEquals(4, points.getBlockCount());
+        assertFalse(points.isXAscending());
+        // Read backwards so every block is decoded more than once
+        for (int i = count - 1; i >= 0; i--) {
+            assertEquals(Float.floatToRawIntBits(x[i]), Float.floatToRawIntBits(points.getX(i)));
+            assertEquals(Float.floatToRawIntBits(y[i]), Float.floatToRawIntBits(points.getY(i)));
+        }
+    }
+
+    @Test
+    public void searchesMatchTheUncompressedSeries() {
+        Series<Object> series = new Series<>(new float[0], new float[0], null, Series.STANDARD_LINE);
+        CompressedPoints points = new CompressedPoints();
+        for (int i = 0; i < 5000; i++) {
+            float x = (i / 3) * 0.5f;
+            series.append(x, i);
+            points.append(x, i);
+        }
+        assertTrue(points.isXAscending());
+        for (float x = -2f; x < 840f; x += 0.25f) {
+            assertEquals(series.ceilingIndex(x), points.ceilingIndex(x));
+            assertEquals(series.floorIndex(x), points.floorIndex(x));
+        }
+    }
+
+    @Test
+    public void sensorDataIsAboutTenTimesSmaller() {
+        CompressedPoints points = new CompressedPoints();
+        int count = 200000;
+        for (int i = 0; i < count; i++) {
+            // Timestamps in whole milliseconds and a slow 12 bit reading
+            float y = Math.round(2048 + 1500 * Math.sin(i / 4000.0));
+            points.append(1000 + i, y);
+        }
+        long raw = count * 8L;
+        assertTrue("Compressed to " + points.getEncodedBytes() + " of " + raw + " bytes", points.getEncodedBytes() * 8 < raw);
+        assertEquals(2048f + (float) Math.round(1500 * Math.sin(12345 / 4000.0)), points.getY(12345), 0f);
+    }
+
+    @Test
+    public void levelOfDetailStartsAtWholeBlocks() {
+        final CompressedPoints points = new CompressedPoints();
+        Series<Object> compressed = new Series<Object>(null, Series.STANDARD_LINE) {
+            @Override
+            public int size() {
+                return points.size();
+            }
+
+            @Override
+            public float getX(int index) {
+                return points.getX(index);
+            }
+
+            @Override
+            public float getY(int index) {
+                return points.getY(index);
+            }
+
+            @Override
+            protected int getLevelOfDetailBucketSize() {
+                return CompressedPoints.BLOCK_SIZE;
+            }
+        };
+        compressed.setLevelOfDetailEnabled(true);
+        Series<Object> plain = new Series<>(new float[0], new float[0], null, Series.STANDARD_LINE);
+        plain.setLevelOfDetailEnabled(true);
+        for (int i = 0; i < CompressedPoints.BLOCK_SIZE * 40; i++) {
+            float y = (float) Math.sin(i / 700.0) + (i % 31) * 0.01f;
+            points.append(i, y);
+            compressed.indexAppendedPoint(i, y);
+            plain.append(i, y);
+        }
+
+        LevelOfDetail index = compressed.getLevelOfDetail();
+        int firstLevel = CompressedPoints.BLOCK_SHIFT - LevelOfDetail.FIRST_LEVEL_SHIFT;
+        assertEquals(firstLevel, index.getFirstLevel());
+        assertEquals(0, index.getBucketCount(0));
+        // Too few points per pixel column for a block sized bucket, the raw points are drawn
+        assertEquals(-1, index.chooseLevel(points.size(), 100));
+        for (int level = firstLevel; level < index.getLevelCount(); level++) {
+            assertEquals(plain.getLevelOfDetail().getBucketCount(level), index.getBucketCount(level));
+            for (int bucket = 0; bucket < index.getBucketCount(level); bucket++) {
+                assertEquals(plain.getLevelOfDetail().getMinIndex(level, bucket), index.getMinIndex(level, bucket));
+                assertEquals(plain.getLevelOfDetail().getMaxIndex(level, bucket), index.getMaxIndex(level, bucket));
+            }
+        }
+        for (int block = 0; block < points.getBlockCount(); block++) {
+            assertEquals(index.getMinIndex(firstLevel, block), points.getBlockMinIndex(block));
+            assertEquals(index.getMaxIndex(firstLevel, block), points.getBlockMaxIndex(block));
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.sortagreg.graphview.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static com.sortagreg.graphview.core.Series.*;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that graphs of different sizes drawing one data set reuse each other's reductions, and
+ * that a data set drawn by a single graph stays out of the cache.
+ */
+public class DecimationCacheTest {
+    private Series<Object> series;
+    // Reduction of one graph, kept from one call to the next like GraphFrame does
+    private DecimatedSeries reduction;
+
+    @Before
+    public void setUp() {
+        DecimationCache.setByteBudget(DecimationCache.DEFAULT_BYTE_BUDGET);
+        DecimationCache.clear();
+        float[] x = new float[100000];
+        float[] y = new float[x.length];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = i;
+            y[i] = (float) Math.sin(i / 300.0) * 50f + (i % 7);
+        }
+        series = new Series<>(x, y, null, STANDARD_LINE);
+        series.setDecimationMode(DECIMATION_MIN_MAX);
+        reduction = new DecimatedSeries();
+    }
+
+    @Test
+    public void aLoneGraphDoesNotUseTheCache() {
+        for (int frame = 0; frame < 20; frame++) {
+            decimate(reduction, 500 + frame % 2 * 300);
+            series.append(100000f + frame, 0f);
+        }
+        // The first few reductions can not tell the graph is alone yet
+        long lookups = DecimationCache.getMissCount() + DecimationCache.getHitCount();
+        assertTrue(lookups <= 4);
+        for (int frame = 0; frame < 20; frame++) {
+            decimate(reduction, 500 + frame % 2 * 300);
+            series.append(200000f + frame, 0f);
+        }
+        assertEquals(lookups, DecimationCache.getMissCount() + DecimationCache.getHitCount());
+    }
+
+    @Test
+    public void graphsOfTheSameSizeReuseEachOthersWork() {
+        DecimatedSeries other = new DecimatedSeries();
+        float[] small = decimate(reduction, 500);
+        assertTrue(Arrays.equals(small, decimate(other, 500)));
+        assertEquals(1, DecimationCache.getHitCount());
+        float[] large = decimate(reduction, 800);
+        assertEquals(2, DecimationCache.getMissCount());
+
+        for (int frame = 0; frame < 5; frame++) {
+            assertTrue(Arrays.equals(large, decimate(other, 800)));
+            // The points copied from the cache are still counted as read
+            assertEquals(other.getCount(), other.getPointsRead());
+            assertTrue(Arrays.equals(small, decimate(reduction, 500)));
+            assertTrue(Arrays.equals(small, decimate(other, 500)));
+            assertTrue(Arrays.equals(large, decimate(reduction, 800)));
+        }
+        assertEquals(2, DecimationCache.getMissCount());
+        assertEquals(21, DecimationCache.getHitCount());
+        assertEquals(2, DecimationCache.getEntryCount());
+    }
+
+    @Test
+    public void graphsSharingADataSetKeepTheirOwnReductions() {
+        DecimatedSeries other = new DecimatedSeries();
+        decimate(reduction, 500);
+        decimate(other, 800);
+        long misses = DecimationCache.getMissCount();
+
+        // Each graph finds its own reduction current and does not go to the cache again
+        int builds = reduction.getBuildCount();
+        int otherBuilds = other.getBuildCount();
+        for (int frame = 0; frame < 5; frame++) {
+            decimate(reduction, 500);
+            decimate(other, 800);
+        }
+        assertEquals(builds, reduction.getBuildCount());
+        assertEquals(otherBuilds, other.getBuildCount());
+        assertEquals(misses, DecimationCache.getMissCount());
+        assertEquals(0, DecimationCache.getHitCount());
+    }
+
+    @Test
+    public void newDataReusesTheOlderEntries() {
+        DecimatedSeries other = new DecimatedSeries();
+        decimate(reduction, 500);
+        decimate(other, 800);
+        assertEquals(2, DecimationCache.getEntryCount());
+        long bytes = DecimationCache.getBytes();
+
+        // Live data stores new versions every frame in the entries of the older ones
+        for (int frame = 0; frame < 5; frame++) {
+            series.append(100000f + frame, 0f);
+            decimate(other, 800);
+            decimate(reduction, 500);
+        }
+        assertEquals(2, DecimationCache.getEntryCount());
+        assertEquals(bytes, DecimationCache.getBytes());
+        assertEquals(0, DecimationCache.getHitCount());
+
+        // Entries of older versions are not handed out
+        DecimatedSeries third = new DecimatedSeries();
+        series.append(200000f, 0f);
+        decimate(other, 800);
+        long misses = DecimationCache.getMissCount();
+        decimate(third, 500);
+        assertEquals(misses + 1, DecimationCache.getMissCount());
+        assertEquals(0, DecimationCache.getHitCount());
+    }
+
+    @Test
+    public void entriesAreEvictedToStayUnderTheBudget() {
+        DecimatedSeries other = new DecimatedSeries();
+        try {
+            decimate(reduction, 500);
+            long oneEntry = DecimationCache.getBytes();
+            assertTrue(oneEntry > 500 * 8);
+            DecimationCache.setByteBudget(oneEntry * 2);
+            decimate(other, 600);
+            decimate(reduction, 700);
+            assertTrue(DecimationCache.getBytes() <= oneEntry * 2);
+            assertEquals(1, DecimationCache.getEntryCount());
+            // The least recently used entries went first
+            long misses = DecimationCache.getMissCount();
+            decimate(other, 500);
+            assertEquals(misses + 1, DecimationCache.getMissCount());
+            assertEquals(0, DecimationCache.getHitCount());
+
+            DecimationCache.setByteBudget(0);
+            assertEquals(0, DecimationCache.getEntryCount());
+            decimate(reduction, 500);
+            assertEquals(0, DecimationCache.getEntryCount());
+        } finally {
+            DecimationCache.setByteBudget(DecimationCache.DEFAULT_BYTE_BUDGET);
+        }
+    }
+
+    /**
+     * Decimates the whole data set for a plot of this width, as the GraphFrame of a graph does.
+     *
+     * @param graphReduction DecimatedSeries the graph keeps for the data set
+     * @return float[] the X values followed by the Y values of the result
+     */
+    private float[] decimate(DecimatedSeries graphReduction, int plotWidth) {
+        float pixelsPerX = plotWidth / (float) series.size();
+        DecimatedSeries decimated = Decimator.decimate(series, graphReduction, 0, series.size(), false, 0f, pixelsPerX, plotWidth);
+        float[] points = new float[decimated.getCount() * 2];
+        System.arraycopy(decimated.getXValues(), 0, points, 0, decimated.getCount());
+        System.arraycopy(decimated.getYValues(), 0, points, decimated.getCount(), decimated.getCount());
+        return points;
+    }
+}
@@ -0,0 +1,91 @@
+package com.sortagreg.graphview.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.*;
+
+public class DelimitedReaderTest {
+
+    private static DelimitedReader reader(String text) {
+        return new DelimitedReader(new ByteArrayInputStream(text.getBytes(Charset.forName("UTF-8"))));
+    }
+
+    @Test
+    public void numbersAreParsedLikeFloatParseFloat() throws IOException {
+        String[] numbers = {"0", "-0.5", "+12", "3.14159", "1e3", "-2.5E-4", "123456789012345678901", ".25", "7.", "0.1", "6.02214076e23"};
+        StringBuilder text = new StringBuilder();
+        for (String number : numbers) {
+            text.append(number).append('\n');
+        }
+        DelimitedReader reader = reader(text.toString());
+        float[] fields = new float[1];
+        for (String number : numbers) {
+            assertEquals(1, reader.readRow(fields));
+            assertEquals(number, Float.parseFloat(number), fields[0], Math.ulp(Float.parseFloat(number)));
+        }
+        assertEquals(-1, reader.readRow(fields));
+    }
+
+    @Test
+    public void headersQuotesAndLineEndingsAreHandled() throws IOException {
+        DelimitedReader reader = reader("\uFEFFtime,\"pressure\"\r\n\r\n1, \"2.5\" ,x\r\n3\t4,\n");
+        float[] fields = new float[3];
+
+        assertEquals(2, reader.readRow(fields));
+        assertTrue(Float.isNaN(fields[0]));
+        assertTrue(Float.isNaN(fields[1]));
+
+        assertEquals(3, reader.readRow(fields));
+        assertEquals(1f, fields[0], 0f);
+        assertEquals(2.5f, fields[1], 0f);
+        assertTrue(Float.isNaN(fields[2]));
+
+        assertEquals(3, reader.readRow(fields));
+        assertEquals(3f, fields[0], 0f);
+        assertEquals(4f, fields[1], 0f);
+        assertTrue(Float.isNaN(fields[2]));
+
+        assertEquals(-1, reader.readRow(fields));
+        assertEquals(3, reader.getRowCount());
+    }
+
+    @Test
+    public void quotedFieldsKeepTheirDelimiters() throws IOException {
+        DelimitedReader reader = reader("\"a, b\",\"1\",\"say \"\"2\"\", ok\"\n\"line\nbreak\",3,\"4\"");
+        float[] fields = new float[3];
+
+        assertEquals(3, reader.readRow(fields));
+        assertTrue(Float.isNaN(fields[0]));
+        assertEquals(1f, fields[1], 0f);
+        assertTrue(Float.isNaN(fields[2]));
+
+        assertEquals(3, reader.readRow(fields));
+        assertTrue(Float.isNaN(fields[0]));
+        assertEquals(3f, fields[1], 0f);
+        assertEquals(4f, fields[2], 0f);
+
+        assertEquals(-1, reader.readRow(fields));
+    }
+
+    @Test
+    public void rowsLongerThanTheBufferAreRead() throws IOException {
+        StringBuilder text = new StringBuilder();
+        int count = DelimitedReader.BUFFER_SIZE / 4;
+        for (int i = 0; i < count; i++) {
+            if (i > 0) text.append(';');
+            text.append(i);
+        }
+        DelimitedReader reader = reader(text.toString());
+        reader.setDelimiter(';');
+        float[] fields = new float[count];
+        assertEquals(count, reader.readRow(fields));
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, fields[i], 0f);
+        }
+        assertEquals(text.length(), reader.getBytesRead());
+    }
+}
@@ -0,0 +1,69 @@
+package com.sortagreg.graphview.core;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static com.sortagreg.graphview.core.Series.*;
+import static org.junit.Assert.*;
+
+/**
+ * Checks what a frame does when its data sets change while it is being projected.
+ */
+public class GraphFrameTest {
+
+    @Test
+    public void dataChangingDuringEveryProjectionIsStillPublished() {
+        AppendingSeries series = new AppendingSeries();
+        GraphFrame<Object> frame = newFrame(series);
+
+        int attempts = 0;
+        boolean published = false;
+        while (!published && attempts <= GraphFrame.MAX_DISCARDED_PROJECTIONS) {
+            published = frame.project();
+            attempts++;
+        }
+        assertTrue(published);
+        assertEquals(GraphFrame.MAX_DISCARDED_PROJECTIONS + 1, attempts);
+        assertTrue(frame.getSegmentCount() > 0);
+        // The published frame is behind the data, so it is projected again
+        assertFalse(frame.isCurrent(0, Collections.singletonList(series), Collections.<Series<Object>>emptyList()));
+    }
+
+    @Test
+    public void dataChangingOnceOnlyDiscardsOneProjection() {
+        AppendingSeries series = new AppendingSeries();
+        GraphFrame<Object> frame = newFrame(series);
+
+        assertFalse(frame.project());
+        series.appending = false;
+        assertTrue(frame.project());
+        assertTrue(frame.isCurrent(0, Collections.singletonList(series), Collections.<Series<Object>>emptyList()));
+    }
+
+    private static GraphFrame<Object> newFrame(Series<Object> series) {
+        GraphFrame<Object> frame = new GraphFrame<>();
+        frame.setSize(1080, 720);
+        frame.setMargins(75f, 75f, 75f, 75f);
+        frame.setDataSets(Collections.singletonList(series), Collections.<Series<Object>>emptyList());
+        return frame;
+    }
+
+    /**
+     * Data set that gets a new point every time its bounds are read, like one appended to on
+     * another thread faster than a frame can be projected.
+     */
+    private static class AppendingSeries extends Series<Object> {
+        boolean appending = true;
+
+        AppendingSeries() {
+            super(new float[]{0f, 1f, 2f}, new float[]{0f, 1f, 0f}, null, STANDARD_LINE);
+        }
+
+        @Override
+        public float getMaxY() {
+            if (appending) append(size(), size() % 2);
+            return super.getMaxY();
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.sortagreg.graphview.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.sortagreg.graphview.core.Series.*;
+import static org.junit.Assert.*;
+
+/**
+ * Draws graphs into a RecordingRenderer and checks what was drawn, without Android.
+ */
+public class GraphPainterTest {
+    private RecordingRenderer renderer;
+    private GraphPainter<RecordingRenderer.Style> painter;
+    private GraphFrame<RecordingRenderer.Style> frame;
+
+    @Before
+    public void setUp() {
+        renderer = new RecordingRenderer(1080, 720, true);
+        painter = new GraphPainter<>(renderer);
+        painter.setTopAxisMargin(GraphPainter.DEFAULT_TOP_MARGIN);
+        painter.setBottomAxisMargin(GraphPainter.DEFAULT_BOTTOM_MARGIN);
+        painter.setLeftAxisMargin(GraphPainter.DEFAULT_LEFT_MARGIN);
+        painter.setRightAxisMargin(GraphPainter.DEFAULT_RIGHT_MARGIN);
+        painter.setLeftSideLabels(true);
+        painter.setXAxisLabels(true);
+        painter.setRightSideLabels(true);
+        frame = new GraphFrame<>();
+        frame.setSize(renderer.getWidth(), renderer.getHeight());
+        frame.setMargins(painter.getTopAxisMargin(), painter.getBottomAxisMargin(), painter.getLeftAxisMargin(), painter.getRightAxisMargin());
+    }
+
+    @Test
+    public void stateLinesDrawOneRunAndOneEdgePerChange() {
+        float[] states = {0f, 0f, 0f, 1f, 1f, 2f, 2f, 2f, 0f, 0f};
+        Series<RecordingRenderer.Style> sampled = new Series<>(new float[states.length], states, null, STATE_LINE);
+        final StateRuns runs = new StateRuns();
+        runs.setStates(states);
+        Series<RecordingRenderer.Style> encoded = new Series<RecordingRenderer.Style>(null, STATE_LINE) {
+            @Override
+            protected StateRuns getStateRuns() {
+                return runs;
+            }
+
+            @Override
+            public int size() {
+                return runs.size();
+            }
+
+            @Override
+            public float getY(int index) {
+                return runs.getState(index);
+            }
+
+            @Override
+            public float getMinY() {
+                return runs.getMinState();
+            }
+
+            @Override
+            public float getMaxY() {
+                return runs.getMaxState();
+            }
+        };
+        frame.setDataSets(Arrays.asList(sampled, encoded), Collections.<Series<RecordingRenderer.Style>>emptyList());
+        assertTrue(frame.project());
+
+        painter.drawFrame(renderer, frame);
+
+        assertEquals(4, runs.getRunCount());
+        assertEquals(2f, runs.getState(6), 0f);
+        List<RecordingRenderer.Operation> operations = renderer.getOperations();
+        assertEquals(2, operations.size());
+        float[] drawn = operations.get(0).getCoordinates();
+        // A constant line for each of the four runs, joined by three edges
+        assertEquals(7 * 4, drawn.length);
+        for (int segment = 0; segment < 7; segment++) {
+            boolean edge = segment % 2 == 1;
+            assertEquals(edge, drawn[segment * 4] == drawn[segment * 4 + 2]);
+            assertEquals(!edge, drawn[segment * 4 + 1] == drawn[segment * 4 + 3]);
+        }
+        assertArrayEquals(drawn, operations.get(1).getCoordinates(), 0f);
+    }
+
+    @Test
+    public void everySeriesIsDrawnWithOneCall() {
+        RecordingRenderer.Style red = renderer.createLinePaint(0xFFFF0000, 3f);
+        RecordingRenderer.Style blue = renderer.createLinePaint(0xFF0000FF, 3f);
+        Series<RecordingRenderer.Style> line = new Series<>(new float[]{0f, 1f, 2f, 3f}, new float[]{0f, 5f, 2f, 8f}, red, STANDARD_LINE);
+        Series<RecordingRenderer.Style> constant = new Series<>(new float[]{0f}, new float[]{4f}, blue, CONSTANT_LINE);
+        frame.setDataSets(Arrays.asList(line, constant), Collections.<Series<RecordingRenderer.Style>>emptyList());
+        assertTrue(frame.project());
+
+        painter.drawFrame(renderer, frame);
+
+        assertEquals(2, renderer.getDrawLinesCalls());
+        List<RecordingRenderer.Style> styles = new ArrayList<>();
+        int segments = 0;
+        for (RecordingRenderer.Operation operation : renderer.getOperations()) {
+            assertEquals(RecordingRenderer.DRAW_LINES, operation.getType());
+            styles.add(operation.getStyle());
+            segments += operation.getCoordinates().length / 4;
+        }
+        assertEquals(Arrays.asList(red, blue), styles);
+        // Three segments join the four points, the constant line is a single segment
+        assertEquals(4, segments);
+        assertEquals(4, renderer.getLineSegments());
+    }
+
+    @Test
+    public void chromeDrawsTheBoxTitlesAndLabels() {
+        Series<RecordingRenderer.Style> line = new Series<>(new float[]{0f, 100f}, new float[]{0f, 100f}, null, STANDARD_LINE);
+        frame.setDataSets(Collections.singletonList(line), Collections.<Series<RecordingRenderer.Style>>emptyList());
+        assertTrue(frame.project());
+        painter.setTitle("Temperature");
+        painter.setBottomText("Time");
+        painter.setShouldDrawBox(true);
+
+        painter.drawChromeLayer(renderer, frame);
+
+        List<String> texts = new ArrayList<>();
+        for (RecordingRenderer.Operation operation : renderer.getOperations()) {
+            if (operation.getType() == RecordingRenderer.DRAW_TEXT) texts.add(operation.getText());
+        }
+        assertTrue(texts.contains("Temperature"));
+        assertTrue(texts.contains("Time"));
+        assertTrue(texts.contains("10"));
+        // Two axes and two sides of the box, plus the grid lines of the labels
+        assertTrue(renderer.getDrawLineCalls() > 4);
+
+        renderer.reset();
+        painter.setLeftSideLabels(false);
+        painter.setXAxisLabels(false);
+        painter.setRightSideLabels(false);
+        painter.setShouldDrawBox(false);
+        painter.drawChromeLayer(renderer, frame);
+        assertEquals(2, renderer.getDrawLineCalls());
+    }
+
+    @Test
+    public void theGridIsDrawnBetweenThePrimaryAndSecondaryDataSets() {
+        Series<RecordingRenderer.Style> primary = new Series<>(new float[]{0f, 100f}, new float[]{0f, 100f}, null, STANDARD_LINE);
+        Series<RecordingRenderer.Style> secondary = new Series<>(new float[]{0f, 100f}, new float[]{100f, 0f}, null, STANDARD_LINE);
+        frame.setDataSets(Collections.singletonList(primary), Collections.singletonList(secondary));
+        assertTrue(frame.project());
+
+        painter.draw(renderer, frame);
+
+        List<RecordingRenderer.Operation> operations = renderer.getOperations();
+        List<Integer> dataSets = new ArrayList<>();
+        for (int i = 0; i < operations.size(); i++) {
+            if (operations.get(i).getType() == RecordingRenderer.DRAW_LINES) dataSets.add(i);
+        }
+        assertEquals(2, dataSets.size());
+        int gridLines = 0;
+        for (int i = dataSets.get(0) + 1; i < dataSets.get(1); i++) {
+            if (operations.get(i).getType() == RecordingRenderer.DRAW_LINE) gridLines++;
+        }
+        assertTrue(gridLines > 0);
+    }
+
+    @Test
+    public void seriesWithoutAnAxisRangeDrawNoLabelsForIt() {
+        // State lines do not set a range, unfolded lines only set the Y range
+        Series<RecordingRenderer.Style> unfolded = new Series<>(new float[]{0f, 1f, 2f}, new float[]{0f, 50f, 100f}, null, UNFOLDED_LINE);
+        Series<RecordingRenderer.Style> state = new Series<>(new float[]{0f, 1f, 2f}, new float[]{0f, 1f, 0f}, null, STATE_LINE);
+        frame.setDataSets(Collections.singletonList(unfolded), Collections.singletonList(state));
+        assertTrue(frame.project());
+
+        painter.drawChromeLayer(renderer, frame);
+
+        List<String> texts = new ArrayList<>();
+        for (RecordingRenderer.Operation operation : renderer.getOperations()) {
+            if (operation.getType() == RecordingRenderer.DRAW_TEXT) texts.add(operation.getText());
+        }
+        // Ten Y labels and the four titles
+        assertEquals(14, texts.size());
+    }
+
+    @Test
+    public void aFrameIsNotProjectedFromDataThatChangedHalfway() {
+        // Stands in for another thread appending while the frame reads the points
+        Series<RecordingRenderer.Style> changing = new Series<RecordingRenderer.Style>(new float[]{0f, 1f, 2f}, new float[]{0f, 5f, 2f}, null, STANDARD_LINE) {
+            @Override
+            public float getY(int index) {
+                if (index == 1) incrementVersion();
+                return super.getY(index);
+            }
+        };
+        frame.setDataSets(Collections.singletonList(changing), Collections.<Series<RecordingRenderer.Style>>emptyList());
+        assertFalse(frame.project());
+        assertFalse(frame.isProjected());
+        assertTrue(frame.isDataChanged());
+    }
+}
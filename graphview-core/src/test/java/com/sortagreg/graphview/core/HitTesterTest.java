@@ -0,0 +1,121 @@
+package com.sortagreg.graphview.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static com.sortagreg.graphview.core.Series.*;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the nearest point found matches a search through every point.
+ */
+public class HitTesterTest {
+    private static final int WIDTH = 600;
+    private static final int HEIGHT = 400;
+    private static final float MARGIN = 40f;
+    private static final float MAX_DISTANCE = 48f;
+
+    @Test
+    public void sortedDataMatchesBruteForce() {
+        Series<Object> series = new Series<>(new float[0], new float[0], null, STANDARD_LINE);
+        Random random = new Random(3);
+        for (int i = 0; i < 20000; i++) {
+            series.append(i * 0.05f, random.nextFloat() * 10f);
+        }
+        assertTrue(series.isXAscending());
+        checkAgainstBruteForce(Collections.singletonList(series), Collections.<Series<Object>>emptyList());
+    }
+
+    @Test
+    public void loopedCurveMatchesBruteForce() {
+        Series<Object> loop = new Series<>(new float[0], new float[0], null, STANDARD_LINE);
+        for (int i = 0; i < 5000; i++) {
+            double angle = i / 200.0;
+            loop.append((float) Math.sin(3 * angle), (float) Math.cos(2 * angle));
+        }
+        assertFalse(loop.isXAscending());
+        Series<Object> unfolded = new Series<>(new float[0], new float[0], null, UNFOLDED_LINE);
+        for (int i = 0; i < 3000; i++) {
+            unfolded.append((float) Math.cos(i / 30.0), (float) Math.sin(i / 40.0) * 5f);
+        }
+        checkAgainstBruteForce(Collections.singletonList(loop), Collections.singletonList(unfolded));
+    }
+
+    @Test
+    public void pointsOutsideThePlotAreNotFound() {
+        Series<Object> series = new Series<>(new float[] {0f, 1f, 2f}, new float[] {0f, 1f, 2f}, null, STANDARD_LINE);
+        GraphFrame<Object> frame = project(Collections.singletonList(series), Collections.<Series<Object>>emptyList());
+        HitTester<Object> hitTester = new HitTester<>();
+        HitTester.Hit<Object> hit = new HitTester.Hit<>();
+
+        assertTrue(hitTester.findNearest(frame, MARGIN + 3f, HEIGHT - MARGIN - 2f, MAX_DISTANCE, hit));
+        assertSame(series, hit.getDataSet());
+        assertEquals(0, hit.getIndex());
+        assertEquals(0f, hit.getX(), 0f);
+        assertTrue(hit.isPrimary());
+        assertFalse(hitTester.findNearest(frame, WIDTH / 2f + 100f, HEIGHT / 2f - 100f, 10f, hit));
+
+        // Zoomed in on the middle point, the others are off the plot
+        frame.setViewport(GraphFrame.VIEWPORT_FIXED, 0.9f, 1.1f, 0.9f, 1.1f);
+        assertTrue(frame.project());
+        assertTrue(hitTester.findNearest(frame, 0f, 0f, 1000f, hit));
+        assertEquals(1, hit.getIndex());
+    }
+
+    private void checkAgainstBruteForce(List<Series<Object>> primary, List<Series<Object>> secondary) {
+        GraphFrame<Object> frame = project(primary, secondary);
+        HitTester<Object> hitTester = new HitTester<>();
+        HitTester.Hit<Object> hit = new HitTester.Hit<>();
+        Random random = new Random(11);
+        int found = 0;
+        for (int t = 0; t < 2000; t++) {
+            float touchX = random.nextFloat() * WIDTH;
+            float touchY = random.nextFloat() * HEIGHT;
+            float expected = bruteForceDistanceSquared(frame, touchX, touchY);
+            boolean hitFound = hitTester.findNearest(frame, touchX, touchY, MAX_DISTANCE, hit);
+            assertEquals(expected <= MAX_DISTANCE * MAX_DISTANCE, hitFound);
+            if (!hitFound) continue;
+            found++;
+            float dx = hit.getPixelX() - touchX;
+            float dy = hit.getPixelY() - touchY;
+            assertEquals(expected, dx * dx + dy * dy, 0.01f);
+        }
+        assertTrue(found > 100);
+    }
+
+    private static float bruteForceDistanceSquared(GraphFrame<Object> frame, float touchX, float touchY) {
+        float best = Float.MAX_VALUE;
+        for (int side = 0; side < 2; side++) {
+            List<Series<Object>> dataSets = side == 0 ? frame.getPrimaryDataSets() : frame.getSecondaryDataSets();
+            GraphFrame.Range range = side == 0 ? frame.getPrimaryRange() : frame.getSecondaryRange();
+            float plotWidth = WIDTH - 2 * MARGIN;
+            float pixelsPerY = (HEIGHT - 2 * MARGIN) / range.getRangeY();
+            for (Series<Object> dataSet : dataSets) {
+                boolean unfolded = dataSet.getGraphType() == UNFOLDED_LINE;
+                for (int i = 0; i < dataSet.size(); i++) {
+                    float pixelX = unfolded
+                            ? MARGIN + i * plotWidth / (dataSet.size() - 1)
+                            : (dataSet.getX(i) - range.getMinX()) * plotWidth / range.getRangeX() + MARGIN;
+                    float pixelY = HEIGHT - MARGIN - (dataSet.getY(i) - range.getMinY()) * pixelsPerY;
+                    float dx = pixelX - touchX;
+                    float dy = pixelY - touchY;
+                    best = Math.min(best, dx * dx + dy * dy);
+                }
+            }
+        }
+        return best;
+    }
+
+    private static GraphFrame<Object> project(List<Series<Object>> primary, List<Series<Object>> secondary) {
+        GraphFrame<Object> frame = new GraphFrame<>();
+        frame.setSize(WIDTH, HEIGHT);
+        frame.setMargins(MARGIN, MARGIN, MARGIN, MARGIN);
+        frame.setDataSets(new ArrayList<>(primary), new ArrayList<>(secondary));
+        assertTrue(frame.project());
+        return frame;
+    }
+}
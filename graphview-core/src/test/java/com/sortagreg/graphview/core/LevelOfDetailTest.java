@@ -0,0 +1,50 @@
+package com.sortagreg.graphview.core;
+
+import org.junit.Test;
+
+import static com.sortagreg.graphview.core.Series.*;
+import static org.junit.Assert.*;
+
+/**
+ * Checks how many points the level of detail index draws per pixel column.
+ */
+public class LevelOfDetailTest {
+
+    @Test
+    public void aboutTwoPointsAreDrawnPerColumn() {
+        Series<Object> series = new Series<>(new float[0], new float[0], null, UNFOLDED_LINE);
+        series.setDecimationMode(DECIMATION_MIN_MAX);
+        series.setLevelOfDetailEnabled(true);
+        for (int i = 0; i < 1000000; i++) {
+            series.append(i, (float) Math.sin(i / 1000.0) + (i % 13) * 0.01f);
+        }
+        for (int plotWidth = 200; plotWidth <= 2000; plotWidth += 150) {
+            DecimatedSeries decimated = Decimator.decimate(series, new DecimatedSeries(), 0, series.size(), true, 0f, plotWidth / (float) series.size(), plotWidth);
+            assertNotNull(decimated);
+            assertTrue(plotWidth + " columns, " + decimated.getCount() + " points", decimated.getCount() >= plotWidth * 3 / 2);
+            assertTrue(plotWidth + " columns, " + decimated.getCount() + " points", decimated.getCount() <= plotWidth * 4);
+        }
+    }
+
+    @Test
+    public void noDecimationDrawsTheRawPoints() {
+        Series<Object> series = new Series<>(new float[0], new float[0], null, STANDARD_LINE);
+        series.setLevelOfDetailEnabled(true);
+        for (int i = 0; i < 100000; i++) {
+            series.append(i, i % 17);
+        }
+        assertNull(Decimator.decimate(series, new DecimatedSeries(), 0, series.size(), false, 0f, 500f / series.size(), 500));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void enablingAnUnsupportedIndexThrows() {
+        Series<Object> series = new Series<Object>(new float[0], new float[0], null, STANDARD_LINE) {
+            @Override
+            public boolean isLevelOfDetailSupported() {
+                return false;
+            }
+        };
+        series.setLevelOfDetailEnabled(false);
+        series.setLevelOfDetailEnabled(true);
+    }
+}
@@ -0,0 +1,68 @@
+package com.sortagreg.graphview.core;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static com.sortagreg.graphview.core.Series.*;
+import static org.junit.Assert.*;
+
+/**
+ * Checks the numbers instrumentation reports and the percentiles of FrameTimeHistogram.
+ */
+public class RenderMetricsTest {
+
+    @Test
+    public void percentilesUseTheNearestRank() {
+        FrameTimeHistogram histogram = new FrameTimeHistogram(100);
+        assertEquals(0L, histogram.getP50Nanos());
+        for (int i = 100; i >= 1; i--) {
+            histogram.record(i);
+        }
+        assertEquals(50L, histogram.getP50Nanos());
+        assertEquals(95L, histogram.getP95Nanos());
+        assertEquals(99L, histogram.getP99Nanos());
+        assertEquals(100L, histogram.getMaxNanos());
+    }
+
+    @Test
+    public void histogramOnlyKeepsTheLatestSamples() {
+        FrameTimeHistogram histogram = new FrameTimeHistogram(4);
+        for (int i = 1; i <= 8; i++) {
+            histogram.record(i * 1000);
+        }
+        assertEquals(4, histogram.getCount());
+        assertEquals(5000L, histogram.getPercentileNanos(0));
+        assertEquals(8000L, histogram.getMaxNanos());
+    }
+
+    @Test
+    public void instrumentedFrameCountsPointsScanned() {
+        int size = 100000;
+        float[] x = new float[size];
+        float[] y = new float[size];
+        for (int i = 0; i < size; i++) {
+            x[i] = i;
+            y[i] = i % 100;
+        }
+        Series<Object> series = new Series<>(x, y, null, STANDARD_LINE);
+        series.setDecimationMode(DECIMATION_MIN_MAX);
+        GraphFrame<Object> frame = new GraphFrame<>();
+        frame.setSize(1080, 720);
+        frame.setMargins(75f, 175f, 175f, 175f);
+        frame.setDataSets(Collections.singletonList(series), Collections.<Series<Object>>emptyList());
+        assertTrue(frame.project());
+        assertNull(frame.getMetrics());
+
+        frame.setInstrumented(true);
+        series.notifyDataChanged();
+        assertTrue(frame.project());
+        int decimatedPoints = frame.getSegmentCount() + 1;
+        // Every point is read once to decimate, then the decimated points are projected
+        assertEquals(size + decimatedPoints, frame.getMetrics().getPointsScanned());
+
+        assertTrue(frame.project());
+        // The decimation is reused when the data did not change
+        assertEquals(decimatedPoints, frame.getMetrics().getPointsScanned());
+    }
+}
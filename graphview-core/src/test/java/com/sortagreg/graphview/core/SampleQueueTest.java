@@ -0,0 +1,79 @@
+package com.sortagreg.graphview.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that samples offered from several threads all arrive, in order per thread.
+ */
+public class SampleQueueTest {
+    private static final int PRODUCERS = 4;
+    private static final int SAMPLES = 50000;
+
+    @Test
+    public void samplesFromSeveralThreadsArriveInOrder() throws InterruptedException {
+        final SampleQueue queue = new SampleQueue(1024, SampleQueue.DROP_NEWEST);
+        Thread[] producers = new Thread[PRODUCERS];
+        for (int p = 0; p < PRODUCERS; p++) {
+            final int producer = p;
+            producers[p] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < SAMPLES; i++) {
+                        // Waits for room instead of dropping, so every sample has to arrive
+                        while (!queue.offer(producer, i)) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            });
+            producers[p].start();
+        }
+
+        int[] next = new int[PRODUCERS];
+        float[] x = new float[256];
+        float[] y = new float[256];
+        int received = 0;
+        while (received < PRODUCERS * SAMPLES) {
+            int count = queue.drain(x, y, 0, x.length);
+            for (int i = 0; i < count; i++) {
+                int producer = (int) x[i];
+                assertEquals(next[producer], (int) y[i]);
+                next[producer]++;
+            }
+            received += count;
+            if (count == 0) Thread.yield();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        assertTrue(queue.isEmpty());
+        for (int p = 0; p < PRODUCERS; p++) {
+            assertEquals(SAMPLES, next[p]);
+        }
+    }
+
+    @Test
+    public void fullQueueDropsByPolicy() {
+        SampleQueue newest = new SampleQueue(3, SampleQueue.DROP_NEWEST);
+        SampleQueue oldest = new SampleQueue(3, SampleQueue.DROP_OLDEST);
+        assertEquals(4, newest.getCapacity());
+        for (int i = 0; i < 6; i++) {
+            assertEquals(i < 4, newest.offer(i, i));
+            assertTrue(oldest.offer(i, i));
+        }
+        assertEquals(2, newest.getDroppedCount());
+        assertEquals(2, oldest.getDroppedCount());
+
+        float[] x = new float[8];
+        float[] y = new float[8];
+        assertEquals(4, newest.drain(x, y, 0, x.length));
+        assertEquals(0f, x[0], 0f);
+        assertEquals(3f, x[3], 0f);
+        assertEquals(4, oldest.drain(x, y, 0, x.length));
+        assertEquals(2f, x[0], 0f);
+        assertEquals(5f, y[3], 0f);
+        assertEquals(0, oldest.drain(x, y, 0, x.length));
+    }
+}
@@ -0,0 +1,77 @@
+package com.sortagreg.graphview.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class SeriesFileTest {
+    private File file;
+    private Series<Object> series;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("series", ".gvs");
+        file.deleteOnExit();
+        int size = 10000;
+        float[] x = new float[size];
+        float[] y = new float[size];
+        for (int i = 0; i < size; i++) {
+            x[i] = i * 0.5f;
+            y[i] = (float) Math.sin(i / 50.0) * 100f;
+        }
+        series = new Series<>(x, y, null, Series.UNFOLDED_LINE);
+    }
+
+    @Test
+    public void mappedFileHasTheWrittenPoints() throws IOException {
+        SeriesFile.write(series, false, file);
+        SeriesFile mapped = SeriesFile.map(file);
+
+        assertEquals(series.size(), mapped.size());
+        assertEquals(Series.UNFOLDED_LINE, mapped.getGraphType());
+        assertTrue(mapped.isXAscending());
+        assertFalse(mapped.hasLevelOfDetail());
+        assertEquals(series.getMinX(), mapped.getMinX(), 0f);
+        assertEquals(series.getMaxX(), mapped.getMaxX(), 0f);
+        assertEquals(series.getMinY(), mapped.getMinY(), 0f);
+        assertEquals(series.getMaxY(), mapped.getMaxY(), 0f);
+        for (int i = 0; i < series.size(); i++) {
+            assertEquals(series.getX(i), mapped.getXColumn().get(i), 0f);
+            assertEquals(series.getY(i), mapped.getYColumn().get(i), 0f);
+        }
+    }
+
+    @Test
+    public void mappedIndexMatchesTheBuiltIndex() throws IOException {
+        SeriesFile.write(series, true, file);
+        LevelOfDetail mapped = SeriesFile.map(file).getLevelOfDetail();
+        series.setLevelOfDetailEnabled(true);
+        LevelOfDetail built = series.getLevelOfDetail();
+
+        assertNotNull(mapped);
+        assertEquals(built.getLevelCount(), mapped.getLevelCount());
+        for (int level = 0; level < built.getLevelCount(); level++) {
+            assertEquals(built.getBucketCount(level), mapped.getBucketCount(level));
+            for (int bucket = 0; bucket < built.getBucketCount(level); bucket++) {
+                assertEquals(built.getMinIndex(level, bucket), mapped.getMinIndex(level, bucket));
+                assertEquals(built.getMaxIndex(level, bucket), mapped.getMaxIndex(level, bucket));
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void otherFilesAreRejected() throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(new byte[SeriesFile.HEADER_SIZE]);
+        } finally {
+            out.close();
+        }
+        SeriesFile.map(file);
+    }
+}
@@ -0,0 +1,67 @@
+package com.sortagreg.graphview.core;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static com.sortagreg.graphview.core.Series.*;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that a strip chart only draws the new points once the window is drawn.
+ */
+public class StripChartTest {
+    private static final int PLOT_WIDTH = 500;
+    private static final int PLOT_HEIGHT = 300;
+
+    @Test
+    public void appendedPointsShiftAndDrawOnlyTheNewSegments() {
+        Series<RecordingRenderer.Style> series = new Series<>(new float[0], new float[0], null, STANDARD_LINE);
+        for (int i = 0; i < 2000; i++) {
+            series.append(i * 0.01f, (float) Math.sin(i / 50.0));
+        }
+        GraphFrame<RecordingRenderer.Style> frame = new GraphFrame<>();
+        frame.setDataSets(Collections.singletonList(series), Collections.<Series<RecordingRenderer.Style>>emptyList());
+        RecordingRenderer renderer = new RecordingRenderer(PLOT_WIDTH, PLOT_HEIGHT);
+        StripChart<RecordingRenderer.Style> stripChart = new StripChart<>(5f);
+
+        int shift = stripChart.advance(frame, PLOT_WIDTH, PLOT_HEIGHT);
+        assertEquals(StripChart.FULL_REDRAW, shift);
+        stripChart.drawNewSegments(renderer, frame, shift);
+        int fullSegments = stripChart.getSegmentsDrawn();
+        assertTrue(fullSegments >= 500);
+        assertEquals(19.99f, stripChart.getRightEdgeX(), 0.0001f);
+
+        // 0.05 more on the X axis is 5 pixel columns at 100 pixels per unit
+        for (int i = 2000; i < 2005; i++) {
+            series.append(i * 0.01f, (float) Math.sin(i / 50.0));
+        }
+        shift = stripChart.advance(frame, PLOT_WIDTH, PLOT_HEIGHT);
+        assertTrue(shift >= 4 && shift <= 5);
+        stripChart.drawNewSegments(renderer, frame, shift);
+        assertTrue(stripChart.getSegmentsDrawn() > 0);
+        assertTrue(stripChart.getSegmentsDrawn() <= 7);
+
+        // Nothing new, nothing to draw
+        shift = stripChart.advance(frame, PLOT_WIDTH, PLOT_HEIGHT);
+        assertTrue(shift >= 0 && shift <= 1);
+    }
+
+    @Test
+    public void growingYRangeDrawsEverythingAgain() {
+        Series<RecordingRenderer.Style> series = new Series<>(new float[]{0f, 1f, 2f}, new float[]{0f, 1f, 0f}, null, STANDARD_LINE);
+        GraphFrame<RecordingRenderer.Style> frame = new GraphFrame<>();
+        frame.setDataSets(Collections.singletonList(series), Collections.<Series<RecordingRenderer.Style>>emptyList());
+        StripChart<RecordingRenderer.Style> stripChart = new StripChart<>(10f);
+
+        assertEquals(StripChart.FULL_REDRAW, stripChart.advance(frame, PLOT_WIDTH, PLOT_HEIGHT));
+        series.append(3f, 0.5f);
+        assertTrue(stripChart.advance(frame, PLOT_WIDTH, PLOT_HEIGHT) >= 0);
+        series.append(4f, 10f);
+        assertEquals(StripChart.FULL_REDRAW, stripChart.advance(frame, PLOT_WIDTH, PLOT_HEIGHT));
+        // The range does not shrink back
+        series.append(5f, 0f);
+        assertTrue(stripChart.advance(frame, PLOT_WIDTH, PLOT_HEIGHT) >= 0);
+        assertEquals(StripChart.FULL_REDRAW, stripChart.advance(frame, PLOT_WIDTH + 1, PLOT_HEIGHT));
+    }
+}
@@ -0,0 +1,109 @@
+package com.sortagreg.graphview;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+import com.sortagreg.graphview.core.Renderer;
+
+/**
+ * Renderer that draws to an android.graphics.Canvas.
+ */
+class CanvasRenderer implements Renderer<Paint> {
+    private Canvas canvas;
+    private int drawCalls;
+
+    /**
+     * Sets the Canvas the following calls draw to.
+     *
+     * @param canvas
+     */
+    void setCanvas(Canvas canvas) {
+        this.canvas = canvas;
+    }
+
+    /**
+     * @return int drawLines(), drawLine() and drawText() calls since the last resetDrawCalls()
+     */
+    int getDrawCalls() {
+        return drawCalls;
+    }
+
+    void resetDrawCalls() {
+        drawCalls = 0;
+    }
+
+    @Override
+    public int getWidth() {
+        return canvas.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return canvas.getHeight();
+    }
+
+    @Override
+    public Paint createLinePaint(int color, float strokeWidth) {
+        Paint paint = new Paint();
+        paint.setColor(color);
+        paint.setStrokeWidth(strokeWidth);
+        return paint;
+    }
+
+    @Override
+    public Paint createTextPaint(int color, float textSize, int align) {
+        Paint paint = new Paint();
+        paint.setColor(color);
+        paint.setTextSize(textSize);
+        switch (align) {
+            case ALIGN_CENTER:
+                paint.setTextAlign(Paint.Align.CENTER);
+                break;
+            case ALIGN_RIGHT:
+                paint.setTextAlign(Paint.Align.RIGHT);
+                break;
+            default:
+                paint.setTextAlign(Paint.Align.LEFT);
+        }
+        paint.setFakeBoldText(true);
+        return paint;
+    }
+
+    @Override
+    public void drawLines(float[] points, int offset, int count, Paint paint) {
+        drawCalls++;
+        canvas.drawLines(points, offset, count, paint);
+    }
+
+    @Override
+    public void drawLine(float startX, float startY, float stopX, float stopY, Paint paint) {
+        drawCalls++;
+        canvas.drawLine(startX, startY, stopX, stopY, paint);
+    }
+
+    @Override
+    public void drawText(String text, float x, float y, Paint paint) {
+        drawCalls++;
+        canvas.drawText(text, x, y, paint);
+    }
+
+    @Override
+    public void rotate(float degrees, float px, float py) {
+        canvas.rotate(degrees, px, py);
+    }
+
+    @Override
+    public int save() {
+        return canvas.save();
+    }
+
+    @Override
+    public void clipRect(float left, float top, float right, float bottom) {
+        canvas.clipRect(left, top, right, bottom);
+    }
+
+    @Override
+    public void restoreToCount(int saveCount) {
+        canvas.restoreToCount(saveCount);
+    }
+}
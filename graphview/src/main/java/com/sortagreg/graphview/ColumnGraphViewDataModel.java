@@ -0,0 +1,154 @@
+package com.sortagreg.graphview;
+
+import android.graphics.Paint;
+
+import com.sortagreg.graphview.core.ColumnTable;
+
+/**
+ * Data set drawn from one column of a ColumnTable, used in GraphView
+ *
+ * Every column of a table shares the X values of the table instead of keeping its own.  When
+ * more than one column of a table is drawn on a graph, the visible rows and the X position of
+ * every row are worked out once per frame for all of them.
+ *
+ * Add rows to the table, not to the data set.  Call invalidate() on the GraphView showing this
+ * data set after changing the table.  setData() and append() copy the column into memory the
+ * first time they are called, from then on the data set no longer follows the table and is kept
+ * like a GraphViewDataModel.
+ */
+public class ColumnGraphViewDataModel extends GraphViewDataModel {
+    private final ColumnTable table;
+    private final int column;
+
+    /**
+     * Constructor for a data set drawn from a column of a table
+     *
+     * @param table table holding the data
+     * @param column index of the Y column to draw, as returned by ColumnTable.addColumn()
+     * @param paint Paint object to specify the properties of how the data should be drawn
+     * @param graphType Type of graph to draw this data set as
+     */
+    public ColumnGraphViewDataModel(ColumnTable table, int column, Paint paint, Integer graphType) {
+        super(paint, graphType);
+        if (column < 0 || column >= table.getColumnCount()) {
+            throw new IllegalArgumentException("The table has no column " + column);
+        }
+        this.table = table;
+        this.column = column;
+    }
+
+    /**
+     * @return ColumnTable the data set is drawn from, null once it was copied into memory
+     */
+    @Override
+    public ColumnTable getColumnTable() {
+        return isArrayBacked() ? null : table;
+    }
+
+    /**
+     * Returns the index of the Y column drawn
+     *
+     * @return int column
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    @Override
+    public int size() {
+        return isArrayBacked() ? super.size() : table.size();
+    }
+
+    @Override
+    public float getX(int index) {
+        return isArrayBacked() ? super.getX(index) : table.getX(index);
+    }
+
+    @Override
+    public float getY(int index) {
+        return isArrayBacked() ? super.getY(index) : table.getY(column, index);
+    }
+
+    /**
+     * Returns the X values of the table, shared with every other column.
+     *
+     * @return float[] X values
+     */
+    @Override
+    public float[] getXValues() {
+        return isArrayBacked() ? super.getXValues() : table.getXValues();
+    }
+
+    @Override
+    public float[] getYValues() {
+        return isArrayBacked() ? super.getYValues() : table.getYValues(column);
+    }
+
+    /**
+     * Recomputes everything derived from the table, for every column.
+     */
+    @Override
+    public void notifyDataChanged() {
+        if (isArrayBacked()) {
+            super.notifyDataChanged();
+        } else {
+            table.notifyDataChanged();
+        }
+    }
+
+    /**
+     * Changes whenever the table or this data set changes.
+     *
+     * @return int version of the data
+     */
+    @Override
+    public int getVersion() {
+        return table.getVersion() + super.getVersion();
+    }
+
+    /**
+     * Rows are added to the table without going through the data set, so the level of detail
+     * index is only kept once the column was copied into memory.
+     *
+     * @return boolean true once the data set no longer follows the table
+     */
+    @Override
+    public boolean isLevelOfDetailSupported() {
+        return isArrayBacked();
+    }
+
+    @Override
+    public int ceilingIndex(float x) {
+        return isArrayBacked() ? super.ceilingIndex(x) : table.ceilingIndex(x);
+    }
+
+    @Override
+    public int floorIndex(float x) {
+        return isArrayBacked() ? super.floorIndex(x) : table.floorIndex(x);
+    }
+
+    @Override
+    public boolean isXAscending() {
+        return isArrayBacked() ? super.isXAscending() : table.isXAscending();
+    }
+
+    @Override
+    public float getMinX() {
+        return isArrayBacked() ? super.getMinX() : table.getMinX();
+    }
+
+    @Override
+    public float getMaxX() {
+        return isArrayBacked() ? super.getMaxX() : table.getMaxX();
+    }
+
+    @Override
+    public float getMinY() {
+        return isArrayBacked() ? super.getMinY() : table.getMinY(column);
+    }
+
+    @Override
+    public float getMaxY() {
+        return isArrayBacked() ? super.getMaxY() : table.getMaxY(column);
+    }
+}
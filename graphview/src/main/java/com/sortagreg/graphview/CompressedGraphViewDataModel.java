@@ -0,0 +1,161 @@
+package com.sortagreg.graphview;
+
+import android.graphics.Paint;
+
+import com.sortagreg.graphview.core.CompressedPoints;
+
+/**
+ * Append-only data set kept compressed in memory, used in GraphView
+ *
+ * Meant for long histories, such as days of samples from a sensor.  The points are kept in a
+ * CompressedPoints store, in blocks that are only decoded when GraphView draws points inside
+ * them.  The level of detail index is enabled, with DECIMATION_MIN_MAX, and built from whole
+ * blocks, so a zoomed out graph is drawn from the first, lowest, highest and last point of every
+ * block without decoding it, and the index adds almost nothing to the memory of the data set.
+ * getXValues() and getYValues() decode every point into new arrays.
+ */
+public class CompressedGraphViewDataModel extends GraphViewDataModel {
+    private final CompressedPoints points = new CompressedPoints();
+
+    /**
+     * Constructor for an empty data set
+     *
+     * @param paint Paint object to specify the properties of how the data should be drawn
+     * @param graphType Type of graph to draw this data set as
+     */
+    public CompressedGraphViewDataModel(Paint paint, Integer graphType) {
+        super(paint, graphType);
+        setDecimationMode(DECIMATION_MIN_MAX);
+        setLevelOfDetailEnabled(true);
+    }
+
+    /**
+     * Returns the store the points are kept in
+     *
+     * @return CompressedPoints
+     */
+    public CompressedPoints getPoints() {
+        return points;
+    }
+
+    @Override
+    public int size() {
+        return points.size();
+    }
+
+    @Override
+    public float getX(int index) {
+        return points.getX(index);
+    }
+
+    @Override
+    public float getY(int index) {
+        return points.getY(index);
+    }
+
+    /**
+     * Replace the data set with a pair of columns.  The points are compressed, the arrays are not kept.
+     *
+     * @param xSet float[] of X values
+     * @param ySet float[] of Y values, one for every point
+     */
+    @Override
+    public void setData(float[] xSet, float[] ySet) {
+        if (xSet.length < ySet.length) {
+            throw new IllegalArgumentException("xSet has " + xSet.length + " values, ySet has " + ySet.length);
+        }
+        boolean levelOfDetail = isLevelOfDetailEnabled();
+        setLevelOfDetailEnabled(false);
+        points.clear();
+        for (int i = 0; i < ySet.length; i++) {
+            points.append(xSet[i], ySet[i]);
+        }
+        // Built once from the block headers instead of point by point
+        setLevelOfDetailEnabled(levelOfDetail);
+        incrementVersion();
+    }
+
+    /**
+     * Add a point to the end of the data set.
+     *
+     * @param x X value
+     * @param y Y value
+     */
+    @Override
+    public void append(float x, float y) {
+        points.append(x, y);
+        indexAppendedPoint(points.size() - 1, y);
+        incrementVersion();
+    }
+
+    /**
+     * Removes all points.
+     */
+    public void clear() {
+        setData(new float[0], new float[0]);
+    }
+
+    /**
+     * The points can only be changed through this data set, so there is nothing to recompute.
+     * Only marks the data set as changed so it is drawn again.
+     */
+    @Override
+    public void notifyDataChanged() {
+        incrementVersion();
+    }
+
+    /**
+     * The level of detail index starts at buckets of one block, which are drawn from the block
+     * headers alone.
+     *
+     * @return int CompressedPoints.BLOCK_SIZE
+     */
+    @Override
+    protected int getLevelOfDetailBucketSize() {
+        return CompressedPoints.BLOCK_SIZE;
+    }
+
+    /**
+     * Approximate memory taken by the points
+     *
+     * @return long bytes
+     */
+    public long getEncodedBytes() {
+        return points.getEncodedBytes();
+    }
+
+    @Override
+    public int ceilingIndex(float x) {
+        return points.ceilingIndex(x);
+    }
+
+    @Override
+    public int floorIndex(float x) {
+        return points.floorIndex(x);
+    }
+
+    @Override
+    public boolean isXAscending() {
+        return points.isXAscending();
+    }
+
+    @Override
+    public float getMinX() {
+        return points.getMinX();
+    }
+
+    @Override
+    public float getMaxX() {
+        return points.getMaxX();
+    }
+
+    @Override
+    public float getMinY() {
+        return points.getMinY();
+    }
+
+    @Override
+    public float getMaxY() {
+        return points.getMaxY();
+    }
+}
@@ -0,0 +1,353 @@
+package com.sortagreg.graphview;
+
+import android.graphics.Paint;
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.Nullable;
+
+import com.sortagreg.graphview.core.DelimitedReader;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Imports CSV and TSV files into GraphViewDataModels on a background thread
+ *
+ * Pick the columns to import with addColumnPair(), every pair becomes one data set.  The numbers
+ * are parsed straight into growable float columns by a DelimitedReader, without a String per
+ * line.  Rows where the X or Y field of a pair is missing or not a number are left out of that
+ * data set, which also skips header lines.
+ *
+ * With a live GraphView set, the data sets are added to it when the import starts and the rows
+ * are appended to them in chunks as they are read, so a long file is drawn while it loads.  The
+ * import thread only keeps the rows of the chunk it is reading, the rest are in the data sets.
+ *
+ * The Listener is called on the main thread.  An importer is used for one import only.
+ */
+public class DelimitedImporter {
+    public static final int DEFAULT_CHUNK_ROWS = 16384;
+
+    /**
+     * Used as the X column of a pair to use the index of each point as its X value.
+     */
+    public static final int POINT_INDEX = -1;
+
+    /**
+     * Callbacks of an import, all made on the main thread.
+     */
+    public interface Listener {
+        /**
+         * @param bytesRead bytes read so far
+         * @param totalBytes size of the input, -1 if it is not known
+         */
+        void onProgress(long bytesRead, long totalBytes);
+
+        /**
+         * @param dataModels one data set for every column pair, in the order they were added
+         */
+        void onComplete(List<GraphViewDataModel> dataModels);
+
+        void onError(IOException e);
+    }
+
+    private static ExecutorService importExecutor;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Column> columns = new ArrayList<>();
+    private int delimiter = DelimitedReader.COMMA_OR_TAB;
+    private int chunkRows = DEFAULT_CHUNK_ROWS;
+    private GraphView liveGraphView;
+    private volatile boolean cancelled;
+    private boolean started;
+
+    /**
+     * Adds a data set to import.
+     *
+     * @param xColumn index of the column holding the X values, or POINT_INDEX
+     * @param yColumn index of the column holding the Y values
+     * @param paint Paint object to specify the properties of how the data should be drawn
+     * @param graphType Type of graph to draw this data set as
+     */
+    public void addColumnPair(int xColumn, int yColumn, Paint paint, Integer graphType) {
+        if (started) throw new IllegalStateException("The import has already started");
+        if (xColumn < POINT_INDEX || yColumn < 0) {
+            throw new IllegalArgumentException("Invalid column pair " + xColumn + ", " + yColumn);
+        }
+        columns.add(new Column(xColumn, yColumn, paint, graphType));
+    }
+
+    /**
+     * Sets the character fields are separated by, commas and tabs by default.
+     *
+     * @param delimiter delimiting character, or DelimitedReader.COMMA_OR_TAB
+     */
+    public void setDelimiter(int delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * Sets how many rows are read between progress reports and live updates.
+     *
+     * @param chunkRows
+     */
+    public void setChunkRows(int chunkRows) {
+        if (chunkRows < 1) throw new IllegalArgumentException("chunkRows must be at least 1, was " + chunkRows);
+        this.chunkRows = chunkRows;
+    }
+
+    /**
+     * Sets a GraphView to show the data sets on while they are imported.
+     *
+     * @param liveGraphView GraphView to add the data sets to, null to only hand them over at the end
+     */
+    public void setLiveGraphView(@Nullable GraphView liveGraphView) {
+        this.liveGraphView = liveGraphView;
+    }
+
+    /**
+     * Starts importing a file.  Must be called on the main thread.
+     *
+     * @param file CSV or TSV file
+     * @param listener receives the progress and the data sets
+     */
+    public void start(final File file, final Listener listener) {
+        start(new Source() {
+            @Override
+            public InputStream open() throws IOException {
+                return new FileInputStream(file);
+            }
+        }, file.length(), listener);
+    }
+
+    /**
+     * Starts importing a stream.  Must be called on the main thread.
+     *
+     * @param in CSV or TSV stream, closed when the import ends
+     * @param totalBytes length of the stream, -1 if it is not known
+     * @param listener receives the progress and the data sets
+     */
+    public void start(final InputStream in, long totalBytes, Listener listener) {
+        start(new Source() {
+            @Override
+            public InputStream open() {
+                return in;
+            }
+        }, totalBytes, listener);
+    }
+
+    /**
+     * Stops the import.  No more callbacks are made, data sets already shown on the live
+     * GraphView keep the rows they have.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    private void start(final Source source, final long totalBytes, final Listener listener) {
+        if (started) throw new IllegalStateException("The import has already started");
+        if (columns.isEmpty()) throw new IllegalStateException("No column pairs to import");
+        started = true;
+        if (liveGraphView != null) {
+            for (Column column : columns) {
+                column.model = new GraphViewDataModel(new float[0], new float[0], column.paint, column.graphType);
+                liveGraphView.addToDataSetList(column.model);
+            }
+        }
+        getImportExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    InputStream in = source.open();
+                    try {
+                        read(in, totalBytes, listener);
+                    } finally {
+                        in.close();
+                    }
+                } catch (final IOException e) {
+                    if (cancelled) return;
+                    mainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (!cancelled) listener.onError(e);
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    /**
+     * Reads every row on the import thread, handing finished chunks to the main thread.
+     */
+    private void read(InputStream in, long totalBytes, Listener listener) throws IOException {
+        DelimitedReader reader = new DelimitedReader(in);
+        reader.setDelimiter(delimiter);
+        int widest = 0;
+        for (Column column : columns) {
+            widest = Math.max(widest, Math.max(column.xColumn, column.yColumn) + 1);
+        }
+        float[] row = new float[widest];
+        int fieldCount;
+        while (!cancelled && (fieldCount = reader.readRow(row)) >= 0) {
+            for (int i = 0; i < columns.size(); i++) {
+                Column column = columns.get(i);
+                if (column.yColumn >= fieldCount || column.xColumn >= fieldCount) continue;
+                float x = column.xColumn == POINT_INDEX ? column.count : row[column.xColumn];
+                float y = row[column.yColumn];
+                if (Float.isNaN(x) || Float.isNaN(y)) continue;
+                column.add(x, y);
+            }
+            if (reader.getRowCount() % chunkRows == 0) {
+                mainHandler.post(new Chunk(reader.getBytesRead(), totalBytes, listener, false));
+            }
+        }
+        if (cancelled) return;
+        if (liveGraphView == null) {
+            for (Column column : columns) {
+                column.trim();
+            }
+        }
+        mainHandler.post(new Chunk(reader.getBytesRead(), totalBytes, listener, true));
+    }
+
+    private static synchronized ExecutorService getImportExecutor() {
+        if (importExecutor == null) {
+            importExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "GraphView import");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return importExecutor;
+    }
+
+    private interface Source {
+        InputStream open() throws IOException;
+    }
+
+    /**
+     * Rows read since the last chunk, handed to the main thread.
+     *
+     * The arrays of the columns are handed over with the chunk, the import thread goes on writing
+     * into new ones.  After the last chunk the columns keep no arrays at all.
+     */
+    private class Chunk implements Runnable {
+        private final long bytesRead;
+        private final long totalBytes;
+        private final Listener listener;
+        private final boolean last;
+        private final float[][] xValues;
+        private final float[][] yValues;
+        private final int[] sizes;
+
+        Chunk(long bytesRead, long totalBytes, Listener listener, boolean last) {
+            this.bytesRead = bytesRead;
+            this.totalBytes = totalBytes;
+            this.listener = listener;
+            this.last = last;
+            int count = liveGraphView != null ? columns.size() : 0;
+            xValues = new float[count][];
+            yValues = new float[count][];
+            sizes = new int[count];
+            for (int i = 0; i < count; i++) {
+                Column column = columns.get(i);
+                xValues[i] = column.xValues;
+                yValues[i] = column.yValues;
+                sizes[i] = column.size;
+                column.handOver(last);
+            }
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) return;
+            for (int i = 0; i < xValues.length; i++) {
+                GraphViewDataModel model = columns.get(i).model;
+                for (int point = 0; point < sizes[i]; point++) {
+                    model.append(xValues[i][point], yValues[i][point]);
+                }
+            }
+            if (liveGraphView != null && xValues.length > 0) liveGraphView.invalidate();
+            listener.onProgress(bytesRead, totalBytes);
+            if (last) {
+                List<GraphViewDataModel> dataModels = new ArrayList<>(columns.size());
+                for (Column column : columns) {
+                    if (column.model == null) {
+                        column.model = new GraphViewDataModel(column.xValues, column.yValues, column.paint, column.graphType);
+                    }
+                    dataModels.add(column.model);
+                }
+                listener.onComplete(dataModels);
+            }
+        }
+    }
+
+    /**
+     * One column pair and the points read for it so far.
+     */
+    private static class Column {
+        final int xColumn;
+        final int yColumn;
+        final Paint paint;
+        final Integer graphType;
+        float[] xValues = new float[1024];
+        float[] yValues = new float[1024];
+        // Points in the arrays
+        int size;
+        // Points read, including those already handed to the main thread
+        int count;
+        GraphViewDataModel model;
+
+        Column(int xColumn, int yColumn, Paint paint, Integer graphType) {
+            this.xColumn = xColumn;
+            this.yColumn = yColumn;
+            this.paint = paint;
+            this.graphType = graphType;
+        }
+
+        void add(float x, float y) {
+            if (size == xValues.length) {
+                int capacity = size + (size >> 1);
+                xValues = Arrays.copyOf(xValues, capacity);
+                yValues = Arrays.copyOf(yValues, capacity);
+            }
+            xValues[size] = x;
+            yValues[size] = y;
+            size++;
+            count++;
+        }
+
+        /**
+         * Lets go of the points handed to the live data set, starting a new chunk unless it was
+         * the last one.
+         */
+        void handOver(boolean last) {
+            if (last) {
+                xValues = null;
+                yValues = null;
+            } else {
+                xValues = new float[xValues.length];
+                yValues = new float[yValues.length];
+            }
+            size = 0;
+        }
+
+        void trim() {
+            if (size != xValues.length) {
+                xValues = Arrays.copyOf(xValues, size);
+                yValues = Arrays.copyOf(yValues, size);
+            }
+        }
+    }
+}
@@ -0,0 +1,601 @@
+package com.sortagreg.graphview;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import androidx.annotation.Nullable;
+import android.util.AttributeSet;
+import android.view.Choreographer;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+
+import com.sortagreg.graphview.core.GraphFrame;
+import com.sortagreg.graphview.core.GraphPainter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.sortagreg.graphview.GraphView.*;
+
+/**
+ * GraphSurfaceView - GraphView that draws on its own thread
+ *
+ * Draws the same graph as GraphView, from the same GraphViewDataModels and settings, onto a
+ * Surface from a dedicated render thread.  The render thread is paced by Choreographer frame
+ * callbacks and draws at most getTargetFps() frames per second, and only when a data set, a
+ * setting or the size changed, so a busy main thread does not make live data stutter.  While
+ * nothing changes no frame callback is posted and the render thread sleeps.
+ *
+ * Setters can be called from the main thread at any time, they never wait for a frame to be
+ * drawn.  Live data sets should be fed through a SampleChannel, the render thread appends its
+ * samples between frames so a projection never reads a data set that is being changed, and a
+ * frame is requested whenever samples arrive.  Call invalidate() after changing a data set
+ * directly, the view can not tell it changed otherwise.  Data sets
+ * are not locked, so one changed directly from another thread can race with the render thread.
+ * The projection reads the version of every data set before and after, and a frame whose data
+ * changed in between, or that failed on a half written data set, is thrown away and projected
+ * again on the next frame callback.  An exception from a frame whose data did not change is a
+ * bug and is thrown on the render thread.  A change that is still being written when the versions are
+ * read again can show up half done in one frame, until the next frame draws it whole.
+ *
+ * Reductions of the data sets are kept in the GraphFrame of the render thread, so drawing never
+ * writes to the data sets.
+ */
+public class GraphSurfaceView extends SurfaceView implements SurfaceHolder.Callback {
+    private Context context;
+
+    public static final int DEFAULT_TARGET_FPS = 60;
+    // Vsync timestamps jitter, a frame that comes this much early is still drawn
+    private static final long FRAME_SLACK_NANOS = 2000000L;
+
+    // Written on the main thread, copied by the render thread at the start of a frame
+    private final Object lock = new Object();
+    private final GraphPainter<Paint> settings = new GraphPainter<>(new CanvasRenderer());
+    private float graphPaddingFactor;
+    private int viewportMode = VIEWPORT_AUTO_FIT;
+    private float viewportMinX;
+    private float viewportMaxX;
+    private float viewportMinY;
+    private float viewportMaxY;
+    private int graphBackgroundColor = Color.WHITE;
+    private final List<GraphViewDataModel> dataSetList = new ArrayList<>();
+    private final List<GraphViewDataModel> secondaryDataSetList = new ArrayList<>();
+    // Added on the main thread, drained on the render thread at the start of every frame callback
+    private final List<SampleChannel> sampleChannels = new CopyOnWriteArrayList<>();
+    private int surfaceWidth;
+    private int surfaceHeight;
+    // Incremented whenever a setting that changes the projection changes
+    private int configVersion;
+    // Incremented whenever anything that is drawn changes
+    private int settingsVersion;
+
+    // Only used on the render thread
+    private final CanvasRenderer renderer = new CanvasRenderer();
+    private final GraphPainter<Paint> painter = new GraphPainter<>(renderer);
+    private final GraphFrame<Paint> frame = new GraphFrame<>();
+    private int drawnSettingsVersion = -1;
+    private int backgroundColor;
+    private long lastFrameTimeNanos;
+    private Choreographer choreographer;
+
+    private int targetFps;
+    private volatile long frameIntervalNanos;
+    private volatile boolean rendering;
+    private HandlerThread renderThread;
+    private volatile Handler renderHandler;
+    // Set while a frame callback is posted or about to be, cleared when the frame starts
+    private final AtomicBoolean frameRequested = new AtomicBoolean();
+
+    private final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (!rendering) return;
+            if (frameTimeNanos - lastFrameTimeNanos < frameIntervalNanos - FRAME_SLACK_NANOS) {
+                // Too early for the target rate, the frame is still wanted on a later vsync
+                choreographer.postFrameCallback(this);
+                return;
+            }
+            lastFrameTimeNanos = frameTimeNanos;
+            // Changes made from here on request a frame of their own
+            frameRequested.set(false);
+            if (!renderFrame()) requestFrame();
+        }
+    };
+
+    // Runs on the render thread, Choreographer.getInstance() belongs to the thread that calls it
+    private final Runnable scheduleFrame = new Runnable() {
+        @Override
+        public void run() {
+            if (rendering) choreographer.postFrameCallback(frameCallback);
+        }
+    };
+
+    private final SampleChannel.Owner sampleChannelOwner = new SampleChannel.Owner() {
+        @Override
+        public void onSamplesOffered() {
+            requestFrame();
+        }
+    };
+
+    /**
+     * Constructor for a GraphSurfaceView in code.
+     *
+     * @param context
+     */
+    public GraphSurfaceView(Context context) {
+        super(context);
+        this.context = context;
+        init(null);
+    }
+
+    /**
+     * Constructor for a GraphSurfaceView in XML.
+     *
+     * Takes the same attributes as GraphView, plus targetFps.
+     *
+     * @param context
+     * @param attrs values from the XML set.
+     */
+    public GraphSurfaceView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        this.context = context;
+        init(attrs);
+    }
+
+    private void init(@Nullable AttributeSet attrs) {
+        setTargetFps(DEFAULT_TARGET_FPS);
+        getHolder().addCallback(this);
+
+        if (attrs == null) return;
+        TypedArray typedArray = context.obtainStyledAttributes(attrs, R.styleable.GraphView);
+        graphPaddingFactor = typedArray.getFloat(R.styleable.GraphView_graphPaddingFactor, DEFAULT_GRAPH_PADDING_FACTOR);
+        loadPainterAttributes(typedArray, settings);
+        setTargetFps(typedArray.getInt(R.styleable.GraphView_targetFps, DEFAULT_TARGET_FPS));
+        typedArray.recycle();
+    }
+
+    @Override
+    public void surfaceCreated(SurfaceHolder holder) {
+        startRendering();
+    }
+
+    @Override
+    public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+        synchronized (lock) {
+            surfaceWidth = width;
+            surfaceHeight = height;
+            configChanged();
+        }
+    }
+
+    /**
+     * Stops the render thread.  Waits for the frame being drawn, if any, because the Surface can
+     * not be used after this returns.
+     */
+    @Override
+    public void surfaceDestroyed(SurfaceHolder holder) {
+        stopRendering();
+    }
+
+    private void startRendering() {
+        if (renderThread != null) return;
+        rendering = true;
+        renderThread = new HandlerThread("GraphSurfaceView render", Process.THREAD_PRIORITY_DISPLAY);
+        renderThread.start();
+        Handler handler = new Handler(renderThread.getLooper());
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                choreographer = Choreographer.getInstance();
+                lastFrameTimeNanos = 0;
+                drawnSettingsVersion = -1;
+            }
+        });
+        renderHandler = handler;
+        frameRequested.set(false);
+        requestFrame();
+    }
+
+    /**
+     * Makes sure a frame is drawn on one of the next vsyncs.  Safe to call from any thread, does
+     * nothing if a frame is already requested.
+     */
+    private void requestFrame() {
+        Handler handler = renderHandler;
+        if (handler != null && frameRequested.compareAndSet(false, true)) {
+            handler.post(scheduleFrame);
+        }
+    }
+
+    /**
+     * Draws a new frame.  Call it after changing a data set directly, changes made through a
+     * SampleChannel and setters request a frame by themselves.
+     */
+    @Override
+    public void invalidate() {
+        super.invalidate();
+        requestFrame();
+    }
+
+    private void stopRendering() {
+        if (renderThread == null) return;
+        rendering = false;
+        renderHandler = null;
+        renderThread.quitSafely();
+        try {
+            renderThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        renderThread = null;
+    }
+
+    /**
+     * Projects and draws a frame if anything changed since the last one.  Runs on the render
+     * thread, the lock is only held while the settings and data set lists are copied.
+     *
+     * @return boolean false if the frame has to be drawn again
+     */
+    private boolean renderFrame() {
+        for (int i = 0; i < sampleChannels.size(); i++) {
+            sampleChannels.get(i).drain();
+        }
+        synchronized (lock) {
+            if (surfaceWidth <= 0 || surfaceHeight <= 0) return true;
+            if (drawnSettingsVersion == settingsVersion
+                    && frame.isCurrent(configVersion, dataSetList, secondaryDataSetList)) return true;
+            if (drawnSettingsVersion != settingsVersion) {
+                painter.copySettingsFrom(settings);
+                backgroundColor = graphBackgroundColor;
+                drawnSettingsVersion = settingsVersion;
+            }
+            captureFrameInputs();
+        }
+
+        try {
+            // False if a data set changed while it was projected, the frame is then not current
+            // and is projected again on the next callback
+            if (!frame.project()) return false;
+        } catch (RuntimeException e) {
+            // Reading a data set while another thread modifies it can throw, anything else is a bug
+            if (!frame.isDataChanged()) throw e;
+            return false;
+        }
+
+        SurfaceHolder holder = getHolder();
+        Canvas canvas = holder.lockCanvas();
+        if (canvas == null) {
+            drawnSettingsVersion = -1;
+            return false;
+        }
+        try {
+            canvas.drawColor(backgroundColor);
+            renderer.setCanvas(canvas);
+            painter.draw(renderer, frame);
+        } catch (RuntimeException e) {
+            // Unfolded labels read the first data set, it may have been modified since
+            if (!frame.isDataChanged()) throw e;
+            drawnSettingsVersion = -1;
+            return false;
+        } finally {
+            holder.unlockCanvasAndPost(canvas);
+        }
+        return true;
+    }
+
+    /**
+     * Copies everything a projection needs into the frame.  Called with the lock held.
+     */
+    private void captureFrameInputs() {
+        frame.setSize(surfaceWidth, surfaceHeight);
+        frame.setMargins(settings.getTopAxisMargin(), settings.getBottomAxisMargin(), settings.getLeftAxisMargin(), settings.getRightAxisMargin());
+        frame.setGraphPaddingFactor(graphPaddingFactor);
+        frame.setViewport(viewportMode, viewportMinX, viewportMaxX, viewportMinY, viewportMaxY);
+        frame.setConfigVersion(configVersion);
+        frame.setDataSets(dataSetList, secondaryDataSetList);
+        frame.setCancelled(false);
+    }
+
+    /**
+     * Sets the most frames per second the render thread draws.  Frames are only drawn when
+     * something changed, so the actual rate can be lower.
+     *
+     * @param targetFps frames per second, at least 1
+     */
+    public void setTargetFps(int targetFps) {
+        if (targetFps < 1) {
+            throw new IllegalArgumentException("targetFps must be at least 1, was " + targetFps);
+        }
+        this.targetFps = targetFps;
+        this.frameIntervalNanos = 1000000000L / targetFps;
+    }
+
+    public int getTargetFps() {
+        return targetFps;
+    }
+
+    /**
+     * Sets the color the Surface is cleared to before every frame.  Use this instead of
+     * setBackgroundColor(), a View background is drawn over the Surface.
+     *
+     * @param graphBackgroundColor color as an ARGB int
+     */
+    public void setGraphBackgroundColor(int graphBackgroundColor) {
+        synchronized (lock) {
+            this.graphBackgroundColor = graphBackgroundColor;
+            settingsChanged();
+        }
+    }
+
+    public int getGraphBackgroundColor() {
+        synchronized (lock) {
+            return graphBackgroundColor;
+        }
+    }
+
+    public void setLeftSideLabels(boolean leftSideLabels) {
+        synchronized (lock) {
+            settings.setLeftSideLabels(leftSideLabels);
+            settingsChanged();
+        }
+    }
+
+    /**
+     * Switch the graph between the different label styles
+     *
+     * @param labelStyle
+     */
+    public void setLabelStyle(int labelStyle) {
+        synchronized (lock) {
+            settings.setLabelStyle(labelStyle);
+            settingsChanged();
+        }
+    }
+
+    public void setShouldDrawBox(boolean shouldDrawBox) {
+        synchronized (lock) {
+            settings.setShouldDrawBox(shouldDrawBox);
+            settingsChanged();
+        }
+    }
+
+    public void setxAxisLabels(boolean xAxisLabels) {
+        synchronized (lock) {
+            settings.setXAxisLabels(xAxisLabels);
+            settingsChanged();
+        }
+    }
+
+    public void setRightSideLabels(boolean rightSideLabels) {
+        synchronized (lock) {
+            settings.setRightSideLabels(rightSideLabels);
+            settingsChanged();
+        }
+    }
+
+    public void setTitle(String title) {
+        synchronized (lock) {
+            settings.setTitle(title);
+            settingsChanged();
+        }
+    }
+
+    public void setRightSideText(String rightSideText) {
+        synchronized (lock) {
+            settings.setRightSideText(rightSideText);
+            settingsChanged();
+        }
+    }
+
+    public void setLeftSideText(String leftSideText) {
+        synchronized (lock) {
+            settings.setLeftSideText(leftSideText);
+            settingsChanged();
+        }
+    }
+
+    public void setBottomText(String bottomText) {
+        synchronized (lock) {
+            settings.setBottomText(bottomText);
+            settingsChanged();
+        }
+    }
+
+    /**
+     * Sets the color of the labels, titles and axis text.
+     *
+     * @param labelTextColor color as an ARGB int
+     */
+    public void setLabelTextColor(int labelTextColor) {
+        synchronized (lock) {
+            settings.setLabelTextColor(labelTextColor);
+            settingsChanged();
+        }
+    }
+
+    /**
+     * Sets the size of the labels, titles and axis text.
+     *
+     * @param labelTextSize text size in pixels
+     */
+    public void setLabelTextSize(float labelTextSize) {
+        synchronized (lock) {
+            settings.setLabelTextSize(labelTextSize);
+            settingsChanged();
+        }
+    }
+
+    public void setTopAxisMargin(float topAxisMargin) {
+        synchronized (lock) {
+            settings.setTopAxisMargin(topAxisMargin);
+            configChanged();
+        }
+    }
+
+    public void setBottomAxisMargin(float bottomAxisMargin) {
+        synchronized (lock) {
+            settings.setBottomAxisMargin(bottomAxisMargin);
+            configChanged();
+        }
+    }
+
+    public void setLeftAxisMargin(float leftAxisMargin) {
+        synchronized (lock) {
+            settings.setLeftAxisMargin(leftAxisMargin);
+            configChanged();
+        }
+    }
+
+    public void setRightAxisMargin(float rightAxisMargin) {
+        synchronized (lock) {
+            settings.setRightAxisMargin(rightAxisMargin);
+            configChanged();
+        }
+    }
+
+    /**
+     * Update how much padding a graph should have.
+     *
+     * @param graphPaddingFactor float value from 0.0(no padding) or greater than.
+     */
+    public void setGraphPaddingFactor(float graphPaddingFactor) {
+        synchronized (lock) {
+            this.graphPaddingFactor = graphPaddingFactor;
+            configChanged();
+        }
+    }
+
+    /**
+     * Show only part of the data, see GraphView.setViewport().
+     *
+     * @param minX X value on the left edge of the graph
+     * @param maxX X value on the right edge of the graph
+     * @param minY Y value on the bottom edge of the graph
+     * @param maxY Y value on the top edge of the graph
+     */
+    public void setViewport(float minX, float maxX, float minY, float maxY) {
+        if (!(maxX > minX) || !(maxY > minY)) {
+            throw new IllegalArgumentException("Viewport must have a positive width and height");
+        }
+        synchronized (lock) {
+            this.viewportMinX = minX;
+            this.viewportMaxX = maxX;
+            this.viewportMinY = minY;
+            this.viewportMaxY = maxY;
+            this.viewportMode = VIEWPORT_FIXED;
+            configChanged();
+        }
+    }
+
+    /**
+     * Show only part of the X range of the data, with the Y range fitted to the points inside it.
+     *
+     * @param minX X value on the left edge of the graph
+     * @param maxX X value on the right edge of the graph
+     */
+    public void setViewportX(float minX, float maxX) {
+        if (!(maxX > minX)) {
+            throw new IllegalArgumentException("Viewport must have a positive width");
+        }
+        synchronized (lock) {
+            this.viewportMinX = minX;
+            this.viewportMaxX = maxX;
+            this.viewportMode = VIEWPORT_FIXED_X;
+            configChanged();
+        }
+    }
+
+    /**
+     * Switch between showing all of the data and the viewport.
+     * Use the VIEWPORT constants in GraphView.
+     *
+     * @param viewportMode
+     */
+    public void setViewportMode(int viewportMode) {
+        synchronized (lock) {
+            this.viewportMode = viewportMode;
+            configChanged();
+        }
+    }
+
+    /**
+     * Called with the lock held after a setting that is only drawn changed.
+     */
+    private void settingsChanged() {
+        settingsVersion++;
+        requestFrame();
+    }
+
+    /**
+     * Called with the lock held after a setting that changes the projection changed.
+     */
+    private void configChanged() {
+        configVersion++;
+        settingsChanged();
+    }
+
+    /**
+     * Add a data set to the graph to be drawn.
+     *
+     * @param dataSet
+     */
+    public void addToDataSetList(GraphViewDataModel dataSet) {
+        synchronized (lock) {
+            this.dataSetList.add(dataSet);
+        }
+        requestFrame();
+    }
+
+    public void addToDataSetListBulk(List<GraphViewDataModel> dataSetList) {
+        synchronized (lock) {
+            this.dataSetList.addAll(dataSetList);
+        }
+        requestFrame();
+    }
+
+    public void addToSecondaryDataSetList(GraphViewDataModel dataSet) {
+        synchronized (lock) {
+            this.secondaryDataSetList.add(dataSet);
+        }
+        requestFrame();
+    }
+
+    public void addToSecondaryDataSetListBulk(List<GraphViewDataModel> dataSetList) {
+        synchronized (lock) {
+            this.secondaryDataSetList.addAll(dataSetList);
+        }
+        requestFrame();
+    }
+
+    /**
+     * Feeds a data set from other threads through a SampleChannel.
+     *
+     * Any number of threads can offer samples to the channel without taking a lock.  The render
+     * thread appends them to the data set at the start of every frame callback.  The data set must
+     * also be added to the graph, and must not be appended to directly while the channel is
+     * registered.
+     *
+     * @param channel SampleChannel, registered with one view at a time
+     */
+    public void addSampleChannel(SampleChannel channel) {
+        sampleChannels.add(channel);
+        channel.setOwner(sampleChannelOwner);
+        requestFrame();
+    }
+
+    /**
+     * Stops draining a SampleChannel.  Samples still waiting in it stay there.
+     *
+     * @param channel SampleChannel added with addSampleChannel()
+     */
+    public void removeSampleChannel(SampleChannel channel) {
+        if (sampleChannels.remove(channel)) channel.setOwner(null);
+    }
+}
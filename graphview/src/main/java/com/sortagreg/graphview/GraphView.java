@@ -1,20 +1,40 @@
 package com.sortagreg.graphview;
 
+import android.app.Activity;
 import android.content.Context;
+import android.content.ContextWrapper;
 import android.content.res.TypedArray;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.PointF;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.Parcel;
 import android.os.Parcelable;
+import android.os.Trace;
 import androidx.annotation.Nullable;
 import android.util.AttributeSet;
-import android.util.Log;
+import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewParent;
+
+import com.sortagreg.graphview.core.FrameTimeHistogram;
+import com.sortagreg.graphview.core.GraphFrame;
+import com.sortagreg.graphview.core.GraphPainter;
+import com.sortagreg.graphview.core.HitTester;
+import com.sortagreg.graphview.core.RenderMetrics;
+import com.sortagreg.graphview.core.Series;
+import com.sortagreg.graphview.core.StripChart;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.sortagreg.graphview.GraphViewDataModel.*;
 
@@ -29,42 +49,169 @@ public class GraphView extends View {
     private Context context;
     private static final String TAG = "GraphView";
 
-    // Configurables
-    private String title = "";
-    private String rightSideText = "";
-    private String leftSideText = "";
-    private String bottomText = "";
+    // Configurables, the titles, margins, labels and paints are kept by the painter
+    private final CanvasRenderer renderer = new CanvasRenderer();
+    private final GraphPainter<Paint> painter = new GraphPainter<>(renderer);
 
-    private Paint axisPaint = new Paint();
-    private Paint markerPaint = new Paint();
-    private Paint dataSetPaint = new Paint();
+    public static final int DEFAULT_LABEL_TEXT_COLOR = GraphPainter.DEFAULT_LABEL_TEXT_COLOR;
+    public static final float DEFAULT_LABEL_TEXT_SIZE = GraphPainter.DEFAULT_LABEL_TEXT_SIZE;
 
-    public static final float DEFAULT_TOP_MARGIN = 75f;
-    public static final float DEFAULT_BOTTOM_MARGIN = 175f;
-    public static final float DEFAULT_LEFT_MARGIN = 175f;
-    public static final float DEFAULT_RIGHT_MARGIN = 175f;
+    public static final float DEFAULT_TOP_MARGIN = GraphPainter.DEFAULT_TOP_MARGIN;
+    public static final float DEFAULT_BOTTOM_MARGIN = GraphPainter.DEFAULT_BOTTOM_MARGIN;
+    public static final float DEFAULT_LEFT_MARGIN = GraphPainter.DEFAULT_LEFT_MARGIN;
+    public static final float DEFAULT_RIGHT_MARGIN = GraphPainter.DEFAULT_RIGHT_MARGIN;
     public static final float DEFAULT_GRAPH_PADDING_FACTOR = 0f;
-    private float topAxisMargin;
-    private float bottomAxisMargin;
-    private float leftAxisMargin;
-    private float rightAxisMargin;
+    public static final float DEFAULT_TOUCH_RADIUS = 48f;
+    public static final int DEFAULT_CROSSHAIR_COLOR = Color.DKGRAY;
     private float graphPaddingFactor;
 
-    public static final int STANDARD_LABELS = 0;
-    public static final int UNFOLDED_LABELS = 1;
-    public static final int CUSTOM_LABELS = 2;
-    private int labelStyle;
-    private boolean leftSideLabels;
-    private boolean xAxisLabels;
-    private boolean rightSideLabels;
+    public static final int STANDARD_LABELS = GraphPainter.STANDARD_LABELS;
+    public static final int UNFOLDED_LABELS = GraphPainter.UNFOLDED_LABELS;
+    public static final int CUSTOM_LABELS = GraphPainter.CUSTOM_LABELS;
 
-    private boolean shouldDrawBox;
+    /**
+     * Used to specify which part of the data the graph shows.
+     *
+     * VIEWPORT_AUTO_FIT shows all of the data.  VIEWPORT_FIXED shows the X and Y range set with
+     * setViewport().  VIEWPORT_FIXED_X shows the X range set with setViewport() or setViewportX()
+     * and fits the Y range to the points inside it.
+     */
+    public static final int VIEWPORT_AUTO_FIT = GraphFrame.VIEWPORT_AUTO_FIT;
+    public static final int VIEWPORT_FIXED = GraphFrame.VIEWPORT_FIXED;
+    public static final int VIEWPORT_FIXED_X = GraphFrame.VIEWPORT_FIXED_X;
+    private int viewportMode = VIEWPORT_AUTO_FIT;
+    private float viewportMinX;
+    private float viewportMaxX;
+    private float viewportMinY;
+    private float viewportMaxY;
+
+    private List<GraphViewDataModel> dataSetList = new ArrayList<>();
+    private List<GraphViewDataModel> secondaryDataSetList = new ArrayList<>();
+    // Data sets are kept in RetainedDataSets across configuration changes under this key
+    private boolean retainDataSets;
+    private String retainedKey;
+
+    // While an Editor is open, setters only note that a redraw is needed
+    private boolean editing;
+    private boolean redrawPending;
+
+    // Samples offered to these from other threads are appended at the start of onDraw(), unless a
+    // projection is running
+    private final List<SampleChannel> sampleChannels = new ArrayList<>();
+    // Set by the first sample after a frame, so at most one redraw is posted per frame
+    private final AtomicBoolean sampleFramePending = new AtomicBoolean();
+    private final Runnable sampleFrameRunnable = new Runnable() {
+        @Override
+        public void run() {
+            invalidate();
+        }
+    };
+    private final SampleChannel.Owner sampleChannelOwner = new SampleChannel.Owner() {
+        @Override
+        public void onSamplesOffered() {
+            if (sampleFramePending.compareAndSet(false, true)) postOnAnimation(sampleFrameRunnable);
+        }
+    };
+
+    // Frames are projected into the back frame and drawn from the front frame
+    private GraphFrame<Paint> frontFrame = new GraphFrame<>();
+    private GraphFrame<Paint> backFrame = new GraphFrame<>();
+    // Incremented whenever a setting that changes the projection changes
+    private int configVersion;
+    private boolean asyncProjection;
+    private boolean projectionRunning;
+    private boolean projectionPending;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static ExecutorService projectionExecutor;
+
+    // Axes, grid, labels and titles are drawn to this bitmap and reused until they change
+    private boolean chromeCaching;
+    private Bitmap chromeBitmap;
+    private final CanvasRenderer chromeRenderer = new CanvasRenderer();
+    // Incremented whenever a setting that changes the labels or titles changes
+    private int chromeVersion;
+    // What the chrome bitmap was drawn for
+    private boolean chromeValid;
+    private int chromeDrawnVersion;
+    private int chromeDrawnConfigVersion;
+    private final GraphFrame.Range chromePrimaryRange = new GraphFrame.Range();
+    private final GraphFrame.Range chromeSecondaryRange = new GraphFrame.Range();
+    private GraphViewDataModel chromeLabelDataSet;
+    private int chromeLabelDataSetVersion;
+
+    // Strip chart mode, the plot area is kept in a bitmap that is shifted as the window scrolls
+    private StripChart<Paint> stripChart;
+    private final GraphFrame<Paint> stripFrame = new GraphFrame<>();
+    private Bitmap stripBitmap;
+    private Canvas stripCanvas;
+    // Shifted copies of the plot area are drawn into this one, then the two are swapped
+    private Bitmap stripBackBitmap;
+    private Canvas stripBackCanvas;
+    private final CanvasRenderer stripRenderer = new CanvasRenderer();
+    private int stripConfigVersion;
+
+    // Opt-in instrumentation, none of this is touched while it is off
+    private boolean renderMetricsEnabled;
+    private RenderMetricsListener renderMetricsListener;
+    private final RenderMetrics renderMetrics = new RenderMetrics();
+    private final FrameTimeHistogram frameTimeHistogram = new FrameTimeHistogram();
+    // The projection of the front frame is only reported with the first frame that draws it
+    private boolean frontFrameReported;
+    private volatile boolean traceEnabled;
+
+    // Touch crosshair, drawn over a copy of the data and chrome kept while a finger is down
+    private boolean crosshairEnabled;
+    private float touchRadius = DEFAULT_TOUCH_RADIUS;
+    private OnPointSelectedListener onPointSelectedListener;
+    private final HitTester<Paint> hitTester = new HitTester<>();
+    private final HitTester.Hit<Paint> crosshairHit = new HitTester.Hit<>();
+    private boolean crosshairShown;
+    private final Paint crosshairPaint = new Paint();
+    private Bitmap layerBitmap;
+    private Canvas layerCanvas;
+    // Incremented whenever the front frame is projected or replaced
+    private int frameSerial;
+    // What the layer bitmap was drawn for
+    private boolean layerValid;
+    private int layerFrameSerial;
+    private int layerChromeVersion;
+    private String crosshairText;
+    private float crosshairTouchX;
+    private float crosshairTouchY;
+    private Series<Paint> selectedDataSet;
+    private int selectedIndex;
 
-    private static final int DEFAULT_NUMBER_X_LABELS = 15;
-    private static final int DEFAULT_NUMBER_Y_LABELS = 10;
+    /**
+     * Receives the metrics of every frame GraphView draws.
+     */
+    public interface RenderMetricsListener {
+        /**
+         * Called on the main thread at the end of onDraw().
+         *
+         * @param metrics RenderMetrics of the frame, reused for the next frame so copy what you need
+         */
+        void onFrameRendered(RenderMetrics metrics);
+    }
 
-    private List<GraphViewDataModel> dataSetList;
-    private List<GraphViewDataModel> secondaryDataSetList;
+    /**
+     * Receives the point under the crosshair while the user drags a finger over the graph.
+     */
+    public interface OnPointSelectedListener {
+        /**
+         * Called on the main thread whenever the crosshair snaps to another point.
+         *
+         * @param dataSet GraphViewDataModel the point belongs to
+         * @param index index of the point in its data set
+         * @param x X value of the point, its index for an UNFOLDED_LINE
+         * @param y Y value of the point
+         */
+        void onPointSelected(GraphViewDataModel dataSet, int index, float x, float y);
+
+        /**
+         * Called when the finger is lifted, or leaves every point, and the crosshair is removed.
+         */
+        void onSelectionCleared();
+    }
 
     /**
      * Constructor for a GraphView in code.
@@ -106,33 +253,46 @@ public class GraphView extends View {
     private void init(@Nullable AttributeSet attrs) {
         // Enables custom attributes to be saved across app states
         setSaveEnabled(true);
+        crosshairPaint.setColor(DEFAULT_CROSSHAIR_COLOR);
+        crosshairPaint.setStrokeWidth(2f);
+        crosshairPaint.setAntiAlias(true);
+        crosshairPaint.setTextSize(DEFAULT_LABEL_TEXT_SIZE);
 
         // Init custom attributes from XML here
         if (attrs == null) return;
         TypedArray typedArray = context.obtainStyledAttributes(attrs, R.styleable.GraphView);
-        topAxisMargin = typedArray.getFloat(R.styleable.GraphView_axisMarginTop, DEFAULT_TOP_MARGIN);
-        bottomAxisMargin = typedArray.getFloat(R.styleable.GraphView_axisMarginBottom, DEFAULT_BOTTOM_MARGIN);
-        rightAxisMargin = typedArray.getFloat(R.styleable.GraphView_axisMarginRight, DEFAULT_RIGHT_MARGIN);
-        leftAxisMargin = typedArray.getFloat(R.styleable.GraphView_axisMarginLeft, DEFAULT_LEFT_MARGIN);
         graphPaddingFactor = typedArray.getFloat(R.styleable.GraphView_graphPaddingFactor, DEFAULT_GRAPH_PADDING_FACTOR);
-        shouldDrawBox = typedArray.getBoolean(R.styleable.GraphView_shouldDrawBox, true);
-
-        title = typedArray.getString(R.styleable.GraphView_title) != null ? typedArray.getString(R.styleable.GraphView_title) : "";
-        bottomText = typedArray.getString(R.styleable.GraphView_bottomText) != null ? typedArray.getString(R.styleable.GraphView_bottomText) : "";
-        rightSideText = typedArray.getString(R.styleable.GraphView_rightSideText) != null ? typedArray.getString(R.styleable.GraphView_rightSideText) : "";
-        leftSideText = typedArray.getString(R.styleable.GraphView_leftSideText) != null ? typedArray.getString(R.styleable.GraphView_leftSideText) : "";
-
-        labelStyle = typedArray.getInteger(R.styleable.GraphView_labelStyle, STANDARD_LABELS);
-        leftSideLabels = typedArray.getBoolean(R.styleable.GraphView_leftSideLabels, true);
-        xAxisLabels = typedArray.getBoolean(R.styleable.GraphView_xAxisLabels, true);
-        rightSideLabels = typedArray.getBoolean(R.styleable.GraphView_rightAxisLabels, true);
+        loadPainterAttributes(typedArray, painter);
+        float stripChartWindow = typedArray.getFloat(R.styleable.GraphView_stripChartWindow, 0f);
+        if (stripChartWindow > 0) stripChart = new StripChart<>(stripChartWindow);
 
         typedArray.recycle();
+    }
 
-        // Init other values here
-        setPaintLines();
-        dataSetList = new ArrayList<>();
-        secondaryDataSetList = new ArrayList<>();
+    /**
+     * Reads the XML attributes shared by GraphView and GraphSurfaceView into a painter.
+     *
+     * @param typedArray attributes from the GraphView styleable
+     * @param painter GraphPainter to configure
+     */
+    static void loadPainterAttributes(TypedArray typedArray, GraphPainter<Paint> painter) {
+        painter.setTopAxisMargin(typedArray.getFloat(R.styleable.GraphView_axisMarginTop, DEFAULT_TOP_MARGIN));
+        painter.setBottomAxisMargin(typedArray.getFloat(R.styleable.GraphView_axisMarginBottom, DEFAULT_BOTTOM_MARGIN));
+        painter.setRightAxisMargin(typedArray.getFloat(R.styleable.GraphView_axisMarginRight, DEFAULT_RIGHT_MARGIN));
+        painter.setLeftAxisMargin(typedArray.getFloat(R.styleable.GraphView_axisMarginLeft, DEFAULT_LEFT_MARGIN));
+        painter.setShouldDrawBox(typedArray.getBoolean(R.styleable.GraphView_shouldDrawBox, true));
+
+        painter.setTitle(typedArray.getString(R.styleable.GraphView_title) != null ? typedArray.getString(R.styleable.GraphView_title) : "");
+        painter.setBottomText(typedArray.getString(R.styleable.GraphView_bottomText) != null ? typedArray.getString(R.styleable.GraphView_bottomText) : "");
+        painter.setRightSideText(typedArray.getString(R.styleable.GraphView_rightSideText) != null ? typedArray.getString(R.styleable.GraphView_rightSideText) : "");
+        painter.setLeftSideText(typedArray.getString(R.styleable.GraphView_leftSideText) != null ? typedArray.getString(R.styleable.GraphView_leftSideText) : "");
+
+        painter.setLabelStyle(typedArray.getInteger(R.styleable.GraphView_labelStyle, STANDARD_LABELS));
+        painter.setLeftSideLabels(typedArray.getBoolean(R.styleable.GraphView_leftSideLabels, true));
+        painter.setXAxisLabels(typedArray.getBoolean(R.styleable.GraphView_xAxisLabels, true));
+        painter.setRightSideLabels(typedArray.getBoolean(R.styleable.GraphView_rightAxisLabels, true));
+        painter.setLabelTextColor(typedArray.getColor(R.styleable.GraphView_labelTextColor, DEFAULT_LABEL_TEXT_COLOR));
+        painter.setLabelTextSize(typedArray.getFloat(R.styleable.GraphView_labelTextSize, DEFAULT_LABEL_TEXT_SIZE));
     }
 
     /**
@@ -144,10 +304,721 @@ public class GraphView extends View {
      */
     @Override
     protected void onDraw(Canvas canvas) {
-        drawDataSet(canvas, dataSetList, true);
-        drawDataSet(canvas, secondaryDataSetList, false);
-        drawAxes(canvas);
-        drawKeyLabels(canvas);
+        boolean instrumented = isRenderMetricsEnabled();
+        long startNanos = 0;
+        if (instrumented) {
+            startNanos = System.nanoTime();
+            renderMetrics.reset();
+            renderer.resetDrawCalls();
+            chromeRenderer.resetDrawCalls();
+            stripRenderer.resetDrawCalls();
+        }
+        drainSampleChannels();
+
+        boolean stripChartMode = stripChart != null && getPlotWidth() > 0 && getPlotHeight() > 0;
+        // While the crosshair moves over unchanged data, only the crosshair is drawn again
+        boolean layerCurrent = crosshairShown && !stripChartMode && isLayerCurrent();
+        if (stripChartMode) {
+            // The strip chart only looks at the data it draws, there is nothing to project
+        } else if (!asyncProjection) {
+            if (!layerCurrent) {
+                captureFrameInputs(frontFrame);
+                if (traceEnabled) Trace.beginSection("GraphView project");
+                frontFrame.project();
+                if (traceEnabled) Trace.endSection();
+                frontFrameReported = false;
+                frameSerial++;
+            }
+        } else if (!frontFrame.isCurrent(configVersion, dataSetList, secondaryDataSetList)) {
+            requestProjection();
+        }
+
+        // New data or a new range moves the points, snap again to whatever is under the finger
+        if (crosshairShown && !layerCurrent && !selectNearest()) hideCrosshair();
+
+        long dataStartNanos = instrumented ? System.nanoTime() : 0;
+        long chromeStartNanos = dataStartNanos;
+        // draw() reports the time of the labels, axes and titles it draws between the data sets
+        long labelsWithDataNanos = 0;
+        long chromeWithDataNanos = 0;
+        if (layerCurrent) {
+            canvas.drawBitmap(layerBitmap, 0f, 0f, null);
+            if (instrumented) renderMetrics.addDrawCalls(1);
+        } else {
+            Canvas target = crosshairShown && !stripChartMode ? prepareLayer(canvas) : canvas;
+
+            if (traceEnabled) Trace.beginSection("GraphView drawData");
+            renderer.setCanvas(target);
+            if (stripChartMode) {
+                drawStripChart(target);
+            } else if (chromeCaching) {
+                painter.drawFrame(renderer, frontFrame);
+            } else {
+                // The grid goes between the primary and the secondary data sets
+                painter.draw(renderer, frontFrame);
+            }
+            if (instrumented) {
+                chromeStartNanos = System.nanoTime();
+                labelsWithDataNanos = renderMetrics.getLabelsNanos();
+                chromeWithDataNanos = renderMetrics.getChromeNanos();
+            }
+            if (traceEnabled) Trace.endSection();
+
+            if (stripChartMode || chromeCaching) {
+                if (traceEnabled) Trace.beginSection("GraphView drawChrome");
+                drawChrome(target, stripChartMode ? stripFrame : frontFrame);
+                if (traceEnabled) Trace.endSection();
+            }
+
+            if (target != canvas) {
+                rememberLayer();
+                canvas.drawBitmap(layerBitmap, 0f, 0f, null);
+                if (instrumented) renderMetrics.addDrawCalls(1);
+            }
+        }
+        if (crosshairShown) drawCrosshair(canvas);
+
+        if (instrumented) {
+            long endNanos = System.nanoTime();
+            renderMetrics.addDataNanos(chromeStartNanos - dataStartNanos - labelsWithDataNanos - chromeWithDataNanos);
+            // The painter already added the labels, the rest of the chrome time is axes and titles
+            renderMetrics.addChromeNanos(endNanos - chromeStartNanos - (renderMetrics.getLabelsNanos() - labelsWithDataNanos));
+            reportFrame(endNanos - startNanos, stripChartMode);
+        }
+    }
+
+    /**
+     * Appends the samples waiting in the sample channels to their data sets.  Waits while a
+     * projection is reading the data sets on the background thread, onProjectionFinished()
+     * posts the frame that drains them.
+     */
+    private void drainSampleChannels() {
+        if (sampleChannels.isEmpty() || projectionRunning) return;
+        // Cleared first, a sample offered while draining posts the next frame
+        sampleFramePending.set(false);
+        for (int i = 0; i < sampleChannels.size(); i++) {
+            sampleChannels.get(i).drain();
+        }
+    }
+
+    /**
+     * Scrolls the plot area of the strip chart to the newest data and draws the new segments.
+     *
+     * @param canvas Canvas Object to be drawn to
+     */
+    private void drawStripChart(Canvas canvas) {
+        int plotWidth = getPlotWidth();
+        int plotHeight = getPlotHeight();
+        if (stripBitmap == null || stripBitmap.getWidth() != plotWidth || stripBitmap.getHeight() != plotHeight) {
+            releaseStripBitmaps();
+            stripBitmap = Bitmap.createBitmap(plotWidth, plotHeight, Bitmap.Config.ARGB_8888);
+            stripCanvas = new Canvas(stripBitmap);
+            stripBackBitmap = Bitmap.createBitmap(plotWidth, plotHeight, Bitmap.Config.ARGB_8888);
+            stripBackCanvas = new Canvas(stripBackBitmap);
+            stripChart.invalidate();
+        }
+        if (stripConfigVersion != configVersion) {
+            stripConfigVersion = configVersion;
+            stripChart.invalidate();
+        }
+        stripFrame.setSize(getWidth(), getHeight());
+        stripFrame.setMargins(painter.getTopAxisMargin(), painter.getBottomAxisMargin(), painter.getLeftAxisMargin(), painter.getRightAxisMargin());
+        stripFrame.setDataSets(dataSetList, secondaryDataSetList);
+
+        int shift = stripChart.advance(stripFrame, plotWidth, plotHeight);
+        if (shift == StripChart.FULL_REDRAW) {
+            stripBitmap.eraseColor(Color.TRANSPARENT);
+        } else if (shift > 0) {
+            stripBackBitmap.eraseColor(Color.TRANSPARENT);
+            stripBackCanvas.drawBitmap(stripBitmap, -shift, 0f, null);
+            Bitmap bitmap = stripBitmap;
+            stripBitmap = stripBackBitmap;
+            stripBackBitmap = bitmap;
+            Canvas bitmapCanvas = stripCanvas;
+            stripCanvas = stripBackCanvas;
+            stripBackCanvas = bitmapCanvas;
+        }
+        stripRenderer.setCanvas(stripCanvas);
+        stripChart.drawNewSegments(stripRenderer, stripFrame, shift);
+        canvas.drawBitmap(stripBitmap, painter.getLeftAxisMargin(), painter.getTopAxisMargin(), null);
+        if (isRenderMetricsEnabled()) renderMetrics.addDrawCalls(shift > 0 ? 2 : 1);
+    }
+
+    private void releaseStripBitmaps() {
+        if (stripBitmap != null) {
+            stripBitmap.recycle();
+            stripBackBitmap.recycle();
+            stripBitmap = null;
+            stripBackBitmap = null;
+            stripCanvas = null;
+            stripBackCanvas = null;
+            stripRenderer.setCanvas(null);
+        }
+    }
+
+    private int getPlotWidth() {
+        return (int) (getWidth() - painter.getLeftAxisMargin() - painter.getRightAxisMargin());
+    }
+
+    private int getPlotHeight() {
+        return (int) (getHeight() - painter.getTopAxisMargin() - painter.getBottomAxisMargin());
+    }
+
+    /**
+     * Finishes the metrics of a frame and hands them to the histogram and the listener.
+     *
+     * @param frameNanos time onDraw() took
+     * @param stripChartMode true if the frame was drawn as a strip chart
+     */
+    private void reportFrame(long frameNanos, boolean stripChartMode) {
+        if (stripChartMode) {
+            renderMetrics.addSegmentsEmitted(stripChart.getSegmentsDrawn());
+            renderMetrics.addDrawCalls(stripRenderer.getDrawCalls());
+        } else {
+            if (!frontFrameReported && frontFrame.getMetrics() != null) {
+                renderMetrics.setProjection(frontFrame.getMetrics());
+                frontFrameReported = true;
+            }
+            if (frontFrame.isProjected()) {
+                renderMetrics.addSegmentsEmitted(frontFrame.getSegmentCount());
+            }
+        }
+        renderMetrics.addDrawCalls(renderer.getDrawCalls() + chromeRenderer.getDrawCalls());
+        renderMetrics.setFrameNanos(frameNanos);
+        frameTimeHistogram.record(frameNanos);
+        if (renderMetricsListener != null) {
+            renderMetricsListener.onFrameRendered(renderMetrics);
+        }
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        configVersion++;
+        releaseChromeBitmap();
+        releaseStripBitmaps();
+        releaseLayerBitmap();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        backFrame.setCancelled(true);
+        releaseChromeBitmap();
+        releaseStripBitmaps();
+        releaseLayerBitmap();
+        // A finishing activity is not recreated, nothing will take the retained data sets
+        if (retainedKey != null && isActivityFinishing()) {
+            RetainedDataSets.remove(retainedKey);
+            retainedKey = null;
+        }
+    }
+
+    /**
+     * Returns true if the activity showing the view is finishing for good, not to be recreated
+     * after a configuration change.
+     */
+    private boolean isActivityFinishing() {
+        Context context = getContext();
+        while (context instanceof ContextWrapper) {
+            if (context instanceof Activity) {
+                Activity activity = (Activity) context;
+                return activity.isFinishing() && !activity.isChangingConfigurations();
+            }
+            context = ((ContextWrapper) context).getBaseContext();
+        }
+        return false;
+    }
+
+    /**
+     * Caches the axes, grid lines, labels and titles in an offscreen bitmap.
+     *
+     * They are only drawn again when the size, margins, titles, label settings or the range of
+     * values on the axes change, so redrawing new data only redraws the data sets.  Costs one
+     * ARGB_8888 bitmap the size of the graph, disabled by default.
+     *
+     * The cached layer is drawn over all the data sets, so the grid lines of the primary data
+     * sets are drawn over the secondary data sets instead of under them.
+     *
+     * @param chromeCaching
+     */
+    public void setChromeCaching(boolean chromeCaching) {
+        this.chromeCaching = chromeCaching;
+        if (!chromeCaching) releaseChromeBitmap();
+        requestRedraw();
+    }
+
+    public boolean isChromeCaching() {
+        return chromeCaching;
+    }
+
+    /**
+     * Draws the axes, grid lines, labels and titles, from the cached bitmap when possible.
+     *
+     * @param canvas Canvas Object to be drawn to
+     * @param frame GraphFrame the labels are drawn for
+     */
+    private void drawChrome(Canvas canvas, GraphFrame<Paint> frame) {
+        if (!chromeCaching || getWidth() <= 0 || getHeight() <= 0) {
+            painter.drawChromeLayer(renderer, frame);
+            return;
+        }
+        if (chromeBitmap == null) {
+            chromeBitmap = Bitmap.createBitmap(getWidth(), getHeight(), Bitmap.Config.ARGB_8888);
+            chromeRenderer.setCanvas(new Canvas(chromeBitmap));
+            chromeValid = false;
+        }
+        if (!isChromeCurrent(frame)) {
+            chromeBitmap.eraseColor(Color.TRANSPARENT);
+            painter.drawChromeLayer(chromeRenderer, frame);
+            rememberChrome(frame);
+        }
+        canvas.drawBitmap(chromeBitmap, 0f, 0f, null);
+        if (isRenderMetricsEnabled()) renderMetrics.addDrawCalls(1);
+    }
+
+    private boolean isChromeCurrent(GraphFrame<Paint> frame) {
+        if (!chromeValid || chromeDrawnVersion != chromeVersion || chromeDrawnConfigVersion != configVersion) return false;
+        if (!chromePrimaryRange.isSameAs(frame.getPrimaryRange()) || !chromeSecondaryRange.isSameAs(frame.getSecondaryRange())) return false;
+        // Unfolded labels are read from the first data set
+        if (painter.getLabelStyle() == UNFOLDED_LABELS && !dataSetList.isEmpty()) {
+            return chromeLabelDataSet == dataSetList.get(0) && chromeLabelDataSetVersion == chromeLabelDataSet.getVersion();
+        }
+        return true;
+    }
+
+    private void rememberChrome(GraphFrame<Paint> frame) {
+        chromeValid = true;
+        chromeDrawnVersion = chromeVersion;
+        chromeDrawnConfigVersion = configVersion;
+        chromePrimaryRange.set(frame.getPrimaryRange());
+        chromeSecondaryRange.set(frame.getSecondaryRange());
+        chromeLabelDataSet = dataSetList.isEmpty() ? null : dataSetList.get(0);
+        chromeLabelDataSetVersion = chromeLabelDataSet == null ? 0 : chromeLabelDataSet.getVersion();
+    }
+
+    private void releaseChromeBitmap() {
+        if (chromeBitmap != null) {
+            chromeBitmap.recycle();
+            chromeBitmap = null;
+            chromeRenderer.setCanvas(null);
+        }
+        chromeValid = false;
+    }
+
+    /**
+     * Shows a crosshair on the point nearest to a finger dragged over the graph, with its X and Y
+     * values, and reports the point to the OnPointSelectedListener.
+     *
+     * The crosshair snaps to points of STANDARD_LINE and UNFOLDED_LINE data sets within the touch
+     * radius.  Data sets with ascending X values are searched with a binary search, others with a
+     * grid over their points that is built the first time they are touched after they change, so
+     * a touch does not look at every point.  While a finger is down the data and the chrome are
+     * kept in a bitmap the size of the graph, and moving the crosshair only draws the bitmap and
+     * the crosshair.  Off by default.
+     *
+     * @param crosshairEnabled
+     */
+    public void setCrosshairEnabled(boolean crosshairEnabled) {
+        this.crosshairEnabled = crosshairEnabled;
+        if (!crosshairEnabled) clearCrosshair();
+    }
+
+    public boolean isCrosshairEnabled() {
+        return crosshairEnabled;
+    }
+
+    /**
+     * Points further than this from the finger are not selected.
+     *
+     * @param touchRadius distance in pixels, DEFAULT_TOUCH_RADIUS by default
+     */
+    public void setTouchRadius(float touchRadius) {
+        this.touchRadius = touchRadius;
+    }
+
+    public float getTouchRadius() {
+        return touchRadius;
+    }
+
+    /**
+     * Sets a listener that receives the point under the crosshair, null removes it.
+     *
+     * @param onPointSelectedListener
+     */
+    public void setOnPointSelectedListener(@Nullable OnPointSelectedListener onPointSelectedListener) {
+        this.onPointSelectedListener = onPointSelectedListener;
+    }
+
+    /**
+     * Paint the crosshair, its marker and its text are drawn with.  Changes take effect the
+     * next time the crosshair moves.
+     *
+     * @return Paint
+     */
+    public Paint getCrosshairPaint() {
+        return crosshairPaint;
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (!crosshairEnabled) return super.onTouchEvent(event);
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                // Settings that are not versioned may have changed since the last gesture
+                layerValid = false;
+                ViewParent parent = getParent();
+                if (parent != null) parent.requestDisallowInterceptTouchEvent(true);
+                moveCrosshair(event.getX(), event.getY());
+                return true;
+            case MotionEvent.ACTION_MOVE:
+                moveCrosshair(event.getX(), event.getY());
+                return true;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                clearCrosshair();
+                return true;
+        }
+        return super.onTouchEvent(event);
+    }
+
+    /**
+     * Snaps the crosshair to the point nearest to the finger and redraws if it moved.
+     */
+    private void moveCrosshair(float touchX, float touchY) {
+        crosshairTouchX = touchX;
+        crosshairTouchY = touchY;
+        float pixelX = crosshairHit.getPixelX();
+        float pixelY = crosshairHit.getPixelY();
+        boolean shown = crosshairShown;
+        if (!selectNearest()) {
+            clearCrosshair();
+        } else if (!shown || pixelX != crosshairHit.getPixelX() || pixelY != crosshairHit.getPixelY()) {
+            invalidate();
+        }
+    }
+
+    /**
+     * Finds the point nearest to the finger in the frame that is drawn and tells the listener if
+     * it is another point than before.
+     *
+     * @return boolean false if no point is within the touch radius
+     */
+    private boolean selectNearest() {
+        boolean stripChartMode = stripChart != null && getPlotWidth() > 0 && getPlotHeight() > 0;
+        GraphFrame<Paint> frame = stripChartMode ? stripFrame : frontFrame;
+        if (!hitTester.findNearest(frame, crosshairTouchX, crosshairTouchY, touchRadius, crosshairHit)) return false;
+        boolean samePoint = crosshairShown && crosshairHit.getIndex() == selectedIndex && crosshairHit.getDataSet() == selectedDataSet;
+        crosshairShown = true;
+        if (samePoint) return true;
+        selectedIndex = crosshairHit.getIndex();
+        selectedDataSet = crosshairHit.getDataSet();
+        crosshairText = String.valueOf(crosshairHit.getX()) + ", " + String.valueOf(crosshairHit.getY());
+        if (onPointSelectedListener != null) {
+            onPointSelectedListener.onPointSelected((GraphViewDataModel) selectedDataSet, selectedIndex, crosshairHit.getX(), crosshairHit.getY());
+        }
+        return true;
+    }
+
+    private void clearCrosshair() {
+        if (!crosshairShown) return;
+        hideCrosshair();
+        invalidate();
+    }
+
+    private void hideCrosshair() {
+        crosshairShown = false;
+        crosshairText = null;
+        selectedDataSet = null;
+        releaseLayerBitmap();
+        if (onPointSelectedListener != null) onPointSelectedListener.onSelectionCleared();
+    }
+
+    /**
+     * Draws the crosshair lines across the plot area, a marker on the point and its values.
+     *
+     * @param canvas Canvas Object to be drawn to
+     */
+    private void drawCrosshair(Canvas canvas) {
+        float left = painter.getLeftAxisMargin();
+        float top = painter.getTopAxisMargin();
+        float right = getWidth() - painter.getRightAxisMargin();
+        float bottom = getHeight() - painter.getBottomAxisMargin();
+        float x = crosshairHit.getPixelX();
+        float y = crosshairHit.getPixelY();
+        canvas.drawLine(x, top, x, bottom, crosshairPaint);
+        canvas.drawLine(left, y, right, y, crosshairPaint);
+        canvas.drawCircle(x, y, crosshairPaint.getStrokeWidth() * 4f, crosshairPaint);
+        // Above and right of the point, or left of it in the right half of the plot
+        boolean leftHalf = x < (left + right) / 2f;
+        float textX = leftHalf ? x + 10f : x - 10f - crosshairPaint.measureText(crosshairText);
+        float textY = Math.max(top + crosshairPaint.getTextSize(), y - 10f);
+        canvas.drawText(crosshairText, textX, textY, crosshairPaint);
+        if (isRenderMetricsEnabled()) renderMetrics.addDrawCalls(4);
+    }
+
+    /**
+     * Returns true if the layer bitmap holds the front frame and chrome as they are now.
+     */
+    private boolean isLayerCurrent() {
+        if (!layerValid || layerBitmap == null || layerFrameSerial != frameSerial || layerChromeVersion != chromeVersion) return false;
+        // A projection on the main thread has to be repeated if the data changed
+        return asyncProjection || frontFrame.isCurrent(configVersion, dataSetList, secondaryDataSetList);
+    }
+
+    /**
+     * Clears the layer bitmap for the data and chrome to be drawn into it.
+     *
+     * @param canvas Canvas of the view, returned if the view has no size yet
+     * @return Canvas to draw the data and the chrome to
+     */
+    private Canvas prepareLayer(Canvas canvas) {
+        if (getWidth() <= 0 || getHeight() <= 0) return canvas;
+        if (layerBitmap == null) {
+            layerBitmap = Bitmap.createBitmap(getWidth(), getHeight(), Bitmap.Config.ARGB_8888);
+            layerCanvas = new Canvas(layerBitmap);
+        } else {
+            layerBitmap.eraseColor(Color.TRANSPARENT);
+        }
+        return layerCanvas;
+    }
+
+    private void rememberLayer() {
+        layerValid = true;
+        layerFrameSerial = frameSerial;
+        layerChromeVersion = chromeVersion;
+    }
+
+    private void releaseLayerBitmap() {
+        if (layerBitmap != null) {
+            layerBitmap.recycle();
+            layerBitmap = null;
+            layerCanvas = null;
+        }
+        layerValid = false;
+    }
+
+    /**
+     * Draws the graph as a strip chart showing a fixed range of X values, with the newest point on
+     * the right edge.
+     *
+     * The plot area is kept in an offscreen bitmap.  When new points arrive it is shifted left and
+     * only the new segments are drawn, so the cost of a frame follows how fast data arrives rather
+     * than how much of it is in the window.  The Y range grows to fit the data and never shrinks,
+     * everything is drawn again when it grows or the size of the graph changes.
+     *
+     * Meant for STANDARD_LINE data sets that are appended to in order of X, such as a
+     * StreamingGraphViewDataModel.  CONSTANT_LINE data sets are drawn across the graph, other
+     * graph types are not drawn.  Costs two bitmaps the size of the plot area.
+     *
+     * @param window range of X values to show, 0 to turn the strip chart off
+     */
+    public void setStripChartWindow(float window) {
+        if (window > 0) {
+            if (stripChart == null) {
+                stripChart = new StripChart<>(window);
+            } else {
+                stripChart.setWindow(window);
+            }
+        } else {
+            stripChart = null;
+            releaseStripBitmaps();
+        }
+        requestRedraw();
+    }
+
+    /**
+     * @return float range of X values shown by the strip chart, 0 if it is off
+     */
+    public float getStripChartWindow() {
+        return stripChart != null ? stripChart.getWindow() : 0f;
+    }
+
+    /**
+     * Moves scaling, decimation and projection of the data sets to a background thread.
+     *
+     * When enabled, every change to the data, the size or the viewport of the graph starts a new
+     * projection on a background thread, and onDraw() draws the last completed one.  At most one
+     * projection runs at a time, changes that arrive while it is running are coalesced into a
+     * single follow-up, and a projection made stale by a new size or viewport is cancelled.
+     *
+     * Data sets should only be modified on the main thread.  A projection during which a data set
+     * is modified is discarded and started over, up to GraphFrame.MAX_DISCARDED_PROJECTIONS times
+     * in a row.  The one after that is drawn even if the data changed again, and projected anew
+     * right away, so data sets that change faster than they can be projected keep being drawn.
+     *
+     * @param asyncProjection
+     */
+    public void setAsyncProjection(boolean asyncProjection) {
+        this.asyncProjection = asyncProjection;
+        requestRedraw();
+    }
+
+    public boolean isAsyncProjection() {
+        return asyncProjection;
+    }
+
+    /**
+     * Measures every frame: the time spent on the bounds, the projection, the data sets, the
+     * labels and the rest of the chrome, and the points scanned, segments emitted and draw calls
+     * made.  The frame times are collected in getFrameTimeHistogram().  Off by default, when off
+     * onDraw() does not read the clock.
+     *
+     * @param renderMetricsEnabled
+     */
+    public void setRenderMetricsEnabled(boolean renderMetricsEnabled) {
+        this.renderMetricsEnabled = renderMetricsEnabled;
+        updateRenderMetrics();
+    }
+
+    /**
+     * @return boolean true if frames are measured, because it was enabled or a listener is set
+     */
+    public boolean isRenderMetricsEnabled() {
+        return renderMetricsEnabled || renderMetricsListener != null;
+    }
+
+    /**
+     * Sets a listener that receives the metrics of every frame.  Setting a listener enables the
+     * metrics, null removes it.
+     *
+     * @param renderMetricsListener
+     */
+    public void setRenderMetricsListener(@Nullable RenderMetricsListener renderMetricsListener) {
+        this.renderMetricsListener = renderMetricsListener;
+        updateRenderMetrics();
+    }
+
+    /**
+     * Percentiles of the time the last frames took to draw.  Only recorded while the render
+     * metrics are enabled.  Read it on the main thread.
+     *
+     * @return FrameTimeHistogram of onDraw() times
+     */
+    public FrameTimeHistogram getFrameTimeHistogram() {
+        return frameTimeHistogram;
+    }
+
+    private void updateRenderMetrics() {
+        painter.setMetrics(isRenderMetricsEnabled() ? renderMetrics : null);
+        if (!isRenderMetricsEnabled()) frameTimeHistogram.reset();
+        requestRedraw();
+    }
+
+    /**
+     * Wraps the projection and the drawing of the data and the chrome in android.os.Trace
+     * sections, so they show up in systrace and Perfetto.  Off by default.
+     *
+     * @param traceEnabled
+     */
+    public void setTraceEnabled(boolean traceEnabled) {
+        this.traceEnabled = traceEnabled;
+    }
+
+    public boolean isTraceEnabled() {
+        return traceEnabled;
+    }
+
+    /**
+     * Copies everything a projection needs from the GraphView into a frame.
+     *
+     * @param frame GraphFrame to fill
+     */
+    private void captureFrameInputs(GraphFrame<Paint> frame) {
+        frame.setSize(getWidth(), getHeight());
+        frame.setMargins(painter.getTopAxisMargin(), painter.getBottomAxisMargin(), painter.getLeftAxisMargin(), painter.getRightAxisMargin());
+        frame.setGraphPaddingFactor(graphPaddingFactor);
+        frame.setViewport(viewportMode, viewportMinX, viewportMaxX, viewportMinY, viewportMaxY);
+        frame.setConfigVersion(configVersion);
+        frame.setDataSets(dataSetList, secondaryDataSetList);
+        frame.setCancelled(false);
+        // Set here rather than in the setter, a frame can be projecting on the background thread
+        frame.setInstrumented(isRenderMetricsEnabled());
+    }
+
+    /**
+     * Starts projecting the back frame on the background thread, or schedules a follow-up if a
+     * projection is already running.
+     */
+    private void requestProjection() {
+        if (projectionRunning) {
+            projectionPending = true;
+            // A frame for another size or viewport is useless, stop working on it
+            if (backFrame.getConfigVersion() != configVersion) {
+                backFrame.setCancelled(true);
+            }
+            return;
+        }
+        projectionRunning = true;
+        final GraphFrame<Paint> frame = backFrame;
+        captureFrameInputs(frame);
+        getProjectionExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                boolean completed = false;
+                RuntimeException failure = null;
+                boolean traced = traceEnabled;
+                if (traced) Trace.beginSection("GraphView project");
+                try {
+                    completed = frame.project();
+                } catch (RuntimeException e) {
+                    // Reading a data set while it is modified can throw, anything else is a bug
+                    if (!frame.isDataChanged()) failure = e;
+                } finally {
+                    if (traced) Trace.endSection();
+                    final boolean publish = completed;
+                    final RuntimeException error = failure;
+                    mainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            onProjectionFinished(frame, publish, error);
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    /**
+     * Publishes a finished frame on the main thread and starts the follow-up projection, if any.
+     *
+     * @param failure exception the projection failed with, thrown again on the main thread
+     */
+    private void onProjectionFinished(GraphFrame<Paint> frame, boolean completed, @Nullable RuntimeException failure) {
+        projectionRunning = false;
+        // Samples that arrived during the projection were left in their channels
+        if (sampleFramePending.get()) invalidate();
+        if (failure != null) {
+            projectionPending = false;
+            throw failure;
+        }
+        if (completed) {
+            backFrame = frontFrame;
+            frontFrame = frame;
+            frontFrameReported = false;
+            frameSerial++;
+            invalidate();
+        }
+        if (projectionPending || !completed) {
+            projectionPending = false;
+            if (asyncProjection && isAttachedToWindow()) {
+                requestProjection();
+            }
+        }
+    }
+
+    private static synchronized ExecutorService getProjectionExecutor() {
+        if (projectionExecutor == null) {
+            projectionExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "GraphView projection");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return projectionExecutor;
     }
 
     /**
@@ -156,8 +1027,9 @@ public class GraphView extends View {
      * @param leftSideLabels
      */
     public void setLeftSideLabels(boolean leftSideLabels) {
-        this.leftSideLabels = leftSideLabels;
-        invalidate();
+        painter.setLeftSideLabels(leftSideLabels);
+        chromeVersion++;
+        requestRedraw();
     }
 
 
@@ -167,8 +1039,9 @@ public class GraphView extends View {
      * @param labelStyle
      */
     public void setLabelStyle(int labelStyle) {
-        this.labelStyle = labelStyle;
-        invalidate();
+        painter.setLabelStyle(labelStyle);
+        chromeVersion++;
+        requestRedraw();
     }
 
     /**
@@ -178,8 +1051,9 @@ public class GraphView extends View {
      * @param shouldDrawBox
      */
     public void setShouldDrawBox(boolean shouldDrawBox) {
-        this.shouldDrawBox = shouldDrawBox;
-        invalidate();
+        painter.setShouldDrawBox(shouldDrawBox);
+        chromeVersion++;
+        requestRedraw();
     }
 
     /**
@@ -188,8 +1062,9 @@ public class GraphView extends View {
      * @param topAxisMargin
      */
     public void setTopAxisMargin(float topAxisMargin) {
-        this.topAxisMargin = topAxisMargin;
-        invalidate();
+        painter.setTopAxisMargin(topAxisMargin);
+        configVersion++;
+        requestRedraw();
     }
 
     /**
@@ -198,8 +1073,9 @@ public class GraphView extends View {
      * @param bottomAxisMargin
      */
     public void setBottomAxisMargin(float bottomAxisMargin) {
-        this.bottomAxisMargin = bottomAxisMargin;
-        invalidate();
+        painter.setBottomAxisMargin(bottomAxisMargin);
+        configVersion++;
+        requestRedraw();
     }
 
     /**
@@ -208,8 +1084,9 @@ public class GraphView extends View {
      * @param leftAxisMargin
      */
     public void setLeftAxisMargin(float leftAxisMargin) {
-        this.leftAxisMargin = leftAxisMargin;
-        invalidate();
+        painter.setLeftAxisMargin(leftAxisMargin);
+        configVersion++;
+        requestRedraw();
     }
 
     /**
@@ -218,8 +1095,9 @@ public class GraphView extends View {
      * @param rightAxisMargin
      */
     public void setRightAxisMargin(float rightAxisMargin) {
-        this.rightAxisMargin = rightAxisMargin;
-        invalidate();
+        painter.setRightAxisMargin(rightAxisMargin);
+        configVersion++;
+        requestRedraw();
     }
 
     /**
@@ -229,7 +1107,8 @@ public class GraphView extends View {
      */
     public void setGraphPaddingFactor(float graphPaddingFactor) {
         this.graphPaddingFactor = graphPaddingFactor;
-        invalidate();
+        configVersion++;
+        requestRedraw();
     }
 
     /**
@@ -238,34 +1117,114 @@ public class GraphView extends View {
      * @param title
      */
     public void setTitle(String title) {
-        this.title = title;
-        invalidate();
+        painter.setTitle(title);
+        chromeVersion++;
+        requestRedraw();
     }
 
     public void setRightSideText(String rightSideText) {
-        this.rightSideText = rightSideText;
-        invalidate();
+        painter.setRightSideText(rightSideText);
+        chromeVersion++;
+        requestRedraw();
     }
 
     public void setLeftSideText(String leftSideText) {
-        this.leftSideText = leftSideText;
-        invalidate();
+        painter.setLeftSideText(leftSideText);
+        chromeVersion++;
+        requestRedraw();
     }
 
     public void setBottomText(String bottomText) {
-        this.bottomText = bottomText;
-        invalidate();
+        painter.setBottomText(bottomText);
+        chromeVersion++;
+        requestRedraw();
     }
 
 
     public void setxAxisLabels(boolean xAxisLabels) {
-        this.xAxisLabels = xAxisLabels;
-        invalidate();
+        painter.setXAxisLabels(xAxisLabels);
+        chromeVersion++;
+        requestRedraw();
     }
 
     public void setRightSideLabels(boolean rightSideLabels) {
-        this.rightSideLabels = rightSideLabels;
-        invalidate();
+        painter.setRightSideLabels(rightSideLabels);
+        chromeVersion++;
+        requestRedraw();
+    }
+
+    /**
+     * Show only part of the data.  Applies to the primary data sets, the secondary data sets share
+     * the X range and fit their Y range to the points inside it.
+     *
+     * Only the points of a STANDARD_LINE data set with ascending X values that fall inside the
+     * X range, plus one neighbour on each side, are drawn.  Labels follow the viewport.
+     *
+     * @param minX X value on the left edge of the graph
+     * @param maxX X value on the right edge of the graph
+     * @param minY Y value on the bottom edge of the graph
+     * @param maxY Y value on the top edge of the graph
+     */
+    public void setViewport(float minX, float maxX, float minY, float maxY) {
+        if (!(maxX > minX) || !(maxY > minY)) {
+            throw new IllegalArgumentException("Viewport must have a positive width and height");
+        }
+        this.viewportMinX = minX;
+        this.viewportMaxX = maxX;
+        this.viewportMinY = minY;
+        this.viewportMaxY = maxY;
+        this.viewportMode = VIEWPORT_FIXED;
+        configVersion++;
+        requestRedraw();
+    }
+
+    /**
+     * Show only part of the X range of the data, with the Y range fitted to the points inside it.
+     *
+     * @param minX X value on the left edge of the graph
+     * @param maxX X value on the right edge of the graph
+     */
+    public void setViewportX(float minX, float maxX) {
+        if (!(maxX > minX)) {
+            throw new IllegalArgumentException("Viewport must have a positive width");
+        }
+        this.viewportMinX = minX;
+        this.viewportMaxX = maxX;
+        this.viewportMode = VIEWPORT_FIXED_X;
+        configVersion++;
+        requestRedraw();
+    }
+
+    /**
+     * Switch between showing all of the data and the viewport.
+     * Use the VIEWPORT constants in this class.
+     *
+     * @param viewportMode
+     */
+    public void setViewportMode(int viewportMode) {
+        this.viewportMode = viewportMode;
+        configVersion++;
+        requestRedraw();
+    }
+
+    public int getViewportMode() {
+        return viewportMode;
+    }
+
+    public float getViewportMinX() {
+        return viewportMinX;
+    }
+
+    public float getViewportMaxX() {
+        return viewportMaxX;
+    }
+
+    public float getViewportMinY() {
+        return viewportMinY;
+    }
+
+    public float getViewportMaxY() {
+        return viewportMaxY;
     }
 
     /**
@@ -278,7 +1237,7 @@ public class GraphView extends View {
      */
     public void addToDataSetList(GraphViewDataModel dataSet) {
         this.dataSetList.add(dataSet);
-        invalidate();
+        requestRedraw();
     }
 
     /**
@@ -288,370 +1247,356 @@ public class GraphView extends View {
      */
     public void addToDataSetListBulk(List<GraphViewDataModel> dataSetList) {
         this.dataSetList.addAll(dataSetList);
-        invalidate();
+        requestRedraw();
     }
 
     public void addToSecondaryDataSetList(GraphViewDataModel dataSet) {
         this.secondaryDataSetList.add(dataSet);
-        invalidate();
+        requestRedraw();
     }
 
     public void addToSecondaryDataSetListBulk(List<GraphViewDataModel> dataSetList) {
         this.secondaryDataSetList.addAll(dataSetList);
-        invalidate();
+        requestRedraw();
     }
 
     /**
-     * Draws the border of the GraphView.
+     * Remove a data set from the graph.
      *
-     * @param canvas Canvas Object to be drawn to
+     * @param dataSet
+     * @return boolean true if the data set was on the graph
      */
-    private void drawAxes(Canvas canvas) {
-        // vertical axis T->B
-        canvas.drawLine(leftAxisMargin, topAxisMargin, leftAxisMargin, canvas.getHeight() - bottomAxisMargin, axisPaint);
-        // horizontal axis L->R
-        canvas.drawLine(leftAxisMargin, canvas.getHeight() - bottomAxisMargin, canvas.getWidth() - rightAxisMargin, canvas.getHeight() - bottomAxisMargin, axisPaint);
-        if (shouldDrawBox) {
-            canvas.drawLine(leftAxisMargin, topAxisMargin, canvas.getWidth() - rightAxisMargin, topAxisMargin, axisPaint);
-            canvas.drawLine(canvas.getWidth() - rightAxisMargin, topAxisMargin, canvas.getWidth() - rightAxisMargin, canvas.getHeight() - bottomAxisMargin, axisPaint);
-        }
-    }
-
-    private void drawDataSet(Canvas canvas, List<GraphViewDataModel> dataSetList, boolean isPrimary) {
-        float dataSetMinX = Float.MAX_VALUE;
-        float dataSetMaxX = Float.MIN_VALUE;
-        float dataSetMinY = Float.MAX_VALUE;
-        float dataSetMaxY = Float.MIN_VALUE;
-        float adjustedDataSetMinX;
-        float adjustedDataSetMaxX;
-        float adjustedDataSetMinY;
-        float adjustedDataSetMaxY;
-        float rangeOfXValues;
-        float rangeOfYValues;
-
-        if (dataSetList.isEmpty()) return;
-
-        // Calculate the values for the data set
-        for (GraphViewDataModel dataSet : dataSetList) {
-            for (PointF dataPoint : dataSet.getDataSet()) {
-                if (dataSet.getGraphType() == STANDARD_LINE) {
-                    dataSetMaxX = Math.max(dataSetMaxX, dataPoint.x);
-                    dataSetMinX = Math.min(dataSetMinX, dataPoint.x);
-                }
-                if (dataSet.getGraphType() != STATE_LINE) {
-                    dataSetMaxY = Math.max(dataSetMaxY, dataPoint.y);
-                    dataSetMinY = Math.min(dataSetMinY, dataPoint.y);
-                }
-            }
-        }
-        // Use these values when calculating range of values and converting PointF objects.
-        // Otherwise, comment these variables out and replace with normal dataSetMax/Min.
-        adjustedDataSetMinX = dataSetMinX - Math.abs(dataSetMaxX * graphPaddingFactor);
-        adjustedDataSetMinY = dataSetMinY - Math.abs(dataSetMaxY * graphPaddingFactor);
-        adjustedDataSetMaxX = dataSetMaxX + Math.abs(dataSetMaxX * graphPaddingFactor);
-        adjustedDataSetMaxY = dataSetMaxY + Math.abs(dataSetMaxY * graphPaddingFactor);
-
-        rangeOfXValues = adjustedDataSetMaxX - adjustedDataSetMinX;
-        rangeOfYValues = adjustedDataSetMaxY - adjustedDataSetMinY;
-
-        // Draw the data sets
-        for (GraphViewDataModel dataModel : dataSetList) {
-            switch (dataModel.getGraphType()) {
-                case STANDARD_LINE:
-                    drawStandardLine(canvas, dataModel, adjustedDataSetMinX, adjustedDataSetMinY, rangeOfXValues, rangeOfYValues);
-                    break;
-                case UNFOLDED_LINE:
-                    drawUnfoldedLine(canvas, dataModel, adjustedDataSetMinY, rangeOfYValues);
-                    break;
-                case CONSTANT_LINE:
-                    drawConstantLine(canvas, dataModel, adjustedDataSetMinY, rangeOfYValues);
-                    break;
-                case STATE_LINE:
-                    drawBinaryStateLine(canvas, dataModel);
-                    break;
-            }
-        }
+    public boolean removeFromDataSetList(GraphViewDataModel dataSet) {
+        boolean removed = dataSetList.remove(dataSet);
+        if (removed) requestRedraw();
+        return removed;
+    }
 
-        // Draw the labels
-        if (isPrimary) {
-            switch (labelStyle) {
-                case STANDARD_LABELS:
-                    drawStandardTextLabels(canvas, adjustedDataSetMinX, adjustedDataSetMinY, rangeOfXValues, rangeOfYValues);
-                    break;
-                case UNFOLDED_LABELS:
-                    drawUnfoldedTextLabels(canvas, adjustedDataSetMinX, adjustedDataSetMinY, rangeOfXValues, rangeOfYValues);
-                    break;
-                case CUSTOM_LABELS:
-                    Log.w(TAG, "onDraw: Custom label is not implemented yet. Using standard by default");
-                    // TODO add custom label ability
-                    // break;
-                default:
-                    drawStandardTextLabels(canvas, adjustedDataSetMinX, adjustedDataSetMinY, rangeOfXValues, rangeOfYValues);
-            }
-        } else {
-            drawRightSideLabels(canvas, adjustedDataSetMinY, rangeOfYValues);
-        }
+    public boolean removeFromSecondaryDataSetList(GraphViewDataModel dataSet) {
+        boolean removed = secondaryDataSetList.remove(dataSet);
+        if (removed) requestRedraw();
+        return removed;
     }
 
     /**
-     * Draws a line showing the state of something denoted by 1 or 0
+     * Remove every data set from the graph.
+     */
+    public void clearDataSetLists() {
+        dataSetList.clear();
+        secondaryDataSetList.clear();
+        requestRedraw();
+    }
+
+    /**
+     * Starts a batch of changes to the graph.
      *
-     * Data set for this should be an array with the y coordinate is either a 1 or 0 to denote a state
-     * of something.  Graph will display a constant line near the bottom the graph for a 0 or a constant
-     * line near the top for a 1.
+     * The setters and data set methods of the Editor are the same as those of GraphView, but the
+     * graph is only invalidated once, by apply(), instead of once per change.  The labels, layout
+     * and projection are rebuilt at most once, on the next frame.  Changes take effect right away
+     * for the getters of GraphView, only drawing waits for apply().
      *
-     * @param canvas
-     * @param dataModel
+     * Setters called on the GraphView itself while an Editor is open are batched too.  Until
+     * apply() is called the graph is not redrawn for any change, so always apply an Editor, in a
+     * finally block if the changes can throw.  Only one Editor can be open at a time.  Main
+     * thread only.
+     *
+     * @return Editor to chain changes on, finish with apply()
+     * @throws IllegalStateException if another Editor was not applied yet
      */
-    private void drawBinaryStateLine(Canvas canvas, GraphViewDataModel dataModel) {
-        for (int i = 0; i < dataModel.getDataSet().length - 1; i ++) {
-            float pixelsPerX = ((float) canvas.getWidth() - leftAxisMargin - rightAxisMargin) / (dataModel.getDataSet().length - 1);
-
-            PointF startPoint;
-            if (dataModel.getDataSet()[i].y == 0) {
-                startPoint = new PointF(leftAxisMargin + (float) i * pixelsPerX, (((float) canvas.getHeight() - bottomAxisMargin - topAxisMargin) * .15f) + topAxisMargin);
-            } else {
-                startPoint = new PointF(leftAxisMargin + (float) i * pixelsPerX, (((float) canvas.getHeight() - bottomAxisMargin - topAxisMargin) * .85f) + topAxisMargin);
-            }
-
-            PointF endPoint;
-            if (dataModel.getDataSet()[i + 1].y == 0) {
-                endPoint = new PointF(leftAxisMargin + (float) (i + 1) * pixelsPerX, (((float) canvas.getHeight() - bottomAxisMargin - topAxisMargin) * .15f) + topAxisMargin);
-            } else {
-                endPoint = new PointF(leftAxisMargin + (float) (i + 1) * pixelsPerX, (((float) canvas.getHeight() - bottomAxisMargin - topAxisMargin) * .85f) + topAxisMargin);
-            }
+    public Editor edit() {
+        if (editing) throw new IllegalStateException("apply() the open Editor first");
+        editing = true;
+        return new Editor();
+    }
 
-            canvas.drawLine(startPoint.x, startPoint.y, endPoint.x, endPoint.y, dataModel.getPaint());
+    /**
+     * Invalidates the graph, or notes that it has to be invalidated when the Editor is applied.
+     */
+    private void requestRedraw() {
+        if (editing) {
+            redrawPending = true;
+        } else {
+            invalidate();
         }
     }
 
     /**
-     * Draws a graph incrementally, taking each point in sequence, and displays (sequence value, actual Y)
-     *  @param canvas
-     * @param dataModel
-     * @param adjustedDataSetMinY
-     * @param rangeOfYValues
+     * Batch of changes to a GraphView, returned by edit().  Every method but apply() returns the
+     * Editor so changes can be chained.  It has every setter of GraphView that redraws the graph,
+     * and the data set methods.
      */
-    private void drawUnfoldedLine(Canvas canvas, GraphViewDataModel dataModel, float adjustedDataSetMinY, float rangeOfYValues) {
-        for (int i = 0; i < dataModel.getDataSet().length - 1; i++) {
-            float pixelsPerX = ((float) canvas.getWidth() - leftAxisMargin - rightAxisMargin) / (dataModel.getDataSet().length - 1);
-            float pixelsPerY = ((float) canvas.getHeight() - topAxisMargin - bottomAxisMargin) / rangeOfYValues;
+    public final class Editor {
+        private boolean applied;
 
-            float startX = leftAxisMargin + (float) i * pixelsPerX;
-            float startY = (float) canvas.getHeight() - bottomAxisMargin - (dataModel.getDataSet()[i].y - adjustedDataSetMinY) * pixelsPerY;
-            float endX = leftAxisMargin + ((float) i + 1f) * pixelsPerX;
-            float endY = (float) canvas.getHeight() - bottomAxisMargin - (dataModel.getDataSet()[i + 1].y - adjustedDataSetMinY) * pixelsPerY;
+        private Editor() {
+        }
 
-            PointF startPoint = new PointF(startX, startY);
-            PointF endPoint = new PointF(endX, endY);
+        public Editor setTitle(String title) {
+            GraphView.this.setTitle(title);
+            return this;
+        }
 
-            canvas.drawLine(startPoint.x, startPoint.y, endPoint.x, endPoint.y, dataModel.getPaint());
+        public Editor setRightSideText(String rightSideText) {
+            GraphView.this.setRightSideText(rightSideText);
+            return this;
         }
-    }
 
-    /**
-     * Takes a single point in a GraphViewDataModel and displays a constant based on the point's Y
-     *  @param canvas
-     * @param dataModel
-     * @param adjustedDataSetMinY
-     * @param rangeOfYValues
-     */
-    private void drawConstantLine(Canvas canvas, GraphViewDataModel dataModel, float adjustedDataSetMinY, float rangeOfYValues) {
-        float pixelsPerY = ((float) canvas.getHeight() - topAxisMargin - bottomAxisMargin) / (rangeOfYValues);
+        public Editor setLeftSideText(String leftSideText) {
+            GraphView.this.setLeftSideText(leftSideText);
+            return this;
+        }
 
-        float startX = leftAxisMargin;
-        float startY = (float) canvas.getHeight() - bottomAxisMargin - (dataModel.getDataSet()[0].y - adjustedDataSetMinY) * pixelsPerY;
-        float endX = (float) canvas.getWidth() - rightAxisMargin;
-        float endY = (float) canvas.getHeight() - bottomAxisMargin - (dataModel.getDataSet()[0].y - adjustedDataSetMinY) * pixelsPerY;
+        public Editor setBottomText(String bottomText) {
+            GraphView.this.setBottomText(bottomText);
+            return this;
+        }
 
-        PointF startPoint = new PointF(startX, startY);
-        PointF endPoint = new PointF(endX, endY);
+        public Editor setLabelStyle(int labelStyle) {
+            GraphView.this.setLabelStyle(labelStyle);
+            return this;
+        }
 
-        canvas.drawLine(startPoint.x, startPoint.y, endPoint.x, endPoint.y, dataModel.getPaint());
-    }
+        public Editor setShouldDrawBox(boolean shouldDrawBox) {
+            GraphView.this.setShouldDrawBox(shouldDrawBox);
+            return this;
+        }
 
-    /**
-     * Draws a line from a data set, using (X,Y) pairs
-     *  @param canvas
-     * @param dataModel
-     * @param adjustedDataSetMinX
-     * @param adjustedDataSetMinY
-     * @param rangeOfXValues
-     * @param rangeOfYValues
-     */
-    private void drawStandardLine(Canvas canvas, GraphViewDataModel dataModel, float adjustedDataSetMinX, float adjustedDataSetMinY, float rangeOfXValues, float rangeOfYValues) {
-        for (int i = 0; i < dataModel.getDataSet().length - 1; i++) {
-            float pixelsPerX = ((float) canvas.getWidth() - leftAxisMargin - rightAxisMargin) / rangeOfXValues;
-            float pixelsPerY = ((float) canvas.getHeight() - topAxisMargin - bottomAxisMargin) / rangeOfYValues;
+        public Editor setLeftSideLabels(boolean leftSideLabels) {
+            GraphView.this.setLeftSideLabels(leftSideLabels);
+            return this;
+        }
 
-            float startX = (dataModel.getDataSet()[i].x - adjustedDataSetMinX) * pixelsPerX + leftAxisMargin;
-            float startY = (float) canvas.getHeight() - bottomAxisMargin - (dataModel.getDataSet()[i].y - adjustedDataSetMinY) * pixelsPerY;
-            float endX = (dataModel.getDataSet()[i + 1].x - adjustedDataSetMinX) * pixelsPerX + leftAxisMargin;
-            float endY = (float) canvas.getHeight() - bottomAxisMargin - (dataModel.getDataSet()[i + 1].y - adjustedDataSetMinY) * pixelsPerY;
+        public Editor setxAxisLabels(boolean xAxisLabels) {
+            GraphView.this.setxAxisLabels(xAxisLabels);
+            return this;
+        }
 
-            PointF startPoint = new PointF(startX, startY);
-            PointF endPoint = new PointF(endX, endY);
+        public Editor setRightSideLabels(boolean rightSideLabels) {
+            GraphView.this.setRightSideLabels(rightSideLabels);
+            return this;
+        }
 
-            canvas.drawLine(startPoint.x, startPoint.y, endPoint.x, endPoint.y, dataModel.getPaint());
+        public Editor setLabelTextColor(int labelTextColor) {
+            GraphView.this.setLabelTextColor(labelTextColor);
+            return this;
         }
-    }
 
-    /**
-     * Draws the X and Y labels base on the max and min of the data set and the title
-     *
-     * @param canvas
-     * @param adjustedDataSetMinX
-     * @param adjustedDataSetMinY
-     * @param rangeOfXValues
-     * @param rangeOfYValues
-     */
-    private void drawStandardTextLabels(Canvas canvas, float adjustedDataSetMinX, float adjustedDataSetMinY, float rangeOfXValues, float rangeOfYValues) {
-        // TODO split method to drawX, drawY, drawTitle
+        public Editor setLabelTextSize(float labelTextSize) {
+            GraphView.this.setLabelTextSize(labelTextSize);
+            return this;
+        }
 
-        Paint textPaint = new Paint();
-        textPaint.setColor(0xFF000000); // TODO paint color should be configurable
-        textPaint.setTextSize(30f); // TODO text size should be configurable
-        textPaint.setTextAlign(Paint.Align.RIGHT);
-        textPaint.setFakeBoldText(true);
+        public Editor setTopAxisMargin(float topAxisMargin) {
+            GraphView.this.setTopAxisMargin(topAxisMargin);
+            return this;
+        }
 
-        // Y-Axis labels
-        if (leftSideLabels) {
-            ArrayList<Integer> labelValues = generateLabelValues((int) adjustedDataSetMinY, (int) rangeOfYValues, DEFAULT_NUMBER_Y_LABELS);
-            float pixelsPerValue = ((float) canvas.getHeight() - topAxisMargin - bottomAxisMargin) / rangeOfYValues;
-            float initialLabelOffset = adjustedDataSetMinY * pixelsPerValue;
-            for (int labelValue : labelValues) {
-                canvas.drawText(String.valueOf(labelValue), leftAxisMargin - 10f, ((float) canvas.getHeight() - bottomAxisMargin + initialLabelOffset) - ((float) labelValue * pixelsPerValue), textPaint);
-                canvas.drawLine((int) leftAxisMargin, ((float) canvas.getHeight() - bottomAxisMargin + initialLabelOffset) - ((float) labelValue * pixelsPerValue),
-                         canvas.getWidth() - rightAxisMargin, ((float) canvas.getHeight() - bottomAxisMargin + initialLabelOffset) - ((float) labelValue * pixelsPerValue), markerPaint);
-            }
+        public Editor setBottomAxisMargin(float bottomAxisMargin) {
+            GraphView.this.setBottomAxisMargin(bottomAxisMargin);
+            return this;
         }
 
-        // X-Axis labels
-        if (xAxisLabels) {
-            ArrayList<Integer> labelValues = generateLabelValues((int) adjustedDataSetMinX, (int) rangeOfXValues, DEFAULT_NUMBER_X_LABELS);
-            float pixelsPerValue = ((float) canvas.getWidth() - leftAxisMargin - rightAxisMargin) / rangeOfXValues;
-            float initialLabelOffset = adjustedDataSetMinX * pixelsPerValue;
+        public Editor setLeftAxisMargin(float leftAxisMargin) {
+            GraphView.this.setLeftAxisMargin(leftAxisMargin);
+            return this;
+        }
 
-            for (int labelValue : labelValues) {
-                canvas.rotate(270, leftAxisMargin + ((float) labelValue * pixelsPerValue) - initialLabelOffset, (float) canvas.getHeight() - bottomAxisMargin + 10f);
-                canvas.drawText(String.valueOf(labelValue), leftAxisMargin + ((float) labelValue * pixelsPerValue) - initialLabelOffset, (float) canvas.getHeight() - bottomAxisMargin + 10f, textPaint);
-                canvas.rotate(-270, leftAxisMargin + ((float) labelValue * pixelsPerValue) - initialLabelOffset, (float) canvas.getHeight() - bottomAxisMargin + 10f);
-                canvas.drawLine(leftAxisMargin + ((float) labelValue * pixelsPerValue) - initialLabelOffset, canvas.getHeight() - (int) bottomAxisMargin,
-                        leftAxisMargin + ((float) labelValue * pixelsPerValue) - initialLabelOffset, (int) topAxisMargin,
-                        markerPaint);
-            }
+        public Editor setRightAxisMargin(float rightAxisMargin) {
+            GraphView.this.setRightAxisMargin(rightAxisMargin);
+            return this;
+        }
+
+        public Editor setGraphPaddingFactor(float graphPaddingFactor) {
+            GraphView.this.setGraphPaddingFactor(graphPaddingFactor);
+            return this;
         }
-    }
 
-    private ArrayList<Integer> generateLabelValues (int minValue, int rangeOfValues, int numberOfLabels) {
-        ArrayList<Integer> labels = new ArrayList<>();
-        int valuePerLabel = rangeOfValues / (numberOfLabels + 1);
-        int roundingFactor = (int) Math.pow(10, String.valueOf(valuePerLabel).length() / 2);
-        valuePerLabel = (valuePerLabel / roundingFactor) * roundingFactor;
-        int initialLabelValue = ((minValue / roundingFactor) * roundingFactor) + (roundingFactor);
-        if (initialLabelValue > minValue - (valuePerLabel / 2) && initialLabelValue < minValue + (valuePerLabel / 2) ) {
-            initialLabelValue = ((initialLabelValue + valuePerLabel) / roundingFactor) * roundingFactor;
+        public Editor setViewport(float minX, float maxX, float minY, float maxY) {
+            GraphView.this.setViewport(minX, maxX, minY, maxY);
+            return this;
         }
-        int labelValue = initialLabelValue;
-        do {
-            labels.add(labelValue);
-            labelValue = labelValue + valuePerLabel;
-        } while (labelValue < minValue + rangeOfValues);
 
-        return labels;
+        public Editor setViewportX(float minX, float maxX) {
+            GraphView.this.setViewportX(minX, maxX);
+            return this;
+        }
+
+        public Editor setViewportMode(int viewportMode) {
+            GraphView.this.setViewportMode(viewportMode);
+            return this;
+        }
+
+        public Editor setChromeCaching(boolean chromeCaching) {
+            GraphView.this.setChromeCaching(chromeCaching);
+            return this;
+        }
+
+        public Editor setStripChartWindow(float window) {
+            GraphView.this.setStripChartWindow(window);
+            return this;
+        }
+
+        public Editor setAsyncProjection(boolean asyncProjection) {
+            GraphView.this.setAsyncProjection(asyncProjection);
+            return this;
+        }
+
+        public Editor setRenderMetricsEnabled(boolean renderMetricsEnabled) {
+            GraphView.this.setRenderMetricsEnabled(renderMetricsEnabled);
+            return this;
+        }
+
+        public Editor setRenderMetricsListener(@Nullable RenderMetricsListener renderMetricsListener) {
+            GraphView.this.setRenderMetricsListener(renderMetricsListener);
+            return this;
+        }
+
+        public Editor addToDataSetList(GraphViewDataModel dataSet) {
+            GraphView.this.addToDataSetList(dataSet);
+            return this;
+        }
+
+        public Editor addToDataSetListBulk(List<GraphViewDataModel> dataSetList) {
+            GraphView.this.addToDataSetListBulk(dataSetList);
+            return this;
+        }
+
+        public Editor addToSecondaryDataSetList(GraphViewDataModel dataSet) {
+            GraphView.this.addToSecondaryDataSetList(dataSet);
+            return this;
+        }
+
+        public Editor addToSecondaryDataSetListBulk(List<GraphViewDataModel> dataSetList) {
+            GraphView.this.addToSecondaryDataSetListBulk(dataSetList);
+            return this;
+        }
+
+        public Editor removeFromDataSetList(GraphViewDataModel dataSet) {
+            GraphView.this.removeFromDataSetList(dataSet);
+            return this;
+        }
+
+        public Editor removeFromSecondaryDataSetList(GraphViewDataModel dataSet) {
+            GraphView.this.removeFromSecondaryDataSetList(dataSet);
+            return this;
+        }
+
+        public Editor clearDataSetLists() {
+            GraphView.this.clearDataSetLists();
+            return this;
+        }
+
+        /**
+         * Ends the batch, invalidating the graph once if anything changed.
+         */
+        public void apply() {
+            if (applied) throw new IllegalStateException("Editor was already applied");
+            applied = true;
+            editing = false;
+            if (redrawPending) {
+                redrawPending = false;
+                invalidate();
+            }
+        }
     }
 
     /**
-     * Draws X labels based on the exact values in the first data set in the dataSetList.
-     * The Y labels are drawn by min and max values.
+     * Feeds a data set from other threads through a SampleChannel.
+     *
+     * Any number of threads can offer samples to the channel without taking a lock.  The samples
+     * are appended to the data set on the main thread at the start of the next frame, and at most
+     * one redraw is posted per frame however fast they arrive.  The data set must also be added
+     * to the graph, and must not be appended to directly while the channel is registered.
      *
-     * @param canvas
-     * @param adjustedDataSetMinY
-     * @param rangeOfYValues
+     * @param channel SampleChannel, registered with one view at a time
      */
-    private void drawUnfoldedTextLabels(Canvas canvas, float adjustedDataSetMinX, float adjustedDataSetMinY, float rangeOfXValues, float rangeOfYValues) {
-        // TODO split method to drawX, drawY, drawTitle
+    public void addSampleChannel(SampleChannel channel) {
+        sampleChannels.add(channel);
+        channel.setOwner(sampleChannelOwner);
+        sampleChannelOwner.onSamplesOffered();
+    }
 
-        Paint textPaint = new Paint();
-        textPaint.setColor(0xFF000000); // TODO paint color should be configurable
-        textPaint.setTextSize(30f); // TODO text size should be configurable
-        textPaint.setTextAlign(Paint.Align.RIGHT);
-        textPaint.setFakeBoldText(true);
+    /**
+     * Stops draining a SampleChannel.  Samples still waiting in it stay there.
+     *
+     * @param channel SampleChannel added with addSampleChannel()
+     */
+    public void removeSampleChannel(SampleChannel channel) {
+        if (sampleChannels.remove(channel)) channel.setOwner(null);
+    }
 
-        // Y-Axis labels
-        if (leftSideLabels) {
-            ArrayList<Integer> labelValues = generateLabelValues((int) adjustedDataSetMinY, (int) rangeOfYValues, DEFAULT_NUMBER_Y_LABELS);
-            float pixelsPerValue = ((float) canvas.getHeight() - topAxisMargin - bottomAxisMargin) / rangeOfYValues;
-            float initialLabelOffset = adjustedDataSetMinY * pixelsPerValue;
-            for (int labelValue : labelValues) {
-                canvas.drawText(String.valueOf(labelValue), leftAxisMargin - 10f, ((float) canvas.getHeight() - bottomAxisMargin + initialLabelOffset) - ((float) labelValue * pixelsPerValue), textPaint);
-                canvas.drawLine((int) leftAxisMargin, ((float) canvas.getHeight() - bottomAxisMargin + initialLabelOffset) - ((float) labelValue * pixelsPerValue),
-                        canvas.getWidth() - rightAxisMargin, ((float) canvas.getHeight() - bottomAxisMargin + initialLabelOffset) - ((float) labelValue * pixelsPerValue), markerPaint);
-            }
-        }
+    /**
+     * @return List of the data sets drawn against the left axis, not modifiable
+     */
+    public List<GraphViewDataModel> getDataSetList() {
+        return Collections.unmodifiableList(dataSetList);
+    }
 
-        // X-Axis labels
-        if (xAxisLabels) {
-            // TODO actually make the number of labels in an unfolded graph configurable again
-            float pixelsPerLabel = ((float) canvas.getWidth() - leftAxisMargin - rightAxisMargin) / (float) DEFAULT_NUMBER_X_LABELS; //(float) numberOfHorizontalLabels;
-            float valuePerStep = dataSetList.get(0).getDataSet().length / (float) DEFAULT_NUMBER_X_LABELS; //numberOfHorizontalLabels;
-            for (int i = 1; i <= DEFAULT_NUMBER_X_LABELS; i++) {
-                 int xLabelRoundingFactorPower = String.valueOf((int) valuePerStep).length() / 2;
-                int xLabelRoundingFactor = (int) Math.pow(10, xLabelRoundingFactorPower);
-                int labelValue = (((int) (dataSetList.get(0).getDataSet()[i * (int) valuePerStep - 1].x / xLabelRoundingFactor)) * xLabelRoundingFactor);
-                canvas.rotate(270, leftAxisMargin - 10f + (i * pixelsPerLabel), (float) canvas.getHeight() - bottomAxisMargin + 10f);
-                canvas.drawText(String.valueOf(labelValue), leftAxisMargin - 10f + (i * pixelsPerLabel), (float) canvas.getHeight() - bottomAxisMargin + 10f, textPaint);
-                canvas.rotate(-270, leftAxisMargin - 10f + (i * pixelsPerLabel), (float) canvas.getHeight() - bottomAxisMargin + 10f);
-                canvas.drawLine(leftAxisMargin - 10f + (i * pixelsPerLabel), canvas.getHeight() - (int) bottomAxisMargin,
-                        leftAxisMargin - 10f + (i * pixelsPerLabel), (int) topAxisMargin,
-                        markerPaint);
-            }
+    /**
+     * @return List of the data sets drawn against the right axis, not modifiable
+     */
+    public List<GraphViewDataModel> getSecondaryDataSetList() {
+        return Collections.unmodifiableList(secondaryDataSetList);
+    }
+
+    /**
+     * Keeps the data sets across configuration changes, such as rotating the device.
+     *
+     * The data sets are not written to the saved state, that would run into the size limit of a
+     * Binder transaction.  They are kept in memory in the process and only a key is saved.  The
+     * recreated GraphView takes the same data set objects back in onRestoreInstanceState(),
+     * replacing any data sets it was given, without copying or loading the data again.  Get them
+     * with getDataSetList() and getSecondaryDataSetList() to keep appending to them.  Sample
+     * channels whose data set was replaced this way are removed.
+     *
+     * Every retaining GraphView on a screen keeps its own data sets, there is no limit on how
+     * many.  They are dropped when the activity finishes, or when the view was last saved more
+     * than an hour before it is recreated.  Data sets are not kept when the process is killed
+     * either, so the app still has to be able to rebuild them.  A MappedGraphViewDataModel opens
+     * a saved series file again quickly.
+     *
+     * @param retainDataSets true to keep the data sets across configuration changes
+     */
+    public void setRetainDataSets(boolean retainDataSets) {
+        this.retainDataSets = retainDataSets;
+        if (!retainDataSets) {
+            RetainedDataSets.remove(retainedKey);
+            retainedKey = null;
         }
     }
 
-    private void drawRightSideLabels(Canvas canvas, float adjustedDataSetMinY, float rangeOfYValues) {
-        if (!rightSideLabels) return;
-        Paint textPaint = new Paint();
-        textPaint.setColor(0xFF000000); // TODO paint color should be configurable
-        textPaint.setTextSize(30f); // TODO text size should be configurable
-        textPaint.setTextAlign(Paint.Align.LEFT);
-        textPaint.setFakeBoldText(true);
+    public boolean isRetainDataSets() {
+        return retainDataSets;
+    }
 
-        ArrayList<Integer> labelValues = generateLabelValues((int) adjustedDataSetMinY, (int) rangeOfYValues, DEFAULT_NUMBER_Y_LABELS);
-        float pixelsPerValue = ((float) canvas.getHeight() - topAxisMargin - bottomAxisMargin) / rangeOfYValues;
-        float initialLabelOffset = adjustedDataSetMinY * pixelsPerValue;
-        for (int labelValue : labelValues) {
-            canvas.drawText(String.valueOf(labelValue), canvas.getWidth() - rightAxisMargin + 10f, ((float) canvas.getHeight() - bottomAxisMargin + initialLabelOffset) - ((float) labelValue * pixelsPerValue), textPaint);
-        }
+    public int getLabelTextColor() {
+        return painter.getLabelTextColor();
     }
 
-    private void drawKeyLabels(Canvas canvas) {
-        Paint textPaint = new Paint();
-        textPaint.setColor(0xFF000000); // TODO paint color should be configurable
-        textPaint.setTextSize(30f); // TODO text size should be configurable
-        textPaint.setTextAlign(Paint.Align.CENTER);
-        textPaint.setFakeBoldText(true);
-        canvas.drawText(title, canvas.getWidth() / 2f, topAxisMargin / 2f, textPaint);
-        canvas.drawText(bottomText, canvas.getWidth() / 2f, canvas.getHeight() - 20f, textPaint);
-        canvas.rotate(270, 40f, canvas.getHeight() / 2f);
-        canvas.drawText(leftSideText, 40f, canvas.getHeight() / 2f, textPaint);
-        canvas.rotate(-270, 40f, canvas.getHeight() / 2f);
-        canvas.rotate(270, canvas.getWidth() - 20f, canvas.getHeight() / 2f);
-        canvas.drawText(rightSideText, canvas.getWidth() - 20f, canvas.getHeight() / 2f, textPaint);
-        canvas.rotate(-270, canvas.getWidth() - 20f, canvas.getHeight() / 2f);
+    /**
+     * Sets the color of the labels, titles and axis text.
+     *
+     * @param labelTextColor color as an ARGB int
+     */
+    public void setLabelTextColor(int labelTextColor) {
+        painter.setLabelTextColor(labelTextColor);
+        chromeVersion++;
+        requestRedraw();
+    }
+
+    public float getLabelTextSize() {
+        return painter.getLabelTextSize();
     }
 
     /**
-     * Initialize the Paint Objects.
+     * Sets the size of the labels, titles and axis text.
+     *
+     * @param labelTextSize text size in pixels
      */
-    private void setPaintLines() {
-        // TODO Make all paints configurable
-        axisPaint.setColor(0xff000000);
-        axisPaint.setStrokeWidth(5.0f);
-        markerPaint.setColor(0xAAd3d3d3);
-        markerPaint.setStrokeWidth(2.0f);
-        dataSetPaint.setColor(0xFF00A9FF);
-        dataSetPaint.setStrokeWidth(5.0f);
+    public void setLabelTextSize(float labelTextSize) {
+        painter.setLabelTextSize(labelTextSize);
+        chromeVersion++;
+        requestRedraw();
     }
 
     /**
@@ -666,20 +1611,24 @@ public class GraphView extends View {
     protected Parcelable onSaveInstanceState() {
         Parcelable superState = super.onSaveInstanceState();
         GraphView.GraphViewSavedState savedState = new GraphView.GraphViewSavedState(superState);
-        savedState.topAxisMargin = topAxisMargin;
-        savedState.bottomAxisMargin = bottomAxisMargin;
-        savedState.leftAxisMargin = leftAxisMargin;
-        savedState.rightAxisMargin = rightAxisMargin;
+        savedState.topAxisMargin = painter.getTopAxisMargin();
+        savedState.bottomAxisMargin = painter.getBottomAxisMargin();
+        savedState.leftAxisMargin = painter.getLeftAxisMargin();
+        savedState.rightAxisMargin = painter.getRightAxisMargin();
         savedState.graphPaddingFactor = graphPaddingFactor;
-        savedState.shouldDrawBox = shouldDrawBox;
-        savedState.labelStyle = labelStyle;
-        savedState.title = title;
-        savedState.bottomText = bottomText;
-        savedState.leftSideText = leftSideText;
-        savedState.rightSideText = rightSideText;
-        savedState.leftSideLabels = leftSideLabels;
-        savedState.xSideLabels = xAxisLabels;
-        savedState.rightSideLabels = rightSideLabels;
+        savedState.shouldDrawBox = painter.isShouldDrawBox();
+        savedState.labelStyle = painter.getLabelStyle();
+        savedState.title = painter.getTitle();
+        savedState.bottomText = painter.getBottomText();
+        savedState.leftSideText = painter.getLeftSideText();
+        savedState.rightSideText = painter.getRightSideText();
+        savedState.leftSideLabels = painter.isLeftSideLabels();
+        savedState.xSideLabels = painter.isXAxisLabels();
+        savedState.rightSideLabels = painter.isRightSideLabels();
+        if (retainDataSets) {
+            retainedKey = RetainedDataSets.put(retainedKey, dataSetList, secondaryDataSetList);
+            savedState.dataSetsKey = retainedKey;
+        }
         return savedState;
     }
 
@@ -695,20 +1644,36 @@ public class GraphView extends View {
     protected void onRestoreInstanceState(Parcelable state) {
         GraphView.GraphViewSavedState savedState = (GraphView.GraphViewSavedState) state;
         super.onRestoreInstanceState(savedState.getSuperState());
-        setTopAxisMargin(savedState.topAxisMargin);
-        setBottomAxisMargin(savedState.bottomAxisMargin);
-        setLeftAxisMargin(savedState.leftAxisMargin);
-        setRightAxisMargin(savedState.rightAxisMargin);
-        setGraphPaddingFactor(savedState.graphPaddingFactor);
-        setShouldDrawBox(savedState.shouldDrawBox);
-        setLabelStyle(savedState.labelStyle);
-        setTitle(savedState.title);
-        setBottomText(savedState.bottomText);
-        setRightSideText(savedState.rightSideText);
-        setLeftSideText(savedState.leftSideText);
-        setLeftSideLabels(savedState.leftSideLabels);
-        setRightSideLabels(savedState.rightSideLabels);
-        setxAxisLabels(savedState.xSideLabels);
+        Editor editor = edit()
+                .setTopAxisMargin(savedState.topAxisMargin)
+                .setBottomAxisMargin(savedState.bottomAxisMargin)
+                .setLeftAxisMargin(savedState.leftAxisMargin)
+                .setRightAxisMargin(savedState.rightAxisMargin)
+                .setGraphPaddingFactor(savedState.graphPaddingFactor)
+                .setShouldDrawBox(savedState.shouldDrawBox)
+                .setLabelStyle(savedState.labelStyle)
+                .setTitle(savedState.title)
+                .setBottomText(savedState.bottomText)
+                .setRightSideText(savedState.rightSideText)
+                .setLeftSideText(savedState.leftSideText)
+                .setLeftSideLabels(savedState.leftSideLabels)
+                .setRightSideLabels(savedState.rightSideLabels)
+                .setxAxisLabels(savedState.xSideLabels);
+        RetainedDataSets retained = RetainedDataSets.take(savedState.dataSetsKey);
+        if (retained != null) {
+            retainDataSets = true;
+            dataSetList.clear();
+            dataSetList.addAll(retained.dataSetList);
+            secondaryDataSetList.clear();
+            secondaryDataSetList.addAll(retained.secondaryDataSetList);
+            for (int i = sampleChannels.size() - 1; i >= 0; i--) {
+                GraphViewDataModel dataSet = sampleChannels.get(i).getDataSet();
+                if (!dataSetList.contains(dataSet) && !secondaryDataSetList.contains(dataSet)) {
+                    removeSampleChannel(sampleChannels.get(i));
+                }
+            }
+        }
+        editor.apply();
     }
 
     /**
@@ -729,6 +1694,7 @@ public class GraphView extends View {
         private static final String LEFT_SIDE_LABELS = "left side labels";
         private static final String X_AXIS_LABELS = "x side labels";
         private static final String RIGHT_AXIS_LABELS = "right side labels";
+        private static final String DATA_SETS_KEY = "data sets key";
         Bundle bundle;
         float topAxisMargin;
         float bottomAxisMargin;
@@ -744,6 +1710,7 @@ public class GraphView extends View {
         boolean leftSideLabels;
         boolean xSideLabels;
         boolean rightSideLabels;
+        String dataSetsKey;
 
         public GraphViewSavedState(Parcelable superState) {
             super(superState);
@@ -772,6 +1739,7 @@ public class GraphView extends View {
             leftSideLabels = bundle.getBoolean(LEFT_SIDE_LABELS);
             xSideLabels = bundle.getBoolean(X_AXIS_LABELS);
             rightSideLabels = bundle.getBoolean(RIGHT_AXIS_LABELS);
+            dataSetsKey = bundle.getString(DATA_SETS_KEY);
         }
 
         /**
@@ -792,9 +1760,13 @@ public class GraphView extends View {
             outBundle.putBoolean(SHOULD_DRAW_BOX, shouldDrawBox);
             outBundle.putInt(LABEL_STYLE, labelStyle);
             outBundle.putString(TITLE, title);
+            outBundle.putString(RIGHT_SIDE_TEXT, rightSideText);
+            outBundle.putString(LEFT_SIDE_TEXT, leftSideText);
+            outBundle.putString(BOTTOM_TEXT, bottomText);
             outBundle.putBoolean(LEFT_SIDE_LABELS, leftSideLabels);
             outBundle.putBoolean(X_AXIS_LABELS, xSideLabels);
             outBundle.putBoolean(RIGHT_AXIS_LABELS, rightSideLabels);
+            outBundle.putString(DATA_SETS_KEY, dataSetsKey);
             out.writeBundle(outBundle);
         }
 
@@ -2,64 +2,78 @@ package com.sortagreg.graphview;
 
 import android.graphics.Paint;
 import android.graphics.PointF;
-import androidx.annotation.Nullable;
 
-import java.util.Arrays;
-import java.util.Objects;
+import com.sortagreg.graphview.core.Series;
 
 /**
  * Data class for a GraphView.
  *
  * @author Marshall Ladd
  */
-public class GraphViewDataModel {
-
-    /**
-     * Used to specify which type of graph a data set is.
-     */
-    public static final int STANDARD_LINE = 1;
-    public static final int UNFOLDED_LINE = 2;
-    public static final int CONSTANT_LINE = 3;
-    public static final int STATE_LINE = 4;
-
+public class GraphViewDataModel extends Series<Paint> {
+    // Compatibility view for getDataSet(), only built when somebody asks for it
     private PointF[] dataSet;
-    private Paint paint;
-    private Integer graphType;
+    private int dataSetVersion;
 
     /**
      * Constructor for a data set, used in GraphView
      *
+     * The points are unpacked once into the columnar store, the array itself is
+     * kept as the view returned by getDataSet().
+     *
      * @param dataSet PointF[] of points to be drawn
      * @param paint Paint object to specify the properties of how the data should be drawn
      * @param graphType Type of graph to draw this data set as
      */
     public GraphViewDataModel(PointF[] dataSet, Paint paint, Integer graphType) {
-        this.dataSet = dataSet;
-        this.paint = paint;
-        this.graphType = graphType;
+        super(paint, graphType);
+        setDataSet(dataSet);
     }
 
     /**
      * Constructor for a data set, used in GraphView
      *
+     * The arrays are adopted as the backing store, they are not copied.  Changes made to
+     * them afterwards are only drawn after notifyDataChanged() is called, which also updates
+     * the bounds.
+     *
+     * @param xSet float[] of X values
+     * @param ySet float[] of Y values, one for every point
      * @param paint Paint object to specify the properties of how the data should be drawn
      * @param graphType Type of graph to draw this data set as
      */
     public GraphViewDataModel(float[] xSet, float[] ySet, Paint paint, Integer graphType) {
-        this.dataSet = new PointF[ySet.length];
-        for (int i = 0; i < this.dataSet.length; i++) {
-            dataSet[i] = new PointF(xSet[i], ySet[i]);
-        }
-        this.paint = paint;
-        this.graphType = graphType;
+        super(xSet, ySet, paint, graphType);
+    }
+
+    /**
+     * Constructor for subclasses that keep their points in their own storage.
+     * Starts out with an empty data set.
+     *
+     * @param paint Paint object to specify the properties of how the data should be drawn
+     * @param graphType Type of graph to draw this data set as
+     */
+    protected GraphViewDataModel(Paint paint, Integer graphType) {
+        super(paint, graphType);
     }
 
     /**
      * Returns the data set
      *
+     * This is a compatibility view of the columnar store and is built the first time it
+     * is requested after a change.  GraphView does not use it, prefer size(), getX() and getY().
+     *
      * @return PointF[] data set
      */
     public PointF[] getDataSet() {
+        if (dataSet == null || dataSetVersion != getVersion()) {
+            PointF[] points = new PointF[size()];
+            for (int i = 0; i < size(); i++) {
+                points[i] = new PointF(getX(i), getY(i));
+            }
+            dataSet = points;
+            dataSetVersion = getVersion();
+        }
         return dataSet;
     }
 
@@ -69,69 +83,14 @@ public class GraphViewDataModel {
      * @param dataSet
      */
     public void setDataSet(PointF[] dataSet) {
+        float[] xSet = new float[dataSet.length];
+        float[] ySet = new float[dataSet.length];
+        for (int i = 0; i < dataSet.length; i++) {
+            xSet[i] = dataSet[i].x;
+            ySet[i] = dataSet[i].y;
+        }
+        setData(xSet, ySet);
         this.dataSet = dataSet;
-    }
-
-    /**
-     * Get the Paint object assigned to the data model
-     *
-     * @return Paint
-     */
-    public Paint getPaint() {
-        return paint;
-    }
-
-    /**
-     *
-     * @param paint
-     */
-    public void setPaint(Paint paint) {
-        this.paint = paint;
-    }
-
-    /**
-     * Get the Integer flag that specifies which typ of graph to draw this data set as
-     *
-     * @return
-     */
-    public Integer getGraphType() {
-        return graphType;
-    }
-
-    /**
-     * Sets which type of graph to draw the data as.
-     * Use the constant values in this class.
-     *
-     * @param graphType
-     */
-    public void setGraphType(Integer graphType) {
-        this.graphType = graphType;
-    }
-
-    @Override
-    public String toString() {
-        return "GraphViewDataModel{" +
-                "dataSet=" + Arrays.toString(dataSet) +
-                ", paint=" + paint +
-                ", graphType=" + graphType +
-                '}';
-    }
-
-    @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        GraphViewDataModel that = (GraphViewDataModel) o;
-        return Arrays.equals(dataSet, that.dataSet) &&
-                Objects.equals(paint, that.paint) &&
-                Objects.equals(graphType, that.graphType);
-    }
-
-    @Override
-    public int hashCode() {
-
-        int result = Objects.hash(paint, graphType);
-        result = 31 * result + Arrays.hashCode(dataSet);
-        return result;
+        this.dataSetVersion = getVersion();
     }
 }
@@ -0,0 +1,118 @@
+package com.sortagreg.graphview;
+
+import android.graphics.Paint;
+
+import com.sortagreg.graphview.core.SeriesFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.FloatBuffer;
+
+/**
+ * Data set drawn straight from a memory mapped SeriesFile, used in GraphView
+ *
+ * Opening the data set only reads the header of the file.  The points stay in the file and are
+ * paged in as GraphView draws them, so data sets far larger than the Java heap can be shown.  The
+ * bounds come from the header, and the level of detail index stored in the file is used as-is,
+ * so nothing is scanned when the data set is added to a graph.  Data sets with an index start out
+ * with DECIMATION_MIN_MAX, so the index is used.
+ *
+ * The file is never written to.  setData() and append() copy the points into memory the first
+ * time they are called, from then on the data set is kept in memory like a GraphViewDataModel.
+ *
+ * Write the file once with SeriesFile.write(), for example from a GraphViewDataModel.
+ */
+public class MappedGraphViewDataModel extends GraphViewDataModel {
+    private final SeriesFile file;
+    private final FloatBuffer xColumn;
+    private final FloatBuffer yColumn;
+
+    /**
+     * Constructor for a data set drawn as the graph type stored in the file
+     *
+     * @param file file written by SeriesFile.write()
+     * @param paint Paint object to specify the properties of how the data should be drawn
+     * @throws IOException if the file can not be mapped
+     */
+    public MappedGraphViewDataModel(File file, Paint paint) throws IOException {
+        this(SeriesFile.map(file), paint, null);
+    }
+
+    /**
+     * Constructor for a data set from a file that was already mapped
+     *
+     * @param file mapped file
+     * @param paint Paint object to specify the properties of how the data should be drawn
+     * @param graphType Type of graph to draw this data set as, null for the one stored in the file
+     */
+    public MappedGraphViewDataModel(SeriesFile file, Paint paint, Integer graphType) {
+        super(paint, graphType != null ? graphType : file.getGraphType());
+        this.file = file;
+        this.xColumn = file.getXColumn();
+        this.yColumn = file.getYColumn();
+        setLevelOfDetail(file);
+        if (file.hasLevelOfDetail()) setDecimationMode(DECIMATION_MIN_MAX);
+    }
+
+    /**
+     * Returns the mapped file the points were read from, even after they were copied into memory
+     *
+     * @return SeriesFile
+     */
+    public SeriesFile getSeriesFile() {
+        return file;
+    }
+
+    @Override
+    public int size() {
+        return isArrayBacked() ? super.size() : file.size();
+    }
+
+    @Override
+    public float getX(int index) {
+        return isArrayBacked() ? super.getX(index) : xColumn.get(index);
+    }
+
+    @Override
+    public float getY(int index) {
+        return isArrayBacked() ? super.getY(index) : yColumn.get(index);
+    }
+
+    /**
+     * The file does not change, so the bounds and the index are kept.  Only marks the data set
+     * as changed so it is drawn again, unless the points were copied into memory.
+     */
+    @Override
+    public void notifyDataChanged() {
+        if (isArrayBacked()) {
+            super.notifyDataChanged();
+        } else {
+            incrementVersion();
+        }
+    }
+
+    @Override
+    public boolean isXAscending() {
+        return isArrayBacked() ? super.isXAscending() : file.isXAscending();
+    }
+
+    @Override
+    public float getMinX() {
+        return isArrayBacked() ? super.getMinX() : file.getMinX();
+    }
+
+    @Override
+    public float getMaxX() {
+        return isArrayBacked() ? super.getMaxX() : file.getMaxX();
+    }
+
+    @Override
+    public float getMinY() {
+        return isArrayBacked() ? super.getMinY() : file.getMinY();
+    }
+
+    @Override
+    public float getMaxY() {
+        return isArrayBacked() ? super.getMaxY() : file.getMaxY();
+    }
+}
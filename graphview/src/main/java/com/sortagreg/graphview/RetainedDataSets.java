@@ -0,0 +1,92 @@
+package com.sortagreg.graphview;
+
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Process-local store that keeps the data sets of a GraphView across a configuration change.
+ *
+ * Only a key is written to the saved state of the view, the data sets themselves stay in memory
+ * and are handed to the new view as they are.  Nothing is copied or parceled, so the size of the
+ * data makes no difference to the saved state and restoring does not load the data again.
+ *
+ * An entry is removed when it is restored, or when the view is detached from an activity that is
+ * finishing.  There is no limit on the number of entries, every view on a screen keeps its own.
+ * Entries that are never restored, because the view was saved but not recreated some other way,
+ * are dropped when they were last saved more than MAX_AGE_MILLIS ago.  The store does not survive
+ * the death of the process, a view restored in a new process or after MAX_AGE_MILLIS finds
+ * nothing and keeps the data sets it was given.
+ */
+final class RetainedDataSets {
+    static final long MAX_AGE_MILLIS = 60L * 60 * 1000;
+
+    // In the order the entries were last saved, the oldest first
+    private static final Map<String, RetainedDataSets> store = new LinkedHashMap<>();
+
+    final List<GraphViewDataModel> dataSetList;
+    final List<GraphViewDataModel> secondaryDataSetList;
+    private final long savedAtMillis;
+
+    private RetainedDataSets(List<GraphViewDataModel> dataSetList, List<GraphViewDataModel> secondaryDataSetList, long savedAtMillis) {
+        this.dataSetList = new ArrayList<>(dataSetList);
+        this.secondaryDataSetList = new ArrayList<>(secondaryDataSetList);
+        this.savedAtMillis = savedAtMillis;
+    }
+
+    /**
+     * Keeps the data sets under a key, replacing whatever was kept under it before.
+     *
+     * @param key key returned by an earlier put() from the same view, or null for a new key
+     * @param dataSetList data sets drawn against the left axis
+     * @param secondaryDataSetList data sets drawn against the right axis
+     * @return String key to restore the data sets with
+     */
+    static String put(String key, List<GraphViewDataModel> dataSetList, List<GraphViewDataModel> secondaryDataSetList) {
+        return put(key, dataSetList, secondaryDataSetList, SystemClock.elapsedRealtime());
+    }
+
+    /**
+     * put() at a given time, dropping the entries that were last saved too long before it.
+     */
+    static String put(String key, List<GraphViewDataModel> dataSetList, List<GraphViewDataModel> secondaryDataSetList, long nowMillis) {
+        if (key == null) key = UUID.randomUUID().toString();
+        synchronized (store) {
+            // Removed first so the entry moves to the end, the store stays in order of age
+            store.remove(key);
+            Iterator<RetainedDataSets> iterator = store.values().iterator();
+            while (iterator.hasNext() && nowMillis - iterator.next().savedAtMillis > MAX_AGE_MILLIS) {
+                iterator.remove();
+            }
+            store.put(key, new RetainedDataSets(dataSetList, secondaryDataSetList, nowMillis));
+        }
+        return key;
+    }
+
+    /**
+     * Removes and returns the data sets kept under a key.
+     *
+     * @param key key returned by put()
+     * @return RetainedDataSets or null if nothing is kept under the key
+     */
+    static RetainedDataSets take(String key) {
+        if (key == null) return null;
+        synchronized (store) {
+            return store.remove(key);
+        }
+    }
+
+    /**
+     * Drops the data sets kept under a key, if any.
+     *
+     * @param key key returned by put()
+     */
+    static void remove(String key) {
+        take(key);
+    }
+}
@@ -0,0 +1,104 @@
+package com.sortagreg.graphview;
+
+import com.sortagreg.graphview.core.SampleQueue;
+
+/**
+ * Lock-free way to feed samples to a data set from any number of threads
+ *
+ * Producers offer samples to the channel instead of appending to the data set.  The samples wait
+ * in a bounded SampleQueue and are appended to the data set once per frame by the view drawing
+ * it, so the data set is only ever written by that view's thread.  Offering a sample never takes
+ * a lock, never allocates and never waits for a frame.
+ *
+ * Register the channel with GraphView.addSampleChannel() or GraphSurfaceView.addSampleChannel()
+ * after adding its data set to the view.  GraphView posts at most one redraw per frame however
+ * many samples arrive, there is no need to call invalidate().
+ */
+public class SampleChannel {
+    /**
+     * Used to specify what happens to a sample offered while the channel is full.
+     */
+    public static final int DROP_NEWEST = SampleQueue.DROP_NEWEST;
+    public static final int DROP_OLDEST = SampleQueue.DROP_OLDEST;
+
+    /**
+     * Told when samples arrive, by the view the channel is registered with.
+     */
+    interface Owner {
+        /**
+         * Called on the producing thread after every sample, must not block.
+         */
+        void onSamplesOffered();
+    }
+
+    private final GraphViewDataModel dataSet;
+    private final SampleQueue queue;
+    private volatile Owner owner;
+    // Only used by the thread draining the channel
+    private final float[] xBuffer;
+    private final float[] yBuffer;
+
+    /**
+     * Constructor for a channel feeding a data set
+     *
+     * @param dataSet data set the samples are appended to, usually a StreamingGraphViewDataModel
+     * @param capacity most samples waiting at once, rounded up to a power of two
+     * @param dropPolicy DROP_NEWEST or DROP_OLDEST
+     */
+    public SampleChannel(GraphViewDataModel dataSet, int capacity, int dropPolicy) {
+        this.dataSet = dataSet;
+        this.queue = new SampleQueue(capacity, dropPolicy);
+        int bufferSize = Math.min(queue.getCapacity(), 4096);
+        xBuffer = new float[bufferSize];
+        yBuffer = new float[bufferSize];
+    }
+
+    public GraphViewDataModel getDataSet() {
+        return dataSet;
+    }
+
+    /**
+     * Adds a sample.  Safe to call from any number of threads at once.
+     *
+     * @param x X value
+     * @param y Y value
+     * @return boolean false if the channel was full and the sample was dropped
+     */
+    public boolean offer(float x, float y) {
+        boolean added = queue.offer(x, y);
+        Owner owner = this.owner;
+        if (added && owner != null) owner.onSamplesOffered();
+        return added;
+    }
+
+    /**
+     * @return long number of samples dropped because the channel was full
+     */
+    public long getDroppedCount() {
+        return queue.getDroppedCount();
+    }
+
+    void setOwner(Owner owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * Appends the waiting samples to the data set.  Stops after one capacity's worth, so producers
+     * that never pause can not keep the drain going forever.
+     *
+     * @return int number of samples appended
+     */
+    int drain() {
+        int total = 0;
+        int limit = queue.getCapacity();
+        while (total < limit) {
+            int count = queue.drain(xBuffer, yBuffer, 0, Math.min(xBuffer.length, limit - total));
+            if (count == 0) break;
+            for (int i = 0; i < count; i++) {
+                dataSet.append(xBuffer[i], yBuffer[i]);
+            }
+            total += count;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,145 @@
+package com.sortagreg.graphview;
+
+import android.graphics.Paint;
+
+import com.sortagreg.graphview.core.StateRuns;
+
+/**
+ * STATE_LINE data set kept as runs of equal states, used in GraphView
+ *
+ * Only the index of the first sample and the state of every run are stored, so a signal that
+ * rarely changes takes memory and drawing time in proportion to its number of changes.  States
+ * are drawn by the position of their sample, the X value of a point is its index.
+ * getXValues() and getYValues() expand the runs into new arrays.
+ *
+ * Call invalidate() on the GraphView showing this data set after appending to it.
+ */
+public class StateGraphViewDataModel extends GraphViewDataModel {
+    private final StateRuns runs = new StateRuns();
+
+    /**
+     * Constructor for an empty state data set
+     *
+     * @param paint Paint object to specify the properties of how the data should be drawn
+     */
+    public StateGraphViewDataModel(Paint paint) {
+        super(paint, STATE_LINE);
+    }
+
+    /**
+     * Constructor for a state data set
+     *
+     * @param states float[] of the state of every sample, 0 or 1 for a binary state
+     * @param paint Paint object to specify the properties of how the data should be drawn
+     */
+    public StateGraphViewDataModel(float[] states, Paint paint) {
+        this(paint);
+        runs.setStates(states);
+        incrementVersion();
+    }
+
+    /**
+     * Add a sample
+     *
+     * @param state state of the sample
+     */
+    public void append(float state) {
+        runs.append(state);
+        incrementVersion();
+    }
+
+    /**
+     * Add a number of samples that all have the same state
+     *
+     * @param state state of the samples
+     * @param length number of samples
+     */
+    public void appendRun(float state, int length) {
+        runs.appendRun(state, length);
+        incrementVersion();
+    }
+
+    /**
+     * Add a sample.  The X value is not kept, samples are drawn by their position.
+     *
+     * @param x ignored
+     * @param y state of the sample
+     */
+    @Override
+    public void append(float x, float y) {
+        append(y);
+    }
+
+    /**
+     * Replace every sample.  The X values are not kept, samples are drawn by their position.
+     *
+     * @param xSet ignored
+     * @param ySet float[] of the state of every sample
+     */
+    @Override
+    public void setData(float[] xSet, float[] ySet) {
+        runs.setStates(ySet);
+        incrementVersion();
+    }
+
+    @Override
+    public StateRuns getStateRuns() {
+        return runs;
+    }
+
+    @Override
+    public int size() {
+        return runs.size();
+    }
+
+    @Override
+    public float getX(int index) {
+        return index;
+    }
+
+    @Override
+    public float getY(int index) {
+        return runs.getState(index);
+    }
+
+    @Override
+    public void notifyDataChanged() {
+        incrementVersion();
+    }
+
+    /**
+     * State data sets are drawn from their runs, which already grow with the number of changes
+     * rather than the number of samples, so the level of detail index is never kept.
+     *
+     * @return boolean false
+     */
+    @Override
+    public boolean isLevelOfDetailSupported() {
+        return false;
+    }
+
+    @Override
+    public boolean isXAscending() {
+        return true;
+    }
+
+    @Override
+    public float getMinX() {
+        return runs.size() == 0 ? Float.MAX_VALUE : 0;
+    }
+
+    @Override
+    public float getMaxX() {
+        return runs.size() == 0 ? -Float.MAX_VALUE : runs.size() - 1;
+    }
+
+    @Override
+    public float getMinY() {
+        return runs.getMinState();
+    }
+
+    @Override
+    public float getMaxY() {
+        return runs.getMaxState();
+    }
+}
@@ -0,0 +1,330 @@
+package com.sortagreg.graphview;
+
+import android.graphics.Paint;
+import android.graphics.PointF;
+
+/**
+ * Fixed capacity data set for live data, used in GraphView
+ *
+ * Points are kept in a circular buffer of primitive floats.  Once the buffer is full, every
+ * new point replaces the oldest one, so appending never allocates and takes constant time.
+ * The bounds of the points currently in the window are maintained as points come and go,
+ * so GraphView never has to rescan the buffer.
+ *
+ * Index 0 is always the oldest point, GraphView draws the points in the order they were
+ * appended.  Call invalidate() on the GraphView showing this data set after appending to it.
+ *
+ * getXValues() and getYValues() copy the points into new arrays in that order.  To read them
+ * without allocating use getX() and getY(), or the buffers themselves from getRingXValues() and
+ * getRingYValues() starting at getStartSlot().
+ */
+public class StreamingGraphViewDataModel extends GraphViewDataModel {
+    private final int capacity;
+    private final float[] xRing;
+    private final float[] yRing;
+    // Slot of the oldest point
+    private int start;
+    private int count;
+    // Number of neighbouring points in the window whose X value goes down
+    private int xDescents;
+
+    private final WindowExtreme minXWindow;
+    private final WindowExtreme maxXWindow;
+    private final WindowExtreme minYWindow;
+    private final WindowExtreme maxYWindow;
+
+    /**
+     * Constructor for an empty streaming data set
+     *
+     * @param capacity maximum number of points kept, older points are dropped
+     * @param paint Paint object to specify the properties of how the data should be drawn
+     * @param graphType Type of graph to draw this data set as
+     */
+    public StreamingGraphViewDataModel(int capacity, Paint paint, Integer graphType) {
+        super(paint, graphType);
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1, was " + capacity);
+        }
+        this.capacity = capacity;
+        this.xRing = new float[capacity];
+        this.yRing = new float[capacity];
+        this.minXWindow = new WindowExtreme(xRing, false);
+        this.maxXWindow = new WindowExtreme(xRing, true);
+        this.minYWindow = new WindowExtreme(yRing, false);
+        this.maxYWindow = new WindowExtreme(yRing, true);
+    }
+
+    /**
+     * Returns the maximum number of points kept
+     *
+     * @return int capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public float getX(int index) {
+        return xRing[slot(index)];
+    }
+
+    @Override
+    public float getY(int index) {
+        return yRing[slot(index)];
+    }
+
+    /**
+     * Returns the circular buffer of X values.  The oldest point is at getStartSlot() and the
+     * points wrap around the end of the array.  The buffer is not a copy, do not change it.
+     *
+     * @return float[] X values, getCapacity() long
+     */
+    public float[] getRingXValues() {
+        return xRing;
+    }
+
+    /**
+     * Returns the circular buffer of Y values.  The oldest point is at getStartSlot() and the
+     * points wrap around the end of the array.  The buffer is not a copy, do not change it.
+     *
+     * @return float[] Y values, getCapacity() long
+     */
+    public float[] getRingYValues() {
+        return yRing;
+    }
+
+    /**
+     * Returns the slot in getRingXValues() and getRingYValues() holding the oldest point
+     *
+     * @return int slot
+     */
+    public int getStartSlot() {
+        return start;
+    }
+
+    /**
+     * Add a point, dropping the oldest point if the buffer is full.
+     *
+     * @param x X value
+     * @param y Y value
+     */
+    @Override
+    public void append(float x, float y) {
+        int slot;
+        if (count > 0 && capacity > 1 && x < getX(count - 1)) xDescents++;
+        if (count == capacity) {
+            slot = start;
+            evict(slot);
+            start = start + 1 == capacity ? 0 : start + 1;
+        } else {
+            slot = slot(count);
+            count++;
+        }
+        xRing[slot] = x;
+        yRing[slot] = y;
+        minXWindow.push(slot);
+        maxXWindow.push(slot);
+        minYWindow.push(slot);
+        maxYWindow.push(slot);
+        incrementVersion();
+    }
+
+    /**
+     * Add a group of points.  Only the last getCapacity() of them are kept.
+     *
+     * @param xSet float[] of X values
+     * @param ySet float[] of Y values, one for every point
+     */
+    public void appendBatch(float[] xSet, float[] ySet) {
+        appendBatch(xSet, ySet, 0, ySet.length);
+    }
+
+    /**
+     * Add a range of points from a pair of arrays.  Only the last getCapacity() of them are kept.
+     *
+     * @param xSet float[] of X values
+     * @param ySet float[] of Y values
+     * @param offset index of the first point to add
+     * @param length number of points to add
+     */
+    public void appendBatch(float[] xSet, float[] ySet, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > xSet.length || offset + length > ySet.length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length);
+        }
+        // Points that would be evicted by the same batch are skipped entirely
+        int skip = Math.max(0, length - capacity);
+        for (int i = offset + skip; i < offset + length; i++) {
+            append(xSet[i], ySet[i]);
+        }
+    }
+
+    /**
+     * Removes all points.
+     */
+    public void clear() {
+        incrementVersion();
+        start = 0;
+        count = 0;
+        xDescents = 0;
+        minXWindow.clear();
+        maxXWindow.clear();
+        minYWindow.clear();
+        maxYWindow.clear();
+    }
+
+    /**
+     * Replaces the contents of the buffer with the last getCapacity() points of the given arrays.
+     * The arrays are copied into the buffer.
+     *
+     * @param xSet float[] of X values
+     * @param ySet float[] of Y values, one for every point
+     */
+    @Override
+    public void setData(float[] xSet, float[] ySet) {
+        if (xSet.length < ySet.length) {
+            throw new IllegalArgumentException("xSet has " + xSet.length + " values, ySet has " + ySet.length);
+        }
+        clear();
+        appendBatch(xSet, ySet);
+    }
+
+    @Override
+    public void notifyDataChanged() {
+        incrementVersion();
+        minXWindow.clear();
+        maxXWindow.clear();
+        minYWindow.clear();
+        maxYWindow.clear();
+        xDescents = 0;
+        for (int i = 0; i < count; i++) {
+            int slot = slot(i);
+            if (i > 0 && xRing[slot] < getX(i - 1)) xDescents++;
+            minXWindow.push(slot);
+            maxXWindow.push(slot);
+            minYWindow.push(slot);
+            maxYWindow.push(slot);
+        }
+    }
+
+    /**
+     * Returns a snapshot of the points currently in the buffer.  A new array is built every
+     * time this is called.
+     *
+     * @return PointF[] data set
+     */
+    @Override
+    public PointF[] getDataSet() {
+        PointF[] points = new PointF[count];
+        for (int i = 0; i < count; i++) {
+            points[i] = new PointF(getX(i), getY(i));
+        }
+        return points;
+    }
+
+    @Override
+    public boolean isXAscending() {
+        return xDescents == 0;
+    }
+
+    /**
+     * The level of detail index can not drop points from the front, so it is never kept.
+     * Decimation works with streaming data sets.
+     *
+     * @return boolean false
+     */
+    @Override
+    public boolean isLevelOfDetailSupported() {
+        return false;
+    }
+
+    @Override
+    public float getMinX() {
+        return count == 0 ? Float.MAX_VALUE : xRing[minXWindow.peek()];
+    }
+
+    @Override
+    public float getMaxX() {
+        return count == 0 ? -Float.MAX_VALUE : xRing[maxXWindow.peek()];
+    }
+
+    @Override
+    public float getMinY() {
+        return count == 0 ? Float.MAX_VALUE : yRing[minYWindow.peek()];
+    }
+
+    @Override
+    public float getMaxY() {
+        return count == 0 ? -Float.MAX_VALUE : yRing[maxYWindow.peek()];
+    }
+
+    private int slot(int index) {
+        int slot = start + index;
+        return slot >= capacity ? slot - capacity : slot;
+    }
+
+    private void evict(int slot) {
+        if (count > 1 && xRing[slot(1)] < xRing[slot]) xDescents--;
+        minXWindow.evict(slot);
+        maxXWindow.evict(slot);
+        minYWindow.evict(slot);
+        maxYWindow.evict(slot);
+    }
+
+    /**
+     * Monotonic queue of buffer slots that tracks the minimum or maximum of a sliding window.
+     *
+     * The slot at the front always holds the extreme value of the window.  Each slot is pushed
+     * and removed at most once, so keeping it up to date is amortized O(1) per point.
+     */
+    private static class WindowExtreme {
+        private final float[] values;
+        private final boolean max;
+        private final int[] slots;
+        private int head;
+        private int size;
+
+        WindowExtreme(float[] values, boolean max) {
+            this.values = values;
+            this.max = max;
+            this.slots = new int[values.length];
+        }
+
+        void push(int slot) {
+            float value = values[slot];
+            // Anything that is not more extreme than the new value can never be the extreme again
+            while (size > 0) {
+                float last = values[slots[index(size - 1)]];
+                if (max ? last > value : last < value) break;
+                size--;
+            }
+            slots[index(size)] = slot;
+            size++;
+        }
+
+        void evict(int slot) {
+            if (size > 0 && slots[head] == slot) {
+                head = index(1);
+                size--;
+            }
+        }
+
+        int peek() {
+            return slots[head];
+        }
+
+        void clear() {
+            head = 0;
+            size = 0;
+        }
+
+        private int index(int offset) {
+            int index = head + offset;
+            return index >= slots.length ? index - slots.length : index;
+        }
+    }
+}
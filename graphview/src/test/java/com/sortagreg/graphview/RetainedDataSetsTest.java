@@ -0,0 +1,47 @@
+package com.sortagreg.graphview;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.sortagreg.graphview.GraphViewDataModel.*;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the data sets of every retaining view on a screen survive a configuration change.
+ */
+public class RetainedDataSetsTest {
+
+    @Test
+    public void manyViewsAreAllRestored() {
+        int viewCount = 20;
+        List<String> keys = new ArrayList<>();
+        List<GraphViewDataModel> models = new ArrayList<>();
+        for (int i = 0; i < viewCount; i++) {
+            GraphViewDataModel model = new GraphViewDataModel(new float[]{0f, 1f}, new float[]{i, i}, null, STANDARD_LINE);
+            models.add(model);
+            keys.add(RetainedDataSets.put(null, Collections.singletonList(model), Collections.<GraphViewDataModel>emptyList(), 1000L));
+        }
+        for (int i = 0; i < viewCount; i++) {
+            RetainedDataSets retained = RetainedDataSets.take(keys.get(i));
+            assertNotNull(retained);
+            assertSame(models.get(i), retained.dataSetList.get(0));
+        }
+    }
+
+    @Test
+    public void entriesNotSavedForTooLongAreDropped() {
+        List<GraphViewDataModel> none = Collections.emptyList();
+        String old = RetainedDataSets.put(null, none, none, 0L);
+        String saved = RetainedDataSets.put(null, none, none, 0L);
+        // Saved again, a view that is still around keeps its entry fresh
+        RetainedDataSets.put(saved, none, none, RetainedDataSets.MAX_AGE_MILLIS);
+        String recent = RetainedDataSets.put(null, none, none, RetainedDataSets.MAX_AGE_MILLIS + 1);
+
+        assertNull(RetainedDataSets.take(old));
+        assertNotNull(RetainedDataSets.take(saved));
+        assertNotNull(RetainedDataSets.take(recent));
+    }
+}
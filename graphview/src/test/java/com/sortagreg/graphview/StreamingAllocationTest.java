@@ -0,0 +1,149 @@
+package com.sortagreg.graphview;
+
+import android.graphics.Paint;
+
+import com.sortagreg.graphview.core.GraphFrame;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+
+import static com.sortagreg.graphview.GraphViewDataModel.*;
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Checks that appending to a StreamingGraphViewDataModel and projecting it does not allocate once
+ * it is warmed up, both directly and through a SampleChannel drained before every projection as
+ * GraphView.onDraw() does.  Drawing the frame is covered by the tests of graphview-core, which
+ * draw into a RecordingRenderer, CanvasRenderer needs a real Canvas.
+ */
+public class StreamingAllocationTest {
+    // The JIT allocates once while it compiles the projection, a few thousand frames in
+    private static final int WARM_UP_FRAMES = 10000;
+    private static final int MEASURED_FRAMES = 200;
+    private static final int MEASURED_RUNS = 5;
+
+    private com.sun.management.ThreadMXBean threads;
+    private GraphFrame<Paint> frame;
+    private StreamingGraphViewDataModel live;
+
+    @Before
+    public void setUp() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        live = new StreamingGraphViewDataModel(1000, null, STANDARD_LINE);
+        for (int i = 0; i < live.getCapacity(); i++) {
+            live.append(i, i % 7);
+        }
+
+        frame = new GraphFrame<>();
+        frame.setSize(1080, 720);
+        frame.setMargins(GraphView.DEFAULT_TOP_MARGIN, GraphView.DEFAULT_BOTTOM_MARGIN, GraphView.DEFAULT_LEFT_MARGIN, GraphView.DEFAULT_RIGHT_MARGIN);
+        frame.setDataSets(Collections.singletonList(live), Collections.<GraphViewDataModel>emptyList());
+    }
+
+    @Test
+    public void projectingLiveDataDoesNotAllocate() {
+        final float[] next = {live.getCapacity()};
+        Runnable appendAndProject = new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < MEASURED_FRAMES; i++) {
+                    live.append(next[0], next[0] % 11);
+                    next[0]++;
+                    frame.project();
+                }
+            }
+        };
+        for (int i = 0; i < WARM_UP_FRAMES / MEASURED_FRAMES; i++) {
+            appendAndProject.run();
+        }
+        assertNoAllocations(appendAndProject);
+    }
+
+    @Test
+    public void drainingAChannelAndProjectingDoesNotAllocate() {
+        final SampleChannel channel = new SampleChannel(live, 64, SampleChannel.DROP_OLDEST);
+        final float[] next = {live.getCapacity()};
+        Runnable offerDrainAndProject = new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < MEASURED_FRAMES; i++) {
+                    for (int sample = 0; sample < 4; sample++) {
+                        channel.offer(next[0], next[0] % 11);
+                        next[0]++;
+                    }
+                    channel.drain();
+                    frame.project();
+                }
+            }
+        };
+        for (int i = 0; i < WARM_UP_FRAMES / MEASURED_FRAMES; i++) {
+            offerDrainAndProject.run();
+        }
+        assertNoAllocations(offerDrainAndProject);
+        assertEquals(next[0] - 1, live.getX(live.size() - 1), 0f);
+    }
+
+    @Test
+    public void projectingDecimatedLiveDataDoesNotAllocate() {
+        final StreamingGraphViewDataModel decimated = new StreamingGraphViewDataModel(16384, null, STANDARD_LINE);
+        decimated.setDecimationMode(DECIMATION_MIN_MAX);
+        for (int i = 0; i < decimated.getCapacity(); i++) {
+            decimated.append(i, i % 7);
+        }
+        frame.setDataSets(Collections.<GraphViewDataModel>singletonList(decimated), Collections.<GraphViewDataModel>emptyList());
+        // A second graph of another size drawing the same data set, through the DecimationCache
+        final GraphFrame<Paint> otherFrame = new GraphFrame<>();
+        otherFrame.setSize(720, 480);
+        otherFrame.setMargins(GraphView.DEFAULT_TOP_MARGIN, GraphView.DEFAULT_BOTTOM_MARGIN, GraphView.DEFAULT_LEFT_MARGIN, GraphView.DEFAULT_RIGHT_MARGIN);
+        otherFrame.setDataSets(Collections.<GraphViewDataModel>singletonList(decimated), Collections.<GraphViewDataModel>emptyList());
+        final float[] next = {decimated.getCapacity()};
+        final boolean[] shared = {false};
+        Runnable appendAndProject = new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < MEASURED_FRAMES; i++) {
+                    decimated.append(next[0], next[0] % 11);
+                    next[0]++;
+                    frame.project();
+                    if (shared[0]) otherFrame.project();
+                }
+            }
+        };
+        for (int i = 0; i < WARM_UP_FRAMES / MEASURED_FRAMES; i++) {
+            appendAndProject.run();
+        }
+        assertNoAllocations(appendAndProject);
+
+        shared[0] = true;
+        for (int i = 0; i < WARM_UP_FRAMES / MEASURED_FRAMES; i++) {
+            appendAndProject.run();
+        }
+        assertNoAllocations(appendAndProject);
+        assertTrue(frame.getSegmentCount() < decimated.size());
+    }
+
+    /**
+     * Runs warmed up work MEASURED_RUNS times and checks that no run allocated.
+     */
+    private void assertNoAllocations(Runnable work) {
+        long thread = Thread.currentThread().getId();
+        for (int run = 0; run < MEASURED_RUNS; run++) {
+            // Reading the counter can allocate by itself, measure that first and take it off
+            long before = threads.getThreadAllocatedBytes(thread);
+            long overhead = threads.getThreadAllocatedBytes(thread) - before;
+            before = threads.getThreadAllocatedBytes(thread);
+            work.run();
+            long allocated = threads.getThreadAllocatedBytes(thread) - before - overhead;
+            assertEquals("run " + run, 0L, allocated);
+        }
+    }
+}
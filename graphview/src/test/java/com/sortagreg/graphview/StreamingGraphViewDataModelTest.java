@@ -0,0 +1,37 @@
+package com.sortagreg.graphview;
+
+import org.junit.Test;
+
+import static com.sortagreg.graphview.GraphViewDataModel.*;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that a StreamingGraphViewDataModel that wrapped around its buffer still hands out its
+ * points oldest first.
+ */
+public class StreamingGraphViewDataModelTest {
+
+    @Test
+    public void valuesAreInOrderAfterTheBufferWraps() {
+        StreamingGraphViewDataModel live = new StreamingGraphViewDataModel(4, null, STANDARD_LINE);
+        for (int i = 0; i < 6; i++) {
+            live.append(i, i * 10);
+        }
+
+        assertArrayEquals(new float[]{2f, 3f, 4f, 5f}, live.getXValues(), 0f);
+        assertArrayEquals(new float[]{20f, 30f, 40f, 50f}, live.getYValues(), 0f);
+    }
+
+    @Test
+    public void ringBuffersStartAtTheOldestPoint() {
+        StreamingGraphViewDataModel live = new StreamingGraphViewDataModel(4, null, STANDARD_LINE);
+        for (int i = 0; i < 6; i++) {
+            live.append(i, i * 10);
+        }
+
+        assertEquals(2, live.getStartSlot());
+        assertArrayEquals(new float[]{4f, 5f, 2f, 3f}, live.getRingXValues(), 0f);
+        assertEquals(2f, live.getRingXValues()[live.getStartSlot()], 0f);
+        assertEquals(20f, live.getRingYValues()[live.getStartSlot()], 0f);
+    }
+}